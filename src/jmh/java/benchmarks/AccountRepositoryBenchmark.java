@@ -0,0 +1,70 @@
+package benchmarks;
+
+import application.exceptions.MaxAccountsReachedException;
+import application.models.Account;
+import application.models.User;
+import infrastructure.InMemoryAccountRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link InMemoryAccountRepository#getAccountsByUser} for 10,000 users with 1 to 100 accounts each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountRepositoryBenchmark {
+
+    private static final int USERS = 10_000;
+
+    @Param({"1", "10", "100"})
+    public int accountsPerUser;
+
+    private InMemoryAccountRepository accountRepository;
+    private User[] users;
+
+    @Setup(Level.Trial)
+    public void setUp() throws MaxAccountsReachedException {
+        accountRepository = new InMemoryAccountRepository();
+        users = new User[USERS];
+        for (int i = 0; i < USERS; i++) {
+            users[i] = new User("user" + i, "password", accountsPerUser);
+            for (int j = 0; j < accountsPerUser; j++) {
+                accountRepository.save(new Account(users[i]));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Account> getAccountsByUser() {
+        return accountRepository.getAccountsByUser(user());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<Account> getAccountsByUserConcurrent() {
+        return accountRepository.getAccountsByUser(user());
+    }
+
+    private User user() {
+        return users[ThreadLocalRandom.current().nextInt(USERS)];
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import application.metrics.OperationMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost the instrumentation adds to every service call: counting the outcome and, for sampled calls, reading
+ * the clock twice and recording the latency. {@code clockOnly} is the cost of the two clock reads alone,
+ * {@code recordEveryCall} the cost when every call is timed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+
+    private final OperationMetrics metrics = new OperationMetrics("benchmark");
+    private final OperationMetrics everyCall = new OperationMetrics("benchmark", 1);
+
+    @Benchmark
+    public long clockOnly() {
+        long start = System.nanoTime();
+        return System.nanoTime() - start;
+    }
+
+    @Benchmark
+    public void record() {
+        metrics.record(metrics.start(), true);
+    }
+
+    @Benchmark
+    public void recordEveryCall() {
+        everyCall.record(everyCall.start(), true);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordConcurrent() {
+        metrics.record(metrics.start(), true);
+    }
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import application.exceptions.MaxAccountsReachedException;
+import application.models.Account;
+import application.models.User;
+import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+import application.repositories.TransactionRepository;
+import infrastructure.ColumnarTransactionRepository;
+import infrastructure.InMemoryTransactionRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@code getAccountTransactions} on a repository holding 10^3 to 10^7 transactions spread evenly over
+ * 1000 accounts, so that one account's history grows with the repository from 1 to 10^4 transactions.
+ * The largest size needs about 4 GB of heap with the object-per-transaction repository.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms5g", "-Xmx5g"})
+@State(Scope.Benchmark)
+public class TransactionRepositoryBenchmark {
+
+    private static final int ACCOUNTS = 1000;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int transactions;
+
+    @Param({"in-memory", "columnar"})
+    public String repository;
+
+    private TransactionRepository transactionRepository;
+    private Account[] accounts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws MaxAccountsReachedException {
+        transactionRepository = repository.equals("columnar") ? new ColumnarTransactionRepository() : new InMemoryTransactionRepository();
+        User user = new User("bench", "bench", ACCOUNTS);
+        accounts = new Account[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = new Account(user);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < transactions; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong(1, 1_000_000), 2);
+            Account account = accounts[i % ACCOUNTS];
+            transactionRepository.save(i % 3 == 2
+                    ? new Transaction(account, amount, TransactionType.TRANSFER, accounts[random.nextInt(ACCOUNTS)])
+                    : new Transaction(account, amount, i % 3 == 0 ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL));
+        }
+    }
+
+    @Benchmark
+    public List<Transaction> getAccountTransactions() {
+        return transactionRepository.getAccountTransactions(account());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<Transaction> getAccountTransactionsConcurrent() {
+        return transactionRepository.getAccountTransactions(account());
+    }
+
+    private Account account() {
+        return accounts[ThreadLocalRandom.current().nextInt(ACCOUNTS)];
+    }
+}
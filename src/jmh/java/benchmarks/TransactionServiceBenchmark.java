@@ -0,0 +1,112 @@
+package benchmarks;
+
+import application.exceptions.MaxAccountsReachedException;
+import application.exceptions.NotEnoughFundsException;
+import application.models.Account;
+import application.models.User;
+import application.service.ConcurrentTransactionService;
+import application.service.TransactionService;
+import infrastructure.InMemoryAccountRepository;
+import infrastructure.InMemoryTransactionRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link TransactionService} deposits, withdrawals, transfers and balance reads over in-memory
+ * repositories: single-threaded against the plain service and with four threads against the lock-striped
+ * {@link ConcurrentTransactionService}. Every operation logs a transaction, so the repositories are rebuilt
+ * for each iteration to keep the heap from growing across the run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class TransactionServiceBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000");
+
+    private Account[] accounts;
+    private TransactionService sequential;
+    private TransactionService concurrent;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws MaxAccountsReachedException {
+        InMemoryAccountRepository accountRepository = new InMemoryAccountRepository();
+        InMemoryTransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        User user = new User("bench", "bench", ACCOUNTS);
+        accounts = new Account[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = new Account(user);
+            accounts[i].deposit(INITIAL_BALANCE);
+            accountRepository.save(accounts[i]);
+        }
+        sequential = new TransactionService(transactionRepository, accountRepository);
+        concurrent = new ConcurrentTransactionService(transactionRepository, accountRepository);
+    }
+
+    @Benchmark
+    public void deposit() {
+        sequential.deposit(account(), AMOUNT);
+    }
+
+    @Benchmark
+    public void withdrawal() throws NotEnoughFundsException {
+        sequential.withdrawal(account(), AMOUNT);
+    }
+
+    @Benchmark
+    public void transfer() throws NotEnoughFundsException {
+        sequential.transfer(account(), account(), AMOUNT);
+    }
+
+    @Benchmark
+    public BigDecimal getBalance() {
+        return sequential.getBalance(account());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void depositConcurrent() {
+        concurrent.deposit(account(), AMOUNT);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void withdrawalConcurrent() throws NotEnoughFundsException {
+        concurrent.withdrawal(account(), AMOUNT);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void transferConcurrent() throws NotEnoughFundsException {
+        concurrent.transfer(account(), account(), AMOUNT);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BigDecimal getBalanceConcurrent() {
+        return concurrent.getBalance(account());
+    }
+
+    private Account account() {
+        return accounts[ThreadLocalRandom.current().nextInt(ACCOUNTS)];
+    }
+}
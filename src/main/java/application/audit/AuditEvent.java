@@ -0,0 +1,39 @@
+package application.audit;
+
+import java.util.UUID;
+
+/**
+ * An audited access to an account. Unlike a {@link application.models.transactions.Transaction}
+ * it does not move money and never enters the transaction ledger.
+ */
+public class AuditEvent {
+
+    private final UUID accountId;
+    private final AuditEventType type;
+    private final long timestamp;
+
+    /**
+     * Constructs an audit event.
+     *
+     * @param accountId The ID of the accessed account.
+     * @param type      The kind of access.
+     * @param timestamp The time of the access in milliseconds since the epoch.
+     */
+    public AuditEvent(UUID accountId, AuditEventType type, long timestamp) {
+        this.accountId = accountId;
+        this.type = type;
+        this.timestamp = timestamp;
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public AuditEventType getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
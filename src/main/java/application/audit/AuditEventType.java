@@ -0,0 +1,8 @@
+package application.audit;
+
+/**
+ * The kinds of events written to the audit stream.
+ */
+public enum AuditEventType {
+    BALANCE_READ
+}
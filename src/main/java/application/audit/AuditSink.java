@@ -0,0 +1,18 @@
+package application.audit;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The destination of the audit stream, written to by the background thread of an {@link AuditTrail} only.
+ */
+public interface AuditSink {
+
+    /**
+     * Writes a batch of events in the order they were recorded.
+     *
+     * @param events The events to write.
+     * @throws IOException If the events cannot be written.
+     */
+    void write(List<AuditEvent> events) throws IOException;
+}
@@ -0,0 +1,162 @@
+package application.audit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An asynchronous audit stream. Callers record events into a bounded lock-free queue without blocking; a
+ * background thread drains the queue in batches into an {@link AuditSink}. Only a configurable share of the
+ * events is sampled, and when the queue is full the {@link DropPolicy} decides which event is lost.
+ */
+public class AuditTrail implements AutoCloseable {
+
+    /**
+     * The default number of queued events.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final AuditSink sink;
+    private final BoundedQueue<AuditEvent> queue;
+    private final double sampleRate;
+    private final DropPolicy dropPolicy;
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final Thread drainer;
+    private volatile boolean closed;
+
+    private AuditTrail(AuditSink sink, int capacity, double sampleRate, DropPolicy dropPolicy) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1: " + sampleRate);
+        }
+        this.sink = sink;
+        this.queue = new BoundedQueue<>(capacity);
+        this.sampleRate = sampleRate;
+        this.dropPolicy = dropPolicy;
+        this.drainer = new Thread(this::drain, "audit");
+        drainer.setDaemon(true);
+    }
+
+    /**
+     * Creates an audit trail recording every event, dropping the newest events when full,
+     * and starts its background thread.
+     *
+     * @param sink The destination of the events.
+     * @return The running audit trail.
+     */
+    public static AuditTrail start(AuditSink sink) {
+        return start(sink, DEFAULT_CAPACITY, 1.0, DropPolicy.DROP_NEWEST);
+    }
+
+    /**
+     * Creates an audit trail and starts its background thread.
+     *
+     * @param sink       The destination of the events.
+     * @param capacity   The number of events the queue holds, rounded up to a power of two.
+     * @param sampleRate The share of events recorded, between 0 and 1.
+     * @param dropPolicy Which event is lost when the queue is full.
+     * @return The running audit trail.
+     */
+    public static AuditTrail start(AuditSink sink, int capacity, double sampleRate, DropPolicy dropPolicy) {
+        AuditTrail auditTrail = new AuditTrail(sink, capacity, sampleRate, dropPolicy);
+        auditTrail.drainer.start();
+        return auditTrail;
+    }
+
+    /**
+     * Records an access to an account if it is sampled. Never blocks.
+     *
+     * @param accountId The ID of the accessed account.
+     * @param type      The kind of access.
+     */
+    public void record(UUID accountId, AuditEventType type) {
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        if (closed) {
+            dropped.increment();
+            return;
+        }
+        AuditEvent event = new AuditEvent(accountId, type, System.currentTimeMillis());
+        while (!queue.offer(event)) {
+            if (dropPolicy == DropPolicy.DROP_NEWEST || queue.poll() == null) {
+                dropped.increment();
+                return;
+            }
+            dropped.increment();
+        }
+        recorded.increment();
+    }
+
+    /**
+     * Retrieves the number of events accepted into the queue.
+     *
+     * @return The number of recorded events.
+     */
+    public long getRecorded() {
+        return recorded.sum();
+    }
+
+    /**
+     * Retrieves the number of sampled events lost because the queue was full or the trail was closed.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Retrieves the number of batches the sink failed to write; their events are lost.
+     *
+     * @return The number of failed writes.
+     */
+    public long getWriteFailures() {
+        return writeFailures.sum();
+    }
+
+    /**
+     * Stops accepting events, writes the queued ones and stops the background thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<AuditEvent> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            boolean stopping = closed;
+            AuditEvent event;
+            while (batch.size() < BATCH_SIZE && (event = queue.poll()) != null) {
+                batch.add(event);
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    sink.write(batch);
+                } catch (IOException | RuntimeException e) {
+                    writeFailures.increment();
+                }
+                batch.clear();
+            } else if (stopping) {
+                return;
+            } else {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+}
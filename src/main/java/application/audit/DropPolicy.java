@@ -0,0 +1,15 @@
+package application.audit;
+
+/**
+ * What an {@link AuditTrail} does with an event when its queue is full. Recording never blocks the caller.
+ */
+public enum DropPolicy {
+    /**
+     * The new event is discarded.
+     */
+    DROP_NEWEST,
+    /**
+     * The oldest queued event is discarded to make room for the new one.
+     */
+    DROP_OLDEST
+}
@@ -2,10 +2,15 @@ package application.contracts;
 
 import application.exceptions.NotEnoughFundsException;
 import application.models.Account;
+import application.models.Page;
+import application.models.transactions.BatchMode;
+import application.models.transactions.Operation;
+import application.models.transactions.OperationResult;
 import application.models.transactions.Transaction;
 import application.models.transactions.TransactionType;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -58,7 +63,17 @@ public interface TransactionsOperations {
     void transfer(Account account, Account recipient, BigDecimal amount) throws NotEnoughFundsException;
 
     /**
-     * Retrieves the current balance of the given account.
+     * Executes a batch of deposits, withdrawals and transfers in the given order,
+     * saving the transactions of all executed operations at once.
+     *
+     * @param operations The operations to execute.
+     * @param mode       Whether a failed operation aborts the whole batch.
+     * @return The result of every operation, in the order of the operations.
+     */
+    List<OperationResult> executeBatch(List<Operation> operations, BatchMode mode);
+
+    /**
+     * Retrieves the current balance of the given account. This is a pure read and is not logged as a transaction.
      *
      * @param account The account for which the balance is being retrieved.
      * @return The current balance of the account.
@@ -79,4 +94,33 @@ public interface TransactionsOperations {
      * @return A list of all transactions in the system.
      */
     List<Transaction> getAllTransactions();
+
+    /**
+     * Retrieves one page of the transactions associated with the given account.
+     *
+     * @param account  The account for which the transactions are being retrieved.
+     * @param cursor   The cursor returned with the previous page, or null for the first page.
+     * @param pageSize The maximal number of transactions on the page.
+     * @return The requested page and the cursor of the next one.
+     */
+    Page<Transaction> getAccountsTransactions(Account account, String cursor, int pageSize);
+
+    /**
+     * Retrieves one page of all transactions in the system.
+     *
+     * @param cursor   The cursor returned with the previous page, or null for the first page.
+     * @param pageSize The maximal number of transactions on the page.
+     * @return The requested page and the cursor of the next one.
+     */
+    Page<Transaction> getAllTransactions(String cursor, int pageSize);
+
+    /**
+     * Retrieves the transactions associated with the given account whose date falls into {@code [from, to)}.
+     *
+     * @param account The account for which the transactions are being retrieved.
+     * @param from    The inclusive start of the period.
+     * @param to      The exclusive end of the period.
+     * @return A list of the account's transactions in the period, ordered by date.
+     */
+    List<Transaction> getAccountsTransactions(Account account, LocalDateTime from, LocalDateTime to);
 }
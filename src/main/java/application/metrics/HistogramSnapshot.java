@@ -0,0 +1,96 @@
+package application.metrics;
+
+/**
+ * An immutable copy of the bucket counts of a {@link LatencyHistogram}. Snapshots of histograms recorded on
+ * different threads, services or shards can be merged into one.
+ */
+public class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long totalCount;
+
+    HistogramSnapshot(long[] counts) {
+        this.counts = counts;
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        this.totalCount = total;
+    }
+
+    /**
+     * Merges this snapshot with another one.
+     *
+     * @param other The snapshot to add.
+     * @return A snapshot holding the values of both.
+     */
+    public HistogramSnapshot merge(HistogramSnapshot other) {
+        long[] merged = counts.clone();
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] += other.counts[i];
+        }
+        return new HistogramSnapshot(merged);
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Retrieves the value below or at which the given share of the recorded values lies, rounded up to the
+     * upper bound of its bucket.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The value at the percentile in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return LatencyHistogram.upperBoundOf(i);
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Retrieves the largest recorded value, rounded up to the upper bound of its bucket.
+     *
+     * @return The maximum in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] != 0) {
+                return LatencyHistogram.upperBoundOf(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Retrieves the mean of the recorded values, taking every value as the midpoint of its bucket.
+     *
+     * @return The mean in nanoseconds, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                long lower = i == 0 ? 0 : LatencyHistogram.upperBoundOf(i - 1) + 1;
+                sum += counts[i] * ((lower + (double) LatencyHistogram.upperBoundOf(i)) / 2);
+            }
+        }
+        return sum / totalCount;
+    }
+}
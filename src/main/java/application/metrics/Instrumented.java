@@ -0,0 +1,14 @@
+package application.metrics;
+
+/**
+ * A component that records the latency and outcome of its operations.
+ */
+public interface Instrumented {
+
+    /**
+     * Retrieves the metrics of the component's operations.
+     *
+     * @return The live metrics.
+     */
+    ServiceMetrics getMetrics();
+}
@@ -0,0 +1,88 @@
+package application.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds with log-linear buckets: values below 16 have a bucket each,
+ * every larger power of two is split into 8 buckets, so a bucket's width is at most 12.5% of its values.
+ * <p>
+ * Recording increments one counter and never blocks. To keep threads from contending on the same counters,
+ * the counters are striped by thread, and {@link #snapshot()} merges the stripes.
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of buckets covering all non-negative {@code long} values.
+     */
+    public static final int BUCKETS = 488;
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int LINEAR_LIMIT = 16;
+
+    private final AtomicLongArray counts;
+    private final int stripeMask;
+
+    /**
+     * Constructs a histogram with one stripe per available processor, rounded up to a power of two.
+     */
+    public LatencyHistogram() {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+        this.counts = new AtomicLongArray(stripes * BUCKETS);
+        this.stripeMask = stripes - 1;
+    }
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values count as zero
+     */
+    public void record(long nanos) {
+        int stripe = (int) Thread.currentThread().threadId() & stripeMask;
+        counts.getAndIncrement(stripe * BUCKETS + bucketOf(nanos));
+    }
+
+    /**
+     * Merges the stripes into a snapshot. Latencies recorded while the snapshot is taken may or may not be included.
+     *
+     * @return the bucket counts at this moment
+     */
+    public HistogramSnapshot snapshot() {
+        long[] merged = new long[BUCKETS];
+        for (int i = 0; i < counts.length(); i++) {
+            merged[i % BUCKETS] += counts.get(i);
+        }
+        return new HistogramSnapshot(merged);
+    }
+
+    /**
+     * Retrieves the bucket a value falls into.
+     *
+     * @param value the value
+     * @return the bucket index, between 0 and {@link #BUCKETS} - 1
+     */
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + ((exponent - 4) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & ((1 << SUB_BUCKET_BITS) - 1));
+    }
+
+    /**
+     * Retrieves the largest value of a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the inclusive upper bound of the bucket
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int exponent = ((bucket - LINEAR_LIMIT) >>> SUB_BUCKET_BITS) + 4;
+        int subBucket = (bucket - LINEAR_LIMIT) & ((1 << SUB_BUCKET_BITS) - 1);
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lower = (long) ((1 << SUB_BUCKET_BITS) + subBucket) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
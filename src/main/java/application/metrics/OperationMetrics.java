@@ -0,0 +1,95 @@
+package application.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latency histogram and the success and failure counters of one operation of a service.
+ * <p>
+ * A call is measured as
+ * <pre>{@code
+ * long start = metrics.start();
+ * boolean succeeded = false;
+ * try {
+ *     ...
+ *     succeeded = true;
+ * } finally {
+ *     metrics.record(start, succeeded);
+ * }
+ * }</pre>
+ * Every call is counted, but only a random sample of calls is timed: reading the clock twice is the largest part of
+ * the cost, and where it is not served from user space it alone exceeds the budget of the instrumentation.
+ */
+public class OperationMetrics {
+
+    /**
+     * By default one in this many calls is timed.
+     */
+    public static final int DEFAULT_SAMPLE_INTERVAL = 4;
+
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final String name;
+    private final int sampleMask;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Constructs empty metrics timing the default share of calls.
+     *
+     * @param name The name of the operation.
+     */
+    public OperationMetrics(String name) {
+        this(name, DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * Constructs empty metrics.
+     *
+     * @param name           The name of the operation.
+     * @param sampleInterval One in how many calls is timed, a power of two; 1 times every call.
+     */
+    public OperationMetrics(String name, int sampleInterval) {
+        if (sampleInterval <= 0 || Integer.bitCount(sampleInterval) != 1) {
+            throw new IllegalArgumentException("Sample interval must be a power of two: " + sampleInterval);
+        }
+        this.name = name;
+        this.sampleMask = sampleInterval - 1;
+    }
+
+    /**
+     * Starts measuring a call.
+     *
+     * @return The value to pass to {@link #record(long, boolean)} when the call finishes.
+     */
+    public long start() {
+        return (ThreadLocalRandom.current().nextInt() & sampleMask) == 0 ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    /**
+     * Records a finished call.
+     *
+     * @param start     The value returned by {@link #start()}.
+     * @param succeeded Whether the call completed normally.
+     */
+    public void record(long start, boolean succeeded) {
+        if (start != NOT_SAMPLED) {
+            latencies.record(System.nanoTime() - start);
+        }
+        (succeeded ? successes : failures).increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Takes a snapshot of the counters and the histogram.
+     *
+     * @return The metrics at this moment.
+     */
+    public OperationSnapshot snapshot() {
+        return new OperationSnapshot(name, successes.sum(), failures.sum(), latencies.snapshot());
+    }
+}
@@ -0,0 +1,90 @@
+package application.metrics;
+
+/**
+ * The metrics of one operation at one moment: call counts and latency statistics in nanoseconds.
+ * Its getters make it readable as a composite value over JMX.
+ */
+public class OperationSnapshot {
+
+    private final String name;
+    private final long successes;
+    private final long failures;
+    private final HistogramSnapshot latencies;
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param name      The name of the operation.
+     * @param successes The number of calls that completed normally.
+     * @param failures  The number of calls that threw an exception.
+     * @param latencies The latencies of all calls.
+     */
+    public OperationSnapshot(String name, long successes, long failures, HistogramSnapshot latencies) {
+        this.name = name;
+        this.successes = successes;
+        this.failures = failures;
+        this.latencies = latencies;
+    }
+
+    /**
+     * Merges this snapshot with a snapshot of the same operation, e.g. from another shard.
+     *
+     * @param other The snapshot to add.
+     * @return A snapshot of the calls of both.
+     */
+    public OperationSnapshot merge(OperationSnapshot other) {
+        return new OperationSnapshot(name, successes + other.successes, failures + other.failures, latencies.merge(other.latencies));
+    }
+
+    /**
+     * Retrieves the latency below or at which the given share of the calls completed.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The latency in nanoseconds.
+     */
+    public long latencyAtPercentile(double percentile) {
+        return latencies.getValueAtPercentile(percentile);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSuccesses() {
+        return successes;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getCalls() {
+        return successes + failures;
+    }
+
+    public double getMeanNanos() {
+        return latencies.getMean();
+    }
+
+    public long getP50Nanos() {
+        return latencies.getValueAtPercentile(50);
+    }
+
+    public long getP99Nanos() {
+        return latencies.getValueAtPercentile(99);
+    }
+
+    public long getP999Nanos() {
+        return latencies.getValueAtPercentile(99.9);
+    }
+
+    public long getMaxNanos() {
+        return latencies.getMax();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + successes + " ok, " + failures + " failed, p50 " + getP50Nanos()
+                + " ns, p99 " + getP99Nanos() + " ns, p999 " + getP999Nanos() + " ns, max " + getMaxNanos() + " ns";
+    }
+}
@@ -0,0 +1,94 @@
+package application.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The metrics of every operation of one service. Services create their {@link OperationMetrics} once and keep
+ * them in fields, so recording a call does not look anything up.
+ */
+public class ServiceMetrics implements ServiceMetricsMXBean {
+
+    private final String service;
+    private final int sampleInterval;
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs metrics without operations, timing the default share of calls.
+     *
+     * @param service The name of the instrumented service.
+     */
+    public ServiceMetrics(String service) {
+        this(service, OperationMetrics.DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * Constructs metrics without operations.
+     *
+     * @param service        The name of the instrumented service.
+     * @param sampleInterval One in how many calls of every operation is timed, a power of two.
+     */
+    public ServiceMetrics(String service, int sampleInterval) {
+        this.service = service;
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Retrieves the metrics of an operation, creating them on first use.
+     *
+     * @param name The name of the operation.
+     * @return The metrics of the operation.
+     */
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, key -> new OperationMetrics(key, sampleInterval));
+    }
+
+    @Override
+    public String getService() {
+        return service;
+    }
+
+    /**
+     * Takes a snapshot of every operation.
+     *
+     * @return The snapshots by operation name, in alphabetical order.
+     */
+    @Override
+    public Map<String, OperationSnapshot> getOperations() {
+        Map<String, OperationSnapshot> snapshots = new LinkedHashMap<>();
+        for (OperationMetrics metrics : new TreeMap<>(operations).values()) {
+            snapshots.put(metrics.getName(), metrics.snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server as
+     * {@code bank:type=ServiceMetrics,instance=<instance>,service=<service>}, replacing earlier metrics of that name.
+     *
+     * @param instance The name distinguishing banking systems running in the same JVM.
+     * @return The name the metrics were registered under.
+     * @throws IllegalStateException If the registration fails.
+     */
+    public ObjectName register(String instance) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("bank", new Hashtable<>(Map.of(
+                    "type", "ServiceMetrics", "instance", ObjectName.quote(instance), "service", ObjectName.quote(service))));
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metrics of " + service, e);
+        }
+    }
+}
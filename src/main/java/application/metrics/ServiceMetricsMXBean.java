@@ -0,0 +1,23 @@
+package application.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of a {@link ServiceMetrics}.
+ */
+public interface ServiceMetricsMXBean {
+
+    /**
+     * Retrieves the name of the instrumented service.
+     *
+     * @return The service name.
+     */
+    String getService();
+
+    /**
+     * Retrieves a snapshot of every operation of the service.
+     *
+     * @return The snapshots by operation name.
+     */
+    Map<String, OperationSnapshot> getOperations();
+}
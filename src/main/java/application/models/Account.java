@@ -8,11 +8,14 @@ import java.util.UUID;
 
 /**
  * Represents a bank account.
+ * <p>
+ * Subclasses that keep the balance in another form, such as {@link FixedPointAccount}, use the constructors
+ * without a balance, which leave the decimal balance of this class unset, and override every method using it.
  */
 public class Account {
 
-    private final UUID id = UUID.randomUUID();
-    private BigDecimal balance;
+    private final UUID id;
+    private volatile BigDecimal balance;
     private final User user;
 
     /**
@@ -21,9 +24,34 @@ public class Account {
      * @param user The user to associate with this account.
      */
     public Account(User user) throws MaxAccountsReachedException {
+        this(user, BigDecimal.ZERO);
+    }
+
+    /**
+     * Constructs a new account for the given user with the given balance, which is null if a subclass keeps it.
+     *
+     * @param user    The user to associate with this account.
+     * @param balance The initial balance of the account.
+     */
+    protected Account(User user, BigDecimal balance) throws MaxAccountsReachedException {
+        this.id = UUID.randomUUID();
         this.user = user;
         user.addAccount();
-        balance = BigDecimal.ZERO;
+        this.balance = balance;
+    }
+
+    /**
+     * Restores a previously persisted account. The user's account counter is not changed,
+     * since it is restored together with the user.
+     *
+     * @param id      The unique identifier of the account.
+     * @param user    The user associated with this account.
+     * @param balance The balance of the account.
+     */
+    public Account(UUID id, User user, BigDecimal balance) {
+        this.id = id;
+        this.user = user;
+        this.balance = balance;
     }
 
     /**
@@ -50,6 +78,16 @@ public class Account {
         }
     }
 
+    /**
+     * Checks whether the specified amount can be deposited without exceeding the range of the balance.
+     *
+     * @param amount The amount to deposit.
+     * @return True if the amount can be deposited, false otherwise.
+     */
+    public boolean canDeposit(BigDecimal amount) {
+        return true;
+    }
+
     /**
      * Returns the unique identifier of this account.
      *
@@ -0,0 +1,134 @@
+package application.models;
+
+import application.exceptions.MaxAccountsReachedException;
+import application.exceptions.NotEnoughFundsException;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * A bank account whose balance is kept as {@code long} minor units (see {@link Money}).
+ * Deposits and withdrawals are single compare-and-set loops on the balance, so they are atomic
+ * without any locks, and a withdrawal checks the funds and subtracts them in the same step.
+ */
+public class FixedPointAccount extends Account {
+
+    private static final VarHandle MINOR_UNITS;
+
+    static {
+        try {
+            MINOR_UNITS = MethodHandles.lookup().findVarHandle(FixedPointAccount.class, "minorUnits", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile long minorUnits;
+
+    /**
+     * Constructs a new fixed-point account for the given user.
+     *
+     * @param user The user to associate with this account.
+     */
+    public FixedPointAccount(User user) throws MaxAccountsReachedException {
+        super(user, null);
+    }
+
+    /**
+     * Restores a previously persisted fixed-point account.
+     *
+     * @param id         The unique identifier of the account.
+     * @param user       The user associated with this account.
+     * @param minorUnits The balance of the account in minor units.
+     */
+    public FixedPointAccount(UUID id, User user, long minorUnits) {
+        super(id, user, null);
+        this.minorUnits = minorUnits;
+    }
+
+    /**
+     * Deposits the specified amount into the account.
+     *
+     * @param amount The amount to deposit.
+     * @throws IllegalArgumentException If the amount cannot be represented in minor units.
+     */
+    @Override
+    public void deposit(BigDecimal amount) {
+        depositMinorUnits(Money.toMinorUnits(amount));
+    }
+
+    /**
+     * Withdraws the specified amount from the account.
+     *
+     * @param amount The amount to withdraw.
+     * @throws NotEnoughFundsException  If the account does not have sufficient funds.
+     * @throws IllegalArgumentException If the amount cannot be represented in minor units.
+     */
+    @Override
+    public void withdrawal(BigDecimal amount) throws NotEnoughFundsException {
+        withdrawalMinorUnits(Money.toMinorUnits(amount));
+    }
+
+    /**
+     * Checks whether the specified amount can be deposited without overflowing the balance in minor units.
+     *
+     * @param amount The amount to deposit.
+     * @return True if the amount can be deposited, false otherwise.
+     * @throws IllegalArgumentException If the amount cannot be represented in minor units.
+     */
+    @Override
+    public boolean canDeposit(BigDecimal amount) {
+        long units = Money.toMinorUnits(amount);
+        return units <= 0 || minorUnits <= Long.MAX_VALUE - units;
+    }
+
+    /**
+     * Deposits the specified number of minor units into the account.
+     *
+     * @param units The number of minor units to deposit.
+     * @throws ArithmeticException If the balance would overflow.
+     */
+    public void depositMinorUnits(long units) {
+        long current;
+        do {
+            current = minorUnits;
+        } while (!MINOR_UNITS.compareAndSet(this, current, Math.addExact(current, units)));
+    }
+
+    /**
+     * Withdraws the specified number of minor units from the account.
+     *
+     * @param units The number of minor units to withdraw.
+     * @throws NotEnoughFundsException If the account does not have sufficient funds.
+     */
+    public void withdrawalMinorUnits(long units) throws NotEnoughFundsException {
+        long current;
+        do {
+            current = minorUnits;
+            if (current < units) {
+                throw new NotEnoughFundsException("Not enough funds. Current balance: " + Money.fromMinorUnits(current));
+            }
+        } while (!MINOR_UNITS.compareAndSet(this, current, Math.subtractExact(current, units)));
+    }
+
+    /**
+     * Returns the current balance of this account in minor units.
+     *
+     * @return The current balance in minor units.
+     */
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    /**
+     * Returns the current balance of this account.
+     *
+     * @return The current balance with {@link Money#SCALE} fractional digits.
+     */
+    @Override
+    public BigDecimal getBalance() {
+        return Money.fromMinorUnits(minorUnits);
+    }
+}
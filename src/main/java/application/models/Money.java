@@ -0,0 +1,56 @@
+package application.models;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Converts monetary amounts between {@link BigDecimal} and fixed-point minor units (cents) stored in a {@code long}.
+ */
+public final class Money {
+
+    /**
+     * The number of fractional digits kept in minor units.
+     */
+    public static final int SCALE = 2;
+
+    private static final BigInteger MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    private Money() {
+    }
+
+    /**
+     * Converts an amount into minor units.
+     *
+     * @param amount The amount to convert.
+     * @return The amount expressed in minor units.
+     * @throws IllegalArgumentException If the amount is null, has more than {@link #SCALE} fractional digits
+     *                                  or does not fit into a {@code long}.
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount must not be null");
+        }
+        BigDecimal scaled;
+        try {
+            scaled = amount.setScale(SCALE);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount has more than " + SCALE + " fractional digits: " + amount);
+        }
+        BigInteger units = scaled.unscaledValue();
+        if (units.compareTo(MIN) < 0 || units.compareTo(MAX) > 0) {
+            throw new IllegalArgumentException("Amount is out of range: " + amount);
+        }
+        return units.longValue();
+    }
+
+    /**
+     * Converts minor units back into an amount with {@link #SCALE} fractional digits.
+     *
+     * @param minorUnits The amount in minor units.
+     * @return The amount as a {@link BigDecimal}.
+     */
+    public static BigDecimal fromMinorUnits(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+}
@@ -0,0 +1,17 @@
+package application.models;
+
+/**
+ * Defines how account balances are represented.
+ */
+public enum MoneyMode {
+
+    /**
+     * Balances are arbitrary-precision {@link java.math.BigDecimal} values, see {@link Account}.
+     */
+    DECIMAL,
+
+    /**
+     * Balances are {@code long} minor units updated with compare-and-set, see {@link FixedPointAccount}.
+     */
+    FIXED_POINT
+}
@@ -0,0 +1,90 @@
+package application.models;
+
+import java.util.List;
+
+/**
+ * Represents one page of a paginated result together with the cursor of the following page.
+ *
+ * @param <T> The type of the elements on the page.
+ */
+public class Page<T> {
+
+    /**
+     * The largest page size a client may request.
+     */
+    public static final int MAX_SIZE = 1000;
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    /**
+     * Constructs a new page.
+     *
+     * @param items      The elements on this page.
+     * @param nextCursor The cursor of the next page, or {@code null} if this is the last page.
+     */
+    public Page(List<T> items, String nextCursor) {
+        this.items = List.copyOf(items);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Cuts a page out of a list whose elements never change position, such as an append-only snapshot.
+     *
+     * @param source   The list to cut the page from.
+     * @param cursor   The cursor returned with the previous page, or {@code null} for the first page.
+     * @param pageSize The maximal number of elements on the page.
+     * @param <T>      The type of the elements.
+     * @return The requested page.
+     * @throws IllegalArgumentException If the page size is out of range or the cursor is invalid.
+     */
+    public static <T> Page<T> slice(List<T> source, String cursor, int pageSize) {
+        validateSize(pageSize);
+        long from = PageCursor.decode(cursor);
+        int size = source.size();
+        if (from >= size) {
+            return new Page<>(List.of(), null);
+        }
+        int to = (int) Math.min(size, from + pageSize);
+        return new Page<>(source.subList((int) from, to), to < size ? PageCursor.encode(to) : null);
+    }
+
+    /**
+     * Checks that a requested page size is between 1 and {@link #MAX_SIZE}.
+     *
+     * @param pageSize The requested page size.
+     * @throws IllegalArgumentException If the page size is out of range.
+     */
+    public static void validateSize(int pageSize) {
+        if (pageSize <= 0 || pageSize > MAX_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_SIZE + ": " + pageSize);
+        }
+    }
+
+    /**
+     * Retrieves the elements on this page.
+     *
+     * @return An unmodifiable list of the elements.
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Retrieves the cursor of the next page.
+     *
+     * @return The cursor to pass to get the next page, or {@code null} if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Checks if there is a page after this one.
+     *
+     * @return True if another page follows, false otherwise.
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,53 @@
+package application.models;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Encodes positions in an append-only sequence as opaque cursor strings handed out to clients.
+ */
+public final class PageCursor {
+
+    private static final byte VERSION = 1;
+
+    private PageCursor() {
+    }
+
+    /**
+     * Encodes a position as a cursor.
+     *
+     * @param position The position of the first element of the next page.
+     * @return The opaque cursor.
+     */
+    public static String encode(long position) {
+        ByteBuffer buffer = ByteBuffer.allocate(Byte.BYTES + Long.BYTES).put(VERSION).putLong(position);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Decodes a cursor back into a position. A {@code null} or empty cursor denotes the beginning.
+     *
+     * @param cursor The opaque cursor.
+     * @return The position the cursor points to.
+     * @throws IllegalArgumentException If the cursor was not produced by {@link #encode(long)}.
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        if (bytes.length != Byte.BYTES + Long.BYTES || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        long position = ByteBuffer.wrap(bytes, 1, Long.BYTES).getLong();
+        if (position < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return position;
+    }
+}
@@ -10,9 +10,9 @@ import java.util.UUID;
 public class User {
 
     private String username;
-    private final UUID id = UUID.randomUUID();
+    private final UUID id;
     private String password;
-    private int numberOfAccounts = 0;
+    private int numberOfAccounts;
     private int maxNumberOfAccounts;
 
     /**
@@ -23,9 +23,24 @@ public class User {
      * @param size     The maximum number of accounts this user can have.
      */
     public User(String username, String password, int size) {
+        this(UUID.randomUUID(), username, password, 0, size);
+    }
+
+    /**
+     * Restores a previously persisted user.
+     *
+     * @param id                  The unique identifier of the user.
+     * @param username            The username of the user.
+     * @param password            The password of the user.
+     * @param numberOfAccounts    The number of accounts the user has.
+     * @param maxNumberOfAccounts The maximum number of accounts the user can have.
+     */
+    public User(UUID id, String username, String password, int numberOfAccounts, int maxNumberOfAccounts) {
+        this.id = id;
         this.username = username;
         this.password = password;
-        this.maxNumberOfAccounts = size;
+        this.numberOfAccounts = numberOfAccounts;
+        this.maxNumberOfAccounts = maxNumberOfAccounts;
     }
 
     /**
@@ -64,6 +79,15 @@ public class User {
         this.password = password;
     }
 
+    /**
+     * Returns the password of this user, so that it can be persisted.
+     *
+     * @return The password of this user.
+     */
+    public String getPassword() {
+        return password;
+    }
+
     /**
      * Returns the number of accounts this user currently has.
      *
@@ -106,11 +130,21 @@ public class User {
      *
      * @throws MaxAccountsReachedException If the maximum number of accounts has been reached.
      */
-    public void addAccount() throws MaxAccountsReachedException {
+    public synchronized void addAccount() throws MaxAccountsReachedException {
         if (numberOfAccounts < maxNumberOfAccounts) {
             numberOfAccounts++;
         } else {
             throw new MaxAccountsReachedException("Maximum number of accounts reached. Max allowed: " + maxNumberOfAccounts);
         }
     }
+
+    /**
+     * Raises the number of accounts of this user to at least the given number, e.g. when accounts created after
+     * a snapshot are recovered. The number is never lowered, since it only grows while accounts are created.
+     *
+     * @param numberOfAccounts The number of accounts the user had at least.
+     */
+    public synchronized void restoreNumberOfAccounts(int numberOfAccounts) {
+        this.numberOfAccounts = Math.max(this.numberOfAccounts, numberOfAccounts);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package application.models.transactions;
+
+/**
+ * How a batch of operations reacts to an operation that cannot be executed.
+ */
+public enum BatchMode {
+
+    /**
+     * Either every operation of the batch is executed or none is.
+     */
+    ALL_OR_NOTHING,
+
+    /**
+     * Every operation that can be executed is, the others are reported as failed.
+     */
+    BEST_EFFORT
+}
@@ -0,0 +1,73 @@
+package application.models.transactions;
+
+import application.models.Account;
+
+import java.math.BigDecimal;
+
+/**
+ * A deposit, withdrawal or transfer requested as part of a batch.
+ */
+public class Operation {
+
+    private final Account account;
+    private final BigDecimal amount;
+    private final TransactionType type;
+    private final Account recipient;
+
+    /**
+     * Constructs a deposit or withdrawal.
+     *
+     * @param account The account of the operation.
+     * @param amount  The amount of the operation.
+     * @param type    Either {@link TransactionType#DEPOSIT} or {@link TransactionType#WITHDRAWAL}.
+     * @throws IllegalArgumentException If the type is not a deposit or withdrawal.
+     */
+    public Operation(Account account, BigDecimal amount, TransactionType type) {
+        this(account, amount, type, null);
+    }
+
+    /**
+     * Constructs an operation.
+     *
+     * @param account   The account of the operation, the sender of a transfer.
+     * @param amount    The amount of the operation.
+     * @param type      The type of the operation: a deposit, withdrawal or transfer.
+     * @param recipient The recipient of a transfer, or null for other types.
+     * @throws IllegalArgumentException If the type is not supported or a transfer has no recipient.
+     */
+    public Operation(Account account, BigDecimal amount, TransactionType type, Account recipient) {
+        switch (type) {
+            case DEPOSIT, WITHDRAWAL -> {
+                if (recipient != null) {
+                    throw new IllegalArgumentException(type + " cannot have a recipient");
+                }
+            }
+            case TRANSFER -> {
+                if (recipient == null) {
+                    throw new IllegalArgumentException("Transfer requires a recipient");
+                }
+            }
+            default -> throw new IllegalArgumentException("Unsupported operation type: " + type);
+        }
+        this.account = account;
+        this.amount = amount;
+        this.type = type;
+        this.recipient = recipient;
+    }
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public Account getRecipient() {
+        return recipient;
+    }
+}
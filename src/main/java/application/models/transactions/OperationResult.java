@@ -0,0 +1,68 @@
+package application.models.transactions;
+
+/**
+ * The outcome of one operation of a batch.
+ */
+public class OperationResult {
+
+    /**
+     * The possible outcomes of an operation.
+     */
+    public enum Status {
+
+        /**
+         * The operation was executed.
+         */
+        SUCCESS,
+
+        /**
+         * The operation was not executed because its account did not have enough funds.
+         */
+        NOT_ENOUGH_FUNDS,
+
+        /**
+         * The operation could have been executed, but was not because another operation
+         * of an {@link BatchMode#ALL_OR_NOTHING} batch failed.
+         */
+        ABORTED,
+
+        /**
+         * The operation was not executed, or was executed and undone, because of another error, e.g. a
+         * cross-shard transfer whose credit failed and was compensated.
+         */
+        FAILED
+    }
+
+    private final Operation operation;
+    private final Status status;
+    private final Exception error;
+
+    /**
+     * Constructs a new operation result.
+     *
+     * @param operation The operation this is the result of.
+     * @param status    The outcome of the operation.
+     * @param error     The reason of a {@link Status#NOT_ENOUGH_FUNDS} or {@link Status#FAILED} outcome, or null otherwise.
+     */
+    public OperationResult(Operation operation, Status status, Exception error) {
+        this.operation = operation;
+        this.status = status;
+        this.error = error;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccessful() {
+        return status == Status.SUCCESS;
+    }
+}
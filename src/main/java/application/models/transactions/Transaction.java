@@ -11,27 +11,29 @@ public class Transaction {
     private final Account account;
     private final BigDecimal amount;
     public TransactionType type;
-    private final UUID id = UUID.randomUUID();
+    private final UUID id;
     public Account recipient;
-    public LocalDateTime timestamp = LocalDateTime.now();
+    public LocalDateTime timestamp;
 
     public Transaction(Account account, BigDecimal amount, TransactionType type) {
-        this.account = account;
-        this.amount = amount;
-        this.type = type;
+        this(UUID.randomUUID(), account, amount, type, null, LocalDateTime.now());
     }
 
     public Transaction(Account account, BigDecimal amount, TransactionType type, Account recipient) {
-        this.account = account;
-        this.amount = amount;
-        this.type = type;
-        this.recipient = recipient;
+        this(UUID.randomUUID(), account, amount, type, recipient, LocalDateTime.now());
     }
 
     public Transaction(Account account, TransactionType type) {
+        this(UUID.randomUUID(), account, account.getBalance(), type, null, LocalDateTime.now());
+    }
+
+    public Transaction(UUID id, Account account, BigDecimal amount, TransactionType type, Account recipient, LocalDateTime timestamp) {
+        this.id = id;
         this.account = account;
-        this.amount = account.getBalance();
+        this.amount = amount;
         this.type = type;
+        this.recipient = recipient;
+        this.timestamp = timestamp;
     }
 
     public UUID getId() {
@@ -5,5 +5,7 @@ public enum TransactionType {
     WITHDRAWAL,
     TRANSFER,
     GET_BALANCE,
-    UNKNOWN
+    UNKNOWN,
+    INTEREST,
+    FEE
 }
@@ -0,0 +1,33 @@
+package application.posting;
+
+import java.io.IOException;
+
+/**
+ * Remembers which partitions of the accounts a posting run has finished, so that a run stopped by its time budget
+ * or by a crash resumes where it stopped instead of starting over.
+ */
+public interface PostingCheckpoint {
+
+    /**
+     * Retrieves the identifier of the run this checkpoint belongs to.
+     *
+     * @return The run identifier, e.g. the posting period.
+     */
+    String getRunId();
+
+    /**
+     * Checks whether a partition has been posted completely.
+     *
+     * @param partition The index of the partition.
+     * @return true if the partition is done.
+     */
+    boolean isCompleted(int partition);
+
+    /**
+     * Records that a partition has been posted completely.
+     *
+     * @param partition The index of the partition.
+     * @throws IOException If the checkpoint cannot be stored.
+     */
+    void markCompleted(int partition) throws IOException;
+}
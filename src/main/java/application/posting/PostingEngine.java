@@ -0,0 +1,245 @@
+package application.posting;
+
+import application.exceptions.NotEnoughFundsException;
+import application.models.Account;
+import application.models.Money;
+import application.models.MoneyMode;
+import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.service.AccountLocks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Posts periodic interest and fees to every account in bulk.
+ * <p>
+ * The accounts are split into {@value #PARTITIONS} partitions by the leading bits of their IDs, and the partitions
+ * are posted in parallel on a fork/join pool. A partition is posted in batches of {@value #BATCH_SIZE} accounts: the
+ * batch is locked at once, every account gets at most one {@link TransactionType#INTEREST} or
+ * {@link TransactionType#FEE} record carrying the net amount, the balances are changed, and then the records are saved
+ * with one repository call and the accounts with another. If a balance cannot be changed or the records cannot be
+ * saved, the balances already changed in the batch are restored, so that no record exists for a posting that was not
+ * applied. Completed partitions are written to a {@link PostingCheckpoint}.
+ * <p>
+ * A run stops starting batches when its time budget is spent and is resumed by running it again with the same
+ * checkpoint. Posting records have IDs derived from the run and the account, so an account posted by a partition
+ * that was interrupted midway is recognized and skipped, and no account is ever posted twice in a run.
+ */
+public class PostingEngine {
+
+    /**
+     * The number of partitions the accounts are split into.
+     */
+    public static final int PARTITIONS = 1024;
+
+    private static final int PARTITION_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(PARTITIONS);
+    private static final int BATCH_SIZE = 512;
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final PostingPolicy policy;
+    private final AccountLocks locks;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs an engine for a system of {@link MoneyMode#DECIMAL} accounts without concurrent operations,
+     * posting on the common fork/join pool.
+     *
+     * @param accountRepository     The accounts to post to.
+     * @param transactionRepository The ledger the posting records are saved to.
+     * @param policy                The interest tiers and fees.
+     */
+    public PostingEngine(AccountRepository accountRepository, TransactionRepository transactionRepository, PostingPolicy policy) {
+        this(accountRepository, transactionRepository, policy, MoneyMode.DECIMAL, null, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an engine.
+     *
+     * @param accountRepository     The accounts to post to.
+     * @param transactionRepository The ledger the posting records are saved to.
+     * @param policy                The interest tiers and fees.
+     * @param moneyMode             The balance representation of the accounts.
+     * @param locks                 The account locks of the running system, or null if nothing else changes balances.
+     * @param pool                  The pool the partitions are posted on.
+     * @throws IllegalArgumentException If the policy produces amounts the accounts cannot hold.
+     */
+    public PostingEngine(AccountRepository accountRepository, TransactionRepository transactionRepository, PostingPolicy policy,
+                         MoneyMode moneyMode, AccountLocks locks, ForkJoinPool pool) {
+        if (moneyMode == MoneyMode.FIXED_POINT
+                && (policy.getScale() > Money.SCALE || policy.getFee().stripTrailingZeros().scale() > Money.SCALE)) {
+            throw new IllegalArgumentException("Posting amounts must not have more than " + Money.SCALE + " fractional digits");
+        }
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.policy = policy;
+        this.locks = locks;
+        this.pool = pool;
+    }
+
+    /**
+     * Posts every partition not yet completed in the checkpoint until done or until the time budget is spent.
+     *
+     * @param checkpoint The progress of the run, which also identifies it.
+     * @param budget     The time after which no new batch is started.
+     * @return What this invocation posted and whether the run is complete.
+     * @throws IOException If the checkpoint cannot be stored.
+     */
+    public PostingReport run(PostingCheckpoint checkpoint, Duration budget) throws IOException {
+        long started = System.nanoTime();
+        long deadline = started + budget.toNanos();
+        List<List<Account>> partitions = new ArrayList<>(PARTITIONS);
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (Account account : accountRepository.getAllAccounts()) {
+            partitions.get(partitionOf(account.getAccountId())).add(account);
+        }
+
+        Totals totals = new Totals();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < PARTITIONS; i++) {
+            if (!checkpoint.isCompleted(i)) {
+                int partition = i;
+                tasks.add(pool.submit(() -> postPartition(partition, partitions.get(partition), checkpoint, deadline, totals)));
+            }
+        }
+        try {
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        int completed = 0;
+        for (int i = 0; i < PARTITIONS; i++) {
+            if (checkpoint.isCompleted(i)) {
+                completed++;
+            }
+        }
+        return totals.report(completed, Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    private void postPartition(int partition, List<Account> accounts, PostingCheckpoint checkpoint, long deadline, Totals totals) {
+        for (int from = 0; from < accounts.size(); from += BATCH_SIZE) {
+            if (System.nanoTime() - deadline > 0) {
+                return;
+            }
+            postBatch(accounts.subList(from, Math.min(accounts.size(), from + BATCH_SIZE)), checkpoint.getRunId(), totals);
+        }
+        try {
+            checkpoint.markCompleted(partition);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void postBatch(List<Account> batch, String runId, Totals totals) {
+        if (locks != null) {
+            locks.lockAll(batch);
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<Transaction> records = new ArrayList<>(batch.size());
+            for (Account account : batch) {
+                BigDecimal posting = policy.postingFor(accountRepository.getBalance(account));
+                UUID id = postingId(runId, account);
+                if (posting.signum() == 0 || transactionRepository.getTransactionByID(id) != null) {
+                    continue;
+                }
+                TransactionType type = posting.signum() > 0 ? TransactionType.INTEREST : TransactionType.FEE;
+                records.add(new Transaction(id, account, posting.abs(), type, null, now));
+            }
+
+            List<Transaction> applied = new ArrayList<>(records.size());
+            try {
+                for (Transaction record : records) {
+                    if (record.getType() == TransactionType.INTEREST) {
+                        record.getAccount().deposit(record.getAmount());
+                    } else {
+                        record.getAccount().withdrawal(record.getAmount());
+                    }
+                    applied.add(record);
+                }
+                transactionRepository.saveAll(records);
+            } catch (NotEnoughFundsException e) {
+                restore(applied);
+                throw new IllegalStateException("Fee exceeds the balance of an account", e);
+            } catch (RuntimeException e) {
+                restore(applied);
+                throw e;
+            }
+
+            List<Account> posted = new ArrayList<>(records.size());
+            BigDecimal interest = BigDecimal.ZERO;
+            BigDecimal fees = BigDecimal.ZERO;
+            for (Transaction record : records) {
+                if (record.getType() == TransactionType.INTEREST) {
+                    interest = interest.add(record.getAmount());
+                } else {
+                    fees = fees.add(record.getAmount());
+                }
+                posted.add(record.getAccount());
+            }
+            accountRepository.saveAll(posted);
+            totals.add(posted.size(), batch.size() - posted.size(), interest, fees);
+        } finally {
+            if (locks != null) {
+                locks.unlockAll(batch);
+            }
+        }
+    }
+
+    /**
+     * Takes back the balance changes of postings whose records were not saved.
+     */
+    private static void restore(List<Transaction> applied) {
+        for (Transaction record : applied) {
+            BigDecimal amount = record.getAmount();
+            record.getAccount().deposit(record.getType() == TransactionType.INTEREST ? amount.negate() : amount);
+        }
+    }
+
+    private static int partitionOf(UUID accountId) {
+        return (int) (accountId.getMostSignificantBits() >>> PARTITION_SHIFT);
+    }
+
+    private static UUID postingId(String runId, Account account) {
+        return UUID.nameUUIDFromBytes((runId + '/' + account.getAccountId()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The counters of one invocation, added to by every batch.
+     */
+    private static final class Totals {
+
+        private long posted;
+        private long skipped;
+        private BigDecimal interest = BigDecimal.ZERO;
+        private BigDecimal fees = BigDecimal.ZERO;
+
+        private synchronized void add(int postedAccounts, int skippedAccounts, BigDecimal batchInterest, BigDecimal batchFees) {
+            posted += postedAccounts;
+            skipped += skippedAccounts;
+            interest = interest.add(batchInterest);
+            fees = fees.add(batchFees);
+        }
+
+        private synchronized PostingReport report(int completedPartitions, Duration elapsedTime) {
+            return new PostingReport(posted, skipped, interest, fees, completedPartitions, PARTITIONS, elapsedTime);
+        }
+    }
+}
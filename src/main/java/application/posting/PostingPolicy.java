@@ -0,0 +1,104 @@
+package application.posting;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Decides how much interest and fees an account is posted for one period: interest over tiered rates, minus a
+ * maintenance fee that is waived for balances at or above a threshold. A fee never takes an account below zero.
+ */
+public class PostingPolicy {
+
+    private final List<RateTier> tiers;
+    private final BigDecimal fee;
+    private final BigDecimal feeWaiverBalance;
+    private final int scale;
+    private final RoundingMode roundingMode;
+
+    /**
+     * Constructs a new posting policy.
+     *
+     * @param tiers            The interest rate tiers, in any order.
+     * @param fee              The maintenance fee per period; zero for none.
+     * @param feeWaiverBalance The balance from which the fee is waived.
+     * @param scale            The number of decimal places the interest is rounded to.
+     * @param roundingMode     How the interest is rounded.
+     * @throws IllegalArgumentException If the fee is negative or two tiers share a lower bound.
+     */
+    public PostingPolicy(List<RateTier> tiers, BigDecimal fee, BigDecimal feeWaiverBalance, int scale, RoundingMode roundingMode) {
+        if (fee.signum() < 0) {
+            throw new IllegalArgumentException("Fee must not be negative: " + fee);
+        }
+        List<RateTier> sorted = new ArrayList<>(tiers);
+        sorted.sort(Comparator.comparing(RateTier::getLowerBound));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).getLowerBound().compareTo(sorted.get(i - 1).getLowerBound()) == 0) {
+                throw new IllegalArgumentException("Duplicate tier lower bound: " + sorted.get(i).getLowerBound());
+            }
+        }
+        this.tiers = List.copyOf(sorted);
+        this.fee = fee;
+        this.feeWaiverBalance = feeWaiverBalance;
+        this.scale = scale;
+        this.roundingMode = roundingMode;
+    }
+
+    public BigDecimal getFee() {
+        return fee;
+    }
+
+    /**
+     * Retrieves the number of decimal places the interest is rounded to.
+     *
+     * @return The scale of the interest.
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Computes the interest earned by a balance over all tiers, rounded once.
+     *
+     * @param balance The balance of the account.
+     * @return The interest, zero for balances that are not positive.
+     */
+    public BigDecimal interestOn(BigDecimal balance) {
+        BigDecimal interest = BigDecimal.ZERO;
+        for (int i = 0; i < tiers.size(); i++) {
+            RateTier tier = tiers.get(i);
+            if (balance.compareTo(tier.getLowerBound()) <= 0) {
+                break;
+            }
+            BigDecimal upper = i + 1 < tiers.size() ? balance.min(tiers.get(i + 1).getLowerBound()) : balance;
+            interest = interest.add(upper.subtract(tier.getLowerBound()).multiply(tier.getRate()));
+        }
+        return interest.setScale(scale, roundingMode);
+    }
+
+    /**
+     * Computes the fee charged to a balance.
+     *
+     * @param balance The balance of the account.
+     * @return The fee, zero if it is waived.
+     */
+    public BigDecimal feeOn(BigDecimal balance) {
+        return balance.compareTo(feeWaiverBalance) >= 0 ? BigDecimal.ZERO : fee;
+    }
+
+    /**
+     * Computes the net amount posted to an account: interest minus fee, never more of a debit than the balance.
+     *
+     * @param balance The balance of the account.
+     * @return The net posting; positive for a credit, negative for a debit, zero if nothing is posted.
+     */
+    public BigDecimal postingFor(BigDecimal balance) {
+        BigDecimal net = interestOn(balance).subtract(feeOn(balance));
+        if (net.signum() < 0 && net.negate().compareTo(balance) > 0) {
+            return balance.max(BigDecimal.ZERO).negate();
+        }
+        return net;
+    }
+}
@@ -0,0 +1,84 @@
+package application.posting;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * The outcome of one invocation of a posting run, which may have stopped at its time budget.
+ */
+public class PostingReport {
+
+    private final long postedAccounts;
+    private final long skippedAccounts;
+    private final BigDecimal totalInterest;
+    private final BigDecimal totalFees;
+    private final int completedPartitions;
+    private final int totalPartitions;
+    private final Duration elapsedTime;
+
+    /**
+     * Constructs a new posting report.
+     *
+     * @param postedAccounts      The number of accounts posted by this invocation.
+     * @param skippedAccounts     The number of accounts with nothing to post or already posted by an earlier invocation.
+     * @param totalInterest       The sum of the interest credited by this invocation.
+     * @param totalFees           The sum of the fees debited by this invocation.
+     * @param completedPartitions The number of partitions done, including those done by earlier invocations.
+     * @param totalPartitions     The number of partitions of the run.
+     * @param elapsedTime         The time this invocation took.
+     */
+    public PostingReport(long postedAccounts, long skippedAccounts, BigDecimal totalInterest, BigDecimal totalFees,
+                         int completedPartitions, int totalPartitions, Duration elapsedTime) {
+        this.postedAccounts = postedAccounts;
+        this.skippedAccounts = skippedAccounts;
+        this.totalInterest = totalInterest;
+        this.totalFees = totalFees;
+        this.completedPartitions = completedPartitions;
+        this.totalPartitions = totalPartitions;
+        this.elapsedTime = elapsedTime;
+    }
+
+    public long getPostedAccounts() {
+        return postedAccounts;
+    }
+
+    public long getSkippedAccounts() {
+        return skippedAccounts;
+    }
+
+    public BigDecimal getTotalInterest() {
+        return totalInterest;
+    }
+
+    public BigDecimal getTotalFees() {
+        return totalFees;
+    }
+
+    public int getCompletedPartitions() {
+        return completedPartitions;
+    }
+
+    public int getTotalPartitions() {
+        return totalPartitions;
+    }
+
+    public Duration getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Checks whether the whole run is done; otherwise it has to be resumed from its checkpoint.
+     *
+     * @return true if every partition is done.
+     */
+    public boolean isComplete() {
+        return completedPartitions == totalPartitions;
+    }
+
+    @Override
+    public String toString() {
+        return "Posted " + postedAccounts + " accounts (" + skippedAccounts + " skipped): interest "
+                + totalInterest.toPlainString() + ", fees " + totalFees.toPlainString() + ", " + completedPartitions
+                + "/" + totalPartitions + " partitions done in " + elapsedTime.toMillis() + " ms";
+    }
+}
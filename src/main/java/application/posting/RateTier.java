@@ -0,0 +1,36 @@
+package application.posting;
+
+import java.math.BigDecimal;
+
+/**
+ * One band of a tiered interest schedule: the rate applies to the part of a balance above the lower bound,
+ * up to the lower bound of the next tier.
+ */
+public class RateTier {
+
+    private final BigDecimal lowerBound;
+    private final BigDecimal rate;
+
+    /**
+     * Constructs a new rate tier.
+     *
+     * @param lowerBound The balance from which the tier applies.
+     * @param rate       The interest rate per posting period, e.g. 0.001 for 0.1 %.
+     * @throws IllegalArgumentException If the lower bound or the rate is negative.
+     */
+    public RateTier(BigDecimal lowerBound, BigDecimal rate) {
+        if (lowerBound.signum() < 0 || rate.signum() < 0) {
+            throw new IllegalArgumentException("Lower bound and rate must not be negative");
+        }
+        this.lowerBound = lowerBound;
+        this.rate = rate;
+    }
+
+    public BigDecimal getLowerBound() {
+        return lowerBound;
+    }
+
+    public BigDecimal getRate() {
+        return rate;
+    }
+}
@@ -0,0 +1,55 @@
+package application.reconciliation;
+
+import application.models.Account;
+
+import java.math.BigDecimal;
+
+/**
+ * An account whose stored balance differs from the balance its transaction history adds up to.
+ */
+public class Discrepancy {
+
+    private final Account account;
+    private final BigDecimal expectedBalance;
+    private final BigDecimal actualBalance;
+
+    /**
+     * Constructs a new discrepancy.
+     *
+     * @param account         The account that does not reconcile.
+     * @param expectedBalance The balance replayed from the transaction history, without phantom records.
+     * @param actualBalance   The balance stored in the account repository.
+     */
+    public Discrepancy(Account account, BigDecimal expectedBalance, BigDecimal actualBalance) {
+        this.account = account;
+        this.expectedBalance = expectedBalance;
+        this.actualBalance = actualBalance;
+    }
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public BigDecimal getExpectedBalance() {
+        return expectedBalance;
+    }
+
+    public BigDecimal getActualBalance() {
+        return actualBalance;
+    }
+
+    /**
+     * Retrieves how much more the account holds than its history explains.
+     *
+     * @return The actual balance minus the expected balance.
+     */
+    public BigDecimal getDifference() {
+        return actualBalance.subtract(expectedBalance);
+    }
+
+    @Override
+    public String toString() {
+        return account.getAccountId() + ": expected " + expectedBalance.toPlainString()
+                + ", actual " + actualBalance.toPlainString();
+    }
+}
@@ -0,0 +1,235 @@
+package application.reconciliation;
+
+import application.models.Account;
+import application.models.Page;
+import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Proves that the stored account balances match the transaction history, assuming the history starts from
+ * empty accounts.
+ * <p>
+ * The history is read page by page and cut into chunks that are folded in parallel on a fork/join pool: every
+ * chunk first sums the movements of its accounts locally, so an account busy throughout the chunk costs one
+ * shared update, then merges the sums into the expected balances. Only accounts whose stored balance differs are
+ * looked at record by record: their history is replayed in the order it was saved, and a debit that the running
+ * balance could not cover is a phantom record, logged by an operation that then failed its funds check. Phantom
+ * transfers also credited their recipient in the fold, so the recipients are replayed again until no new phantoms
+ * turn up. What still does not add up is reported as a discrepancy.
+ */
+public class ReconciliationEngine {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs an engine folding the history on the common fork/join pool.
+     *
+     * @param transactionRepository The history to replay.
+     * @param accountRepository     The accounts whose balances are checked.
+     */
+    public ReconciliationEngine(TransactionRepository transactionRepository, AccountRepository accountRepository) {
+        this(transactionRepository, accountRepository, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an engine.
+     *
+     * @param transactionRepository The history to replay.
+     * @param accountRepository     The accounts whose balances are checked.
+     * @param pool                  The pool the history is folded on.
+     */
+    public ReconciliationEngine(TransactionRepository transactionRepository, AccountRepository accountRepository, ForkJoinPool pool) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.pool = pool;
+    }
+
+    /**
+     * Replays the whole history and compares it with every account. Operations running meanwhile may be reported
+     * as discrepancies, so the job is meant to run while the system is quiet, e.g. at the end of the day.
+     *
+     * @return The phantom records and the accounts that do not reconcile.
+     */
+    public ReconciliationReport reconcile() {
+        long started = System.nanoTime();
+        Fold fold = foldHistory();
+        Map<UUID, BigDecimal> expected = fold.balances;
+
+        Map<UUID, Account> accounts = new LinkedHashMap<>();
+        List<Account> suspects = new ArrayList<>();
+        for (Account account : accountRepository.getAllAccounts()) {
+            accounts.put(account.getAccountId(), account);
+            if (!reconciles(account, expected)) {
+                suspects.add(account);
+            }
+        }
+        int unknownAccounts = 0;
+        for (UUID accountId : expected.keySet()) {
+            if (!accounts.containsKey(accountId)) {
+                unknownAccounts++;
+            }
+        }
+
+        Set<UUID> phantomIds = new HashSet<>();
+        List<Transaction> phantoms = new ArrayList<>();
+        while (!suspects.isEmpty()) {
+            List<Account> replayed = suspects;
+            List<Transaction> found = pool.submit(() -> replayed.parallelStream()
+                    .flatMap(account -> findPhantoms(account, phantomIds).stream())
+                    .toList()).join();
+            Map<UUID, Account> credited = new HashMap<>();
+            for (Transaction phantom : found) {
+                if (!phantomIds.add(phantom.getId())) {
+                    continue;
+                }
+                phantoms.add(phantom);
+                expected.merge(phantom.getAccount().getAccountId(), phantom.getAmount(), BigDecimal::add);
+                if (phantom.getType() == TransactionType.TRANSFER && phantom.getRecipient() != null) {
+                    UUID recipientId = phantom.getRecipient().getAccountId();
+                    expected.merge(recipientId, phantom.getAmount().negate(), BigDecimal::add);
+                    Account recipient = accounts.get(recipientId);
+                    if (recipient != null) {
+                        credited.put(recipientId, recipient);
+                    }
+                }
+            }
+            suspects = new ArrayList<>();
+            for (Account recipient : credited.values()) {
+                if (!reconciles(recipient, expected)) {
+                    suspects.add(recipient);
+                }
+            }
+        }
+
+        List<Discrepancy> discrepancies = new ArrayList<>();
+        for (Account account : accounts.values()) {
+            if (!reconciles(account, expected)) {
+                discrepancies.add(new Discrepancy(account, expected.getOrDefault(account.getAccountId(), BigDecimal.ZERO),
+                        accountRepository.getBalance(account)));
+            }
+        }
+        return new ReconciliationReport(fold.replayed.sum(), fold.skipped.sum(), accounts.size(), unknownAccounts,
+                phantoms, discrepancies, Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    /**
+     * Reads the history page by page on the calling thread while the pool folds the chunks already read.
+     */
+    private Fold foldHistory() {
+        Fold fold = new Fold();
+        int maxInFlight = pool.getParallelism() * 2;
+        Deque<ForkJoinTask<?>> inFlight = new ArrayDeque<>();
+        List<Transaction> chunk = new ArrayList<>(CHUNK_SIZE);
+        String cursor = null;
+        do {
+            Page<Transaction> page = transactionRepository.getTransactions(cursor, Page.MAX_SIZE);
+            chunk.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            if (chunk.size() >= CHUNK_SIZE || cursor == null) {
+                List<Transaction> records = chunk;
+                inFlight.addLast(pool.submit(() -> fold.add(records)));
+                chunk = new ArrayList<>(CHUNK_SIZE);
+                if (inFlight.size() > maxInFlight) {
+                    inFlight.removeFirst().join();
+                }
+            }
+        } while (cursor != null);
+        while (!inFlight.isEmpty()) {
+            inFlight.removeFirst().join();
+        }
+        return fold;
+    }
+
+    /**
+     * Replays the history of one account in the order it was saved and collects the debits it could not cover.
+     */
+    private List<Transaction> findPhantoms(Account account, Set<UUID> knownPhantoms) {
+        UUID accountId = account.getAccountId();
+        BigDecimal balance = BigDecimal.ZERO;
+        List<Transaction> phantoms = new ArrayList<>();
+        for (Transaction transaction : transactionRepository.getAccountTransactions(account)) {
+            if (knownPhantoms.contains(transaction.getId())) {
+                continue;
+            }
+            TransactionType type = transaction.getType();
+            boolean sender = accountId.equals(transaction.getAccount().getAccountId());
+            boolean recipient = type == TransactionType.TRANSFER && transaction.getRecipient() != null
+                    && accountId.equals(transaction.getRecipient().getAccountId());
+            if (sender && (type == TransactionType.WITHDRAWAL || type == TransactionType.FEE || type == TransactionType.TRANSFER)) {
+                if (balance.compareTo(transaction.getAmount()) < 0) {
+                    phantoms.add(transaction);
+                    continue;
+                }
+                balance = balance.subtract(transaction.getAmount());
+            }
+            if ((sender && (type == TransactionType.DEPOSIT || type == TransactionType.INTEREST)) || recipient) {
+                balance = balance.add(transaction.getAmount());
+            }
+        }
+        return phantoms;
+    }
+
+    private boolean reconciles(Account account, Map<UUID, BigDecimal> expected) {
+        BigDecimal balance = expected.getOrDefault(account.getAccountId(), BigDecimal.ZERO);
+        return accountRepository.getBalance(account).compareTo(balance) == 0;
+    }
+
+    /**
+     * The expected balances of one run, shared by the chunks folded in parallel.
+     */
+    private static final class Fold {
+
+        private final Map<UUID, BigDecimal> balances = new ConcurrentHashMap<>();
+        private final LongAdder replayed = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+
+        private void add(List<Transaction> records) {
+            Map<UUID, BigDecimal> sums = new HashMap<>();
+            long moved = 0;
+            for (Transaction transaction : records) {
+                UUID accountId = transaction.getAccount().getAccountId();
+                BigDecimal amount = transaction.getAmount();
+                switch (transaction.getType()) {
+                    case DEPOSIT, INTEREST -> sums.merge(accountId, amount, BigDecimal::add);
+                    case WITHDRAWAL, FEE -> sums.merge(accountId, amount.negate(), BigDecimal::add);
+                    case TRANSFER -> {
+                        sums.merge(accountId, amount.negate(), BigDecimal::add);
+                        if (transaction.getRecipient() != null) {
+                            sums.merge(transaction.getRecipient().getAccountId(), amount, BigDecimal::add);
+                        }
+                    }
+                    default -> {
+                        continue;
+                    }
+                }
+                moved++;
+            }
+            sums.forEach((accountId, sum) -> balances.merge(accountId, sum, BigDecimal::add));
+            replayed.add(moved);
+            skipped.add(records.size() - moved);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package application.reconciliation;
+
+import application.models.transactions.Transaction;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The outcome of reconciling the account balances against the transaction history.
+ */
+public class ReconciliationReport {
+
+    private final long replayedRecords;
+    private final long skippedRecords;
+    private final int checkedAccounts;
+    private final int unknownAccounts;
+    private final List<Transaction> phantomRecords;
+    private final List<Discrepancy> discrepancies;
+    private final Duration elapsedTime;
+
+    /**
+     * Constructs a new reconciliation report.
+     *
+     * @param replayedRecords The number of money movements folded into the expected balances.
+     * @param skippedRecords  The number of records that do not move money, such as balance inquiries.
+     * @param checkedAccounts The number of accounts in the account repository that were compared.
+     * @param unknownAccounts The number of accounts that appear in the history but not in the account repository.
+     * @param phantomRecords  The logged debits that were never applied because funds were short.
+     * @param discrepancies   The accounts that do not reconcile even without the phantom records.
+     * @param elapsedTime     The time the reconciliation took.
+     */
+    public ReconciliationReport(long replayedRecords, long skippedRecords, int checkedAccounts, int unknownAccounts,
+                                List<Transaction> phantomRecords, List<Discrepancy> discrepancies, Duration elapsedTime) {
+        this.replayedRecords = replayedRecords;
+        this.skippedRecords = skippedRecords;
+        this.checkedAccounts = checkedAccounts;
+        this.unknownAccounts = unknownAccounts;
+        this.phantomRecords = List.copyOf(phantomRecords);
+        this.discrepancies = List.copyOf(discrepancies);
+        this.elapsedTime = elapsedTime;
+    }
+
+    public long getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    public long getSkippedRecords() {
+        return skippedRecords;
+    }
+
+    public int getCheckedAccounts() {
+        return checkedAccounts;
+    }
+
+    public int getUnknownAccounts() {
+        return unknownAccounts;
+    }
+
+    public List<Transaction> getPhantomRecords() {
+        return phantomRecords;
+    }
+
+    public List<Discrepancy> getDiscrepancies() {
+        return discrepancies;
+    }
+
+    public Duration getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Checks whether every account reconciles once the phantom records are left out.
+     *
+     * @return true if there are no discrepancies.
+     */
+    public boolean isBalanced() {
+        return discrepancies.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Reconciled " + checkedAccounts + " accounts against " + replayedRecords + " records ("
+                + skippedRecords + " skipped, " + unknownAccounts + " unknown accounts) in " + elapsedTime.toMillis()
+                + " ms: " + phantomRecords.size() + " phantom records, " + discrepancies.size() + " discrepancies";
+    }
+}
@@ -27,6 +27,17 @@ public interface AccountRepository {
      */
     void save(Account account);
 
+    /**
+     * Saves several accounts. Implementations may override this to save them with a single write.
+     *
+     * @param accounts The accounts to save.
+     */
+    default void saveAll(List<Account> accounts) {
+        for (Account account : accounts) {
+            save(account);
+        }
+    }
+
     /**
      * Deletes an account from the repository.
      *
@@ -50,6 +61,13 @@ public interface AccountRepository {
      */
     List<Account> getAccountsByUser(User user);
 
+    /**
+     * Retrieves all accounts in the repository.
+     *
+     * @return A list of all accounts.
+     */
+    List<Account> getAllAccounts();
+
     /**
      * Deletes all accounts associated with a specific user.
      *
@@ -1,8 +1,11 @@
 package application.repositories;
 
 import application.models.Account;
+import application.models.Page;
 import application.models.transactions.Transaction;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,7 +22,20 @@ public interface TransactionRepository {
     void save(Transaction transaction);
 
     /**
-     * Retrieves a list of transactions associated with a specific account.
+     * Saves several transactions in the given order. Implementations may override this
+     * to save them with a single write.
+     *
+     * @param transactions The transactions to be saved.
+     */
+    default void saveAll(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            save(transaction);
+        }
+    }
+
+    /**
+     * Retrieves a list of transactions associated with a specific account,
+     * including transfers in which the account is the recipient.
      *
      * @param account The account for which transactions are to be retrieved.
      * @return A list of transactions associated with the given account.
@@ -40,4 +56,62 @@ public interface TransactionRepository {
      * @return A list of all transactions in the repository.
      */
     List<Transaction> getAllTransactions();
-}
\ No newline at end of file
+
+    /**
+     * Retrieves one page of all transactions, in the order they were saved.
+     *
+     * @param cursor   The cursor returned with the previous page, or {@code null} for the first page.
+     * @param pageSize The maximal number of transactions on the page.
+     * @return The requested page and the cursor of the next one.
+     */
+    default Page<Transaction> getTransactions(String cursor, int pageSize) {
+        return Page.slice(getAllTransactions(), cursor, pageSize);
+    }
+
+    /**
+     * Retrieves one page of the transactions associated with a specific account, in the order they were saved.
+     *
+     * @param account  The account for which transactions are to be retrieved.
+     * @param cursor   The cursor returned with the previous page, or {@code null} for the first page.
+     * @param pageSize The maximal number of transactions on the page.
+     * @return The requested page and the cursor of the next one.
+     */
+    default Page<Transaction> getAccountTransactions(Account account, String cursor, int pageSize) {
+        return Page.slice(getAccountTransactions(account), cursor, pageSize);
+    }
+
+    /**
+     * Retrieves all transactions whose date falls into the half-open range {@code [from, to)}, ordered by date.
+     *
+     * @param from The inclusive lower bound of the range.
+     * @param to   The exclusive upper bound of the range.
+     * @return A list of the transactions in the range.
+     */
+    default List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+        return filterByDate(getAllTransactions(), from, to);
+    }
+
+    /**
+     * Retrieves the transactions of a specific account whose date falls into the half-open range {@code [from, to)},
+     * ordered by date.
+     *
+     * @param account The account for which transactions are to be retrieved.
+     * @param from    The inclusive lower bound of the range.
+     * @param to      The exclusive upper bound of the range.
+     * @return A list of the account's transactions in the range.
+     */
+    default List<Transaction> getAccountTransactionsBetween(Account account, LocalDateTime from, LocalDateTime to) {
+        return filterByDate(getAccountTransactions(account), from, to);
+    }
+
+    private static List<Transaction> filterByDate(List<Transaction> transactions, LocalDateTime from, LocalDateTime to) {
+        List<Transaction> result = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (!transaction.getDate().isBefore(from) && transaction.getDate().isBefore(to)) {
+                result.add(transaction);
+            }
+        }
+        result.sort((first, second) -> first.getDate().compareTo(second.getDate()));
+        return result;
+    }
+}
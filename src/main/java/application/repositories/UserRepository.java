@@ -27,6 +27,13 @@ public interface UserRepository {
      */
     User getUserByUID(UUID id);
 
+    /**
+     * Retrieves all users in the data store.
+     *
+     * @return A list of all users.
+     */
+    List<User> getAllUsers();
+
     /**
      * Saves the given user to the data store.
      *
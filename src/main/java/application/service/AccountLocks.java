@@ -0,0 +1,57 @@
+package application.service;
+
+import application.models.Account;
+
+import java.util.Collection;
+
+/**
+ * This interface defines how balance-changing operations acquire exclusive access to accounts.
+ * Implementations must guarantee that {@link #lockPair(Account, Account)} never deadlocks,
+ * whatever the order of the two accounts and whatever other pairs are being locked at the same time.
+ */
+public interface AccountLocks {
+
+    /**
+     * Acquires exclusive access to a single account.
+     *
+     * @param account The account to lock.
+     */
+    void lock(Account account);
+
+    /**
+     * Releases exclusive access to a single account.
+     *
+     * @param account The account to unlock.
+     */
+    void unlock(Account account);
+
+    /**
+     * Acquires exclusive access to two accounts at once. The accounts may be the same.
+     *
+     * @param first  The first account to lock.
+     * @param second The second account to lock.
+     */
+    void lockPair(Account first, Account second);
+
+    /**
+     * Releases the locks taken by {@link #lockPair(Account, Account)} for the same two accounts.
+     *
+     * @param first  The first account to unlock.
+     * @param second The second account to unlock.
+     */
+    void unlockPair(Account first, Account second);
+
+    /**
+     * Acquires exclusive access to any number of accounts at once, taking every underlying lock only once.
+     *
+     * @param accounts The accounts to lock; duplicates are allowed.
+     */
+    void lockAll(Collection<Account> accounts);
+
+    /**
+     * Releases the locks taken by {@link #lockAll(Collection)} for the same accounts.
+     *
+     * @param accounts The accounts to unlock.
+     */
+    void unlockAll(Collection<Account> accounts);
+}
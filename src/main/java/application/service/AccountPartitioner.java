@@ -0,0 +1,43 @@
+package application.service;
+
+import java.util.UUID;
+
+/**
+ * Assigns every account to one of a fixed number of shards by the hash of its ID.
+ */
+public class AccountPartitioner {
+
+    private final int shardCount;
+
+    /**
+     * Constructs a new partitioner.
+     *
+     * @param shardCount the number of shards, at least one
+     */
+    public AccountPartitioner(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * Retrieves the shard owning an account.
+     *
+     * @param accountId the ID of the account
+     * @return the index of the owning shard, between zero and the shard count
+     */
+    public int shardOf(UUID accountId) {
+        long hash = (accountId.getMostSignificantBits() ^ accountId.getLeastSignificantBits()) * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(hash ^ (hash >>> 32), (long) shardCount);
+    }
+
+    /**
+     * Retrieves the number of shards.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+}
@@ -2,7 +2,12 @@ package application.service;
 
 import application.contracts.AccountOperations;
 import application.exceptions.MaxAccountsReachedException;
+import application.metrics.Instrumented;
+import application.metrics.OperationMetrics;
+import application.metrics.ServiceMetrics;
 import application.models.Account;
+import application.models.FixedPointAccount;
+import application.models.MoneyMode;
 import application.models.User;
 import application.repositories.AccountRepository;
 
@@ -12,19 +17,37 @@ import java.util.UUID;
 
 /**
  * This class provides services related to account operations.
- * It implements the {@link AccountOperations} interface.
+ * It implements the {@link AccountOperations} interface and records the latency and outcome of every operation.
  */
-public class AccountService implements AccountOperations {
+public class AccountService implements AccountOperations, Instrumented {
 
     private final AccountRepository accountRepository;
+    private final MoneyMode moneyMode;
+    private final ServiceMetrics metrics = new ServiceMetrics("accounts");
+    private final OperationMetrics creations = metrics.operation("createAccount");
+    private final OperationMetrics lookups = metrics.operation("getAccountByUid");
+    private final OperationMetrics deletions = metrics.operation("delete");
+    private final OperationMetrics existenceChecks = metrics.operation("exists");
+    private final OperationMetrics balanceInquiries = metrics.operation("getBalanceByAccountID");
 
     /**
-     * Constructs a new instance of {@link AccountService}.
+     * Constructs a new instance of {@link AccountService} creating {@link MoneyMode#DECIMAL} accounts.
      *
      * @param accountRepository the repository for managing accounts
      */
     public AccountService(AccountRepository accountRepository) {
+        this(accountRepository, MoneyMode.DECIMAL);
+    }
+
+    /**
+     * Constructs a new instance of {@link AccountService}.
+     *
+     * @param accountRepository the repository for managing accounts
+     * @param moneyMode         the balance representation of newly created accounts
+     */
+    public AccountService(AccountRepository accountRepository, MoneyMode moneyMode) {
         this.accountRepository = accountRepository;
+        this.moneyMode = moneyMode;
     }
 
     /**
@@ -35,9 +58,19 @@ public class AccountService implements AccountOperations {
      */
     @Override
     public Account createAccount(User user) throws MaxAccountsReachedException {
-        Account account = new Account(user);
-        accountRepository.save(account);
-        return account;
+        long start = creations.start();
+        boolean succeeded = false;
+        try {
+            Account account = switch (moneyMode) {
+                case DECIMAL -> new Account(user);
+                case FIXED_POINT -> new FixedPointAccount(user);
+            };
+            accountRepository.save(account);
+            succeeded = true;
+            return account;
+        } finally {
+            creations.record(start, succeeded);
+        }
     }
 
     /**
@@ -48,7 +81,15 @@ public class AccountService implements AccountOperations {
      */
     @Override
     public Account getAccountByUid(UUID uid) {
-        return accountRepository.findById(uid);
+        long start = lookups.start();
+        boolean succeeded = false;
+        try {
+            Account account = accountRepository.findById(uid);
+            succeeded = true;
+            return account;
+        } finally {
+            lookups.record(start, succeeded);
+        }
     }
 
     /**
@@ -58,7 +99,14 @@ public class AccountService implements AccountOperations {
      */
     @Override
     public void delete(Account account) {
-        accountRepository.delete(account);
+        long start = deletions.start();
+        boolean succeeded = false;
+        try {
+            accountRepository.delete(account);
+            succeeded = true;
+        } finally {
+            deletions.record(start, succeeded);
+        }
     }
 
     /**
@@ -69,7 +117,15 @@ public class AccountService implements AccountOperations {
      */
     @Override
     public boolean exists(UUID uuid) {
-        return accountRepository.exists(uuid);
+        long start = existenceChecks.start();
+        boolean succeeded = false;
+        try {
+            boolean exists = accountRepository.exists(uuid);
+            succeeded = true;
+            return exists;
+        } finally {
+            existenceChecks.record(start, succeeded);
+        }
     }
 
     /**
@@ -80,7 +136,20 @@ public class AccountService implements AccountOperations {
      */
     @Override
     public BigDecimal getBalanceByAccountID(UUID uuid) {
-        Account account = accountRepository.findById(uuid);
-        return account.getBalance();
+        long start = balanceInquiries.start();
+        boolean succeeded = false;
+        try {
+            Account account = accountRepository.findById(uuid);
+            BigDecimal balance = account.getBalance();
+            succeeded = true;
+            return balance;
+        } finally {
+            balanceInquiries.record(start, succeeded);
+        }
+    }
+
+    @Override
+    public ServiceMetrics getMetrics() {
+        return metrics;
     }
-}
\ No newline at end of file
+}
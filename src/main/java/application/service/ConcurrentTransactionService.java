@@ -0,0 +1,111 @@
+package application.service;
+
+import application.exceptions.NotEnoughFundsException;
+import application.models.Account;
+import application.models.transactions.BatchMode;
+import application.models.transactions.Operation;
+import application.models.transactions.OperationResult;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A thread-safe variant of {@link TransactionService}.
+ * Every balance change runs under the {@link AccountLocks} of the accounts it touches, so operations
+ * on different accounts proceed in parallel, while operations on the same account are serialized.
+ */
+public class ConcurrentTransactionService extends TransactionService {
+
+    private final AccountLocks locks;
+
+    /**
+     * Constructs a new instance of ConcurrentTransactionService with a stripe count derived from the number of cores.
+     *
+     * @param transactionRepository the repository for managing transactions
+     * @param accountRepository     the repository for managing accounts
+     */
+    public ConcurrentTransactionService(TransactionRepository transactionRepository, AccountRepository accountRepository) {
+        this(transactionRepository, accountRepository, Runtime.getRuntime().availableProcessors() * 16);
+    }
+
+    /**
+     * Constructs a new instance of ConcurrentTransactionService backed by {@link StripedAccountLocks}.
+     *
+     * @param transactionRepository the repository for managing transactions
+     * @param accountRepository     the repository for managing accounts
+     * @param stripeCount           the minimal number of lock stripes, rounded up to a power of two
+     */
+    public ConcurrentTransactionService(TransactionRepository transactionRepository, AccountRepository accountRepository, int stripeCount) {
+        this(transactionRepository, accountRepository, new StripedAccountLocks(stripeCount));
+    }
+
+    /**
+     * Constructs a new instance of ConcurrentTransactionService.
+     *
+     * @param transactionRepository the repository for managing transactions
+     * @param accountRepository     the repository for managing accounts
+     * @param locks                 the locking strategy used to guard the accounts
+     */
+    public ConcurrentTransactionService(TransactionRepository transactionRepository, AccountRepository accountRepository, AccountLocks locks) {
+        super(transactionRepository, accountRepository);
+        this.locks = locks;
+    }
+
+    @Override
+    protected void applyDeposit(Account account, BigDecimal amount) {
+        locks.lock(account);
+        try {
+            super.applyDeposit(account, amount);
+        } finally {
+            locks.unlock(account);
+        }
+    }
+
+    @Override
+    protected void applyWithdrawal(Account account, BigDecimal amount) throws NotEnoughFundsException {
+        locks.lock(account);
+        try {
+            super.applyWithdrawal(account, amount);
+        } finally {
+            locks.unlock(account);
+        }
+    }
+
+    @Override
+    protected void applyTransfer(Account account, Account recipient, BigDecimal amount) throws NotEnoughFundsException {
+        locks.lockPair(account, recipient);
+        try {
+            super.applyTransfer(account, recipient, amount);
+        } finally {
+            locks.unlockPair(account, recipient);
+        }
+    }
+
+    /**
+     * Executes a batch while holding the locks of every account the batch touches, each taken once.
+     *
+     * @param operations the operations to execute
+     * @param mode       whether a failed operation aborts the whole batch
+     * @return the result of every operation, in the order of the operations
+     */
+    @Override
+    protected List<OperationResult> applyBatch(List<Operation> operations, BatchMode mode) {
+        Set<Account> accounts = new LinkedHashSet<>();
+        for (Operation operation : operations) {
+            accounts.add(operation.getAccount());
+            if (operation.getRecipient() != null) {
+                accounts.add(operation.getRecipient());
+            }
+        }
+        locks.lockAll(accounts);
+        try {
+            return super.applyBatch(operations, mode);
+        } finally {
+            locks.unlockAll(accounts);
+        }
+    }
+}
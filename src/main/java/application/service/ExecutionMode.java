@@ -0,0 +1,29 @@
+package application.service;
+
+/**
+ * Defines how the transaction operations of the banking system are executed.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Operations are executed without any synchronization. Suitable for single-threaded use only.
+     */
+    SEQUENTIAL,
+
+    /**
+     * Operations are executed under per-account striped locks, so they can be called from many threads.
+     */
+    CONCURRENT,
+
+    /**
+     * Operations are executed without locks and rely on the atomic balance updates of
+     * {@link application.models.FixedPointAccount}. Requires {@link application.models.MoneyMode#FIXED_POINT}.
+     */
+    LOCK_FREE,
+
+    /**
+     * Balance-changing operations are published into a ring buffer and applied in order by a single
+     * business-logic thread, see {@link LedgerTransactionService}.
+     */
+    LEDGER
+}
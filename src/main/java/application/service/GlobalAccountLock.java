@@ -0,0 +1,45 @@
+package application.service;
+
+import application.models.Account;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Account locks that serialize every operation on a single lock.
+ * It is trivially deadlock-free and serves as the baseline for the striped implementation.
+ */
+public class GlobalAccountLock implements AccountLocks {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Override
+    public void lock(Account account) {
+        lock.lock();
+    }
+
+    @Override
+    public void unlock(Account account) {
+        lock.unlock();
+    }
+
+    @Override
+    public void lockPair(Account first, Account second) {
+        lock.lock();
+    }
+
+    @Override
+    public void unlockPair(Account first, Account second) {
+        lock.unlock();
+    }
+
+    @Override
+    public void lockAll(Collection<Account> accounts) {
+        lock.lock();
+    }
+
+    @Override
+    public void unlockAll(Collection<Account> accounts) {
+        lock.unlock();
+    }
+}
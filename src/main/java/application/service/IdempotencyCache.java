@@ -0,0 +1,186 @@
+package application.service;
+
+import java.io.Serial;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded concurrent cache of recently seen idempotency keys whose entries expire a fixed time after insertion.
+ * <p>
+ * Keys are spread over independently locked segments. Every segment keeps its entries in insertion order, which
+ * with a fixed time to live is also expiry order, so expired entries and, once a segment is full, the oldest
+ * entries are dropped from its head. Lookups, insertions and evictions are therefore O(1), and memory is bounded
+ * by the capacity no matter how many keys arrive per time to live.
+ *
+ * @param <V> the type of the cached values
+ */
+public class IdempotencyCache<V> {
+
+    /**
+     * The default maximal number of keys.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    /**
+     * The default time after which a key is forgotten.
+     */
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofHours(1);
+
+    private static final int SEGMENTS = 64;
+
+    private final List<Segment<V>> segments;
+    private final long timeToLive;
+    private final LongSupplier ticker;
+
+    /**
+     * Constructs a cache with the default capacity and time to live.
+     */
+    public IdempotencyCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * Constructs a cache measuring time with {@link System#nanoTime()}.
+     *
+     * @param capacity   the maximal number of keys
+     * @param timeToLive the time after which a key is forgotten
+     */
+    public IdempotencyCache(int capacity, Duration timeToLive) {
+        this(capacity, timeToLive, System::nanoTime);
+    }
+
+    /**
+     * Constructs a cache.
+     *
+     * @param capacity   the maximal number of keys
+     * @param timeToLive the time after which a key is forgotten
+     * @param ticker     the source of the current time in nanoseconds
+     */
+    public IdempotencyCache(int capacity, Duration timeToLive, LongSupplier ticker) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive: " + timeToLive);
+        }
+        int segmentCapacity = Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS);
+        this.segments = new ArrayList<>(SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments.add(new Segment<>(segmentCapacity));
+        }
+        this.timeToLive = timeToLive.toNanos();
+        this.ticker = ticker;
+    }
+
+    /**
+     * Stores the value under the key unless the key holds an unexpired value.
+     *
+     * @param key   the idempotency key
+     * @param value the value to store
+     * @return the unexpired value stored earlier, or null if the given value was stored
+     */
+    public V putIfAbsent(String key, V value) {
+        long now = ticker.getAsLong();
+        Segment<V> segment = segmentOf(key);
+        synchronized (segment) {
+            segment.expire(now);
+            Entry<V> entry = segment.get(key);
+            if (entry != null && now - entry.expiresAt < 0) {
+                return entry.value;
+            }
+            segment.remove(key);
+            segment.put(key, new Entry<>(value, now + timeToLive));
+            return null;
+        }
+    }
+
+    /**
+     * Retrieves the value stored under the key.
+     *
+     * @param key the idempotency key
+     * @return the unexpired value, or null if there is none
+     */
+    public V get(String key) {
+        long now = ticker.getAsLong();
+        Segment<V> segment = segmentOf(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            return entry != null && now - entry.expiresAt < 0 ? entry.value : null;
+        }
+    }
+
+    /**
+     * Removes the key if it still holds the given value.
+     *
+     * @param key   the idempotency key
+     * @param value the value expected under the key
+     */
+    public void remove(String key, V value) {
+        Segment<V> segment = segmentOf(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry != null && entry.value == value) {
+                segment.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of stored keys, including expired keys not dropped yet.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment<V> segmentOf(String key) {
+        int hash = key.hashCode();
+        return segments.get((hash ^ (hash >>> 16)) & (SEGMENTS - 1));
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    /**
+     * A part of the cache in insertion order, guarded by its own monitor.
+     */
+    private static final class Segment<V> extends LinkedHashMap<String, Entry<V>> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, false);
+            this.capacity = capacity;
+        }
+
+        private void expire(long now) {
+            Iterator<Entry<V>> iterator = values().iterator();
+            while (iterator.hasNext()) {
+                if (now - iterator.next().expiresAt < 0) {
+                    return;
+                }
+                iterator.remove();
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package application.service;
+
+import application.contracts.TransactionsOperations;
+import application.exceptions.NotEnoughFundsException;
+import application.models.Account;
+import application.models.Page;
+import application.models.transactions.BatchMode;
+import application.models.transactions.Operation;
+import application.models.transactions.OperationResult;
+import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A transaction service that executes keyed deposits, withdrawals and transfers at most once per idempotency key
+ * and delegates everything else to another service.
+ * <p>
+ * The outcome of every keyed request is kept in an {@link IdempotencyCache}: success, or the missing-funds failure.
+ * A repeated request waits for the first one if it is still running and then returns the same outcome without
+ * executing again. Reusing a key for a different operation is rejected. Requests that fail for other reasons are
+ * forgotten, so that they can be retried.
+ */
+public class IdempotentTransactionService implements TransactionsOperations {
+
+    private final TransactionsOperations delegate;
+    private final IdempotencyCache<Request> requests;
+
+    /**
+     * Constructs a new idempotent service with a cache of the default capacity and time to live.
+     *
+     * @param delegate the service executing the operations
+     */
+    public IdempotentTransactionService(TransactionsOperations delegate) {
+        this(delegate, new IdempotencyCache<>());
+    }
+
+    /**
+     * Constructs a new idempotent service.
+     *
+     * @param delegate the service executing the operations
+     * @param requests the cache remembering the outcomes of keyed requests
+     */
+    public IdempotentTransactionService(TransactionsOperations delegate, IdempotencyCache<Request> requests) {
+        this.delegate = delegate;
+        this.requests = requests;
+    }
+
+    @Override
+    public void createTransaction(Account account, BigDecimal amount, TransactionType type) {
+        delegate.createTransaction(account, amount, type);
+    }
+
+    @Override
+    public void createTransaction(Account account, BigDecimal amount, TransactionType type, Account recipient) {
+        delegate.createTransaction(account, amount, type, recipient);
+    }
+
+    @Override
+    public void deposit(Account account, BigDecimal amount) {
+        delegate.deposit(account, amount);
+    }
+
+    @Override
+    public void withdrawal(Account account, BigDecimal amount) throws NotEnoughFundsException {
+        delegate.withdrawal(account, amount);
+    }
+
+    @Override
+    public void transfer(Account account, Account recipient, BigDecimal amount) throws NotEnoughFundsException {
+        delegate.transfer(account, recipient, amount);
+    }
+
+    /**
+     * Deposits the specified amount into the given account once per idempotency key: repeating the request with
+     * the same key returns the stored outcome without touching the balance.
+     *
+     * @param idempotencyKey the key identifying the request, or null to execute it unconditionally
+     * @param account        the account into which the deposit is being made
+     * @param amount         the amount to be deposited
+     */
+    public void deposit(String idempotencyKey, Account account, BigDecimal amount) {
+        try {
+            execute(idempotencyKey, new Operation(account, amount, TransactionType.DEPOSIT));
+        } catch (NotEnoughFundsException e) {
+            throw new IllegalStateException("Deposit cannot run out of funds", e);
+        }
+    }
+
+    /**
+     * Withdraws the specified amount from the given account once per idempotency key: repeating the request with
+     * the same key returns the stored outcome, including a missing-funds failure, without touching the balance.
+     *
+     * @param idempotencyKey the key identifying the request, or null to execute it unconditionally
+     * @param account        the account from which the withdrawal is being made
+     * @param amount         the amount to be withdrawn
+     */
+    public void withdrawal(String idempotencyKey, Account account, BigDecimal amount) throws NotEnoughFundsException {
+        execute(idempotencyKey, new Operation(account, amount, TransactionType.WITHDRAWAL));
+    }
+
+    /**
+     * Transfers the specified amount between the accounts once per idempotency key: repeating the request with
+     * the same key returns the stored outcome, including a missing-funds failure, without touching the balances.
+     *
+     * @param idempotencyKey the key identifying the request, or null to execute it unconditionally
+     * @param account        the account from which the transfer is being made
+     * @param recipient      the account to which the transfer is being made
+     * @param amount         the amount to be transferred
+     */
+    public void transfer(String idempotencyKey, Account account, Account recipient, BigDecimal amount) throws NotEnoughFundsException {
+        execute(idempotencyKey, new Operation(account, amount, TransactionType.TRANSFER, recipient));
+    }
+
+    @Override
+    public List<OperationResult> executeBatch(List<Operation> operations, BatchMode mode) {
+        return delegate.executeBatch(operations, mode);
+    }
+
+    @Override
+    public BigDecimal getBalance(Account account) {
+        return delegate.getBalance(account);
+    }
+
+    @Override
+    public List<Transaction> getAccountsTransactions(Account account) {
+        return delegate.getAccountsTransactions(account);
+    }
+
+    @Override
+    public List<Transaction> getAllTransactions() {
+        return delegate.getAllTransactions();
+    }
+
+    @Override
+    public Page<Transaction> getAccountsTransactions(Account account, String cursor, int pageSize) {
+        return delegate.getAccountsTransactions(account, cursor, pageSize);
+    }
+
+    @Override
+    public Page<Transaction> getAllTransactions(String cursor, int pageSize) {
+        return delegate.getAllTransactions(cursor, pageSize);
+    }
+
+    @Override
+    public List<Transaction> getAccountsTransactions(Account account, LocalDateTime from, LocalDateTime to) {
+        return delegate.getAccountsTransactions(account, from, to);
+    }
+
+    private void execute(String idempotencyKey, Operation operation) throws NotEnoughFundsException {
+        if (idempotencyKey == null) {
+            run(operation);
+            return;
+        }
+        Request request = new Request(operation);
+        Request previous = requests.putIfAbsent(idempotencyKey, request);
+        if (previous != null) {
+            if (!previous.matches(operation)) {
+                throw new IllegalArgumentException("Idempotency key " + idempotencyKey + " was used for a different operation");
+            }
+            previous.awaitOutcome();
+            return;
+        }
+        try {
+            run(operation);
+            request.outcome.complete(null);
+        } catch (NotEnoughFundsException e) {
+            request.outcome.complete(e);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            requests.remove(idempotencyKey, request);
+            request.outcome.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void run(Operation operation) throws NotEnoughFundsException {
+        switch (operation.getType()) {
+            case DEPOSIT -> delegate.deposit(operation.getAccount(), operation.getAmount());
+            case WITHDRAWAL -> delegate.withdrawal(operation.getAccount(), operation.getAmount());
+            default -> delegate.transfer(operation.getAccount(), operation.getRecipient(), operation.getAmount());
+        }
+    }
+
+    /**
+     * A keyed request and its outcome: null on success or the missing-funds failure.
+     */
+    public static final class Request {
+
+        private final Operation operation;
+        private final CompletableFuture<NotEnoughFundsException> outcome = new CompletableFuture<>();
+
+        private Request(Operation operation) {
+            this.operation = operation;
+        }
+
+        private boolean matches(Operation other) {
+            return operation.getType() == other.getType()
+                    && operation.getAccount().getAccountId().equals(other.getAccount().getAccountId())
+                    && operation.getAmount().compareTo(other.getAmount()) == 0
+                    && (operation.getRecipient() == null
+                    ? other.getRecipient() == null
+                    : other.getRecipient() != null && operation.getRecipient().getAccountId().equals(other.getRecipient().getAccountId()));
+        }
+
+        private void awaitOutcome() throws NotEnoughFundsException {
+            NotEnoughFundsException failure;
+            try {
+                failure = outcome.join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException("The original request failed and can be retried", e.getCause());
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package application.service;
+
+import application.contracts.TransactionsOperations;
+import application.exceptions.NotEnoughFundsException;
+import application.metrics.Instrumented;
+import application.metrics.ServiceMetrics;
+import application.models.Account;
+import application.models.Page;
+import application.models.transactions.BatchMode;
+import application.models.transactions.Operation;
+import application.models.transactions.OperationResult;
+import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A single-writer ledger engine. Deposits, withdrawals, transfers and batches are published as commands into a
+ * ring buffer of reused slots and applied in sequence order by one business-logic thread, which runs them through
+ * a plain {@link TransactionService}. Balances are therefore never touched by two threads and need no locks,
+ * and the order of execution is the order in which sequences were claimed. Producers wait on a completion future,
+ * allocated per command, for the outcome of their command; queries do not go through the ring.
+ * <p>
+ * A producer claims a sequence, waits until the consumer has freed the slot that sequence maps to, fills the slot
+ * and publishes it by writing the sequence into it. The consumer parks when no command is published and is woken
+ * by the next publisher.
+ * <p>
+ * All balance changes must go through this service while it runs.
+ */
+public class LedgerTransactionService implements TransactionsOperations, Instrumented, AutoCloseable {
+
+    /**
+     * The default number of slots in the ring buffer.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final long CLOSED = Long.MIN_VALUE;
+    private static final int SPINS = 100;
+
+    private final TransactionService delegate;
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final Thread consumer;
+    private volatile boolean consumerWaiting;
+
+    private LedgerTransactionService(TransactionRepository transactionRepository, AccountRepository accountRepository, int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.delegate = new TransactionService(transactionRepository, accountRepository);
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.consumer = new Thread(this::consume, "ledger");
+        consumer.setDaemon(true);
+    }
+
+    /**
+     * Creates a new ledger engine with the default capacity and starts its business-logic thread.
+     *
+     * @param transactionRepository the repository for managing transactions
+     * @param accountRepository     the repository for managing accounts
+     * @return the running engine
+     */
+    public static LedgerTransactionService start(TransactionRepository transactionRepository, AccountRepository accountRepository) {
+        return start(transactionRepository, accountRepository, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new ledger engine and starts its business-logic thread.
+     *
+     * @param transactionRepository the repository for managing transactions
+     * @param accountRepository     the repository for managing accounts
+     * @param capacity              the minimal number of slots in the ring buffer, rounded up to a power of two
+     * @return the running engine
+     */
+    public static LedgerTransactionService start(TransactionRepository transactionRepository, AccountRepository accountRepository, int capacity) {
+        LedgerTransactionService ledger = new LedgerTransactionService(transactionRepository, accountRepository, capacity);
+        ledger.consumer.start();
+        return ledger;
+    }
+
+    @Override
+    public void createTransaction(Account account, BigDecimal amount, TransactionType type) {
+        delegate.createTransaction(account, amount, type);
+    }
+
+    @Override
+    public void createTransaction(Account account, BigDecimal amount, TransactionType type, Account recipient) {
+        delegate.createTransaction(account, amount, type, recipient);
+    }
+
+    @Override
+    public void deposit(Account account, BigDecimal amount) {
+        try {
+            publish(Command.DEPOSIT, account, null, amount, null, null);
+        } catch (NotEnoughFundsException e) {
+            throw new IllegalStateException("Deposit cannot run out of funds", e);
+        }
+    }
+
+    @Override
+    public void withdrawal(Account account, BigDecimal amount) throws NotEnoughFundsException {
+        publish(Command.WITHDRAWAL, account, null, amount, null, null);
+    }
+
+    @Override
+    public void transfer(Account account, Account recipient, BigDecimal amount) throws NotEnoughFundsException {
+        publish(Command.TRANSFER, account, recipient, amount, null, null);
+    }
+
+    /**
+     * Executes a batch as a single command, so no other command interleaves with it.
+     *
+     * @param operations the operations to execute
+     * @param mode       whether a failed operation aborts the whole batch
+     * @return the result of every operation, in the order of the operations
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<OperationResult> executeBatch(List<Operation> operations, BatchMode mode) {
+        try {
+            return (List<OperationResult>) publish(Command.BATCH, null, null, null, operations, mode);
+        } catch (NotEnoughFundsException e) {
+            throw new IllegalStateException("Batches report missing funds per operation", e);
+        }
+    }
+
+    @Override
+    public BigDecimal getBalance(Account account) {
+        return delegate.getBalance(account);
+    }
+
+    @Override
+    public List<Transaction> getAccountsTransactions(Account account) {
+        return delegate.getAccountsTransactions(account);
+    }
+
+    @Override
+    public List<Transaction> getAllTransactions() {
+        return delegate.getAllTransactions();
+    }
+
+    @Override
+    public Page<Transaction> getAccountsTransactions(Account account, String cursor, int pageSize) {
+        return delegate.getAccountsTransactions(account, cursor, pageSize);
+    }
+
+    @Override
+    public Page<Transaction> getAllTransactions(String cursor, int pageSize) {
+        return delegate.getAllTransactions(cursor, pageSize);
+    }
+
+    @Override
+    public List<Transaction> getAccountsTransactions(Account account, LocalDateTime from, LocalDateTime to) {
+        return delegate.getAccountsTransactions(account, from, to);
+    }
+
+    /**
+     * Retrieves the metrics of the business-logic thread's service; latencies cover execution, not queueing.
+     *
+     * @return the live metrics
+     */
+    @Override
+    public ServiceMetrics getMetrics() {
+        return delegate.getMetrics();
+    }
+
+    /**
+     * Stops accepting commands, waits until every published command has been applied and stops the business-logic thread.
+     */
+    @Override
+    public void close() {
+        claimed.getAndUpdate(value -> value | CLOSED);
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object publish(Command command, Account account, Account recipient, BigDecimal amount,
+                           List<Operation> operations, BatchMode mode) throws NotEnoughFundsException {
+        long sequence = claim();
+        int spins = 0;
+        while (sequence - slots.length >= consumed.get()) {
+            spins = backOff(spins);
+        }
+        Slot slot = slots[(int) sequence & mask];
+        CompletableFuture<Object> done = new CompletableFuture<>();
+        slot.command = command;
+        slot.account = account;
+        slot.recipient = recipient;
+        slot.amount = amount;
+        slot.operations = operations;
+        slot.mode = mode;
+        slot.done = done;
+        slot.sequence = sequence;
+        if (consumerWaiting) {
+            LockSupport.unpark(consumer);
+        }
+        try {
+            return done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof NotEnoughFundsException notEnoughFunds) {
+                throw notEnoughFunds;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private long claim() {
+        long value;
+        do {
+            value = claimed.get();
+            if ((value & CLOSED) != 0) {
+                throw new IllegalStateException("Ledger is closed");
+            }
+        } while (!claimed.compareAndSet(value, value + 1));
+        return value;
+    }
+
+    private void consume() {
+        long next = 0;
+        while (true) {
+            Slot slot = slots[(int) next & mask];
+            if (slot.sequence != next) {
+                long value = claimed.get();
+                if ((value & CLOSED) != 0 && (value & ~CLOSED) == next) {
+                    return;
+                }
+                awaitPublication(slot, next);
+                continue;
+            }
+            CompletableFuture<Object> done = slot.done;
+            try {
+                done.complete(execute(slot));
+            } catch (Throwable e) {
+                done.completeExceptionally(e);
+            } finally {
+                slot.clear();
+                consumed.set(++next);
+            }
+        }
+    }
+
+    private Object execute(Slot slot) throws NotEnoughFundsException {
+        switch (slot.command) {
+            case DEPOSIT -> delegate.deposit(slot.account, slot.amount);
+            case WITHDRAWAL -> delegate.withdrawal(slot.account, slot.amount);
+            case TRANSFER -> delegate.transfer(slot.account, slot.recipient, slot.amount);
+            case BATCH -> {
+                return delegate.executeBatch(slot.operations, slot.mode);
+            }
+        }
+        return null;
+    }
+
+    private void awaitPublication(Slot slot, long sequence) {
+        for (int i = 0; i < SPINS; i++) {
+            if (slot.sequence == sequence) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        consumerWaiting = true;
+        if (slot.sequence != sequence && (claimed.get() & CLOSED) == 0) {
+            LockSupport.park(this);
+        }
+        consumerWaiting = false;
+    }
+
+    private static int backOff(int spins) {
+        if (spins < SPINS) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(1_000);
+        }
+        return spins + 1;
+    }
+
+    private enum Command {
+        DEPOSIT,
+        WITHDRAWAL,
+        TRANSFER,
+        BATCH
+    }
+
+    /**
+     * A reusable entry of the ring buffer. The sequence is written last and read first, so it publishes the other fields.
+     */
+    private static final class Slot {
+
+        private volatile long sequence = -1;
+        private Command command;
+        private Account account;
+        private Account recipient;
+        private BigDecimal amount;
+        private List<Operation> operations;
+        private BatchMode mode;
+        private CompletableFuture<Object> done;
+
+        private void clear() {
+            command = null;
+            account = null;
+            recipient = null;
+            amount = null;
+            operations = null;
+            mode = null;
+            done = null;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package application.service;
+
+import application.contracts.TransactionsOperations;
+import application.exceptions.NotEnoughFundsException;
+import application.metrics.Instrumented;
+import application.metrics.ServiceMetrics;
+import application.models.Account;
+import application.models.Page;
+import application.models.transactions.BatchMode;
+import application.models.transactions.Operation;
+import application.models.transactions.OperationResult;
+import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A transaction service for a sharded deployment. Accounts are partitioned across shards by an
+ * {@link AccountPartitioner}, and every shard has its own account and transaction repositories and a single
+ * executor thread that runs all balance changes of its accounts, so shards work in parallel without locks.
+ * <p>
+ * A transfer between accounts of different shards uses two phases: the sender's shard debits the sender and
+ * records the transfer, then the recipient's shard credits the recipient and records the transfer as well.
+ * If the credit fails, the sender's shard compensates the debit with a deposit. Between the phases the amount is
+ * in flight and appears on neither account.
+ * <p>
+ * Account repositories must route accounts the same way, e.g. a sharded repository built on the same shards.
+ */
+public class ShardedTransactionService implements TransactionsOperations, Instrumented, AutoCloseable {
+
+    private final AccountPartitioner partitioner;
+    private final List<Shard> shards = new ArrayList<>();
+    private final ServiceMetrics metrics = new ServiceMetrics("transactions");
+
+    /**
+     * Constructs a new sharded transaction service and starts the executor of every shard.
+     *
+     * @param accountRepositories     the account repository of every shard, by shard index
+     * @param transactionRepositories the transaction repository of every shard, by shard index
+     */
+    public ShardedTransactionService(List<AccountRepository> accountRepositories, List<TransactionRepository> transactionRepositories) {
+        if (accountRepositories.size() != transactionRepositories.size()) {
+            throw new IllegalArgumentException("Every shard needs an account and a transaction repository");
+        }
+        this.partitioner = new AccountPartitioner(accountRepositories.size());
+        for (int i = 0; i < accountRepositories.size(); i++) {
+            shards.add(new Shard(i, accountRepositories.get(i), transactionRepositories.get(i), metrics));
+        }
+    }
+
+    @Override
+    public void createTransaction(Account account, BigDecimal amount, TransactionType type) {
+        Shard shard = shardOf(account);
+        execute(shard, () -> {
+            shard.service.createTransaction(account, amount, type);
+            return null;
+        });
+    }
+
+    @Override
+    public void createTransaction(Account account, BigDecimal amount, TransactionType type, Account recipient) {
+        Shard shard = shardOf(account);
+        execute(shard, () -> {
+            shard.service.createTransaction(account, amount, type, recipient);
+            return null;
+        });
+    }
+
+    @Override
+    public void deposit(Account account, BigDecimal amount) {
+        Shard shard = shardOf(account);
+        execute(shard, () -> {
+            shard.service.deposit(account, amount);
+            return null;
+        });
+    }
+
+    @Override
+    public void withdrawal(Account account, BigDecimal amount) throws NotEnoughFundsException {
+        Shard shard = shardOf(account);
+        call(shard, () -> {
+            shard.service.withdrawal(account, amount);
+            return null;
+        });
+    }
+
+    /**
+     * Transfers within a shard directly and between shards with the two-phase protocol.
+     *
+     * @param account   the sender
+     * @param recipient the recipient
+     * @param amount    the amount to transfer
+     * @throws NotEnoughFundsException if the sender does not have enough funds
+     * @throws IllegalStateException   if the credit failed and the debit was compensated
+     */
+    @Override
+    public void transfer(Account account, Account recipient, BigDecimal amount) throws NotEnoughFundsException {
+        Shard source = shardOf(account);
+        Shard target = shardOf(recipient);
+        if (source == target) {
+            call(source, () -> {
+                source.service.transfer(account, recipient, amount);
+                return null;
+            });
+            return;
+        }
+        Transaction transaction = new Transaction(account, amount, TransactionType.TRANSFER, recipient);
+        call(source, () -> {
+            source.debit(transaction);
+            return null;
+        });
+        try {
+            execute(target, () -> {
+                target.credit(transaction);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            execute(source, () -> {
+                source.compensate(transaction);
+                return null;
+            });
+            throw new IllegalStateException("Transfer to account " + recipient.getAccountId() + " failed and was compensated", e);
+        }
+    }
+
+    /**
+     * Executes a batch on the owning shard if all its accounts live in one shard. A batch spanning several
+     * shards is executed operation by operation in best-effort mode; it cannot be all-or-nothing. An operation
+     * failing there, e.g. a transfer whose credit failed and was compensated, is reported as
+     * {@link OperationResult.Status#FAILED} and the batch goes on.
+     *
+     * @param operations the operations to execute
+     * @param mode       whether a failed operation aborts the whole batch
+     * @return the result of every operation, in the order of the operations
+     * @throws IllegalArgumentException if an all-or-nothing batch spans several shards
+     */
+    @Override
+    public List<OperationResult> executeBatch(List<Operation> operations, BatchMode mode) {
+        Shard shard = commonShard(operations);
+        if (shard != null) {
+            return execute(shard, () -> shard.service.executeBatch(operations, mode));
+        }
+        if (mode == BatchMode.ALL_OR_NOTHING) {
+            throw new IllegalArgumentException("All-or-nothing batches must stay within one shard");
+        }
+        List<OperationResult> results = new ArrayList<>(operations.size());
+        for (Operation operation : operations) {
+            try {
+                switch (operation.getType()) {
+                    case DEPOSIT -> deposit(operation.getAccount(), operation.getAmount());
+                    case WITHDRAWAL -> withdrawal(operation.getAccount(), operation.getAmount());
+                    default -> transfer(operation.getAccount(), operation.getRecipient(), operation.getAmount());
+                }
+                results.add(new OperationResult(operation, OperationResult.Status.SUCCESS, null));
+            } catch (NotEnoughFundsException e) {
+                results.add(new OperationResult(operation, OperationResult.Status.NOT_ENOUGH_FUNDS, e));
+            } catch (RuntimeException e) {
+                results.add(new OperationResult(operation, OperationResult.Status.FAILED, e));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public BigDecimal getBalance(Account account) {
+        return shardOf(account).service.getBalance(account);
+    }
+
+    @Override
+    public List<Transaction> getAccountsTransactions(Account account) {
+        return shardOf(account).service.getAccountsTransactions(account);
+    }
+
+    /**
+     * Retrieves the transactions of all shards, ordered by date. A cross-shard transfer is recorded
+     * by both of its shards but listed once.
+     *
+     * @return a list of all transactions
+     */
+    @Override
+    public List<Transaction> getAllTransactions() {
+        Map<UUID, Transaction> merged = new LinkedHashMap<>();
+        for (Shard shard : shards) {
+            for (Transaction transaction : shard.service.getAllTransactions()) {
+                merged.putIfAbsent(transaction.getId(), transaction);
+            }
+        }
+        List<Transaction> result = new ArrayList<>(merged.values());
+        result.sort(Comparator.comparing(Transaction::getDate));
+        return result;
+    }
+
+    @Override
+    public Page<Transaction> getAccountsTransactions(Account account, String cursor, int pageSize) {
+        return shardOf(account).service.getAccountsTransactions(account, cursor, pageSize);
+    }
+
+    @Override
+    public Page<Transaction> getAllTransactions(String cursor, int pageSize) {
+        return Page.slice(getAllTransactions(), cursor, pageSize);
+    }
+
+    @Override
+    public List<Transaction> getAccountsTransactions(Account account, LocalDateTime from, LocalDateTime to) {
+        return shardOf(account).service.getAccountsTransactions(account, from, to);
+    }
+
+    /**
+     * Retrieves the number of shards.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Retrieves the metrics shared by the services of all shards. Cross-shard transfers are executed outside
+     * the shard services and are not included.
+     *
+     * @return the live metrics
+     */
+    @Override
+    public ServiceMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Stops the shard executors after the operations already submitted.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        try {
+            for (Shard shard : shards) {
+                shard.executor.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Shard shardOf(Account account) {
+        return shards.get(partitioner.shardOf(account.getAccountId()));
+    }
+
+    private Shard commonShard(List<Operation> operations) {
+        Shard common = null;
+        for (Operation operation : operations) {
+            for (Account account : new Account[]{operation.getAccount(), operation.getRecipient()}) {
+                if (account == null) {
+                    continue;
+                }
+                Shard shard = shardOf(account);
+                if (common != null && common != shard) {
+                    return null;
+                }
+                common = shard;
+            }
+        }
+        return common;
+    }
+
+    private static <T> T execute(Shard shard, ShardTask<T> task) {
+        try {
+            return call(shard, task);
+        } catch (NotEnoughFundsException e) {
+            throw new IllegalStateException("Operation cannot run out of funds", e);
+        }
+    }
+
+    private static <T> T call(Shard shard, ShardTask<T> task) throws NotEnoughFundsException {
+        Future<T> future = shard.executor.submit(task::run);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shard " + shard.index, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof NotEnoughFundsException notEnoughFunds) {
+                throw notEnoughFunds;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * A unit of work run on a shard's executor.
+     */
+    @FunctionalInterface
+    private interface ShardTask<T> {
+
+        T run() throws NotEnoughFundsException;
+    }
+
+    /**
+     * The repositories, service and executor thread of one shard.
+     */
+    private static final class Shard {
+
+        private final int index;
+        private final AccountRepository accountRepository;
+        private final TransactionRepository transactionRepository;
+        private final TransactionService service;
+        private final ExecutorService executor;
+
+        private Shard(int index, AccountRepository accountRepository, TransactionRepository transactionRepository, ServiceMetrics metrics) {
+            this.index = index;
+            this.accountRepository = accountRepository;
+            this.transactionRepository = transactionRepository;
+            this.service = new TransactionService(transactionRepository, accountRepository, metrics);
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        /**
+         * The first phase of a cross-shard transfer, run on the sender's shard.
+         */
+        private void debit(Transaction transaction) throws NotEnoughFundsException {
+            Account account = transaction.getAccount();
+            account.withdrawal(transaction.getAmount());
+            transactionRepository.save(transaction);
+            accountRepository.save(account);
+        }
+
+        /**
+         * The second phase of a cross-shard transfer, run on the recipient's shard.
+         */
+        private void credit(Transaction transaction) {
+            Account recipient = transaction.getRecipient();
+            if (!accountRepository.exists(recipient.getAccountId())) {
+                throw new IllegalStateException("Recipient account " + recipient.getAccountId() + " does not exist");
+            }
+            recipient.deposit(transaction.getAmount());
+            transactionRepository.save(transaction);
+            accountRepository.save(recipient);
+        }
+
+        /**
+         * Reverts the first phase of a cross-shard transfer whose second phase failed.
+         */
+        private void compensate(Transaction transaction) {
+            Account account = transaction.getAccount();
+            account.deposit(transaction.getAmount());
+            transactionRepository.save(new Transaction(account, transaction.getAmount(), TransactionType.DEPOSIT));
+            accountRepository.save(account);
+        }
+    }
+}
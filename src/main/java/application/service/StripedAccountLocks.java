@@ -0,0 +1,116 @@
+package application.service;
+
+import application.models.Account;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Account locks backed by a fixed array of lock stripes selected by {@link Account#getAccountId()}.
+ * Pairs of stripes are always taken in ascending index order, which is a single global order,
+ * so transfers racing in opposite directions cannot deadlock. When both accounts map to the same
+ * stripe, including a transfer of an account to itself, the stripe is taken only once.
+ */
+public class StripedAccountLocks implements AccountLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * Constructs a new instance of StripedAccountLocks with non-fair stripes.
+     *
+     * @param stripeCount the minimal number of lock stripes, rounded up to a power of two
+     */
+    public StripedAccountLocks(int stripeCount) {
+        this(stripeCount, false);
+    }
+
+    /**
+     * Constructs a new instance of StripedAccountLocks.
+     * Fair stripes hand a hot account over in arrival order, trading throughput for bounded waiting.
+     *
+     * @param stripeCount the minimal number of lock stripes, rounded up to a power of two
+     * @param fair        whether the stripes use a fair ordering policy
+     */
+    public StripedAccountLocks(int stripeCount, boolean fair) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive: " + stripeCount);
+        }
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock(fair);
+        }
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void lock(Account account) {
+        stripes[stripeIndex(account.getAccountId())].lock();
+    }
+
+    @Override
+    public void unlock(Account account) {
+        stripes[stripeIndex(account.getAccountId())].unlock();
+    }
+
+    @Override
+    public void lockPair(Account first, Account second) {
+        int a = stripeIndex(first.getAccountId());
+        int b = stripeIndex(second.getAccountId());
+        if (a == b) {
+            stripes[a].lock();
+            return;
+        }
+        stripes[Math.min(a, b)].lock();
+        stripes[Math.max(a, b)].lock();
+    }
+
+    @Override
+    public void unlockPair(Account first, Account second) {
+        int a = stripeIndex(first.getAccountId());
+        int b = stripeIndex(second.getAccountId());
+        if (a == b) {
+            stripes[a].unlock();
+            return;
+        }
+        stripes[Math.max(a, b)].unlock();
+        stripes[Math.min(a, b)].unlock();
+    }
+
+    @Override
+    public void lockAll(Collection<Account> accounts) {
+        for (int index : stripeIndexes(accounts)) {
+            stripes[index].lock();
+        }
+    }
+
+    @Override
+    public void unlockAll(Collection<Account> accounts) {
+        int[] indexes = stripeIndexes(accounts);
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    /**
+     * Retrieves the distinct stripes of the accounts in ascending order, the order in which they are always locked.
+     */
+    private int[] stripeIndexes(Collection<Account> accounts) {
+        BitSet used = new BitSet(stripes.length);
+        for (Account account : accounts) {
+            used.set(stripeIndex(account.getAccountId()));
+        }
+        return used.stream().toArray();
+    }
+
+    private int stripeIndex(UUID accountId) {
+        int hash = accountId.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -2,24 +2,48 @@ package application.service;
 
 import application.contracts.TransactionsOperations;
 import application.exceptions.NotEnoughFundsException;
+import application.metrics.Instrumented;
+import application.metrics.OperationMetrics;
+import application.metrics.ServiceMetrics;
 import application.models.Account;
+import application.models.Page;
+import application.models.transactions.BatchMode;
+import application.models.transactions.Operation;
+import application.models.transactions.OperationResult;
 import application.models.transactions.Transaction;
 import application.models.transactions.TransactionType;
 import application.repositories.AccountRepository;
 import application.repositories.TransactionRepository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * This class provides services related to transactions, such as deposit, withdrawal, transfer, and balance inquiry.
  * It interacts with the repositories to perform operations on accounts and transactions.
+ * <p>
+ * Every operation records its latency and outcome in the service's {@link ServiceMetrics}. Subclasses change how
+ * balance changes are executed by overriding the {@code apply} methods, so that their work, e.g. waiting for locks,
+ * is measured as well.
  */
-public class TransactionService implements TransactionsOperations {
+public class TransactionService implements TransactionsOperations, Instrumented {
 
     private final TransactionRepository transactionRepository;
     private final AccountRepository accountRepository;
+    private final ServiceMetrics metrics;
+    private final OperationMetrics deposits;
+    private final OperationMetrics withdrawals;
+    private final OperationMetrics transfers;
+    private final OperationMetrics batches;
+    private final OperationMetrics balanceInquiries;
+    private final OperationMetrics accountHistoryQueries;
+    private final OperationMetrics historyQueries;
 
     /**
      * Constructs a new instance of TransactionService.
@@ -28,8 +52,33 @@ public class TransactionService implements TransactionsOperations {
      * @param accountRepository     the repository for managing accounts
      */
     public TransactionService(TransactionRepository transactionRepository, AccountRepository accountRepository) {
+        this(transactionRepository, accountRepository, new ServiceMetrics("transactions"));
+    }
+
+    /**
+     * Constructs a new instance of TransactionService recording into the given metrics,
+     * which may be shared by several services, e.g. the shards of one banking system.
+     *
+     * @param transactionRepository the repository for managing transactions
+     * @param accountRepository     the repository for managing accounts
+     * @param metrics               the metrics to record operations into
+     */
+    public TransactionService(TransactionRepository transactionRepository, AccountRepository accountRepository, ServiceMetrics metrics) {
         this.transactionRepository = transactionRepository;
         this.accountRepository = accountRepository;
+        this.metrics = metrics;
+        this.deposits = metrics.operation("deposit");
+        this.withdrawals = metrics.operation("withdrawal");
+        this.transfers = metrics.operation("transfer");
+        this.batches = metrics.operation("executeBatch");
+        this.balanceInquiries = metrics.operation("getBalance");
+        this.accountHistoryQueries = metrics.operation("getAccountsTransactions");
+        this.historyQueries = metrics.operation("getAllTransactions");
+    }
+
+    @Override
+    public ServiceMetrics getMetrics() {
+        return metrics;
     }
 
     @Override
@@ -49,41 +98,314 @@ public class TransactionService implements TransactionsOperations {
 
     @Override
     public void deposit(Account account, BigDecimal amount) {
-        createTransaction(account, amount, TransactionType.DEPOSIT);
-        account.deposit(amount);
-        accountRepository.save(account);
+        long start = deposits.start();
+        boolean succeeded = false;
+        try {
+            applyDeposit(account, amount);
+            succeeded = true;
+        } finally {
+            deposits.record(start, succeeded);
+        }
     }
 
     @Override
     public void withdrawal(Account account, BigDecimal amount) throws NotEnoughFundsException {
-        createTransaction(account, amount, TransactionType.WITHDRAWAL);
-        account.withdrawal(amount);
-        accountRepository.save(account);
+        long start = withdrawals.start();
+        boolean succeeded = false;
+        try {
+            applyWithdrawal(account, amount);
+            succeeded = true;
+        } finally {
+            withdrawals.record(start, succeeded);
+        }
     }
 
     @Override
     public void transfer(Account account, Account recipient, BigDecimal amount) throws NotEnoughFundsException {
-        createTransaction(account, amount, TransactionType.TRANSFER, recipient);
+        long start = transfers.start();
+        boolean succeeded = false;
+        try {
+            applyTransfer(account, recipient, amount);
+            succeeded = true;
+        } finally {
+            transfers.record(start, succeeded);
+        }
+    }
+
+    @Override
+    public List<OperationResult> executeBatch(List<Operation> operations, BatchMode mode) {
+        long start = batches.start();
+        boolean succeeded = false;
+        try {
+            List<OperationResult> results = applyBatch(operations, mode);
+            succeeded = true;
+            return results;
+        } finally {
+            batches.record(start, succeeded);
+        }
+    }
+
+    /**
+     * Executes a deposit. The balance is changed before the transaction is logged, so a deposit that overflows the
+     * balance leaves no record; if logging fails, the deposit is taken back.
+     *
+     * @param account the account into which the deposit is being made
+     * @param amount  the amount to be deposited
+     */
+    protected void applyDeposit(Account account, BigDecimal amount) {
+        account.deposit(amount);
+        try {
+            createTransaction(account, amount, TransactionType.DEPOSIT);
+        } catch (RuntimeException e) {
+            account.deposit(amount.negate());
+            throw e;
+        }
+        accountRepository.save(account);
+    }
+
+    /**
+     * Executes a withdrawal. The funds are checked before the transaction is logged, so a failed withdrawal
+     * leaves no record; if logging fails, the funds are returned.
+     *
+     * @param account the account from which the withdrawal is being made
+     * @param amount  the amount to be withdrawn
+     * @throws NotEnoughFundsException if the account does not have enough funds
+     */
+    protected void applyWithdrawal(Account account, BigDecimal amount) throws NotEnoughFundsException {
         account.withdrawal(amount);
-        recipient.deposit(amount);
+        try {
+            createTransaction(account, amount, TransactionType.WITHDRAWAL);
+        } catch (RuntimeException e) {
+            account.deposit(amount);
+            throw e;
+        }
+        accountRepository.save(account);
+    }
+
+    /**
+     * Executes a transfer. Both balances are changed before the transaction is logged. The room left in the
+     * recipient's balance is checked up front; if the deposit still fails, e.g. because concurrent deposits filled
+     * the recipient's balance when no locks are held, the funds are returned to the sender and nothing is logged.
+     * If logging fails, both balance changes are undone.
+     *
+     * @param account   the account from which the transfer is being made
+     * @param recipient the account to which the transfer is being made
+     * @param amount    the amount to be transferred
+     * @throws NotEnoughFundsException if the sender does not have enough funds
+     * @throws ArithmeticException     if the recipient's balance would overflow
+     */
+    protected void applyTransfer(Account account, Account recipient, BigDecimal amount) throws NotEnoughFundsException {
+        if (!recipient.canDeposit(amount)) {
+            throw new ArithmeticException("Balance of the recipient would overflow");
+        }
+        account.withdrawal(amount);
+        try {
+            recipient.deposit(amount);
+        } catch (RuntimeException e) {
+            account.deposit(amount);
+            throw e;
+        }
+        try {
+            createTransaction(account, amount, TransactionType.TRANSFER, recipient);
+        } catch (RuntimeException e) {
+            recipient.deposit(amount.negate());
+            account.deposit(amount);
+            throw e;
+        }
         accountRepository.save(account);
         accountRepository.save(recipient);
     }
 
+    /**
+     * Executes a batch of operations. The operations are first checked against running balances of the accounts
+     * they touch, without changing anything; in {@link BatchMode#ALL_OR_NOTHING} mode the batch stops there if any
+     * operation fails. The executable operations are then grouped by account, so that every account changes its
+     * balance once, by the net amount of its operations.
+     * <p>
+     * Accounts losing money are debited first, each with a single checked withdrawal. If one of them no longer has
+     * the funds, because its balance changed after the check where no locks are held, the debits made so far are
+     * returned and the batch is checked again from the current balances. Only then are the transactions saved, with
+     * one repository call, and the accounts gaining money credited. Every touched account is saved once.
+     *
+     * @param operations the operations to execute
+     * @param mode       whether a failed operation aborts the whole batch
+     * @return the result of every operation, in the order of the operations
+     * @throws ArithmeticException if the balance of an account would overflow
+     */
+    protected List<OperationResult> applyBatch(List<Operation> operations, BatchMode mode) {
+        while (true) {
+            Map<Account, BigDecimal> changes = new LinkedHashMap<>();
+            List<OperationResult> results = check(operations, changes);
+            if (mode == BatchMode.ALL_OR_NOTHING && results.stream().anyMatch(result -> !result.isSuccessful())) {
+                results.replaceAll(result -> result.isSuccessful()
+                        ? new OperationResult(result.getOperation(), OperationResult.Status.ABORTED, null) : result);
+                return results;
+            }
+            if (applyBatch(results, changes)) {
+                for (Account account : changes.keySet()) {
+                    accountRepository.save(account);
+                }
+                return results;
+            }
+        }
+    }
+
+    /**
+     * Checks the operations in order against running balances, which start from the balances the accounts have
+     * when first touched. The net change of every touched account is left in the given map.
+     */
+    private static List<OperationResult> check(List<Operation> operations, Map<Account, BigDecimal> changes) {
+        Map<Account, BigDecimal> balances = new HashMap<>();
+        List<OperationResult> results = new ArrayList<>(operations.size());
+        for (Operation operation : operations) {
+            Account account = operation.getAccount();
+            BigDecimal amount = operation.getAmount();
+            BigDecimal balance = balances.computeIfAbsent(account, Account::getBalance);
+            if (operation.getType() == TransactionType.DEPOSIT) {
+                balances.put(account, balance.add(amount));
+                changes.merge(account, amount, BigDecimal::add);
+            } else if (balance.compareTo(amount) < 0) {
+                results.add(new OperationResult(operation, OperationResult.Status.NOT_ENOUGH_FUNDS,
+                        new NotEnoughFundsException("Not enough funds. Current balance: " + balance)));
+                continue;
+            } else {
+                balances.put(account, balance.subtract(amount));
+                changes.merge(account, amount.negate(), BigDecimal::add);
+                if (operation.getType() == TransactionType.TRANSFER) {
+                    Account recipient = operation.getRecipient();
+                    balances.put(recipient, balances.computeIfAbsent(recipient, Account::getBalance).add(amount));
+                    changes.merge(recipient, amount, BigDecimal::add);
+                }
+            }
+            results.add(new OperationResult(operation, OperationResult.Status.SUCCESS, null));
+        }
+        return results;
+    }
+
+    /**
+     * Applies the net balance changes of a checked batch and saves its transactions.
+     *
+     * @return false if a debit failed and nothing was changed, true once the batch is applied
+     */
+    private boolean applyBatch(List<OperationResult> results, Map<Account, BigDecimal> changes) {
+        for (Map.Entry<Account, BigDecimal> change : changes.entrySet()) {
+            if (change.getValue().signum() > 0 && !change.getKey().canDeposit(change.getValue())) {
+                throw new ArithmeticException("Balance of account " + change.getKey().getAccountId() + " would overflow");
+            }
+        }
+        List<Account> debited = new ArrayList<>();
+        try {
+            for (Map.Entry<Account, BigDecimal> change : changes.entrySet()) {
+                if (change.getValue().signum() < 0) {
+                    change.getKey().withdrawal(change.getValue().negate());
+                    debited.add(change.getKey());
+                }
+            }
+            List<Transaction> transactions = new ArrayList<>(results.size());
+            for (OperationResult result : results) {
+                if (result.isSuccessful()) {
+                    Operation operation = result.getOperation();
+                    transactions.add(new Transaction(operation.getAccount(), operation.getAmount(), operation.getType(), operation.getRecipient()));
+                }
+            }
+            transactionRepository.saveAll(transactions);
+        } catch (NotEnoughFundsException e) {
+            refund(debited, changes);
+            return false;
+        } catch (RuntimeException e) {
+            refund(debited, changes);
+            throw e;
+        }
+        for (Map.Entry<Account, BigDecimal> change : changes.entrySet()) {
+            if (change.getValue().signum() > 0) {
+                change.getKey().deposit(change.getValue());
+            }
+        }
+        return true;
+    }
+
+    private static void refund(List<Account> debited, Map<Account, BigDecimal> changes) {
+        for (Account account : debited) {
+            account.deposit(changes.get(account).negate());
+        }
+    }
+
     @Override
     public BigDecimal getBalance(Account account) {
-        createTransaction(account, TransactionType.GET_BALANCE);
-        return accountRepository.getBalance(account);
+        long start = balanceInquiries.start();
+        boolean succeeded = false;
+        try {
+            BigDecimal balance = accountRepository.getBalance(account);
+            succeeded = true;
+            return balance;
+        } finally {
+            balanceInquiries.record(start, succeeded);
+        }
     }
 
     @Override
     public List<Transaction> getAccountsTransactions(Account account) {
-        return transactionRepository.getAccountTransactions(account);
+        long start = accountHistoryQueries.start();
+        boolean succeeded = false;
+        try {
+            List<Transaction> transactions = transactionRepository.getAccountTransactions(account);
+            succeeded = true;
+            return transactions;
+        } finally {
+            accountHistoryQueries.record(start, succeeded);
+        }
     }
 
     @Override
     public List<Transaction> getAllTransactions() {
-        return transactionRepository.getAllTransactions();
+        long start = historyQueries.start();
+        boolean succeeded = false;
+        try {
+            List<Transaction> transactions = transactionRepository.getAllTransactions();
+            succeeded = true;
+            return transactions;
+        } finally {
+            historyQueries.record(start, succeeded);
+        }
+    }
+
+    @Override
+    public Page<Transaction> getAccountsTransactions(Account account, String cursor, int pageSize) {
+        long start = accountHistoryQueries.start();
+        boolean succeeded = false;
+        try {
+            Page<Transaction> page = transactionRepository.getAccountTransactions(account, cursor, pageSize);
+            succeeded = true;
+            return page;
+        } finally {
+            accountHistoryQueries.record(start, succeeded);
+        }
+    }
+
+    @Override
+    public List<Transaction> getAccountsTransactions(Account account, LocalDateTime from, LocalDateTime to) {
+        long start = accountHistoryQueries.start();
+        boolean succeeded = false;
+        try {
+            List<Transaction> transactions = transactionRepository.getAccountTransactionsBetween(account, from, to);
+            succeeded = true;
+            return transactions;
+        } finally {
+            accountHistoryQueries.record(start, succeeded);
+        }
+    }
+
+    @Override
+    public Page<Transaction> getAllTransactions(String cursor, int pageSize) {
+        long start = historyQueries.start();
+        boolean succeeded = false;
+        try {
+            Page<Transaction> page = transactionRepository.getTransactions(cursor, pageSize);
+            succeeded = true;
+            return page;
+        } finally {
+            historyQueries.record(start, succeeded);
+        }
     }
 
     /**
@@ -1,6 +1,9 @@
 package application.service;
 
 import application.contracts.UserOperation;
+import application.metrics.Instrumented;
+import application.metrics.OperationMetrics;
+import application.metrics.ServiceMetrics;
 import application.models.Account;
 import application.models.User;
 import application.repositories.UserRepository;
@@ -10,15 +13,23 @@ import java.util.UUID;
 
 /**
  * This class provides user-related operations such as creating, updating, deleting, and retrieving user information.
- * It interacts with the {@link UserRepository} to perform these operations.
+ * It interacts with the {@link UserRepository} to perform these operations and records the latency and outcome of every operation.
  */
-public class UserService implements UserOperation {
+public class UserService implements UserOperation, Instrumented {
 
     /**
      * The repository for user-related operations.
      */
     public UserRepository userRepository;
 
+    private final ServiceMetrics metrics = new ServiceMetrics("users");
+    private final OperationMetrics accountQueries = metrics.operation("getAccounts");
+    private final OperationMetrics lookups = metrics.operation("getUserByUID");
+    private final OperationMetrics updates = metrics.operation("update");
+    private final OperationMetrics passwordChanges = metrics.operation("changePassword");
+    private final OperationMetrics creations = metrics.operation("createUser");
+    private final OperationMetrics deletions = metrics.operation("delete");
+
     /**
      * Constructs a new UserService instance with the given user repository.
      *
@@ -36,7 +47,15 @@ public class UserService implements UserOperation {
      */
     @Override
     public List<Account> getAccounts(User user) {
-        return userRepository.getAccounts(user);
+        long start = accountQueries.start();
+        boolean succeeded = false;
+        try {
+            List<Account> accounts = userRepository.getAccounts(user);
+            succeeded = true;
+            return accounts;
+        } finally {
+            accountQueries.record(start, succeeded);
+        }
     }
 
     /**
@@ -47,7 +66,15 @@ public class UserService implements UserOperation {
      */
     @Override
     public User getUserByUID(UUID id) {
-        return userRepository.getUserByUID(id);
+        long start = lookups.start();
+        boolean succeeded = false;
+        try {
+            User user = userRepository.getUserByUID(id);
+            succeeded = true;
+            return user;
+        } finally {
+            lookups.record(start, succeeded);
+        }
     }
 
     /**
@@ -60,10 +87,17 @@ public class UserService implements UserOperation {
      */
     @Override
     public void update(User user, User changedUser, String password) {
-        if (user.isPasswordCorrect(password)) {
-            user.setUsername(changedUser.getUsername());
-            user.setMaxNumberOfAccounts(changedUser.getMaxNumberOfAccounts());
-            userRepository.save(user);
+        long start = updates.start();
+        boolean succeeded = false;
+        try {
+            if (user.isPasswordCorrect(password)) {
+                user.setUsername(changedUser.getUsername());
+                user.setMaxNumberOfAccounts(changedUser.getMaxNumberOfAccounts());
+                userRepository.save(user);
+            }
+            succeeded = true;
+        } finally {
+            updates.record(start, succeeded);
         }
     }
 
@@ -77,9 +111,16 @@ public class UserService implements UserOperation {
      */
     @Override
     public void changePassword(User user, String lastPassword, String newPassword) {
-        if (user.isPasswordCorrect(newPassword)) {
-            user.setPassword(lastPassword);
-            userRepository.save(user);
+        long start = passwordChanges.start();
+        boolean succeeded = false;
+        try {
+            if (user.isPasswordCorrect(newPassword)) {
+                user.setPassword(lastPassword);
+                userRepository.save(user);
+            }
+            succeeded = true;
+        } finally {
+            passwordChanges.record(start, succeeded);
         }
     }
 
@@ -93,9 +134,16 @@ public class UserService implements UserOperation {
      */
     @Override
     public User createUser(String name, String password, int maxAccounts) {
-        User user = new User(name, password, maxAccounts);
-        userRepository.save(user);
-        return user;
+        long start = creations.start();
+        boolean succeeded = false;
+        try {
+            User user = new User(name, password, maxAccounts);
+            userRepository.save(user);
+            succeeded = true;
+            return user;
+        } finally {
+            creations.record(start, succeeded);
+        }
     }
 
     /**
@@ -105,6 +153,18 @@ public class UserService implements UserOperation {
      */
     @Override
     public void delete(User user) {
-        userRepository.delete(user);
+        long start = deletions.start();
+        boolean succeeded = false;
+        try {
+            userRepository.delete(user);
+            succeeded = true;
+        } finally {
+            deletions.record(start, succeeded);
+        }
+    }
+
+    @Override
+    public ServiceMetrics getMetrics() {
+        return metrics;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package infrastructure;
+
+/**
+ * The counters of a {@link CachingAccountRepository} at one moment, for sizing the cache.
+ */
+public class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+    private final int capacity;
+
+    /**
+     * Constructs a new cache statistics snapshot.
+     *
+     * @param hits      The number of lookups answered from the cache.
+     * @param misses    The number of lookups passed to the underlying repository.
+     * @param evictions The number of accounts evicted to make room for others.
+     * @param size      The number of accounts cached.
+     * @param capacity  The maximum number of accounts cached.
+     */
+    public CacheStats(long hits, long misses, long evictions, int size, int capacity) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.capacity = capacity;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Retrieves the share of lookups answered from the cache.
+     *
+     * @return The hit rate between 0 and 1, or 0 if there were no lookups.
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d cached, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                size, capacity, hits, misses, getHitRate() * 100, evictions);
+    }
+}
@@ -0,0 +1,199 @@
+package infrastructure;
+
+import application.models.Account;
+import application.models.User;
+import application.repositories.AccountRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An {@link AccountRepository} that keeps the most used accounts of another repository in a bounded cache, so that
+ * lookups of a hot set of accounts do not reach storage.
+ * <p>
+ * Eviction follows the CLOCK algorithm: the cached accounts sit in a ring of {@code capacity} slots, a hit only sets
+ * the reference bit of its entry, and an insertion advances the hand over the ring, clearing set bits, until it
+ * finds an entry not used since the hand last passed. Hits are lock-free; insertions are serialized.
+ * <p>
+ * Saves are written through to the underlying repository and replace the cached account, but do not add accounts
+ * that are not cached, so bulk saves do not flush the hot set. Deletes invalidate the cache. A lookup that loads an
+ * account while it is saved or deleted does not cache what it loaded, since it may be stale.
+ */
+public class CachingAccountRepository implements AccountRepository {
+
+    private static final int VERSION_STRIPES = 1024;
+
+    private final AccountRepository delegate;
+    private final int capacity;
+    private final Map<UUID, Entry> entries;
+    private final Entry[] ring;
+    private final ReentrantLock insertLock = new ReentrantLock();
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private int hand;
+
+    /**
+     * Constructs a cache in front of a repository.
+     *
+     * @param delegate The repository holding the accounts.
+     * @param capacity The maximum number of accounts cached.
+     */
+    public CachingAccountRepository(AccountRepository delegate, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.entries = new ConcurrentHashMap<>(capacity * 2);
+        this.ring = new Entry[capacity];
+    }
+
+    @Override
+    public Account findById(UUID accountId) {
+        Entry entry = entries.get(accountId);
+        if (entry != null) {
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            hits.increment();
+            return entry.account;
+        }
+        misses.increment();
+        long version = versions.get(stripeOf(accountId));
+        Account account = delegate.findById(accountId);
+        if (account != null) {
+            insert(account, version);
+        }
+        return account;
+    }
+
+    @Override
+    public void save(Account account) {
+        delegate.save(account);
+        update(account);
+    }
+
+    @Override
+    public void saveAll(List<Account> accounts) {
+        delegate.saveAll(accounts);
+        for (Account account : accounts) {
+            update(account);
+        }
+    }
+
+    @Override
+    public void delete(Account account) {
+        delegate.delete(account);
+        invalidate(account.getAccountId());
+    }
+
+    @Override
+    public boolean exists(UUID accountId) {
+        return entries.containsKey(accountId) || delegate.exists(accountId);
+    }
+
+    @Override
+    public List<Account> getAccountsByUser(User user) {
+        return delegate.getAccountsByUser(user);
+    }
+
+    @Override
+    public List<Account> getAllAccounts() {
+        return delegate.getAllAccounts();
+    }
+
+    @Override
+    public void deleteAllUsersAccount(User user) {
+        List<Account> accounts = delegate.getAccountsByUser(user);
+        delegate.deleteAllUsersAccount(user);
+        for (Account account : accounts) {
+            invalidate(account.getAccountId());
+        }
+    }
+
+    @Override
+    public BigDecimal getBalance(Account account) {
+        return delegate.getBalance(account);
+    }
+
+    /**
+     * Retrieves the counters of the cache.
+     *
+     * @return The hits, misses and evictions so far and the current size.
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), capacity);
+    }
+
+    /**
+     * Caches an account loaded by a lookup, unless it was saved or deleted since the lookup read the version.
+     */
+    private void insert(Account account, long version) {
+        UUID accountId = account.getAccountId();
+        insertLock.lock();
+        try {
+            if (versions.get(stripeOf(accountId)) != version || entries.containsKey(accountId)) {
+                return;
+            }
+            while (true) {
+                Entry resident = ring[hand];
+                if (resident == null || entries.get(resident.accountId) != resident) {
+                    break;
+                }
+                if (!resident.referenced) {
+                    entries.remove(resident.accountId, resident);
+                    evictions.increment();
+                    break;
+                }
+                resident.referenced = false;
+                hand = (hand + 1) % capacity;
+            }
+            Entry entry = new Entry(accountId, account);
+            ring[hand] = entry;
+            entries.put(accountId, entry);
+            hand = (hand + 1) % capacity;
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    private void update(Account account) {
+        versions.incrementAndGet(stripeOf(account.getAccountId()));
+        Entry entry = entries.get(account.getAccountId());
+        if (entry != null) {
+            entry.account = account;
+        }
+    }
+
+    private void invalidate(UUID accountId) {
+        versions.incrementAndGet(stripeOf(accountId));
+        entries.remove(accountId);
+    }
+
+    private static int stripeOf(UUID accountId) {
+        return (accountId.hashCode() & Integer.MAX_VALUE) % VERSION_STRIPES;
+    }
+
+    /**
+     * A cached account with its reference bit.
+     */
+    private static final class Entry {
+
+        private final UUID accountId;
+        private volatile Account account;
+        private volatile boolean referenced;
+
+        private Entry(UUID accountId, Account account) {
+            this.accountId = accountId;
+            this.account = account;
+        }
+    }
+}
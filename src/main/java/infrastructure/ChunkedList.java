@@ -0,0 +1,107 @@
+package infrastructure;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An append-only list that stores its elements in fixed-size chunks.
+ * Appends never copy existing elements, only the small chunk directory and the first chunk, which starts small
+ * and doubles up to the chunk size so that the many short lists of a per-key index stay small.
+ * Appends are serialized, while reads are lock-free: an element becomes visible to readers
+ * only after it has been fully written, because the size is published last.
+ *
+ * @param <T> The type of the elements.
+ */
+public class ChunkedList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private volatile Object[][] chunks = new Object[4][];
+    private volatile int size;
+
+    /**
+     * Appends an element to the end of the list.
+     *
+     * @param element The element to append.
+     */
+    public synchronized void append(T element) {
+        int index = size;
+        int chunk = index >>> CHUNK_SHIFT;
+        Object[][] directory = chunks;
+        if (chunk == directory.length) {
+            directory = Arrays.copyOf(directory, directory.length * 2);
+        }
+        if (directory[chunk] == null) {
+            directory[chunk] = new Object[chunk == 0 ? INITIAL_CAPACITY : CHUNK_SIZE];
+        } else if (index == directory[chunk].length) {
+            directory[chunk] = Arrays.copyOf(directory[chunk], Math.min(index * 2, CHUNK_SIZE));
+        }
+        directory[chunk][index & CHUNK_MASK] = element;
+        chunks = directory;
+        size = index + 1;
+    }
+
+    /**
+     * Retrieves the element at the given position.
+     *
+     * @param index The position of the element.
+     * @return The element at the given position.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return (T) chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    /**
+     * Retrieves the number of elements published so far.
+     *
+     * @return The number of elements.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves an unmodifiable view of the elements appended up to this moment.
+     * Later appends are not visible through the view, so it can be iterated while writers continue.
+     *
+     * @return A stable view of the current elements.
+     */
+    public List<T> snapshot() {
+        return new Snapshot<>(this, size);
+    }
+
+    private static final class Snapshot<T> extends AbstractList<T> implements RandomAccess {
+
+        private final ChunkedList<T> source;
+        private final int size;
+
+        private Snapshot(ChunkedList<T> source, int size) {
+            this.source = source;
+            this.size = size;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+            }
+            return source.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
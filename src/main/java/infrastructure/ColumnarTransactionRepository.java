@@ -0,0 +1,391 @@
+package infrastructure;
+
+import application.models.Account;
+import application.models.Money;
+import application.models.Page;
+import application.models.PageCursor;
+import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+import application.repositories.TransactionRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory {@link TransactionRepository} that keeps transactions in parallel primitive columns instead of objects.
+ * <p>
+ * A record holds the ID halves, the indexes of its account and recipient in an account table, the amount in
+ * minor units (see {@link Money}), the type ordinal and the timestamp as epoch nanoseconds (UTC), plus two links
+ * that chain the records of each account, so histories are read without scanning. Columns grow in chunks of
+ * {@value #CHUNK_SIZE} records and IDs are looked up through a table of record numbers, which takes about
+ * 65-75 bytes per transaction. {@link Transaction} objects are only created as views when records are read.
+ * <p>
+ * Saves are serialized, while reads are lock-free: a record becomes visible only after it has been fully written,
+ * because the size is published last.
+ */
+public class ColumnarTransactionRepository implements TransactionRepository {
+
+    /**
+     * The number of records per chunk of columns.
+     */
+    public static final int CHUNK_SIZE = 1 << 14;
+
+    private static final int NONE = -1;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final Map<UUID, AccountSlot> slots = new ConcurrentHashMap<>();
+    private volatile AccountSlot[] slotTable = new AccountSlot[64];
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int[] idTable = new int[1024];
+    private volatile int size;
+    private int slotCount;
+
+    /**
+     * Saves a transaction by appending its fields to the columns.
+     *
+     * @param transaction The transaction to be saved.
+     * @throws IllegalArgumentException If the amount cannot be represented in minor units.
+     * @throws IllegalStateException    If the repository is full.
+     */
+    @Override
+    public synchronized void save(Transaction transaction) {
+        long amount = Money.toMinorUnits(transaction.getAmount());
+        int record = size;
+        if (record == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Columnar transaction repository is full");
+        }
+        Chunk chunk = chunkFor(record);
+        int offset = record % CHUNK_SIZE;
+        AccountSlot account = slotFor(transaction.getAccount());
+        Account recipientAccount = transaction.getRecipient();
+        AccountSlot recipient = recipientAccount == null ? null : slotFor(recipientAccount);
+        chunk.idMost[offset] = transaction.getId().getMostSignificantBits();
+        chunk.idLeast[offset] = transaction.getId().getLeastSignificantBits();
+        chunk.account[offset] = account.index;
+        chunk.recipient[offset] = recipient == null ? NONE : recipient.index;
+        chunk.amount[offset] = amount;
+        chunk.type[offset] = (byte) transaction.getType().ordinal();
+        chunk.timestamp[offset] = toEpochNanos(transaction.getDate());
+        link(account, record);
+        if (transaction.getType() == TransactionType.TRANSFER && recipient != null && recipient != account) {
+            link(recipient, record);
+        }
+        size = record + 1;
+        indexId(chunk.idMost[offset], chunk.idLeast[offset], record);
+    }
+
+    /**
+     * Saves several transactions under a single acquisition of the write lock.
+     *
+     * @param transactions The transactions to be saved.
+     */
+    @Override
+    public synchronized void saveAll(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            save(transaction);
+        }
+    }
+
+    /**
+     * Retrieves all transactions associated with a specific account, including incoming transfers,
+     * by following the account's chain of records.
+     *
+     * @param account The account for which transactions are to be retrieved.
+     * @return A list of transactions associated with the given account, in the order they were saved.
+     */
+    @Override
+    public List<Transaction> getAccountTransactions(Account account) {
+        List<Transaction> result = new ArrayList<>();
+        int end = size;
+        AccountSlot slot = slots.get(account.getAccountId());
+        if (slot == null) {
+            return result;
+        }
+        Chunk[] directory = chunks;
+        for (int record = slot.first; record != NONE && record < end; record = next(directory, record, slot.index)) {
+            result.add(read(directory, record));
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves a transaction by its unique ID.
+     *
+     * @param id The unique ID of the transaction to be retrieved.
+     * @return The transaction with the given ID, or null if no such transaction exists.
+     */
+    @Override
+    public Transaction getTransactionByID(UUID id) {
+        int end = size;
+        Chunk[] directory = chunks;
+        int[] table = idTable;
+        long mostBits = id.getMostSignificantBits();
+        long leastBits = id.getLeastSignificantBits();
+        int mask = table.length - 1;
+        for (int slot = slot(mostBits, leastBits, mask); table[slot] != 0; slot = (slot + 1) & mask) {
+            int record = table[slot] - 1;
+            if (record < end) {
+                Chunk chunk = directory[record / CHUNK_SIZE];
+                int offset = record % CHUNK_SIZE;
+                if (chunk.idMost[offset] == mostBits && chunk.idLeast[offset] == leastBits) {
+                    return read(directory, record);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves all transactions stored in the repository.
+     *
+     * @return A list of all transactions in the order they were saved.
+     */
+    @Override
+    public List<Transaction> getAllTransactions() {
+        int end = size;
+        Chunk[] directory = chunks;
+        List<Transaction> result = new ArrayList<>(end);
+        for (int record = 0; record < end; record++) {
+            result.add(read(directory, record));
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves one page of all transactions by creating views of that page's records only.
+     *
+     * @param cursor   The cursor returned with the previous page, or {@code null} for the first page.
+     * @param pageSize The maximal number of transactions on the page.
+     * @return The requested page and the cursor of the next one.
+     */
+    @Override
+    public Page<Transaction> getTransactions(String cursor, int pageSize) {
+        Page.validateSize(pageSize);
+        long from = PageCursor.decode(cursor);
+        int end = size;
+        Chunk[] directory = chunks;
+        int to = (int) Math.min(end, from + pageSize);
+        List<Transaction> items = new ArrayList<>();
+        for (int record = (int) Math.min(from, end); record < to; record++) {
+            items.add(read(directory, record));
+        }
+        return new Page<>(items, to < end ? PageCursor.encode(to) : null);
+    }
+
+    /**
+     * Retrieves all transactions whose date falls into the half-open range {@code [from, to)}
+     * by scanning the timestamp column, creating views of the matching records only.
+     *
+     * @param from The inclusive lower bound of the range.
+     * @param to   The exclusive upper bound of the range.
+     * @return A list of the transactions in the range, ordered by date.
+     */
+    @Override
+    public List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+        List<Transaction> result = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return result;
+        }
+        long lower = toEpochNanos(from);
+        long upper = toEpochNanos(to);
+        int end = size;
+        Chunk[] directory = chunks;
+        for (int record = 0; record < end; record++) {
+            long timestamp = directory[record / CHUNK_SIZE].timestamp[record % CHUNK_SIZE];
+            if (timestamp >= lower && timestamp < upper) {
+                result.add(read(directory, record));
+            }
+        }
+        result.sort(Comparator.comparing(Transaction::getDate));
+        return result;
+    }
+
+    /**
+     * Retrieves the transactions of a specific account, including incoming transfers,
+     * whose date falls into the half-open range {@code [from, to)}.
+     *
+     * @param account The account for which transactions are to be retrieved.
+     * @param from    The inclusive lower bound of the range.
+     * @param to      The exclusive upper bound of the range.
+     * @return A list of the account's transactions in the range, ordered by date.
+     */
+    @Override
+    public List<Transaction> getAccountTransactionsBetween(Account account, LocalDateTime from, LocalDateTime to) {
+        List<Transaction> result = new ArrayList<>();
+        AccountSlot slot = slots.get(account.getAccountId());
+        if (slot == null || !from.isBefore(to)) {
+            return result;
+        }
+        long lower = toEpochNanos(from);
+        long upper = toEpochNanos(to);
+        int end = size;
+        Chunk[] directory = chunks;
+        for (int record = slot.first; record != NONE && record < end; record = next(directory, record, slot.index)) {
+            long timestamp = directory[record / CHUNK_SIZE].timestamp[record % CHUNK_SIZE];
+            if (timestamp >= lower && timestamp < upper) {
+                result.add(read(directory, record));
+            }
+        }
+        result.sort(Comparator.comparing(Transaction::getDate));
+        return result;
+    }
+
+    /**
+     * Retrieves the number of stored transactions.
+     *
+     * @return The number of records.
+     */
+    public int size() {
+        return size;
+    }
+
+    private Transaction read(Chunk[] directory, int record) {
+        Chunk chunk = directory[record / CHUNK_SIZE];
+        int offset = record % CHUNK_SIZE;
+        AccountSlot[] table = slotTable;
+        int recipient = chunk.recipient[offset];
+        return new Transaction(new UUID(chunk.idMost[offset], chunk.idLeast[offset]),
+                table[chunk.account[offset]].account,
+                Money.fromMinorUnits(chunk.amount[offset]),
+                TYPES[chunk.type[offset]],
+                recipient == NONE ? null : table[recipient].account,
+                fromEpochNanos(chunk.timestamp[offset]));
+    }
+
+    private static int next(Chunk[] directory, int record, int slot) {
+        Chunk chunk = directory[record / CHUNK_SIZE];
+        int offset = record % CHUNK_SIZE;
+        return chunk.account[offset] == slot ? chunk.nextOfAccount[offset] : chunk.nextOfRecipient[offset];
+    }
+
+    private void link(AccountSlot slot, int record) {
+        if (slot.last == NONE) {
+            slot.first = record;
+        } else {
+            Chunk chunk = chunks[slot.last / CHUNK_SIZE];
+            int offset = slot.last % CHUNK_SIZE;
+            if (chunk.account[offset] == slot.index) {
+                chunk.nextOfAccount[offset] = record;
+            } else {
+                chunk.nextOfRecipient[offset] = record;
+            }
+        }
+        slot.last = record;
+    }
+
+    /**
+     * Inserts a record into the ID table, an open-addressing table of record numbers plus one, so that zero
+     * marks a free slot. The IDs themselves are compared in the columns. A grown table is fully built before
+     * it is published, and a single slot write is atomic, so readers never need a lock.
+     */
+    private void indexId(long mostBits, long leastBits, int record) {
+        int[] table = idTable;
+        if ((long) size * 4 > (long) table.length * 3) {
+            int[] grown = new int[table.length * 2];
+            for (int existing : table) {
+                if (existing != 0) {
+                    Chunk chunk = chunks[(existing - 1) / CHUNK_SIZE];
+                    int offset = (existing - 1) % CHUNK_SIZE;
+                    insert(grown, chunk.idMost[offset], chunk.idLeast[offset], existing);
+                }
+            }
+            table = grown;
+        }
+        insert(table, mostBits, leastBits, record + 1);
+        idTable = table;
+    }
+
+    private static void insert(int[] table, long mostBits, long leastBits, int value) {
+        int mask = table.length - 1;
+        int slot = slot(mostBits, leastBits, mask);
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+    }
+
+    private static int slot(long mostBits, long leastBits, int mask) {
+        long hash = (mostBits ^ leastBits) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private Chunk chunkFor(int record) {
+        int index = record / CHUNK_SIZE;
+        Chunk[] directory = chunks;
+        if (index == directory.length) {
+            directory = Arrays.copyOf(directory, index + 1);
+            directory[index] = new Chunk();
+            chunks = directory;
+        }
+        return directory[index];
+    }
+
+    private AccountSlot slotFor(Account account) {
+        AccountSlot slot = slots.get(account.getAccountId());
+        if (slot != null) {
+            return slot;
+        }
+        AccountSlot[] table = slotTable;
+        if (slotCount == table.length) {
+            table = Arrays.copyOf(table, table.length * 2);
+        }
+        slot = new AccountSlot(account, slotCount);
+        table[slotCount++] = slot;
+        slotTable = table;
+        slots.put(account.getAccountId(), slot);
+        return slot;
+    }
+
+    private static long toEpochNanos(LocalDateTime timestamp) {
+        return Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(ZoneOffset.UTC), NANOS_PER_SECOND), timestamp.getNano());
+    }
+
+    private static LocalDateTime fromEpochNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND), (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    /**
+     * The columns of {@value #CHUNK_SIZE} consecutive records.
+     */
+    private static final class Chunk {
+
+        private final long[] idMost = new long[CHUNK_SIZE];
+        private final long[] idLeast = new long[CHUNK_SIZE];
+        private final int[] account = new int[CHUNK_SIZE];
+        private final int[] recipient = new int[CHUNK_SIZE];
+        private final long[] amount = new long[CHUNK_SIZE];
+        private final byte[] type = new byte[CHUNK_SIZE];
+        private final long[] timestamp = new long[CHUNK_SIZE];
+        private final int[] nextOfAccount = new int[CHUNK_SIZE];
+        private final int[] nextOfRecipient = new int[CHUNK_SIZE];
+
+        private Chunk() {
+            Arrays.fill(nextOfAccount, NONE);
+            Arrays.fill(nextOfRecipient, NONE);
+        }
+    }
+
+    /**
+     * An entry of the account table with the first and last record of the account's chain.
+     */
+    private static final class AccountSlot {
+
+        private final Account account;
+        private final int index;
+        private int first = NONE;
+        private int last = NONE;
+
+        private AccountSlot(Account account, int index) {
+            this.account = account;
+            this.index = index;
+        }
+    }
+}
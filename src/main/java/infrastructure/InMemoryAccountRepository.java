@@ -5,11 +5,12 @@ import application.models.User;
 import application.repositories.AccountRepository;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class implements the AccountRepository interface and provides methods for managing accounts in memory.
@@ -19,7 +20,13 @@ public class InMemoryAccountRepository implements AccountRepository {
     /**
      * A map to store accounts, using their unique IDs as keys.
      */
-    private final Map<UUID, Account> accounts = new HashMap<>();
+    private final Map<UUID, Account> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * An index of account IDs by the IDs of their users.
+     * Changes to both maps for one user are made inside the index entry of that user, so they are atomic per user.
+     */
+    private final Map<UUID, Set<UUID>> userAccounts = new ConcurrentHashMap<>();
 
     @Override
     /**
@@ -34,12 +41,23 @@ public class InMemoryAccountRepository implements AccountRepository {
 
     @Override
     /**
-     * Saves the given account to the repository.
+     * Saves the given account to the repository. An account that is already stored is replaced without touching
+     * the index, so balance updates of one user's accounts do not contend on the user's index entry.
      *
      * @param account The account to save.
      */
     public void save(Account account) {
-        accounts.put(account.getAccountId(), account);
+        if (accounts.replace(account.getAccountId(), account) != null) {
+            return;
+        }
+        userAccounts.compute(account.getUser().getUserId(), (userId, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
+            }
+            accounts.put(account.getAccountId(), account);
+            ids.add(account.getAccountId());
+            return ids;
+        });
     }
 
     @Override
@@ -49,7 +67,14 @@ public class InMemoryAccountRepository implements AccountRepository {
      * @param account The account to delete.
      */
     public void delete(Account account) {
-        accounts.remove(account.getAccountId());
+        userAccounts.compute(account.getUser().getUserId(), (userId, ids) -> {
+            accounts.remove(account.getAccountId());
+            if (ids == null) {
+                return null;
+            }
+            ids.remove(account.getAccountId());
+            return ids.isEmpty() ? null : ids;
+        });
     }
 
     @Override
@@ -70,9 +95,28 @@ public class InMemoryAccountRepository implements AccountRepository {
      * @return A list of accounts belonging to the given user.
      */
     public List<Account> getAccountsByUser(User user) {
-        return accounts.values().stream()
-                .filter(account -> account.getUser().getUserId().equals(user.getUserId()))
-                .collect(Collectors.toList());
+        Set<UUID> ids = userAccounts.get(user.getUserId());
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        List<Account> result = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Account account = accounts.get(id);
+            if (account != null) {
+                result.add(account);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves all accounts in the repository.
+     *
+     * @return A list of all accounts.
+     */
+    @Override
+    public List<Account> getAllAccounts() {
+        return new ArrayList<>(accounts.values());
     }
 
     /**
@@ -81,7 +125,12 @@ public class InMemoryAccountRepository implements AccountRepository {
      * @param user The user whose accounts to delete.
      */
     public void deleteAllUsersAccount(User user) {
-        accounts.values().removeIf(account -> account.getUser().getUserId().equals(user.getUserId()));
+        userAccounts.computeIfPresent(user.getUserId(), (userId, ids) -> {
+            for (UUID id : ids) {
+                accounts.remove(id);
+            }
+            return null;
+        });
     }
 
     @Override
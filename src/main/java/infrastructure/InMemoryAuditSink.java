@@ -0,0 +1,29 @@
+package infrastructure;
+
+import application.audit.AuditEvent;
+import application.audit.AuditSink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class implements the AuditSink interface and keeps the written audit events in memory.
+ */
+public class InMemoryAuditSink implements AuditSink {
+
+    private final List<AuditEvent> events = new ArrayList<>();
+
+    @Override
+    public synchronized void write(List<AuditEvent> batch) {
+        events.addAll(batch);
+    }
+
+    /**
+     * Retrieves the events written so far.
+     *
+     * @return A copy of the written events, in the order they were recorded.
+     */
+    public synchronized List<AuditEvent> getEvents() {
+        return new ArrayList<>(events);
+    }
+}
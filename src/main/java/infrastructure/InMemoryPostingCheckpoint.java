@@ -0,0 +1,39 @@
+package infrastructure;
+
+import application.posting.PostingCheckpoint;
+
+import java.util.BitSet;
+
+/**
+ * This class implements the PostingCheckpoint interface in memory, so a run can be resumed within the same process,
+ * e.g. after it stopped at its time budget.
+ */
+public class InMemoryPostingCheckpoint implements PostingCheckpoint {
+
+    private final String runId;
+    private final BitSet completed = new BitSet();
+
+    /**
+     * Constructs a checkpoint with no partitions completed.
+     *
+     * @param runId The identifier of the run.
+     */
+    public InMemoryPostingCheckpoint(String runId) {
+        this.runId = runId;
+    }
+
+    @Override
+    public String getRunId() {
+        return runId;
+    }
+
+    @Override
+    public synchronized boolean isCompleted(int partition) {
+        return completed.get(partition);
+    }
+
+    @Override
+    public synchronized void markCompleted(int partition) {
+        completed.set(partition);
+    }
+}
@@ -2,9 +2,15 @@ package infrastructure;
 
 import application.models.Account;
 import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
 import application.repositories.TransactionRepository;
 
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class implements the TransactionRepository interface and provides methods for managing transactions in memory.
@@ -14,39 +20,67 @@ public class InMemoryTransactionRepository implements TransactionRepository {
     /**
      * A map to store transactions by their unique IDs.
      */
-    private final Map<UUID, Transaction> transactions = new HashMap<>();
+    private final Map<UUID, Transaction> transactions = new ConcurrentHashMap<>();
 
     /**
-     * A list to store all transactions.
+     * An append-only list to store all transactions in the order they were saved.
      */
-    private final List<Transaction> transactionList = new ArrayList<>();
+    private final ChunkedList<Transaction> transactionList = new ChunkedList<>();
 
     /**
-     * Saves a transaction to the repository.
+     * An index of transactions by the IDs of the accounts they touch, including the recipients of transfers.
+     */
+    private final Map<UUID, ChunkedList<Transaction>> accountIndex = new ConcurrentHashMap<>();
+
+    /**
+     * An index of all transactions ordered by date. Equal dates are told apart by the save sequence.
+     */
+    private final ConcurrentNavigableMap<TimeKey, Transaction> timeIndex = new ConcurrentSkipListMap<>();
+
+    /**
+     * Per-account indexes of transactions ordered by date, covering the same transactions as {@link #accountIndex}.
+     */
+    private final Map<UUID, ConcurrentNavigableMap<TimeKey, Transaction>> accountTimeIndex = new ConcurrentHashMap<>();
+
+    /**
+     * The source of save sequence numbers that make time index keys unique.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Saves a transaction to the repository and indexes it under its account
+     * and, for transfers, under its recipient.
      *
      * @param transaction The transaction to be saved.
      */
     @Override
     public void save(Transaction transaction) {
+        TimeKey key = new TimeKey(transaction.getDate(), sequence.incrementAndGet());
         transactions.put(transaction.getId(), transaction);
-        transactionList.add(transaction);
+        transactionList.append(transaction);
+        timeIndex.put(key, transaction);
+        UUID accountId = transaction.getAccount().getAccountId();
+        index(accountId, key, transaction);
+        Account recipient = transaction.getRecipient();
+        if (transaction.getType() == TransactionType.TRANSFER && recipient != null
+                && !recipient.getAccountId().equals(accountId)) {
+            index(recipient.getAccountId(), key, transaction);
+        }
     }
 
     /**
-     * Retrieves all transactions associated with a specific account.
+     * Retrieves all transactions associated with a specific account, including incoming transfers.
      *
      * @param account The account for which transactions are to be retrieved.
-     * @return A list of transactions associated with the given account.
+     * @return An unmodifiable list of transactions associated with the given account, in the order they were saved.
      */
     @Override
     public List<Transaction> getAccountTransactions(Account account) {
-        List<Transaction> result = new ArrayList<>();
-        for (Transaction transaction : transactionList) {
-            if (transaction.getAccount().equals(account)) {
-                result.add(transaction);
-            }
+        ChunkedList<Transaction> history = accountIndex.get(account.getAccountId());
+        if (history == null) {
+            return List.of();
         }
-        return result;
+        return history.snapshot();
     }
 
     /**
@@ -63,10 +97,65 @@ public class InMemoryTransactionRepository implements TransactionRepository {
     /**
      * Retrieves all transactions stored in the repository.
      *
-     * @return A list of all transactions.
+     * @return An unmodifiable snapshot of all transactions saved so far.
      */
     @Override
     public List<Transaction> getAllTransactions() {
-        return transactionList;
+        return transactionList.snapshot();
+    }
+
+    /**
+     * Retrieves all transactions whose date falls into the half-open range {@code [from, to)}.
+     * The lookup is logarithmic in the number of transactions plus the size of the result.
+     *
+     * @param from The inclusive lower bound of the range.
+     * @param to   The exclusive upper bound of the range.
+     * @return A list of the transactions in the range, ordered by date.
+     */
+    @Override
+    public List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+        return range(timeIndex, from, to);
+    }
+
+    /**
+     * Retrieves the transactions of a specific account, including incoming transfers,
+     * whose date falls into the half-open range {@code [from, to)}.
+     *
+     * @param account The account for which transactions are to be retrieved.
+     * @param from    The inclusive lower bound of the range.
+     * @param to      The exclusive upper bound of the range.
+     * @return A list of the account's transactions in the range, ordered by date.
+     */
+    @Override
+    public List<Transaction> getAccountTransactionsBetween(Account account, LocalDateTime from, LocalDateTime to) {
+        ConcurrentNavigableMap<TimeKey, Transaction> index = accountTimeIndex.get(account.getAccountId());
+        if (index == null) {
+            return List.of();
+        }
+        return range(index, from, to);
+    }
+
+    private void index(UUID accountId, TimeKey key, Transaction transaction) {
+        accountIndex.computeIfAbsent(accountId, id -> new ChunkedList<>()).append(transaction);
+        accountTimeIndex.computeIfAbsent(accountId, id -> new ConcurrentSkipListMap<>()).put(key, transaction);
+    }
+
+    private static List<Transaction> range(ConcurrentNavigableMap<TimeKey, Transaction> index, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+        return new ArrayList<>(index.subMap(new TimeKey(from, Long.MIN_VALUE), new TimeKey(to, Long.MIN_VALUE)).values());
+    }
+
+    /**
+     * The key of the time indexes: the transaction date, with the save sequence as a tie-breaker.
+     */
+    private record TimeKey(LocalDateTime date, long sequence) implements Comparable<TimeKey> {
+
+        @Override
+        public int compareTo(TimeKey other) {
+            int result = date.compareTo(other.date);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
     }
-}
\ No newline at end of file
+}
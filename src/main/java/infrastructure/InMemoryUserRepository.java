@@ -5,14 +5,15 @@ import application.models.User;
 import application.repositories.AccountRepository;
 import application.repositories.UserRepository;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class implements the UserRepository interface and provides methods for managing user data in memory.
- * It uses a HashMap to store user objects, with their unique IDs as keys.
+ * It uses a ConcurrentHashMap to store user objects, with their unique IDs as keys.
  *
  * @author Tabnine team
  * @version 1.0
@@ -20,9 +21,9 @@ import java.util.UUID;
 public class InMemoryUserRepository implements UserRepository {
 
     /**
-     * A HashMap to store user objects, with their unique IDs as keys.
+     * A ConcurrentHashMap to store user objects, with their unique IDs as keys.
      */
-    private final Map<UUID, User> users = new HashMap<>();
+    private final Map<UUID, User> users = new ConcurrentHashMap<>();
 
     /**
      * The AccountRepository instance used to retrieve and delete accounts associated with users.
@@ -60,6 +61,16 @@ public class InMemoryUserRepository implements UserRepository {
         return users.get(id);
     }
 
+    /**
+     * Retrieves all user objects in the repository.
+     *
+     * @return A list of all users.
+     */
+    @Override
+    public List<User> getAllUsers() {
+        return new ArrayList<>(users.values());
+    }
+
     /**
      * Saves a new user object to the repository.
      *
@@ -0,0 +1,213 @@
+package infrastructure;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of {@link UUID}s that grows with the number of keys while keeping its false positive rate bounded.
+ * <p>
+ * The filter is a series of plain Bloom filters. Keys are added to the newest one; when it holds as many keys as it
+ * was sized for, a new one with {@value #GROWTH} times the capacity and half the false positive rate is started, so
+ * the rates of all of them add up to at most the rate given. A key may be in the set if any of them contains it.
+ * Keys cannot be removed. Additions are serialized, while lookups are lock-free.
+ */
+public class ScalableBloomFilter {
+
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+
+    private final double falsePositiveRate;
+    private volatile Layer[] layers;
+    private long count;
+
+    /**
+     * Constructs an empty filter.
+     *
+     * @param initialCapacity   The number of keys the first layer is sized for.
+     * @param falsePositiveRate The highest share of absent keys reported as possibly present, between 0 and 1.
+     */
+    public ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid capacity " + initialCapacity + " or rate " + falsePositiveRate);
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        this.layers = new Layer[]{new Layer(initialCapacity, falsePositiveRate * (1 - TIGHTENING))};
+    }
+
+    private ScalableBloomFilter(double falsePositiveRate, Layer[] layers, long count) {
+        this.falsePositiveRate = falsePositiveRate;
+        this.layers = layers;
+        this.count = count;
+    }
+
+    /**
+     * Adds a key to the set.
+     *
+     * @param id The key.
+     */
+    public synchronized void add(UUID id) {
+        long hash1 = hash1(id);
+        long hash2 = hash2(id);
+        Layer[] current = layers;
+        for (Layer layer : current) {
+            if (layer.contains(hash1, hash2)) {
+                return;
+            }
+        }
+        Layer last = current[current.length - 1];
+        if (last.added >= last.capacity) {
+            last = new Layer((int) Math.min(Integer.MAX_VALUE, (long) last.capacity * GROWTH), last.falsePositiveRate * TIGHTENING);
+            Layer[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = last;
+            layers = grown;
+        }
+        last.add(hash1, hash2);
+        count++;
+    }
+
+    /**
+     * Checks whether a key may be in the set. A key that was added is always reported.
+     *
+     * @param id The key.
+     * @return false if the key was certainly never added.
+     */
+    public boolean mightContain(UUID id) {
+        long hash1 = hash1(id);
+        long hash2 = hash2(id);
+        for (Layer layer : layers) {
+            if (layer.contains(hash1, hash2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the number of keys added, not counting keys that were reported as present when added.
+     *
+     * @return The number of keys.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public int getLayerCount() {
+        return layers.length;
+    }
+
+    /**
+     * Retrieves the memory taken by the bits of all layers.
+     *
+     * @return The size in bytes.
+     */
+    public long getSizeInBytes() {
+        long size = 0;
+        for (Layer layer : layers) {
+            size += (long) layer.bits.length() * Long.BYTES;
+        }
+        return size;
+    }
+
+    /**
+     * Writes the filter to a stream.
+     *
+     * @param out The stream.
+     * @throws IOException If the stream cannot be written.
+     */
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeDouble(falsePositiveRate);
+        out.writeLong(count);
+        out.writeInt(layers.length);
+        for (Layer layer : layers) {
+            out.writeInt(layer.capacity);
+            out.writeDouble(layer.falsePositiveRate);
+            out.writeInt(layer.added);
+            for (int i = 0; i < layer.bits.length(); i++) {
+                out.writeLong(layer.bits.get(i));
+            }
+        }
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(DataOutputStream)}.
+     *
+     * @param in The stream.
+     * @return The filter.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static ScalableBloomFilter readFrom(DataInputStream in) throws IOException {
+        double falsePositiveRate = in.readDouble();
+        long count = in.readLong();
+        Layer[] layers = new Layer[in.readInt()];
+        for (int i = 0; i < layers.length; i++) {
+            Layer layer = new Layer(in.readInt(), in.readDouble());
+            layer.added = in.readInt();
+            for (int j = 0; j < layer.bits.length(); j++) {
+                layer.bits.set(j, in.readLong());
+            }
+            layers[i] = layer;
+        }
+        return new ScalableBloomFilter(falsePositiveRate, layers, count);
+    }
+
+    private static long hash1(UUID id) {
+        return mix(id.getMostSignificantBits() ^ id.getLeastSignificantBits());
+    }
+
+    private static long hash2(UUID id) {
+        return mix(id.getLeastSignificantBits() + 0x9E3779B97F4A7C15L * id.getMostSignificantBits()) | 1;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * A plain Bloom filter sized for a number of keys and a false positive rate, probed by double hashing.
+     */
+    private static final class Layer {
+
+        private final int capacity;
+        private final double falsePositiveRate;
+        private final long bitCount;
+        private final int hashes;
+        private final AtomicLongArray bits;
+        private int added;
+
+        private Layer(int capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long words = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)) / Long.SIZE);
+            this.bits = new AtomicLongArray((int) Math.max(1, words));
+            this.bitCount = (long) bits.length() * Long.SIZE;
+            this.hashes = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        }
+
+        private boolean contains(long hash1, long hash2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void add(long hash1, long hash2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                int word = (int) (bit >>> 6);
+                bits.set(word, bits.get(word) | 1L << bit);
+            }
+            added++;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package infrastructure;
+
+import application.models.Account;
+import application.models.User;
+import application.repositories.AccountRepository;
+import application.service.AccountPartitioner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An {@link AccountRepository} that partitions accounts across shard repositories by the hash of their IDs.
+ * Operations on one account go to the owning shard; queries over many accounts collect the results of every shard.
+ */
+public class ShardedAccountRepository implements AccountRepository {
+
+    private final List<AccountRepository> shards;
+    private final AccountPartitioner partitioner;
+
+    /**
+     * Constructs a sharded repository over the given shard repositories.
+     *
+     * @param shards The repository of every shard; their order defines the shard indexes.
+     */
+    public ShardedAccountRepository(List<AccountRepository> shards) {
+        this.shards = List.copyOf(shards);
+        this.partitioner = new AccountPartitioner(shards.size());
+    }
+
+    @Override
+    public Account findById(UUID accountId) {
+        return shardOf(accountId).findById(accountId);
+    }
+
+    @Override
+    public void save(Account account) {
+        shardOf(account.getAccountId()).save(account);
+    }
+
+    @Override
+    public void delete(Account account) {
+        shardOf(account.getAccountId()).delete(account);
+    }
+
+    @Override
+    public boolean exists(UUID accountId) {
+        return shardOf(accountId).exists(accountId);
+    }
+
+    @Override
+    public List<Account> getAccountsByUser(User user) {
+        List<Account> result = new ArrayList<>();
+        for (AccountRepository shard : shards) {
+            result.addAll(shard.getAccountsByUser(user));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Account> getAllAccounts() {
+        List<Account> result = new ArrayList<>();
+        for (AccountRepository shard : shards) {
+            result.addAll(shard.getAllAccounts());
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteAllUsersAccount(User user) {
+        for (AccountRepository shard : shards) {
+            shard.deleteAllUsersAccount(user);
+        }
+    }
+
+    @Override
+    public BigDecimal getBalance(Account account) {
+        return shardOf(account.getAccountId()).getBalance(account);
+    }
+
+    /**
+     * Retrieves the shard repositories.
+     *
+     * @return An unmodifiable list of the shard repositories, by shard index.
+     */
+    public List<AccountRepository> getShards() {
+        return shards;
+    }
+
+    private AccountRepository shardOf(UUID accountId) {
+        return shards.get(partitioner.shardOf(accountId));
+    }
+}
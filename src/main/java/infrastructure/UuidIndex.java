@@ -0,0 +1,144 @@
+package infrastructure;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A hash index from {@link UUID} to a {@code long} position, stored in primitive arrays with open addressing.
+ * It costs about 24 bytes per entry and no objects, unlike a {@code Map<UUID, Long>}.
+ * Writers are serialized; readers use optimistic reads and only fall back to a read lock when a write interferes.
+ * Entries cannot be removed.
+ */
+public class UuidIndex {
+
+    private static final long ABSENT = -1;
+
+    private final StampedLock lock = new StampedLock();
+    private long[] most;
+    private long[] least;
+    private long[] values;
+    private int size;
+
+    /**
+     * Constructs an empty index.
+     */
+    public UuidIndex() {
+        allocate(1024);
+    }
+
+    /**
+     * Associates a position with a UUID, replacing any previous position.
+     *
+     * @param id       The key.
+     * @param position The non-negative position to store.
+     */
+    public void put(UUID id, long position) {
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 4L > values.length * 3L) {
+                resize();
+            }
+            if (insert(id.getMostSignificantBits(), id.getLeastSignificantBits(), position)) {
+                size++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the position associated with a UUID.
+     *
+     * @param id The key.
+     * @return The position, or -1 if the UUID is not indexed.
+     */
+    public long get(UUID id) {
+        long stamp = lock.tryOptimisticRead();
+        long result = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        if (lock.validate(stamp)) {
+            return result;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the number of indexed UUIDs.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private long find(long mostBits, long leastBits) {
+        long[] keysMost = most;
+        long[] keysLeast = least;
+        long[] positions = values;
+        if (keysMost.length != keysLeast.length || keysMost.length != positions.length) {
+            return ABSENT;
+        }
+        int mask = positions.length - 1;
+        for (int slot = slot(mostBits, leastBits, mask), probes = 0; probes <= mask; slot = (slot + 1) & mask, probes++) {
+            long position = positions[slot];
+            if (position == ABSENT) {
+                return ABSENT;
+            }
+            if (keysMost[slot] == mostBits && keysLeast[slot] == leastBits) {
+                return position;
+            }
+        }
+        return ABSENT;
+    }
+
+    private boolean insert(long mostBits, long leastBits, long position) {
+        int mask = values.length - 1;
+        int slot = slot(mostBits, leastBits, mask);
+        while (values[slot] != ABSENT) {
+            if (most[slot] == mostBits && least[slot] == leastBits) {
+                values[slot] = position;
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        most[slot] = mostBits;
+        least[slot] = leastBits;
+        values[slot] = position;
+        return true;
+    }
+
+    private void resize() {
+        long[] oldMost = most;
+        long[] oldLeast = least;
+        long[] oldValues = values;
+        allocate(oldValues.length * 2);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != ABSENT) {
+                insert(oldMost[i], oldLeast[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        most = new long[capacity];
+        least = new long[capacity];
+        long[] positions = new long[capacity];
+        Arrays.fill(positions, ABSENT);
+        values = positions;
+    }
+
+    private static int slot(long mostBits, long leastBits, int mask) {
+        long hash = (mostBits ^ leastBits) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
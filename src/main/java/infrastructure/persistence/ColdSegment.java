@@ -0,0 +1,468 @@
+package infrastructure.persistence;
+
+import application.models.transactions.Transaction;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An immutable file of transactions evicted from memory, compressed in blocks and indexed sparsely.
+ * <p>
+ * The file holds consecutive records encoded by {@link TransactionCodec}, cut into blocks of {@value #BLOCK_SIZE}
+ * records that are deflated independently, followed by a table of the record IDs sorted by ID and a footer. The
+ * footer is kept in memory while the segment is open and holds, per block, its position, first sequence and date
+ * range, and per account, the blocks holding its records; plus a Bloom filter of the record IDs. An account or time
+ * lookup therefore inflates only the blocks that can contain matches, and an ID lookup reads the ID table only when
+ * the filter says the ID may be present.
+ * <p>
+ * Segments are written to a temporary file and moved into place, so a segment file is either complete or absent.
+ */
+public final class ColdSegment {
+
+    /**
+     * The number of records per compressed block.
+     */
+    public static final int BLOCK_SIZE = 256;
+
+    private static final int MAGIC = 0x43534547;
+    private static final int ID_ENTRY_SIZE = Long.BYTES * 2 + Integer.BYTES;
+    private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES * 3;
+    private static final int FILTER_BITS_PER_ID = 10;
+    private static final int FILTER_HASHES = 7;
+
+    private final Path file;
+    private final long firstSequence;
+    private final int recordCount;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final int[] blockRawLengths;
+    private final long[] blockFirstSequences;
+    private final long[] blockMinTimes;
+    private final long[] blockMaxTimes;
+    private final Map<UUID, int[]> accountBlocks;
+    private final long[] idFilter;
+    private final long idTableOffset;
+
+    private ColdSegment(Path file, ByteBuffer footer) {
+        this.file = file;
+        this.firstSequence = footer.getLong();
+        this.recordCount = footer.getInt();
+        this.idTableOffset = footer.getLong();
+        int blocks = footer.getInt();
+        this.blockOffsets = new long[blocks];
+        this.blockLengths = new int[blocks];
+        this.blockRawLengths = new int[blocks];
+        this.blockFirstSequences = new long[blocks];
+        this.blockMinTimes = new long[blocks];
+        this.blockMaxTimes = new long[blocks];
+        for (int block = 0; block < blocks; block++) {
+            blockOffsets[block] = footer.getLong();
+            blockLengths[block] = footer.getInt();
+            blockRawLengths[block] = footer.getInt();
+            blockFirstSequences[block] = footer.getLong();
+            blockMinTimes[block] = footer.getLong();
+            blockMaxTimes[block] = footer.getLong();
+        }
+        int accounts = footer.getInt();
+        this.accountBlocks = new HashMap<>(accounts * 2);
+        for (int i = 0; i < accounts; i++) {
+            UUID accountId = new UUID(footer.getLong(), footer.getLong());
+            int[] list = new int[footer.getInt()];
+            for (int j = 0; j < list.length; j++) {
+                list[j] = footer.getInt();
+            }
+            accountBlocks.put(accountId, list);
+        }
+        this.idFilter = new long[footer.getInt()];
+        for (int i = 0; i < idFilter.length; i++) {
+            idFilter[i] = footer.getLong();
+        }
+    }
+
+    /**
+     * Writes transactions to a new segment file and opens it.
+     *
+     * @param file          The segment file to create.
+     * @param firstSequence The sequence of the first transaction.
+     * @param transactions  The transactions, in the order they were saved.
+     * @return The open segment.
+     * @throws IOException If the file cannot be written.
+     */
+    public static ColdSegment write(Path file, long firstSequence, List<Transaction> transactions) throws IOException {
+        int blocks = (transactions.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+        DataOutputStream footer = new DataOutputStream(footerBytes);
+        Map<UUID, List<Integer>> accountBlocks = new LinkedHashMap<>();
+        long[][] ids = new long[transactions.size()][];
+        long[] filter = new long[Math.max(1, (transactions.size() * FILTER_BITS_PER_ID + 63) / 64)];
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        long idTableOffset;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            data.writeInt(MAGIC);
+            long position = Integer.BYTES;
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            byte[] compressed = new byte[1 << 16];
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            footer.writeInt(blocks);
+            for (int block = 0; block < blocks; block++) {
+                int from = block * BLOCK_SIZE;
+                int to = Math.min(transactions.size(), from + BLOCK_SIZE);
+                raw.reset();
+                long minTime = Long.MAX_VALUE;
+                long maxTime = Long.MIN_VALUE;
+                for (int i = from; i < to; i++) {
+                    Transaction transaction = transactions.get(i);
+                    ByteBuffer record = TransactionCodec.encode(firstSequence + i, transaction);
+                    raw.write(record.array(), 0, record.limit());
+                    long time = epochNanos(transaction.getDate());
+                    minTime = Math.min(minTime, time);
+                    maxTime = Math.max(maxTime, time);
+                    addBlock(accountBlocks, transaction.getAccount().getAccountId(), block);
+                    if (transaction.getRecipient() != null) {
+                        addBlock(accountBlocks, transaction.getRecipient().getAccountId(), block);
+                    }
+                    UUID id = transaction.getId();
+                    ids[i] = new long[]{id.getMostSignificantBits(), id.getLeastSignificantBits(), block};
+                    addToFilter(filter, id);
+                }
+                byte[] input = raw.toByteArray();
+                deflater.reset();
+                deflater.setInput(input);
+                deflater.finish();
+                ByteArrayOutputStream blockBytes = new ByteArrayOutputStream(input.length / 2);
+                while (!deflater.finished()) {
+                    blockBytes.write(compressed, 0, deflater.deflate(compressed));
+                }
+                data.write(blockBytes.toByteArray());
+                footer.writeLong(position);
+                footer.writeInt(blockBytes.size());
+                footer.writeInt(input.length);
+                footer.writeLong(firstSequence + from);
+                footer.writeLong(minTime);
+                footer.writeLong(maxTime);
+                position += blockBytes.size();
+            }
+            deflater.end();
+
+            idTableOffset = position;
+            Arrays.sort(ids, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+            for (long[] entry : ids) {
+                data.writeLong(entry[0]);
+                data.writeLong(entry[1]);
+                data.writeInt((int) entry[2]);
+            }
+            position += (long) ids.length * ID_ENTRY_SIZE;
+
+            footer.writeInt(accountBlocks.size());
+            for (Map.Entry<UUID, List<Integer>> entry : accountBlocks.entrySet()) {
+                footer.writeLong(entry.getKey().getMostSignificantBits());
+                footer.writeLong(entry.getKey().getLeastSignificantBits());
+                footer.writeInt(entry.getValue().size());
+                for (int block : entry.getValue()) {
+                    footer.writeInt(block);
+                }
+            }
+            footer.writeInt(filter.length);
+            for (long word : filter) {
+                footer.writeLong(word);
+            }
+            footer.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(Long.BYTES + Integer.BYTES + Long.BYTES);
+            header.putLong(firstSequence).putInt(transactions.size()).putLong(idTableOffset);
+            byte[] footerContent = footerBytes.toByteArray();
+            byte[] complete = new byte[header.capacity() + footerContent.length];
+            System.arraycopy(header.array(), 0, complete, 0, header.capacity());
+            System.arraycopy(footerContent, 0, complete, header.capacity(), footerContent.length);
+            data.write(complete);
+            data.writeLong(position);
+            data.writeInt(complete.length);
+            data.writeInt(TransactionCodec.checksum(complete, 0, complete.length));
+            data.writeInt(MAGIC);
+            data.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(file);
+    }
+
+    /**
+     * Opens an existing segment file by reading its footer.
+     *
+     * @param file The segment file.
+     * @return The open segment.
+     * @throws IOException If the file cannot be read or is not a complete segment.
+     */
+    public static ColdSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < Integer.BYTES + TRAILER_SIZE) {
+                throw new IOException("Truncated segment: " + file);
+            }
+            ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            int footerLength = trailer.getInt();
+            int checksum = trailer.getInt();
+            if (trailer.getInt() != MAGIC || footerOffset + footerLength != size - TRAILER_SIZE) {
+                throw new IOException("Corrupt segment trailer: " + file);
+            }
+            ByteBuffer footer = readFully(channel, footerOffset, footerLength);
+            if (TransactionCodec.checksum(footer.array(), 0, footerLength) != checksum) {
+                throw new IOException("Corrupt segment footer: " + file);
+            }
+            return new ColdSegment(file, footer);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getFirstSequence() {
+        return firstSequence;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Reads the records of an account, including transfers it received, inflating only the blocks that hold them.
+     *
+     * @param accountId The ID of the account.
+     * @return The account's records in the order they were saved.
+     * @throws IOException If the segment cannot be read.
+     */
+    public List<TransactionRecord> readAccount(UUID accountId) throws IOException {
+        int[] blocks = accountBlocks.get(accountId);
+        if (blocks == null) {
+            return List.of();
+        }
+        List<TransactionRecord> result = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int block : blocks) {
+                for (TransactionRecord record : readBlock(channel, block)) {
+                    if (touches(record, accountId)) {
+                        result.add(record);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the records dated in the half-open range {@code [from, to)}, inflating only the blocks whose date range
+     * overlaps it, optionally restricted to one account.
+     *
+     * @param accountId The ID of the account, or null for all accounts.
+     * @param from      The inclusive lower bound of the range.
+     * @param to        The exclusive upper bound of the range.
+     * @return The records in the range, in the order they were saved.
+     * @throws IOException If the segment cannot be read.
+     */
+    public List<TransactionRecord> readBetween(UUID accountId, LocalDateTime from, LocalDateTime to) throws IOException {
+        long lower = epochNanos(from);
+        long upper = epochNanos(to);
+        int[] blocks;
+        if (accountId == null) {
+            blocks = new int[blockOffsets.length];
+            Arrays.setAll(blocks, block -> block);
+        } else {
+            blocks = accountBlocks.getOrDefault(accountId, new int[0]);
+        }
+        List<TransactionRecord> result = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int block : blocks) {
+                if (blockMaxTimes[block] < lower || blockMinTimes[block] >= upper) {
+                    continue;
+                }
+                for (TransactionRecord record : readBlock(channel, block)) {
+                    long time = epochNanos(record.getTimestamp());
+                    if (time >= lower && time < upper && (accountId == null || touches(record, accountId))) {
+                        result.add(record);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the records with sequences from the given one on, up to a maximal number, inflating only the blocks
+     * that hold them.
+     *
+     * @param sequence The sequence of the first record to read.
+     * @param limit    The maximal number of records to read.
+     * @return The records in the order they were saved.
+     * @throws IOException If the segment cannot be read.
+     */
+    public List<TransactionRecord> readFrom(long sequence, int limit) throws IOException {
+        List<TransactionRecord> result = new ArrayList<>();
+        if (sequence >= firstSequence + recordCount) {
+            return result;
+        }
+        int block = Arrays.binarySearch(blockFirstSequences, sequence);
+        block = block >= 0 ? block : Math.max(0, -block - 2);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (; block < blockOffsets.length && result.size() < limit; block++) {
+                for (TransactionRecord record : readBlock(channel, block)) {
+                    if (record.getSequence() >= sequence && result.size() < limit) {
+                        result.add(record);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Looks a record up by its ID.
+     *
+     * @param id The ID of the transaction.
+     * @return The record, or null if the segment does not hold it.
+     * @throws IOException If the segment cannot be read.
+     */
+    public TransactionRecord find(UUID id) throws IOException {
+        if (!mayContain(idFilter, id)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int low = 0;
+            int high = recordCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                ByteBuffer entry = readFully(channel, idTableOffset + (long) middle * ID_ENTRY_SIZE, ID_ENTRY_SIZE);
+                int comparison = compare(entry.getLong(), entry.getLong(), id);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    for (TransactionRecord record : readBlock(channel, entry.getInt())) {
+                        if (record.getId().equals(id)) {
+                            return record;
+                        }
+                    }
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private List<TransactionRecord> readBlock(FileChannel channel, int block) throws IOException {
+        ByteBuffer compressed = readFully(channel, blockOffsets[block], blockLengths[block]);
+        byte[] raw = new byte[blockRawLengths[block]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                length += inflater.inflate(raw, length, raw.length - length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block " + block + " of " + file, e);
+        } finally {
+            inflater.end();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        List<TransactionRecord> records = new ArrayList<>(BLOCK_SIZE);
+        while (buffer.hasRemaining()) {
+            int payloadLength = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (TransactionCodec.checksum(raw, buffer.position(), payloadLength) != checksum) {
+                throw new IOException("Corrupt record in block " + block + " of " + file);
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), payloadLength);
+            records.add(TransactionCodec.decode(payload));
+            buffer.position(buffer.position() + payloadLength);
+        }
+        return records;
+    }
+
+    private static boolean touches(TransactionRecord record, UUID accountId) {
+        return accountId.equals(record.getAccountId()) || accountId.equals(record.getRecipientId());
+    }
+
+    private static void addBlock(Map<UUID, List<Integer>> accountBlocks, UUID accountId, int block) {
+        List<Integer> blocks = accountBlocks.computeIfAbsent(accountId, key -> new ArrayList<>());
+        if (blocks.isEmpty() || blocks.get(blocks.size() - 1) != block) {
+            blocks.add(block);
+        }
+    }
+
+    private static void addToFilter(long[] filter, UUID id) {
+        long bits = (long) filter.length * 64;
+        long first = mix(id.getMostSignificantBits());
+        long second = mix(id.getLeastSignificantBits()) | 1;
+        for (int i = 0; i < FILTER_HASHES; i++) {
+            long bit = Math.floorMod(first + i * second, bits);
+            filter[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private static boolean mayContain(long[] filter, UUID id) {
+        long bits = (long) filter.length * 64;
+        long first = mix(id.getMostSignificantBits());
+        long second = mix(id.getLeastSignificantBits()) | 1;
+        for (int i = 0; i < FILTER_HASHES; i++) {
+            long bit = Math.floorMod(first + i * second, bits);
+            if ((filter[(int) (bit >>> 6)] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static int compare(long most, long least, UUID id) {
+        int result = Long.compare(most, id.getMostSignificantBits());
+        return result != 0 ? result : Long.compare(least, id.getLeastSignificantBits());
+    }
+
+    private static long epochNanos(LocalDateTime date) {
+        return date.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + date.getNano();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+        return buffer.flip();
+    }
+}
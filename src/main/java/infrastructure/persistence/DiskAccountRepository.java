@@ -0,0 +1,379 @@
+package infrastructure.persistence;
+
+import application.models.Account;
+import application.models.FixedPointAccount;
+import application.models.User;
+import application.repositories.AccountRepository;
+import infrastructure.ScalableBloomFilter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * This class implements the AccountRepository interface over a {@link DiskHashFile}. Every save overwrites the
+ * record of the account in place, so a balance change costs one slot write, and a lookup reads at most one page.
+ * <p>
+ * Only the account IDs of every user are kept in memory, loaded with one scan when the repository is opened. A
+ * balance must fit in {@value #MAX_UNSCALED_BYTES} bytes of unscaled value. It is created by a {@link DiskStore}.
+ * <p>
+ * A {@link ScalableBloomFilter} of the stored IDs answers most lookups of unknown IDs without reading a page. Keys
+ * are added to it before they are stored, so it never misses a stored account. Deleted IDs stay in it, so it is
+ * rebuilt from a scan once they outnumber the stored accounts. The filter is written next to the file when the
+ * store is closed and read back on the next start; the file is removed once read, so after a crash the filter is
+ * rebuilt by the scan the repository makes anyway.
+ */
+public class DiskAccountRepository implements AccountRepository {
+
+    /**
+     * The longest unscaled balance that can be stored, in bytes.
+     */
+    public static final int MAX_UNSCALED_BYTES = 24;
+
+    static final int PAYLOAD_SIZE = Long.BYTES * 2 + 1 + Integer.BYTES + 1 + MAX_UNSCALED_BYTES;
+
+    private static final byte DECIMAL = 0;
+    private static final byte FIXED_POINT = 1;
+    private static final int FILTER_MAGIC = 0x41424C4D;
+    private static final int MIN_FILTER_CAPACITY = 1 << 16;
+    private static final double FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    private final DiskHashFile file;
+    private final DiskStore store;
+    private final LiveObjects<Account> accounts = new LiveObjects<>();
+    private final Path filterFile;
+    private final Object filterLock = new Object();
+    private volatile ScalableBloomFilter filter;
+    private long removedSinceBuild;
+
+    /**
+     * An index of account IDs by the IDs of their users.
+     * Changes to the file for one user are made inside the index entry of that user, so they are atomic per user.
+     */
+    private final Map<UUID, Set<UUID>> userAccounts = new ConcurrentHashMap<>();
+
+    DiskAccountRepository(DiskHashFile file, Path filterFile, DiskStore store) throws IOException {
+        this.file = file;
+        this.filterFile = filterFile;
+        this.store = store;
+        ScalableBloomFilter stored = readFilter();
+        ScalableBloomFilter built = stored != null ? null : newFilter();
+        file.forEach((id, record) -> {
+            userAccounts.computeIfAbsent(new UUID(record.getLong(), record.getLong()), userId -> ConcurrentHashMap.newKeySet()).add(id);
+            if (built != null) {
+                built.add(id);
+            }
+        });
+        this.filter = stored != null ? stored : built;
+    }
+
+    /**
+     * Finds an account by ID, returning the same object as long as it is in use.
+     *
+     * @param accountId The unique ID of the account to find.
+     * @return The account with the given ID, or null if no such account exists.
+     */
+    @Override
+    public Account findById(UUID accountId) {
+        Account account = accounts.get(accountId);
+        if (account != null) {
+            return account;
+        }
+        if (!filter.mightContain(accountId)) {
+            return null;
+        }
+        try {
+            ByteBuffer record = file.get(accountId);
+            if (record == null) {
+                return null;
+            }
+            User user = store.getUserRepository().getUserByUID(new UUID(record.getLong(), record.getLong()));
+            return accounts.register(accountId, decode(accountId, user, record));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Saves an account, overwriting its record in place if it is already stored. A new account also saves its user,
+     * whose account counter it has changed.
+     *
+     * @param account The account to save.
+     * @throws IllegalArgumentException If the balance is too large to be stored.
+     */
+    @Override
+    public void save(Account account) {
+        ByteBuffer record = encode(account);
+        User user = account.getUser();
+        boolean[] inserted = new boolean[1];
+        userAccounts.compute(user.getUserId(), (userId, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
+            }
+            synchronized (filterLock) {
+                filter.add(account.getAccountId());
+                try {
+                    inserted[0] = file.put(account.getAccountId(), record);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            ids.add(account.getAccountId());
+            return ids;
+        });
+        accounts.put(account.getAccountId(), account);
+        if (inserted[0]) {
+            store.getUserRepository().save(user);
+        }
+    }
+
+    /**
+     * Deletes an account.
+     *
+     * @param account The account to delete.
+     */
+    @Override
+    public void delete(Account account) {
+        userAccounts.compute(account.getUser().getUserId(), (userId, ids) -> {
+            remove(account.getAccountId());
+            if (ids == null) {
+                return null;
+            }
+            ids.remove(account.getAccountId());
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * Checks if an account exists, reading at most one page, and none for most IDs that were never stored.
+     *
+     * @param uuid The unique ID of the account to check.
+     * @return True if an account with the given ID exists, false otherwise.
+     */
+    @Override
+    public boolean exists(UUID uuid) {
+        if (accounts.get(uuid) != null) {
+            return true;
+        }
+        if (!filter.mightContain(uuid)) {
+            return false;
+        }
+        try {
+            return file.get(uuid) != null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Retrieves a list of accounts belonging to the given user.
+     *
+     * @param user The user whose accounts to retrieve.
+     * @return A list of accounts belonging to the given user.
+     */
+    @Override
+    public List<Account> getAccountsByUser(User user) {
+        Set<UUID> ids = userAccounts.get(user.getUserId());
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        List<Account> result = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Account account = findById(id);
+            if (account != null) {
+                result.add(account);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves all accounts by scanning the file.
+     *
+     * @return A list of all accounts.
+     */
+    @Override
+    public List<Account> getAllAccounts() {
+        List<Account> result = new ArrayList<>(file.size());
+        Map<UUID, User> users = new HashMap<>();
+        try {
+            file.forEach((id, record) -> {
+                Account account = accounts.get(id);
+                if (account == null) {
+                    User user = users.computeIfAbsent(new UUID(record.getLong(), record.getLong()),
+                            userId -> store.getUserRepository().getUserByUID(userId));
+                    account = accounts.register(id, decode(id, user, record));
+                }
+                result.add(account);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Deletes all accounts belonging to the given user.
+     *
+     * @param user The user whose accounts to delete.
+     */
+    @Override
+    public void deleteAllUsersAccount(User user) {
+        userAccounts.computeIfPresent(user.getUserId(), (userId, ids) -> {
+            for (UUID id : ids) {
+                remove(id);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Retrieves the balance of the given account.
+     *
+     * @param account The account whose balance to retrieve.
+     * @return The balance of the given account.
+     */
+    @Override
+    public BigDecimal getBalance(Account account) {
+        return account.getBalance();
+    }
+
+    public ScalableBloomFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Retrieves the number of pages read from the file by lookups since it was opened.
+     *
+     * @return The number of page reads.
+     */
+    public long getPageReads() {
+        return file.getPageReads();
+    }
+
+    /**
+     * Writes the filter next to the file, to be read back by the next start. Called by the store when it is closed,
+     * after which nothing may be saved.
+     *
+     * @throws IOException If the filter cannot be written.
+     */
+    void writeFilter() throws IOException {
+        Path temporary = filterFile.resolveSibling(filterFile.getFileName() + ".tmp");
+        synchronized (filterLock) {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                CRC32C crc = new CRC32C();
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)), crc));
+                out.writeInt(FILTER_MAGIC);
+                out.writeInt(file.size());
+                filter.writeTo(out);
+                out.writeInt((int) crc.getValue());
+                out.flush();
+                channel.force(true);
+            }
+        }
+        Files.move(temporary, filterFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the filter written at the last close and removes the file, so that it cannot be used after a crash.
+     *
+     * @return The filter, or null if there is none or it does not belong to the file.
+     */
+    private ScalableBloomFilter readFilter() throws IOException {
+        if (!Files.exists(filterFile)) {
+            return null;
+        }
+        ScalableBloomFilter stored = null;
+        CRC32C crc = new CRC32C();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(Files.newInputStream(filterFile)), crc))) {
+            if (in.readInt() == FILTER_MAGIC && in.readInt() == file.size()) {
+                ScalableBloomFilter candidate = ScalableBloomFilter.readFrom(in);
+                int expected = (int) crc.getValue();
+                if (in.readInt() == expected) {
+                    stored = candidate;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // A damaged filter is rebuilt from the scan.
+        }
+        Files.delete(filterFile);
+        return stored;
+    }
+
+    private ScalableBloomFilter newFilter() {
+        return new ScalableBloomFilter(Math.max(MIN_FILTER_CAPACITY, file.size() * 2), FILTER_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Removes an account from the file and counts its ID as stale in the filter, rebuilding the filter once the stale
+     * IDs outnumber the stored ones.
+     */
+    private void remove(UUID accountId) {
+        synchronized (filterLock) {
+            try {
+                if (file.remove(accountId) && ++removedSinceBuild > Math.max(MIN_FILTER_CAPACITY, file.size())) {
+                    ScalableBloomFilter rebuilt = newFilter();
+                    file.forEach((id, record) -> rebuilt.add(id));
+                    filter = rebuilt;
+                    removedSinceBuild = 0;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        accounts.remove(accountId);
+    }
+
+    private static ByteBuffer encode(Account account) {
+        ByteBuffer record = ByteBuffer.allocate(PAYLOAD_SIZE);
+        UUID userId = account.getUser().getUserId();
+        record.putLong(userId.getMostSignificantBits()).putLong(userId.getLeastSignificantBits());
+        if (account instanceof FixedPointAccount fixedPoint) {
+            record.put(FIXED_POINT).putLong(fixedPoint.getMinorUnits());
+        } else {
+            BigDecimal balance = account.getBalance();
+            byte[] unscaled = balance.unscaledValue().toByteArray();
+            if (unscaled.length > MAX_UNSCALED_BYTES) {
+                throw new IllegalArgumentException("Balance too large to store: " + balance);
+            }
+            record.put(DECIMAL).putInt(balance.scale()).put((byte) unscaled.length).put(unscaled);
+        }
+        return record.flip();
+    }
+
+    /**
+     * Decodes the balance of a record whose user ID has already been read.
+     */
+    private static Account decode(UUID accountId, User user, ByteBuffer record) {
+        if (record.get() == FIXED_POINT) {
+            return new FixedPointAccount(accountId, user, record.getLong());
+        }
+        int scale = record.getInt();
+        byte[] unscaled = new byte[record.get()];
+        record.get(unscaled);
+        return new Account(accountId, user, new BigDecimal(new BigInteger(unscaled), scale));
+    }
+}
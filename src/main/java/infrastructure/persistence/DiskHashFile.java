@@ -0,0 +1,486 @@
+package infrastructure.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * A file of fixed-size records keyed by {@link UUID}, laid out as an extendible hash table of
+ * {@value #PAGE_SIZE}-byte pages.
+ * <p>
+ * Every page is a bucket of fixed-size slots holding the keys whose hashes end in the page's prefix. A directory in
+ * memory maps the low bits of a hash to its page, so a lookup reads exactly one page. When a page is full it is split:
+ * the keys whose next hash bit is set move to a new page appended to the file, and the directory doubles when the
+ * page was as deep as the directory. The directory is not stored; it is rebuilt from the page headers when the file
+ * is opened.
+ * <p>
+ * Every slot holds two copies of its record, each with a version and a CRC32C. An update overwrites the older copy
+ * in place, so a write torn by a crash or seen half-done by a concurrent reader fails its checksum and the other
+ * copy is used instead. Page headers are kept the same way. A split writes and forces the new page before it raises
+ * the depth in the header of the old one, which commits the split: a new page whose parent is still shallower is
+ * left over from a crash and cut off when the file is opened. Entries left behind in the old page no longer match
+ * its prefix and count as free slots.
+ * <p>
+ * Writers are serialized. Readers never wait: a lookup that raced with a split notices it and looks again.
+ */
+public final class DiskHashFile implements Closeable {
+
+    /**
+     * The size of a page, which is also the unit of every read.
+     */
+    public static final int PAGE_SIZE = 4096;
+
+    private static final int MAGIC = 0x44484654;
+    private static final int MAX_DEPTH = 30;
+    private static final int NO_PARENT = -1;
+    private static final int PAGE_HEADER_COPY_SIZE = Long.BYTES + Integer.BYTES * 5;
+    private static final int PAGE_HEADER_SIZE = 64;
+    private static final int PREFIX = Long.BYTES;
+    private static final int DEPTH = PREFIX + Integer.BYTES;
+    private static final int PARENT = DEPTH + Integer.BYTES;
+    private static final int PARENT_DEPTH = PARENT + Integer.BYTES;
+    private static final int COPY_HEADER_SIZE = Long.BYTES + 1 + Long.BYTES * 2;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 2;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int payloadSize;
+    private final int copySize;
+    private final int slotSize;
+    private final boolean sync;
+    private final LongAdder pageReads = new LongAdder();
+    private volatile Directory directory;
+    private volatile long splits;
+    private int pageCount;
+    private int size;
+
+    private DiskHashFile(Path file, FileChannel channel, int payloadSize, boolean sync) {
+        this.file = file;
+        this.channel = channel;
+        this.payloadSize = payloadSize;
+        this.copySize = COPY_HEADER_SIZE + payloadSize + Integer.BYTES;
+        this.slotSize = copySize * 2;
+        this.sync = sync;
+    }
+
+    /**
+     * Opens a hash file, creating it if it does not exist.
+     *
+     * @param file        The file.
+     * @param payloadSize The size of the record stored under each key, which is fixed for the life of the file.
+     * @param sync        Whether every update is forced to the storage device before it returns. Splits are always
+     *                    forced, so a crash without it may lose recent updates but never entries written before a
+     *                    split.
+     * @return The open file.
+     * @throws IOException If the file cannot be opened or was created with another payload size.
+     */
+    public static DiskHashFile open(Path file, int payloadSize, boolean sync) throws IOException {
+        if (payloadSize <= 0 || PAGE_HEADER_SIZE + (COPY_HEADER_SIZE + payloadSize + Integer.BYTES) * 2 > PAGE_SIZE) {
+            throw new IllegalArgumentException("Payload does not fit a page: " + payloadSize);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        DiskHashFile hashFile = new DiskHashFile(file, channel, payloadSize, sync);
+        try {
+            if (channel.size() == 0) {
+                hashFile.create();
+            } else {
+                hashFile.load();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return hashFile;
+    }
+
+    /**
+     * Looks up the record stored under a key, reading one page, or more only if a split happened meanwhile.
+     *
+     * @param id The key.
+     * @return A read-only buffer holding the record, or null if the key is not stored.
+     * @throws IOException If the page cannot be read.
+     */
+    public ByteBuffer get(UUID id) throws IOException {
+        long hash = hash(id);
+        while (true) {
+            long splitsBefore = splits;
+            ByteBuffer page = readPage(directory.pageOf(hash));
+            int copy = findLive(page, id);
+            if (splits == splitsBefore) {
+                return copy < 0 ? null : page.slice(copy + COPY_HEADER_SIZE, payloadSize).asReadOnlyBuffer();
+            }
+        }
+    }
+
+    /**
+     * Stores a record under a key, overwriting the older copy of its slot if the key is already stored.
+     *
+     * @param id      The key.
+     * @param payload The record, at most as long as the payload size; shorter records are padded with zeros.
+     * @return true if the key was not stored before.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized boolean put(UUID id, ByteBuffer payload) throws IOException {
+        if (payload.remaining() > payloadSize) {
+            throw new IllegalArgumentException("Payload of " + payload.remaining() + " bytes exceeds " + payloadSize);
+        }
+        long hash = hash(id);
+        while (true) {
+            int pageIndex = directory.pageOf(hash);
+            ByteBuffer page = readPage(pageIndex);
+            int copy = findLive(page, id);
+            if (copy >= 0) {
+                write(pageIndex, page, slotOf(copy), copy, LIVE, id, payload);
+                return false;
+            }
+            int free = findFree(page);
+            if (free >= 0) {
+                write(pageIndex, page, free, latestCopy(page, free), LIVE, id, payload);
+                size++;
+                return true;
+            }
+            split(pageIndex, page);
+        }
+    }
+
+    /**
+     * Removes the record stored under a key.
+     *
+     * @param id The key.
+     * @return true if the key was stored.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized boolean remove(UUID id) throws IOException {
+        int pageIndex = directory.pageOf(hash(id));
+        ByteBuffer page = readPage(pageIndex);
+        int copy = findLive(page, id);
+        if (copy < 0) {
+            return false;
+        }
+        write(pageIndex, page, slotOf(copy), copy, DELETED, id, ByteBuffer.allocate(0));
+        size--;
+        return true;
+    }
+
+    /**
+     * Passes every stored record to an action, page by page. Updates wait until the scan is done.
+     *
+     * @param action The action receiving each key and a read-only buffer holding its record.
+     * @throws IOException If a page cannot be read.
+     */
+    public synchronized void forEach(BiConsumer<UUID, ByteBuffer> action) throws IOException {
+        for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+            ByteBuffer page = readPage(pageIndex);
+            int header = latestPageHeader(page);
+            for (int slot = PAGE_HEADER_SIZE; slot + slotSize <= PAGE_SIZE; slot += slotSize) {
+                int copy = latestCopy(page, slot);
+                if (isLive(page, header, copy)) {
+                    action.accept(keyAt(page, copy), page.slice(copy + COPY_HEADER_SIZE, payloadSize).asReadOnlyBuffer());
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces all updates to the storage device.
+     *
+     * @throws IOException If the file cannot be forced.
+     */
+    public void flush() throws IOException {
+        channel.force(false);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int getPageCount() {
+        return pageCount;
+    }
+
+    public long getPageReads() {
+        return pageReads.sum();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Forces and closes the file.
+     *
+     * @throws IOException If the file cannot be forced or closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private void create() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        header.putInt(MAGIC).putInt(payloadSize).putInt(checksum(header.array(), 0, Integer.BYTES * 2));
+        writeFully(header.clear(), 0);
+        ByteBuffer root = ByteBuffer.allocate(PAGE_SIZE);
+        putPageHeader(root, 1, 0, 0, NO_PARENT, 0);
+        writeFully(root, pageOffset(0));
+        channel.force(true);
+        pageCount = 1;
+        directory = new Directory(0, new int[]{0});
+    }
+
+    /**
+     * Rebuilds the directory from the page headers and counts the entries. A page whose split was never committed
+     * can only be the last one and is cut off. That includes a last page without an intact header: only a split
+     * appends a page, and it forces the page before committing, so such a page was torn before its split committed.
+     */
+    private void load() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        readFully(header, 0);
+        if (header.getInt(0) != MAGIC || checksum(header.array(), 0, Integer.BYTES * 2) != header.getInt(Integer.BYTES * 2)) {
+            throw new IOException("Not a hash file: " + file);
+        }
+        if (header.getInt(Integer.BYTES) != payloadSize) {
+            throw new IOException("Hash file " + file + " holds payloads of " + header.getInt(Integer.BYTES) + " bytes");
+        }
+        int pages = (int) (channel.size() / PAGE_SIZE - 1);
+        int[] prefixes = new int[pages];
+        int[] depths = new int[pages];
+        int globalDepth = 0;
+        int count = 0;
+        for (int pageIndex = 0; pageIndex < pages; pageIndex++) {
+            ByteBuffer page = readPage(pageIndex);
+            int pageHeader = latestPageHeader(page);
+            boolean uncommitted;
+            if (pageHeader < 0) {
+                if (pageIndex == 0 || pageIndex < pages - 1) {
+                    throw new IOException("Corrupt page " + pageIndex + " in " + file);
+                }
+                uncommitted = true;
+            } else {
+                int parent = page.getInt(pageHeader + PARENT);
+                uncommitted = parent != NO_PARENT && depths[parent] < page.getInt(pageHeader + PARENT_DEPTH);
+            }
+            if (uncommitted) {
+                pages = pageIndex;
+                channel.truncate(pageOffset(pages));
+                break;
+            }
+            prefixes[pageIndex] = page.getInt(pageHeader + PREFIX);
+            depths[pageIndex] = page.getInt(pageHeader + DEPTH);
+            globalDepth = Math.max(globalDepth, depths[pageIndex]);
+            for (int slot = PAGE_HEADER_SIZE; slot + slotSize <= PAGE_SIZE; slot += slotSize) {
+                if (isLive(page, pageHeader, latestCopy(page, slot))) {
+                    count++;
+                }
+            }
+        }
+        int[] entries = new int[1 << globalDepth];
+        for (int pageIndex = 0; pageIndex < pages; pageIndex++) {
+            for (int entry = prefixes[pageIndex]; entry < entries.length; entry += 1 << depths[pageIndex]) {
+                entries[entry] = pageIndex;
+            }
+        }
+        pageCount = pages;
+        size = count;
+        directory = new Directory(globalDepth, entries);
+    }
+
+    /**
+     * Splits a full page. The new page is durable before the old page's header commits the split, and the
+     * directory is changed only after that.
+     */
+    private void split(int pageIndex, ByteBuffer page) throws IOException {
+        int header = latestPageHeader(page);
+        int prefix = page.getInt(header + PREFIX);
+        int depth = page.getInt(header + DEPTH);
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("Page " + pageIndex + " of " + file + " cannot be split further");
+        }
+        int newIndex = pageCount;
+        int newPrefix = prefix | 1 << depth;
+        ByteBuffer moved = ByteBuffer.allocate(PAGE_SIZE);
+        putPageHeader(moved, 1, newPrefix, depth + 1, pageIndex, depth + 1);
+        int target = PAGE_HEADER_SIZE;
+        for (int slot = PAGE_HEADER_SIZE; slot + slotSize <= PAGE_SIZE; slot += slotSize) {
+            int copy = latestCopy(page, slot);
+            if (isLive(page, header, copy) && (hash(keyAt(page, copy)) & 1L << depth) != 0) {
+                moved.put(target, page, copy, copySize);
+                target += slotSize;
+            }
+        }
+        writeFully(moved, pageOffset(newIndex));
+        channel.force(true);
+        ByteBuffer committed = ByteBuffer.allocate(PAGE_HEADER_COPY_SIZE);
+        putPageHeader(committed, page.getLong(header) + 1, prefix, depth + 1, page.getInt(header + PARENT), page.getInt(header + PARENT_DEPTH));
+        writeFully(committed, pageOffset(pageIndex) + (header == 0 ? PAGE_HEADER_COPY_SIZE : 0));
+        channel.force(false);
+        pageCount++;
+
+        Directory current = directory;
+        if (depth == current.depth()) {
+            int[] doubled = Arrays.copyOf(current.pages(), current.pages().length * 2);
+            System.arraycopy(current.pages(), 0, doubled, current.pages().length, current.pages().length);
+            current = new Directory(depth + 1, doubled);
+            directory = current;
+        }
+        for (int entry = newPrefix; entry < current.pages().length; entry += 1 << (depth + 1)) {
+            current.pages()[entry] = newIndex;
+        }
+        splits++;
+    }
+
+    /**
+     * Writes a record into the copy of a slot that is not the latest one.
+     */
+    private void write(int pageIndex, ByteBuffer page, int slot, int latest, byte state, UUID id, ByteBuffer payload) throws IOException {
+        ByteBuffer copy = ByteBuffer.allocate(copySize);
+        copy.putLong(latest < 0 ? 1 : page.getLong(latest) + 1).put(state)
+                .putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                .put(payload.duplicate());
+        copy.putInt(copySize - Integer.BYTES, checksum(copy.array(), 0, copySize - Integer.BYTES));
+        writeFully(copy.clear(), pageOffset(pageIndex) + (latest == slot ? slot + copySize : slot));
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Finds the stored entry of a key in its page. Entries a split left behind never match, because their keys
+     * belong to other pages.
+     */
+    private int findLive(ByteBuffer page, UUID id) {
+        for (int slot = PAGE_HEADER_SIZE; slot + slotSize <= PAGE_SIZE; slot += slotSize) {
+            int copy = latestCopy(page, slot);
+            if (copy >= 0 && page.get(copy + Long.BYTES) == LIVE
+                    && page.getLong(copy + Long.BYTES + 1) == id.getMostSignificantBits()
+                    && page.getLong(copy + Long.BYTES + 1 + Long.BYTES) == id.getLeastSignificantBits()) {
+                return copy;
+            }
+        }
+        return -1;
+    }
+
+    private int findFree(ByteBuffer page) {
+        int header = latestPageHeader(page);
+        for (int slot = PAGE_HEADER_SIZE; slot + slotSize <= PAGE_SIZE; slot += slotSize) {
+            if (!isLive(page, header, latestCopy(page, slot))) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a copy holds a stored entry of its page, as opposed to a deleted entry or one that was moved
+     * away by a split.
+     */
+    private static boolean isLive(ByteBuffer page, int header, int copy) {
+        if (copy < 0 || page.get(copy + Long.BYTES) != LIVE) {
+            return false;
+        }
+        long mask = (1L << page.getInt(header + DEPTH)) - 1;
+        return (hash(keyAt(page, copy)) & mask) == page.getInt(header + PREFIX);
+    }
+
+    private int slotOf(int copy) {
+        return copy - (copy - PAGE_HEADER_SIZE) % slotSize;
+    }
+
+    private int latestCopy(ByteBuffer page, int slot) {
+        return latest(page, slot, copySize);
+    }
+
+    private static int latestPageHeader(ByteBuffer page) {
+        return latest(page, 0, PAGE_HEADER_COPY_SIZE);
+    }
+
+    /**
+     * Finds the intact one of two adjacent copies with the higher version.
+     *
+     * @return The offset of the copy in the page, or -1 if neither copy is intact.
+     */
+    private static int latest(ByteBuffer page, int offset, int size) {
+        int latest = -1;
+        long latestVersion = 0;
+        for (int copy = offset; copy < offset + size * 2; copy += size) {
+            long version = page.getLong(copy);
+            if (version > latestVersion && checksum(page.array(), copy, size - Integer.BYTES) == page.getInt(copy + size - Integer.BYTES)) {
+                latest = copy;
+                latestVersion = version;
+            }
+        }
+        return latest;
+    }
+
+    private static void putPageHeader(ByteBuffer buffer, long version, int prefix, int depth, int parent, int parentDepth) {
+        buffer.putLong(0, version).putInt(PREFIX, prefix).putInt(DEPTH, depth).putInt(PARENT, parent).putInt(PARENT_DEPTH, parentDepth)
+                .putInt(PAGE_HEADER_COPY_SIZE - Integer.BYTES, checksum(buffer.array(), 0, PAGE_HEADER_COPY_SIZE - Integer.BYTES));
+    }
+
+    private static UUID keyAt(ByteBuffer page, int copy) {
+        return new UUID(page.getLong(copy + Long.BYTES + 1), page.getLong(copy + Long.BYTES + 1 + Long.BYTES));
+    }
+
+    private ByteBuffer readPage(int pageIndex) throws IOException {
+        ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        readFully(page, pageOffset(pageIndex));
+        pageReads.increment();
+        return page;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static long pageOffset(int pageIndex) {
+        return (long) PAGE_SIZE * (pageIndex + 1);
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static long hash(UUID id) {
+        long hash = id.getMostSignificantBits() ^ Long.rotateLeft(id.getLeastSignificantBits(), 32);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * The pages of the hash suffixes of {@code depth} bits. Entries are changed in place by splits, which readers
+     * detect through the split counter.
+     */
+    private record Directory(int depth, int[] pages) {
+
+        private int pageOf(long hash) {
+            return pages[(int) (hash & ((1L << depth) - 1))];
+        }
+    }
+}
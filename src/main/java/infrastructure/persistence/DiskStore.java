@@ -0,0 +1,95 @@
+package infrastructure.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Keeps users and accounts on disk, each in a {@link DiskHashFile} of a directory, and provides the repositories
+ * over them. The two repositories refer to each other: accounts are loaded together with their users, and deleting
+ * a user deletes the user's accounts.
+ */
+public class DiskStore implements Closeable {
+
+    private static final String USERS_FILE = "users.db";
+    private static final String ACCOUNTS_FILE = "accounts.db";
+    private static final String ACCOUNTS_FILTER_FILE = "accounts.filter";
+
+    private final DiskHashFile userFile;
+    private final DiskHashFile accountFile;
+    private final DiskUserRepository userRepository;
+    private final DiskAccountRepository accountRepository;
+
+    private DiskStore(DiskHashFile userFile, DiskHashFile accountFile, Path accountFilter) throws IOException {
+        this.userFile = userFile;
+        this.accountFile = accountFile;
+        this.userRepository = new DiskUserRepository(userFile, this);
+        try {
+            this.accountRepository = new DiskAccountRepository(accountFile, accountFilter, this);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the store in a directory, creating the files that do not exist. The repositories refer back to the
+     * store, so it is only constructed here rather than by a public constructor.
+     *
+     * @param directory The directory holding the files.
+     * @param sync      Whether every save is forced to the storage device before it returns.
+     * @return The opened store.
+     * @throws IOException If the files cannot be opened or read.
+     */
+    public static DiskStore open(Path directory, boolean sync) throws IOException {
+        Files.createDirectories(directory);
+        DiskHashFile userFile = DiskHashFile.open(directory.resolve(USERS_FILE), DiskUserRepository.PAYLOAD_SIZE, sync);
+        DiskHashFile accountFile;
+        try {
+            accountFile = DiskHashFile.open(directory.resolve(ACCOUNTS_FILE), DiskAccountRepository.PAYLOAD_SIZE, sync);
+        } catch (IOException e) {
+            userFile.close();
+            throw e;
+        }
+        return new DiskStore(userFile, accountFile, directory.resolve(ACCOUNTS_FILTER_FILE));
+    }
+
+    public DiskUserRepository getUserRepository() {
+        return userRepository;
+    }
+
+    public DiskAccountRepository getAccountRepository() {
+        return accountRepository;
+    }
+
+    /**
+     * Forces all saves to the storage device.
+     *
+     * @throws IOException If a file cannot be forced.
+     */
+    public void flush() throws IOException {
+        userFile.flush();
+        accountFile.flush();
+    }
+
+    /**
+     * Writes the filter of the account IDs for the next start, then forces and closes both files.
+     *
+     * @throws IOException If the filter cannot be written or a file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (accountRepository != null) {
+                accountRepository.writeFilter();
+            }
+        } finally {
+            try {
+                accountFile.close();
+            } finally {
+                userFile.close();
+            }
+        }
+    }
+}
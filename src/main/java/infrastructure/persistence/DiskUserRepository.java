@@ -0,0 +1,145 @@
+package infrastructure.persistence;
+
+import application.models.Account;
+import application.models.User;
+import application.repositories.UserRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * This class implements the UserRepository interface over a {@link DiskHashFile}, so looking up a user reads at most
+ * one page. Users are stored in fixed-size records, which limits usernames and passwords to
+ * {@value #MAX_STRING_BYTES} bytes of UTF-8 each. It is created by a {@link DiskStore}.
+ */
+public class DiskUserRepository implements UserRepository {
+
+    /**
+     * The longest username or password that can be stored, in bytes of UTF-8.
+     */
+    public static final int MAX_STRING_BYTES = 64;
+
+    static final int PAYLOAD_SIZE = Integer.BYTES * 2 + (Short.BYTES + MAX_STRING_BYTES) * 2;
+
+    private final DiskHashFile file;
+    private final DiskStore store;
+    private final LiveObjects<User> users = new LiveObjects<>();
+
+    DiskUserRepository(DiskHashFile file, DiskStore store) {
+        this.file = file;
+        this.store = store;
+    }
+
+    /**
+     * Retrieves a list of accounts associated with the given user.
+     *
+     * @param user The user whose accounts are to be retrieved.
+     * @return A list of accounts associated with the given user.
+     */
+    @Override
+    public List<Account> getAccounts(User user) {
+        return store.getAccountRepository().getAccountsByUser(user);
+    }
+
+    /**
+     * Retrieves a user by ID, returning the same object as long as it is in use.
+     *
+     * @param id The unique ID of the user to be retrieved.
+     * @return The user with the given unique ID, or null if no such user exists.
+     */
+    @Override
+    public User getUserByUID(UUID id) {
+        User user = users.get(id);
+        if (user != null) {
+            return user;
+        }
+        try {
+            ByteBuffer record = file.get(id);
+            return record == null ? null : users.register(id, decode(id, record));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Retrieves all users by scanning the file.
+     *
+     * @return A list of all users.
+     */
+    @Override
+    public List<User> getAllUsers() {
+        List<User> result = new ArrayList<>();
+        try {
+            file.forEach((id, record) -> {
+                User user = users.get(id);
+                result.add(user != null ? user : users.register(id, decode(id, record)));
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Saves a user, overwriting its record in place if it is already stored.
+     *
+     * @param user The user to be saved.
+     * @throws IllegalArgumentException If the username or password is too long to be stored.
+     */
+    @Override
+    public void save(User user) {
+        ByteBuffer record = ByteBuffer.allocate(PAYLOAD_SIZE);
+        record.putInt(user.getNumberOfAccounts()).putInt(user.getMaxNumberOfAccounts());
+        putString(record, user.getUsername(), "Username");
+        putString(record, user.getPassword(), "Password");
+        try {
+            file.put(user.getUserId(), record.flip());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        users.put(user.getUserId(), user);
+    }
+
+    /**
+     * Deletes a user and all associated accounts.
+     *
+     * @param user The user to be deleted.
+     */
+    @Override
+    public void delete(User user) {
+        try {
+            file.remove(user.getUserId());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        users.remove(user.getUserId());
+        store.getAccountRepository().deleteAllUsersAccount(user);
+    }
+
+    private static User decode(UUID id, ByteBuffer record) {
+        int numberOfAccounts = record.getInt();
+        int maxNumberOfAccounts = record.getInt();
+        String username = getString(record);
+        String password = getString(record);
+        return new User(id, username, password, numberOfAccounts, maxNumberOfAccounts);
+    }
+
+    private static void putString(ByteBuffer record, String value, String name) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException(name + " longer than " + MAX_STRING_BYTES + " bytes");
+        }
+        record.putShort((short) bytes.length).put(bytes).position(record.position() + MAX_STRING_BYTES - bytes.length);
+    }
+
+    private static String getString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getShort()];
+        record.get(bytes).position(record.position() + MAX_STRING_BYTES - bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
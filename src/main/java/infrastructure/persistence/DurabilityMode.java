@@ -0,0 +1,24 @@
+package infrastructure.persistence;
+
+/**
+ * Defines when records appended to a {@link WriteAheadLog} are forced to the storage device.
+ */
+public enum DurabilityMode {
+
+    /**
+     * Every append is written and forced before it returns. Safest and slowest.
+     */
+    FSYNC_PER_OPERATION,
+
+    /**
+     * Appends from concurrent writers are collected into batches and one force covers the whole batch.
+     * An append returns once its batch is durable.
+     */
+    GROUP_COMMIT,
+
+    /**
+     * Appends return immediately and are written and forced in the background.
+     * Records appended within the last flush interval may be lost on a crash.
+     */
+    ASYNC
+}
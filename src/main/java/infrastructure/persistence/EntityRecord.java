@@ -0,0 +1,179 @@
+package infrastructure.persistence;
+
+import application.models.Account;
+import application.models.FixedPointAccount;
+import application.models.User;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * The record of a created or deleted user or account in a {@link WriteAheadLog}, which lets the log rebuild the
+ * users and accounts changed after a snapshot.
+ * <p>
+ * It is framed like a transaction record (see {@link TransactionCodec}) and starts the same way, with
+ * {@code sequence, id, userId}; the byte holding the recipient flag of a transaction holds the kind of the record
+ * instead, offset by {@value #KIND_OFFSET}, so that the two can be told apart. A user record is followed by
+ * {@code username, password, numberOfAccounts, maxNumberOfAccounts}, an account record by
+ * {@code fixedPoint flag, numberOfAccounts of the user}.
+ */
+public class EntityRecord {
+
+    /**
+     * The kind of change a record describes.
+     */
+    public enum Kind {
+        USER_CREATED,
+        ACCOUNT_CREATED,
+        USER_DELETED,
+        ACCOUNT_DELETED
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final int KIND_OFFSET = 2;
+    private static final int KIND_POSITION = Long.BYTES + 16 + 16;
+    private static final int COMMON_SIZE = KIND_POSITION + 1;
+
+    private final long sequence;
+    private final Kind kind;
+    private final UUID id;
+    private final UUID userId;
+    private final String username;
+    private final String password;
+    private final int numberOfAccounts;
+    private final int maxNumberOfAccounts;
+    private final boolean fixedPoint;
+
+    private EntityRecord(long sequence, Kind kind, UUID id, UUID userId, String username, String password,
+                         int numberOfAccounts, int maxNumberOfAccounts, boolean fixedPoint) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.id = id;
+        this.userId = userId;
+        this.username = username;
+        this.password = password;
+        this.numberOfAccounts = numberOfAccounts;
+        this.maxNumberOfAccounts = maxNumberOfAccounts;
+        this.fixedPoint = fixedPoint;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Retrieves the ID of the user or account the record is about.
+     *
+     * @return The ID.
+     */
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    /**
+     * Retrieves the account counter of the user: when the user was created for a user record, or right after the
+     * account was created for an account record.
+     *
+     * @return The number of accounts of the user.
+     */
+    public int getNumberOfAccounts() {
+        return numberOfAccounts;
+    }
+
+    /**
+     * Turns a user record back into a user.
+     *
+     * @return The user.
+     */
+    public User toUser() {
+        return new User(id, username, password, numberOfAccounts, maxNumberOfAccounts);
+    }
+
+    /**
+     * Turns an account record back into an account with a zero balance, to which the logged transactions of the
+     * account are then applied.
+     *
+     * @param user The user of the account.
+     * @return The account.
+     */
+    public Account toAccount(User user) {
+        return fixedPoint ? new FixedPointAccount(id, user, 0) : new Account(id, user, BigDecimal.ZERO);
+    }
+
+    /**
+     * Checks whether a verified record payload holds an entity record rather than a transaction.
+     *
+     * @param payload The payload.
+     * @return True for an entity record.
+     */
+    static boolean isEntityRecord(ByteBuffer payload) {
+        return payload.get(payload.position() + KIND_POSITION) >= KIND_OFFSET;
+    }
+
+    static ByteBuffer encodeUser(long sequence, User user) {
+        byte[] username = user.getUsername().getBytes(StandardCharsets.UTF_8);
+        byte[] password = user.getPassword().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = start(sequence, Kind.USER_CREATED, user.getUserId(), user.getUserId(),
+                Integer.BYTES * 4 + username.length + password.length);
+        buffer.putInt(username.length).put(username).putInt(password.length).put(password);
+        buffer.putInt(user.getNumberOfAccounts()).putInt(user.getMaxNumberOfAccounts());
+        return finish(buffer);
+    }
+
+    static ByteBuffer encodeAccount(long sequence, Account account) {
+        ByteBuffer buffer = start(sequence, Kind.ACCOUNT_CREATED, account.getAccountId(), account.getUser().getUserId(), 1 + Integer.BYTES);
+        buffer.put((byte) (account instanceof FixedPointAccount ? 1 : 0)).putInt(account.getUser().getNumberOfAccounts());
+        return finish(buffer);
+    }
+
+    static ByteBuffer encodeDeletion(long sequence, Kind kind, UUID id, UUID userId) {
+        return finish(start(sequence, kind, id, userId, 0));
+    }
+
+    static EntityRecord decode(ByteBuffer payload) {
+        long sequence = payload.getLong();
+        UUID id = new UUID(payload.getLong(), payload.getLong());
+        UUID userId = new UUID(payload.getLong(), payload.getLong());
+        Kind kind = KINDS[payload.get() - KIND_OFFSET];
+        return switch (kind) {
+            case USER_CREATED -> new EntityRecord(sequence, kind, id, userId, getString(payload), getString(payload),
+                    payload.getInt(), payload.getInt(), false);
+            case ACCOUNT_CREATED -> {
+                boolean fixedPoint = payload.get() == 1;
+                yield new EntityRecord(sequence, kind, id, userId, null, null, payload.getInt(), 0, fixedPoint);
+            }
+            case USER_DELETED, ACCOUNT_DELETED -> new EntityRecord(sequence, kind, id, userId, null, null, 0, 0, false);
+        };
+    }
+
+    private static ByteBuffer start(long sequence, Kind kind, UUID id, UUID userId, int bodySize) {
+        int payloadLength = COMMON_SIZE + bodySize;
+        ByteBuffer buffer = ByteBuffer.allocate(TransactionCodec.HEADER_SIZE + payloadLength);
+        buffer.putInt(payloadLength).putInt(0).putLong(sequence);
+        buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+        buffer.putLong(userId.getMostSignificantBits()).putLong(userId.getLeastSignificantBits());
+        return buffer.put((byte) (kind.ordinal() + KIND_OFFSET));
+    }
+
+    private static ByteBuffer finish(ByteBuffer buffer) {
+        int payloadLength = buffer.capacity() - TransactionCodec.HEADER_SIZE;
+        buffer.putInt(Integer.BYTES, TransactionCodec.checksum(buffer.array(), TransactionCodec.HEADER_SIZE, payloadLength));
+        return buffer.flip();
+    }
+
+    private static String getString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getInt()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,52 @@
+package infrastructure.persistence;
+
+import application.audit.AuditEvent;
+import application.audit.AuditSink;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * This class implements the AuditSink interface by appending the events to a text file, one
+ * {@code timestamp,accountId,type} line per event. Every batch is flushed once, so the file is written
+ * at the pace of the audit thread rather than of the audited calls.
+ */
+public class FileAuditSink implements AuditSink, Closeable {
+
+    private final BufferedWriter writer;
+
+    /**
+     * Opens the audit file, creating it if it does not exist.
+     *
+     * @param path The path of the audit file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public FileAuditSink(Path path) throws IOException {
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public void write(List<AuditEvent> events) throws IOException {
+        for (AuditEvent event : events) {
+            writer.write(Long.toString(event.getTimestamp()));
+            writer.write(',');
+            writer.write(event.getAccountId().toString());
+            writer.write(',');
+            writer.write(event.getType().name());
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,81 @@
+package infrastructure.persistence;
+
+import application.posting.PostingCheckpoint;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+
+/**
+ * This class implements the PostingCheckpoint interface in a small file holding the run identifier and the set of
+ * completed partitions. Every update rewrites a temporary file and moves it over the checkpoint atomically, so a crash
+ * leaves either the old or the new checkpoint. Losing the last update is harmless: posting records have deterministic
+ * identifiers, so a partition posted again skips the accounts it already posted.
+ */
+public class FilePostingCheckpoint implements PostingCheckpoint {
+
+    private final Path file;
+    private final String runId;
+    private final BitSet completed;
+
+    /**
+     * Opens the checkpoint of a run, starting a new one if the file does not exist.
+     *
+     * @param file  The checkpoint file.
+     * @param runId The identifier of the run.
+     * @throws IOException           If the file cannot be read.
+     * @throws IllegalStateException If the file belongs to another run.
+     */
+    public FilePostingCheckpoint(Path file, String runId) throws IOException {
+        this.file = file;
+        this.runId = runId;
+        if (Files.exists(file)) {
+            try (InputStream stream = Files.newInputStream(file); DataInputStream in = new DataInputStream(stream)) {
+                String storedRunId = in.readUTF();
+                if (!storedRunId.equals(runId)) {
+                    throw new IllegalStateException("Checkpoint " + file + " belongs to run " + storedRunId);
+                }
+                long[] words = new long[in.readInt()];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = in.readLong();
+                }
+                this.completed = BitSet.valueOf(words);
+            }
+        } else {
+            this.completed = new BitSet();
+        }
+    }
+
+    @Override
+    public String getRunId() {
+        return runId;
+    }
+
+    @Override
+    public synchronized boolean isCompleted(int partition) {
+        return completed.get(partition);
+    }
+
+    @Override
+    public synchronized void markCompleted(int partition) throws IOException {
+        completed.set(partition);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(runId);
+            long[] words = completed.toLongArray();
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, bytes.toByteArray());
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
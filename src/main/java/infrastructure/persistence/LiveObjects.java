@@ -0,0 +1,96 @@
+package infrastructure.persistence;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The objects loaded from a disk repository that are still in use, so that a record is represented by one object
+ * for as long as anyone holds it. Operations change accounts and users in place before saving them, so two objects
+ * for the same record would overwrite each other's changes. Objects nobody holds anymore are forgotten and loaded
+ * again on the next lookup.
+ *
+ * @param <T> The type of the objects.
+ */
+final class LiveObjects<T> {
+
+    private final Map<UUID, Entry<T>> objects = new ConcurrentHashMap<>();
+    private final ReferenceQueue<T> collected = new ReferenceQueue<>();
+
+    /**
+     * Retrieves the object in use for a record.
+     *
+     * @param id The identifier of the record.
+     * @return The object, or null if no object of the record is in use.
+     */
+    T get(UUID id) {
+        expunge();
+        Entry<T> entry = objects.get(id);
+        return entry == null ? null : entry.get();
+    }
+
+    /**
+     * Registers an object just loaded for a record, unless another thread registered one first.
+     *
+     * @param id     The identifier of the record.
+     * @param object The loaded object.
+     * @return The object to use for the record.
+     */
+    T register(UUID id, T object) {
+        expunge();
+        while (true) {
+            Entry<T> entry = objects.get(id);
+            T existing = entry == null ? null : entry.get();
+            if (existing != null) {
+                return existing;
+            }
+            Entry<T> created = new Entry<>(id, object, collected);
+            if (entry == null ? objects.putIfAbsent(id, created) == null : objects.replace(id, entry, created)) {
+                return object;
+            }
+        }
+    }
+
+    /**
+     * Makes an object the one in use for a record, e.g. after it was saved.
+     *
+     * @param id     The identifier of the record.
+     * @param object The object.
+     */
+    void put(UUID id, T object) {
+        expunge();
+        Entry<T> entry = objects.get(id);
+        if (entry == null || entry.get() != object) {
+            objects.put(id, new Entry<>(id, object, collected));
+        }
+    }
+
+    /**
+     * Forgets the object of a deleted record.
+     *
+     * @param id The identifier of the record.
+     */
+    void remove(UUID id) {
+        objects.remove(id);
+    }
+
+    private void expunge() {
+        Object reference;
+        while ((reference = collected.poll()) != null) {
+            Entry<?> entry = (Entry<?>) reference;
+            objects.remove(entry.id, entry);
+        }
+    }
+
+    private static final class Entry<T> extends WeakReference<T> {
+
+        private final UUID id;
+
+        private Entry(UUID id, T object, ReferenceQueue<T> queue) {
+            super(object, queue);
+            this.id = id;
+        }
+    }
+}
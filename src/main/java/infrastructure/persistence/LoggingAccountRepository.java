@@ -0,0 +1,99 @@
+package infrastructure.persistence;
+
+import application.models.Account;
+import application.models.User;
+import application.repositories.AccountRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An {@link AccountRepository} that records the creation and deletion of accounts in a {@link WriteAheadLog}, so
+ * that accounts changed after the last snapshot are recovered by replaying the log.
+ * <p>
+ * A change is made in the underlying repository before it is logged. A snapshot taken in between may then contain
+ * a change whose record lies after the snapshot's position, which replay skips, but never misses a change whose
+ * record it precedes. Saves of accounts that are already stored, i.e. balance changes, are not logged here, since
+ * their transactions are.
+ */
+public class LoggingAccountRepository implements AccountRepository {
+
+    private final AccountRepository delegate;
+    private final WriteAheadLog log;
+
+    /**
+     * Constructs a repository logging the changes made to another one.
+     *
+     * @param delegate The repository holding the accounts.
+     * @param log      The log to record creations and deletions in.
+     */
+    public LoggingAccountRepository(AccountRepository delegate, WriteAheadLog log) {
+        this.delegate = delegate;
+        this.log = log;
+    }
+
+    @Override
+    public Account findById(UUID accountId) {
+        return delegate.findById(accountId);
+    }
+
+    /**
+     * Saves an account, logging it if it is new. If it cannot be logged, the new account is removed again.
+     *
+     * @param account The account to save.
+     * @throws java.io.UncheckedIOException If the log cannot be written.
+     */
+    @Override
+    public void save(Account account) {
+        if (delegate.exists(account.getAccountId())) {
+            delegate.save(account);
+            return;
+        }
+        delegate.save(account);
+        try {
+            log.appendAccount(account);
+        } catch (RuntimeException e) {
+            delegate.delete(account);
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(Account account) {
+        delegate.delete(account);
+        log.appendAccountDeletion(account);
+    }
+
+    @Override
+    public boolean exists(UUID accountId) {
+        return delegate.exists(accountId);
+    }
+
+    @Override
+    public List<Account> getAccountsByUser(User user) {
+        return delegate.getAccountsByUser(user);
+    }
+
+    @Override
+    public List<Account> getAllAccounts() {
+        return delegate.getAllAccounts();
+    }
+
+    /**
+     * Deletes all accounts of a user, logged as one record per account.
+     *
+     * @param user The user whose accounts to delete.
+     */
+    @Override
+    public void deleteAllUsersAccount(User user) {
+        for (Account account : delegate.getAccountsByUser(user)) {
+            delete(account);
+        }
+    }
+
+    @Override
+    public BigDecimal getBalance(Account account) {
+        return delegate.getBalance(account);
+    }
+}
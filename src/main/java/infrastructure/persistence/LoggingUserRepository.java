@@ -0,0 +1,72 @@
+package infrastructure.persistence;
+
+import application.models.Account;
+import application.models.User;
+import application.repositories.UserRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A {@link UserRepository} that records the creation and deletion of users in a {@link WriteAheadLog}, in the same
+ * way as {@link LoggingAccountRepository} does for accounts. Deleting a user also deletes the user's accounts, both
+ * in the underlying repository and when the log is replayed.
+ */
+public class LoggingUserRepository implements UserRepository {
+
+    private final UserRepository delegate;
+    private final WriteAheadLog log;
+
+    /**
+     * Constructs a repository logging the changes made to another one.
+     *
+     * @param delegate The repository holding the users.
+     * @param log      The log to record creations and deletions in.
+     */
+    public LoggingUserRepository(UserRepository delegate, WriteAheadLog log) {
+        this.delegate = delegate;
+        this.log = log;
+    }
+
+    @Override
+    public List<Account> getAccounts(User user) {
+        return delegate.getAccounts(user);
+    }
+
+    @Override
+    public User getUserByUID(UUID id) {
+        return delegate.getUserByUID(id);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    /**
+     * Saves a user, logging it if it is new. If it cannot be logged, the new user is removed again.
+     *
+     * @param user The user to save.
+     * @throws java.io.UncheckedIOException If the log cannot be written.
+     */
+    @Override
+    public void save(User user) {
+        if (delegate.getUserByUID(user.getUserId()) != null) {
+            delegate.save(user);
+            return;
+        }
+        delegate.save(user);
+        try {
+            log.appendUser(user);
+        } catch (RuntimeException e) {
+            delegate.delete(user);
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(User user) {
+        delegate.delete(user);
+        log.appendUserDeletion(user);
+    }
+}
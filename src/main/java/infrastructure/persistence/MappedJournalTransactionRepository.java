@@ -0,0 +1,346 @@
+package infrastructure.persistence;
+
+import application.models.Account;
+import application.models.Money;
+import application.models.Page;
+import application.models.PageCursor;
+import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import infrastructure.UuidIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32C;
+
+/**
+ * A {@link TransactionRepository} over a journal of memory-mapped segment files with fixed-width records.
+ * <p>
+ * A record takes {@value #RECORD_SIZE} bytes: the account, recipient and transaction UUIDs as two longs each,
+ * the amount in minor units (see {@link Money}), the timestamp as epoch nanoseconds (UTC) and a header word
+ * holding the type and a CRC32C checksum of the record. The header is written last with release semantics and a
+ * zero header marks a free slot, so to readers in the same process a record is either fully visible or not at all.
+ * When a segment is full, the next one is created.
+ * <p>
+ * Nothing is forced to disk before the journal is closed, and records straddle OS pages, so after a crash a header
+ * may have reached the disk without the rest of its record. Opening the journal stops at the first record whose
+ * checksum does not match and clears the headers after it.
+ * <p>
+ * Reads decode fields straight from the mapping and leave caching to the OS page cache. Only a primitive
+ * {@link UuidIndex} from transaction ID to record number is kept on the heap, rebuilt when the journal is opened.
+ */
+public class MappedJournalTransactionRepository implements TransactionRepository, AutoCloseable {
+
+    /**
+     * The size of one record in bytes.
+     */
+    public static final int RECORD_SIZE = 72;
+
+    /**
+     * The default number of records per segment file.
+     */
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 20;
+
+    private static final int ACCOUNT = 0;
+    private static final int RECIPIENT = 16;
+    private static final int ID = 32;
+    private static final int AMOUNT = 48;
+    private static final int TIMESTAMP = 56;
+    private static final int HEADER = 64;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path directory;
+    private final AccountRepository accountRepository;
+    private final int recordsPerSegment;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final UuidIndex idIndex = new UuidIndex();
+    private volatile long size;
+
+    /**
+     * Opens or creates a journal with the default segment size.
+     *
+     * @param directory         The directory holding the segment files.
+     * @param accountRepository The repository used to resolve the accounts of journaled transactions.
+     * @throws IOException If the segments cannot be created or mapped.
+     */
+    public MappedJournalTransactionRepository(Path directory, AccountRepository accountRepository) throws IOException {
+        this(directory, accountRepository, DEFAULT_RECORDS_PER_SEGMENT);
+    }
+
+    /**
+     * Opens or creates a journal.
+     *
+     * @param directory         The directory holding the segment files.
+     * @param accountRepository The repository used to resolve the accounts of journaled transactions.
+     * @param recordsPerSegment The number of records per segment file; must match the existing segments.
+     * @throws IOException If the segments cannot be created or mapped.
+     */
+    public MappedJournalTransactionRepository(Path directory, AccountRepository accountRepository, int recordsPerSegment) throws IOException {
+        if (recordsPerSegment <= 0 || recordsPerSegment > Integer.MAX_VALUE / RECORD_SIZE) {
+            throw new IllegalArgumentException("Records per segment out of range: " + recordsPerSegment);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.accountRepository = accountRepository;
+        this.recordsPerSegment = recordsPerSegment;
+        open();
+    }
+
+    /**
+     * Writes a transaction into the next free slot of the journal.
+     *
+     * @param transaction The transaction to be saved.
+     * @throws IllegalArgumentException If the amount cannot be represented in minor units.
+     * @throws UncheckedIOException     If a new segment cannot be created.
+     */
+    @Override
+    public synchronized void save(Transaction transaction) {
+        long amount = Money.toMinorUnits(transaction.getAmount());
+        long record = size;
+        MappedByteBuffer segment = segmentFor(record);
+        int offset = offset(record);
+        putUuid(segment, offset + ACCOUNT, transaction.getAccount().getAccountId());
+        putUuid(segment, offset + RECIPIENT, transaction.getRecipient() == null ? null : transaction.getRecipient().getAccountId());
+        putUuid(segment, offset + ID, transaction.getId());
+        segment.putLong(offset + AMOUNT, amount);
+        segment.putLong(offset + TIMESTAMP, toEpochNanos(transaction.getDate()));
+        int type = transaction.getType().ordinal() + 1;
+        LONGS.setRelease(segment, offset + HEADER, (long) checksum(segment, offset, type) << 32 | type);
+        idIndex.put(transaction.getId(), record);
+        size = record + 1;
+    }
+
+    /**
+     * Saves several transactions under a single acquisition of the write lock.
+     *
+     * @param transactions The transactions to be saved.
+     */
+    @Override
+    public synchronized void saveAll(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            save(transaction);
+        }
+    }
+
+    /**
+     * Retrieves the transactions of an account, including incoming transfers,
+     * by scanning the account columns of every record in the mapping.
+     *
+     * @param account The account for which transactions are to be retrieved.
+     * @return A list of the account's transactions in journal order.
+     */
+    @Override
+    public List<Transaction> getAccountTransactions(Account account) {
+        long mostBits = account.getAccountId().getMostSignificantBits();
+        long leastBits = account.getAccountId().getLeastSignificantBits();
+        List<Transaction> result = new ArrayList<>();
+        long end = size;
+        for (long record = 0; record < end; record++) {
+            MappedByteBuffer segment = segments.get(segmentIndex(record));
+            int offset = offset(record);
+            boolean own = segment.getLong(offset + ACCOUNT) == mostBits && segment.getLong(offset + ACCOUNT + 8) == leastBits;
+            boolean incoming = !own && segment.getLong(offset + RECIPIENT) == mostBits && segment.getLong(offset + RECIPIENT + 8) == leastBits
+                    && type(segment, offset) == TransactionType.TRANSFER;
+            if (own || incoming) {
+                Transaction transaction = read(record);
+                if (transaction != null) {
+                    result.add(transaction);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Transaction getTransactionByID(UUID id) {
+        long record = idIndex.get(id);
+        return record < 0 ? null : read(record);
+    }
+
+    /**
+     * Retrieves all transactions whose accounts still exist, in journal order.
+     *
+     * @return A list of all transactions.
+     */
+    @Override
+    public List<Transaction> getAllTransactions() {
+        List<Transaction> result = new ArrayList<>();
+        long end = size;
+        for (long record = 0; record < end; record++) {
+            Transaction transaction = read(record);
+            if (transaction != null) {
+                result.add(transaction);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves one page of all transactions by decoding only the records of that page.
+     * Records whose account no longer exists are skipped, so a page may be shorter than requested.
+     *
+     * @param cursor   The cursor returned with the previous page, or {@code null} for the first page.
+     * @param pageSize The maximal number of transactions on the page.
+     * @return The requested page and the cursor of the next one.
+     */
+    @Override
+    public Page<Transaction> getTransactions(String cursor, int pageSize) {
+        Page.validateSize(pageSize);
+        long from = PageCursor.decode(cursor);
+        long end = size;
+        long to = Math.min(end, from + pageSize);
+        List<Transaction> items = new ArrayList<>();
+        for (long record = from; record < to; record++) {
+            Transaction transaction = read(record);
+            if (transaction != null) {
+                items.add(transaction);
+            }
+        }
+        return new Page<>(items, to < end ? PageCursor.encode(to) : null);
+    }
+
+    /**
+     * Retrieves the number of records in the journal.
+     *
+     * @return The number of records.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Forces the written records of every segment to the storage device.
+     */
+    public void flush() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Forces the written records to disk. The mappings are released by the garbage collector.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private Transaction read(long record) {
+        MappedByteBuffer segment = segments.get(segmentIndex(record));
+        int offset = offset(record);
+        TransactionType type = type(segment, offset);
+        Account account = accountRepository.findById(getUuid(segment, offset + ACCOUNT));
+        if (account == null) {
+            return null;
+        }
+        UUID recipientId = getUuid(segment, offset + RECIPIENT);
+        Account recipient = recipientId == null ? null : accountRepository.findById(recipientId);
+        return new Transaction(getUuid(segment, offset + ID), account, Money.fromMinorUnits(segment.getLong(offset + AMOUNT)),
+                type, recipient, fromEpochNanos(segment.getLong(offset + TIMESTAMP)));
+    }
+
+    private void open() throws IOException {
+        long record = 0;
+        for (int index = 0; Files.exists(segmentPath(index)); index++) {
+            segments.add(map(index));
+        }
+        if (segments.isEmpty()) {
+            segments.add(map(0));
+        }
+        long capacity = (long) segments.size() * recordsPerSegment;
+        while (record < capacity) {
+            MappedByteBuffer segment = segments.get(segmentIndex(record));
+            int offset = offset(record);
+            long header = (long) LONGS.getAcquire(segment, offset + HEADER);
+            if (header == 0 || (int) (header >>> 32) != checksum(segment, offset, (int) header)) {
+                break;
+            }
+            idIndex.put(getUuid(segment, offset + ID), record);
+            record++;
+        }
+        size = record;
+        for (long torn = record; torn < capacity; torn++) {
+            MappedByteBuffer segment = segments.get(segmentIndex(torn));
+            if ((long) LONGS.getAcquire(segment, offset(torn) + HEADER) == 0) {
+                break;
+            }
+            LONGS.setRelease(segment, offset(torn) + HEADER, 0L);
+        }
+    }
+
+    private MappedByteBuffer segmentFor(long record) {
+        int index = segmentIndex(record);
+        if (index == segments.size()) {
+            try {
+                segments.add(map(index));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return segments.get(index);
+    }
+
+    private MappedByteBuffer map(int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+        }
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("journal-%06d.seg", index));
+    }
+
+    private int segmentIndex(long record) {
+        return (int) (record / recordsPerSegment);
+    }
+
+    private int offset(long record) {
+        return (int) (record % recordsPerSegment) * RECORD_SIZE;
+    }
+
+    private static TransactionType type(MappedByteBuffer segment, int offset) {
+        return TYPES[(int) (long) LONGS.getAcquire(segment, offset + HEADER) - 1];
+    }
+
+    private static int checksum(MappedByteBuffer segment, int offset, int type) {
+        CRC32C crc = new CRC32C();
+        crc.update(segment.slice(offset, HEADER));
+        crc.update(type);
+        return (int) crc.getValue();
+    }
+
+    private static void putUuid(MappedByteBuffer segment, int offset, UUID uuid) {
+        segment.putLong(offset, uuid == null ? 0 : uuid.getMostSignificantBits());
+        segment.putLong(offset + 8, uuid == null ? 0 : uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(MappedByteBuffer segment, int offset) {
+        long mostBits = segment.getLong(offset);
+        long leastBits = segment.getLong(offset + 8);
+        return mostBits == 0 && leastBits == 0 ? null : new UUID(mostBits, leastBits);
+    }
+
+    private static long toEpochNanos(LocalDateTime timestamp) {
+        return Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(ZoneOffset.UTC), NANOS_PER_SECOND), timestamp.getNano());
+    }
+
+    private static LocalDateTime fromEpochNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND), (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+}
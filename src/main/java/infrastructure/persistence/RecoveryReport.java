@@ -0,0 +1,84 @@
+package infrastructure.persistence;
+
+import java.time.Duration;
+
+/**
+ * The outcome of restoring a snapshot and replaying the tail of the log after it.
+ */
+public class RecoveryReport {
+
+    private final long snapshotPosition;
+    private final int restoredUsers;
+    private final int restoredAccounts;
+    private final long replayedRecords;
+    private final long skippedRecords;
+    private final Duration snapshotLoadTime;
+    private final Duration replayTime;
+
+    /**
+     * Constructs a new recovery report.
+     *
+     * @param snapshotPosition The log position the restored snapshot starts replay from, or 0 without a snapshot.
+     * @param restoredUsers    The number of users restored from the snapshot.
+     * @param restoredAccounts The number of accounts restored from the snapshot.
+     * @param replayedRecords  The number of log records applied to the restored users, accounts and balances.
+     * @param skippedRecords   The number of log records not applied because their account is unknown or funds were short.
+     * @param snapshotLoadTime The time spent reading the snapshot.
+     * @param replayTime       The time spent replaying the log tail.
+     */
+    public RecoveryReport(long snapshotPosition, int restoredUsers, int restoredAccounts, long replayedRecords,
+                          long skippedRecords, Duration snapshotLoadTime, Duration replayTime) {
+        this.snapshotPosition = snapshotPosition;
+        this.restoredUsers = restoredUsers;
+        this.restoredAccounts = restoredAccounts;
+        this.replayedRecords = replayedRecords;
+        this.skippedRecords = skippedRecords;
+        this.snapshotLoadTime = snapshotLoadTime;
+        this.replayTime = replayTime;
+    }
+
+    public long getSnapshotPosition() {
+        return snapshotPosition;
+    }
+
+    public int getRestoredUsers() {
+        return restoredUsers;
+    }
+
+    public int getRestoredAccounts() {
+        return restoredAccounts;
+    }
+
+    public long getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    public long getSkippedRecords() {
+        return skippedRecords;
+    }
+
+    public Duration getSnapshotLoadTime() {
+        return snapshotLoadTime;
+    }
+
+    public Duration getReplayTime() {
+        return replayTime;
+    }
+
+    /**
+     * Retrieves the time spent restoring the snapshot and replaying the log tail. Opening the log is not included.
+     *
+     * @return The sum of the snapshot load time and the replay time.
+     */
+    public Duration getTotalTime() {
+        return snapshotLoadTime.plus(replayTime);
+    }
+
+    @Override
+    public String toString() {
+        return "Recovered " + restoredUsers + " users and " + restoredAccounts + " accounts from snapshot at position "
+                + snapshotPosition + " in " + snapshotLoadTime.toMillis() + " ms, replayed " + replayedRecords
+                + " records (" + skippedRecords + " skipped) in " + replayTime.toMillis() + " ms, total "
+                + getTotalTime().toMillis() + " ms";
+    }
+}
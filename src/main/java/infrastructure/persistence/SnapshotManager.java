@@ -0,0 +1,478 @@
+package infrastructure.persistence;
+
+import application.exceptions.NotEnoughFundsException;
+import application.models.Account;
+import application.models.FixedPointAccount;
+import application.models.User;
+import application.repositories.AccountRepository;
+import application.repositories.UserRepository;
+import application.service.AccountLocks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Takes snapshots of the users and account balances and restores them on startup, so that only the tail
+ * of the {@link WriteAheadLog} written after the snapshot has to be replayed.
+ * <p>
+ * Snapshots are fuzzy and never stop writers: accounts are captured one at a time, each under its own
+ * {@link AccountLocks} lock together with the log position at that moment. Since balance changes append their
+ * record and apply it under the same lock, the captured balance contains exactly the records up to that
+ * position. During replay a record is applied to an account only if it lies after the account's position.
+ * <p>
+ * The locks must be the ones the transaction service uses. Users and accounts created or deleted after the
+ * snapshot are rebuilt from the {@link EntityRecord}s in the log tail, which {@link LoggingUserRepository} and
+ * {@link LoggingAccountRepository} write.
+ * <p>
+ * A snapshot is written to a temporary file, forced and atomically renamed to {@code snapshot-<position>.snap},
+ * with a CRC32C trailer. It also holds the file offset of its position in the log, so that the log can be opened
+ * from there without scanning the history before it. Recovery uses the newest snapshot that is intact.
+ * A snapshot that fails in the background is counted and retried at the next tick.
+ */
+public class SnapshotManager implements AutoCloseable {
+
+    /**
+     * The default number of snapshot files kept on disk.
+     */
+    public static final int DEFAULT_RETAINED_SNAPSHOTS = 2;
+
+    private static final int MAGIC = 0x42534E50;
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_OFFSET = 1;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+    private static final byte DECIMAL = 0;
+    private static final byte FIXED_POINT = 1;
+
+    private final Path directory;
+    private final AccountRepository accountRepository;
+    private final UserRepository userRepository;
+    private final AccountLocks locks;
+    private final int retainedSnapshots;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final Map<UUID, Long> restoredSequences = new HashMap<>();
+    private final LongAdder failedSnapshots = new LongAdder();
+    private volatile Exception lastFailure;
+    private long restoredPosition;
+    private WriteAheadLog.Position restoredLogPosition = WriteAheadLog.Position.START;
+    private int restoredUsers;
+    private Duration snapshotLoadTime = Duration.ZERO;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs a snapshot manager keeping the default number of snapshots.
+     *
+     * @param directory         The directory holding the snapshot files.
+     * @param accountRepository The repository whose accounts are snapshotted and restored.
+     * @param userRepository    The repository whose users are snapshotted and restored.
+     * @param locks             The locks the transaction service guards balance changes with.
+     * @throws IOException If the directory cannot be created.
+     */
+    public SnapshotManager(Path directory, AccountRepository accountRepository, UserRepository userRepository, AccountLocks locks) throws IOException {
+        this(directory, accountRepository, userRepository, locks, DEFAULT_RETAINED_SNAPSHOTS);
+    }
+
+    /**
+     * Constructs a snapshot manager.
+     *
+     * @param directory         The directory holding the snapshot files.
+     * @param accountRepository The repository whose accounts are snapshotted and restored.
+     * @param userRepository    The repository whose users are snapshotted and restored.
+     * @param locks             The locks the transaction service guards balance changes with.
+     * @param retainedSnapshots The number of snapshot files kept on disk, at least one.
+     * @throws IOException If the directory cannot be created.
+     */
+    public SnapshotManager(Path directory, AccountRepository accountRepository, UserRepository userRepository,
+                           AccountLocks locks, int retainedSnapshots) throws IOException {
+        if (retainedSnapshots <= 0) {
+            throw new IllegalArgumentException("At least one snapshot must be retained: " + retainedSnapshots);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.accountRepository = accountRepository;
+        this.userRepository = userRepository;
+        this.locks = locks;
+        this.retainedSnapshots = retainedSnapshots;
+    }
+
+    /**
+     * Writes a snapshot of all users and accounts while operations keep running.
+     *
+     * @param log The log whose positions the snapshot refers to.
+     * @return The position from which the log has to be replayed on top of this snapshot.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public long takeSnapshot(WriteAheadLog log) throws IOException {
+        snapshotLock.lock();
+        try {
+            WriteAheadLog.Position logPosition = log.position();
+            long position = logPosition.sequence();
+            // Accounts are listed before the user counters are read, so a counter never falls behind its accounts.
+            List<Account> accounts = accountRepository.getAllAccounts();
+            Map<UUID, User> users = new LinkedHashMap<>();
+            for (User user : userRepository.getAllUsers()) {
+                users.put(user.getUserId(), user);
+            }
+            for (Account account : accounts) {
+                users.putIfAbsent(account.getUser().getUserId(), account.getUser());
+            }
+            Path target = directory.resolve(String.format(PREFIX + "%020d" + SUFFIX, position));
+            Path temporary = directory.resolve(target.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                CRC32C crc = new CRC32C();
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)), crc));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(position);
+                out.writeLong(logPosition.offset());
+                out.writeInt(users.size());
+                for (User user : users.values()) {
+                    writeUuid(out, user.getUserId());
+                    out.writeUTF(user.getUsername());
+                    out.writeUTF(user.getPassword());
+                    out.writeInt(user.getNumberOfAccounts());
+                    out.writeInt(user.getMaxNumberOfAccounts());
+                }
+                out.writeInt(accounts.size());
+                for (Account account : accounts) {
+                    writeAccount(out, account, log);
+                }
+                out.writeInt((int) crc.getValue());
+                out.flush();
+                channel.force(true);
+            }
+            // The snapshot must never be ahead of what the log holds durably.
+            log.flush();
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            forceDirectory();
+            deleteOldSnapshots();
+            return position;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Takes a snapshot at a fixed rate on a background thread until the manager is closed.
+     * A failed snapshot is counted (see {@link #getFailedSnapshots()}) and retried at the next tick.
+     *
+     * @param log      The log whose positions the snapshots refer to.
+     * @param interval The time between two snapshots.
+     */
+    public synchronized void start(WriteAheadLog log, Duration interval) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Snapshots are already scheduled");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-" + directory.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                takeSnapshot(log);
+            } catch (IOException | UncheckedIOException e) {
+                lastFailure = e;
+                failedSnapshots.increment();
+            }
+        }, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Loads the newest intact snapshot into the repositories. This must happen before the log is opened, so that
+     * it can be opened from {@link #getRestoredLogPosition()}. Without a snapshot nothing is restored and the whole
+     * log is replayed.
+     *
+     * @throws IOException If the snapshot directory cannot be listed.
+     */
+    public void restore() throws IOException {
+        long start = System.nanoTime();
+        for (Path snapshot : listSnapshots().reversed()) {
+            try {
+                load(snapshot);
+                break;
+            } catch (IOException e) {
+                // A damaged snapshot is passed over in favour of an older one.
+            }
+        }
+        snapshotLoadTime = Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Retrieves the position in the log of the restored snapshot, from which the log can be opened.
+     *
+     * @return The position, or the start of the log without a snapshot.
+     */
+    public WriteAheadLog.Position getRestoredLogPosition() {
+        return restoredLogPosition;
+    }
+
+    /**
+     * Applies the records written after the restored snapshot to the users, accounts and balances.
+     *
+     * @param log The log the snapshot refers to.
+     * @return The report of the whole recovery, including the time spent in {@link #restore()}.
+     * @throws IOException If the log cannot be read.
+     */
+    public RecoveryReport replay(WriteAheadLog log) throws IOException {
+        long start = System.nanoTime();
+        long[] counts = new long[2];
+        log.replay(restoredPosition, record -> counts[apply(record) ? 0 : 1]++, record -> counts[apply(record) ? 0 : 1]++);
+        return new RecoveryReport(restoredPosition, restoredUsers, restoredSequences.size(), counts[0], counts[1],
+                snapshotLoadTime, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Retrieves the number of scheduled snapshots that failed.
+     *
+     * @return The number of failed snapshots.
+     */
+    public long getFailedSnapshots() {
+        return failedSnapshots.sum();
+    }
+
+    /**
+     * Retrieves the error of the last scheduled snapshot that failed.
+     *
+     * @return The error, or null if no snapshot failed.
+     */
+    public Exception getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Stops scheduled snapshots, waiting for a running one to finish.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    private void writeAccount(DataOutputStream out, Account account, WriteAheadLog log) throws IOException {
+        long sequence;
+        long minorUnits = 0;
+        BigDecimal balance = null;
+        locks.lock(account);
+        try {
+            sequence = log.lastSequence();
+            if (account instanceof FixedPointAccount fixedPoint) {
+                minorUnits = fixedPoint.getMinorUnits();
+            } else {
+                balance = account.getBalance();
+            }
+        } finally {
+            locks.unlock(account);
+        }
+        writeUuid(out, account.getAccountId());
+        writeUuid(out, account.getUser().getUserId());
+        out.writeLong(sequence);
+        if (balance == null) {
+            out.writeByte(FIXED_POINT);
+            out.writeLong(minorUnits);
+        } else {
+            out.writeByte(DECIMAL);
+            byte[] unscaled = balance.unscaledValue().toByteArray();
+            out.writeInt(balance.scale());
+            out.writeInt(unscaled.length);
+            out.write(unscaled);
+        }
+    }
+
+    private void load(Path snapshot) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(Files.newInputStream(snapshot)), crc))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a snapshot: " + snapshot);
+            }
+            int version = in.readInt();
+            if (version != VERSION && version != VERSION_WITHOUT_OFFSET) {
+                throw new IOException("Not a snapshot: " + snapshot);
+            }
+            long position = in.readLong();
+            WriteAheadLog.Position logPosition = version == VERSION ? new WriteAheadLog.Position(position, in.readLong())
+                    : WriteAheadLog.Position.START;
+            Map<UUID, User> users = new HashMap<>();
+            int userCount = in.readInt();
+            for (int i = 0; i < userCount; i++) {
+                User user = new User(readUuid(in), in.readUTF(), in.readUTF(), in.readInt(), in.readInt());
+                users.put(user.getUserId(), user);
+            }
+            int accountCount = in.readInt();
+            List<Account> accounts = new ArrayList<>(accountCount);
+            Map<UUID, Long> sequences = new HashMap<>();
+            for (int i = 0; i < accountCount; i++) {
+                UUID id = readUuid(in);
+                User user = users.get(readUuid(in));
+                sequences.put(id, in.readLong());
+                if (in.readByte() == FIXED_POINT) {
+                    accounts.add(new FixedPointAccount(id, user, in.readLong()));
+                } else {
+                    int scale = in.readInt();
+                    byte[] unscaled = in.readNBytes(in.readInt());
+                    accounts.add(new Account(id, user, new BigDecimal(new BigInteger(unscaled), scale)));
+                }
+            }
+            int expected = (int) crc.getValue();
+            if (in.readInt() != expected) {
+                throw new IOException("Corrupt snapshot: " + snapshot);
+            }
+            for (User user : users.values()) {
+                userRepository.save(user);
+            }
+            for (Account account : accounts) {
+                accountRepository.save(account);
+            }
+            restoredPosition = position;
+            restoredLogPosition = logPosition;
+            restoredUsers = users.size();
+            restoredSequences.putAll(sequences);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt snapshot: " + snapshot, e);
+        }
+    }
+
+    private boolean apply(TransactionRecord record) {
+        Account account = accountRepository.findById(record.getAccountId());
+        if (account == null) {
+            return false;
+        }
+        boolean pending = isPending(record, account);
+        try {
+            switch (record.getType()) {
+                case DEPOSIT, INTEREST -> {
+                    if (pending) {
+                        account.deposit(record.getAmount());
+                    }
+                }
+                case WITHDRAWAL, FEE -> {
+                    if (pending) {
+                        account.withdrawal(record.getAmount());
+                    }
+                }
+                case TRANSFER -> {
+                    if (pending) {
+                        account.withdrawal(record.getAmount());
+                    }
+                    Account recipient = record.getRecipientId() == null ? null : accountRepository.findById(record.getRecipientId());
+                    if (recipient != null && isPending(record, recipient)) {
+                        recipient.deposit(record.getAmount());
+                    }
+                }
+                default -> {
+                }
+            }
+            return true;
+        } catch (NotEnoughFundsException e) {
+            return false;
+        }
+    }
+
+    private boolean apply(EntityRecord record) {
+        switch (record.getKind()) {
+            case USER_CREATED -> {
+                if (userRepository.getUserByUID(record.getId()) == null) {
+                    userRepository.save(record.toUser());
+                }
+            }
+            case ACCOUNT_CREATED -> {
+                User user = userRepository.getUserByUID(record.getUserId());
+                if (user == null) {
+                    return false;
+                }
+                if (accountRepository.findById(record.getId()) == null) {
+                    accountRepository.save(record.toAccount(user));
+                }
+                user.restoreNumberOfAccounts(record.getNumberOfAccounts());
+            }
+            case USER_DELETED -> {
+                User user = userRepository.getUserByUID(record.getId());
+                if (user != null) {
+                    userRepository.delete(user);
+                }
+            }
+            case ACCOUNT_DELETED -> {
+                Account account = accountRepository.findById(record.getId());
+                if (account != null) {
+                    accountRepository.delete(account);
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isPending(TransactionRecord record, Account account) {
+        return record.getSequence() > restoredSequences.getOrDefault(account.getAccountId(), 0L);
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted(Comparator.comparing(file -> file.getFileName().toString()))
+                    .toList();
+        }
+    }
+
+    private void deleteOldSnapshots() throws IOException {
+        List<Path> snapshots = listSnapshots();
+        for (int i = 0; i < snapshots.size() - retainedSnapshots; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform allows opening a directory; the rename is still atomic there.
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
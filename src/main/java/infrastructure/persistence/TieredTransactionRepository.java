@@ -0,0 +1,478 @@
+package infrastructure.persistence;
+
+import application.models.Account;
+import application.models.Page;
+import application.models.PageCursor;
+import application.models.transactions.Transaction;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import infrastructure.InMemoryTransactionRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A {@link TransactionRepository} that keeps recent transactions in memory and moves older ones to compressed
+ * {@link ColdSegment}s on disk, so the heap no longer grows with the whole history.
+ * <p>
+ * The hot tier is a list of generations, each an {@link InMemoryTransactionRepository} of up to a segment's worth of
+ * transactions; only the newest generation receives saves. A background thread evicts the oldest generation as a
+ * whole into a new segment while the hot tier holds more than its budget of transactions, or once the newest
+ * transaction of that generation is older than the maximal age; a generation that does not fill up within that age
+ * is closed anyway. A generation stays visible until its segment is in place, and queries read an immutable view of
+ * both tiers, so they always see every transaction exactly once.
+ * <p>
+ * The hot tier is not durable: {@link #close()} evicts it, and reopening the directory restores the cold tier only.
+ * Accounts of cold records are resolved through the account repository when they are read; records whose account
+ * no longer exists are skipped.
+ */
+public class TieredTransactionRepository implements TransactionRepository, AutoCloseable {
+
+    /**
+     * The default number of transactions the hot tier holds before evicting the oldest generation.
+     */
+    public static final int DEFAULT_MAX_HOT_TRANSACTIONS = 1 << 20;
+
+    /**
+     * The default number of transactions per generation and segment.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 16;
+
+    /**
+     * The default age after which transactions are evicted even within the budget.
+     */
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofDays(1);
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final AccountRepository accountRepository;
+    private final int maxHotTransactions;
+    private final int segmentSize;
+    private final Duration maxAge;
+    private final ScheduledExecutorService evictor;
+    private volatile Tiers tiers;
+    private long nextSequence;
+    private int hotTransactions;
+    private boolean evictionScheduled;
+    private volatile IOException evictionFailure;
+
+    /**
+     * Opens a repository over the given directory with the default budget, segment size and age.
+     *
+     * @param directory         The directory holding the segments.
+     * @param accountRepository The repository used to resolve the accounts of cold transactions.
+     * @throws IOException If the directory or a segment cannot be read.
+     */
+    public TieredTransactionRepository(Path directory, AccountRepository accountRepository) throws IOException {
+        this(directory, accountRepository, DEFAULT_MAX_HOT_TRANSACTIONS, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Opens a repository over the given directory, restoring the segments written before.
+     *
+     * @param directory          The directory holding the segments.
+     * @param accountRepository  The repository used to resolve the accounts of cold transactions.
+     * @param maxHotTransactions The number of transactions the hot tier holds before evicting, its memory budget.
+     * @param segmentSize        The number of transactions per generation and segment.
+     * @param maxAge             The age after which transactions are evicted even within the budget.
+     * @throws IOException If the directory or a segment cannot be read.
+     */
+    public TieredTransactionRepository(Path directory, AccountRepository accountRepository, int maxHotTransactions,
+                                       int segmentSize, Duration maxAge) throws IOException {
+        if (segmentSize <= 0 || maxHotTransactions < segmentSize) {
+            throw new IllegalArgumentException("The hot tier must hold at least one segment");
+        }
+        this.directory = directory;
+        this.accountRepository = accountRepository;
+        this.maxHotTransactions = maxHotTransactions;
+        this.segmentSize = segmentSize;
+        this.maxAge = maxAge;
+        Files.createDirectories(directory);
+        List<ColdSegment> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(PREFIX) && name.endsWith(SUFFIX + ".tmp")) {
+                    Files.delete(file);
+                } else if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+                    segments.add(ColdSegment.open(file));
+                }
+            }
+        }
+        if (!segments.isEmpty()) {
+            ColdSegment last = segments.get(segments.size() - 1);
+            nextSequence = last.getFirstSequence() + last.getRecordCount();
+        }
+        this.tiers = new Tiers(List.copyOf(segments), List.of(new Generation(nextSequence)));
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tier-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.min(Math.max(maxAge.toMillis() / 4, 1000), 60_000);
+        evictor.scheduleWithFixedDelay(this::evictInBackground, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Saves a transaction to the newest generation of the hot tier.
+     *
+     * @param transaction The transaction to be saved.
+     */
+    @Override
+    public synchronized void save(Transaction transaction) {
+        append(transaction);
+    }
+
+    /**
+     * Saves several transactions to the hot tier with one acquisition of the repository lock.
+     *
+     * @param transactions The transactions to be saved.
+     */
+    @Override
+    public synchronized void saveAll(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            append(transaction);
+        }
+    }
+
+    /**
+     * Retrieves the transactions of an account from both tiers. Cold segments only inflate the blocks the account
+     * appears in.
+     *
+     * @param account The account for which transactions are to be retrieved.
+     * @return The account's transactions in the order they were saved.
+     * @throws UncheckedIOException If a segment cannot be read.
+     */
+    @Override
+    public List<Transaction> getAccountTransactions(Account account) {
+        Tiers view = tiers;
+        List<Transaction> result = new ArrayList<>();
+        try {
+            for (ColdSegment segment : view.cold()) {
+                resolve(segment.readAccount(account.getAccountId()), result);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (Generation generation : view.hot()) {
+            result.addAll(generation.transactions.getAccountTransactions(account));
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves a transaction by its ID, looking at the newest transactions first.
+     *
+     * @param id The unique identifier of the transaction to be retrieved.
+     * @return The transaction, or null if there is none.
+     * @throws UncheckedIOException If a segment cannot be read.
+     */
+    @Override
+    public Transaction getTransactionByID(UUID id) {
+        Tiers view = tiers;
+        for (int i = view.hot().size() - 1; i >= 0; i--) {
+            Transaction transaction = view.hot().get(i).transactions.getTransactionByID(id);
+            if (transaction != null) {
+                return transaction;
+            }
+        }
+        try {
+            for (int i = view.cold().size() - 1; i >= 0; i--) {
+                TransactionRecord record = view.cold().get(i).find(id);
+                if (record != null) {
+                    return record.toTransaction(accountRepository);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves every transaction, inflating the whole cold tier. Prefer {@link #getTransactions(String, int)}.
+     *
+     * @return All transactions in the order they were saved.
+     * @throws UncheckedIOException If a segment cannot be read.
+     */
+    @Override
+    public List<Transaction> getAllTransactions() {
+        Tiers view = tiers;
+        List<Transaction> result = new ArrayList<>();
+        try {
+            for (ColdSegment segment : view.cold()) {
+                resolve(segment.readFrom(segment.getFirstSequence(), segment.getRecordCount()), result);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (Generation generation : view.hot()) {
+            result.addAll(generation.transactions.getAllTransactions());
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves one page of all transactions. The cursor is a position in the save order, so a page inflates only the
+     * blocks it covers. Transactions whose account no longer exists are left out, so a page may be shorter than
+     * requested before the end.
+     *
+     * @param cursor   The cursor returned with the previous page, or {@code null} for the first page.
+     * @param pageSize The maximal number of transactions on the page.
+     * @return The requested page and the cursor of the next one.
+     * @throws UncheckedIOException If a segment cannot be read.
+     */
+    @Override
+    public Page<Transaction> getTransactions(String cursor, int pageSize) {
+        Page.validateSize(pageSize);
+        long position = PageCursor.decode(cursor);
+        Tiers view = tiers;
+        List<Transaction> items = new ArrayList<>(pageSize);
+        try {
+            for (ColdSegment segment : view.cold()) {
+                long end = segment.getFirstSequence() + segment.getRecordCount();
+                while (position < end && items.size() < pageSize) {
+                    List<TransactionRecord> records = segment.readFrom(position, pageSize - items.size());
+                    for (TransactionRecord record : records) {
+                        Transaction transaction = record.toTransaction(accountRepository);
+                        if (transaction != null) {
+                            items.add(transaction);
+                        }
+                        position = record.getSequence() + 1;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long end = position;
+        for (Generation generation : view.hot()) {
+            List<Transaction> transactions = generation.transactions.getAllTransactions();
+            end = generation.firstSequence + transactions.size();
+            for (long next = Math.max(position, generation.firstSequence); next < end && items.size() < pageSize; next++) {
+                items.add(transactions.get((int) (next - generation.firstSequence)));
+                position = next + 1;
+            }
+        }
+        return new Page<>(items, position < end ? PageCursor.encode(position) : null);
+    }
+
+    /**
+     * Retrieves the transactions dated in the half-open range {@code [from, to)} from both tiers. Cold segments only
+     * inflate the blocks whose date range overlaps it.
+     *
+     * @param from The inclusive lower bound of the range.
+     * @param to   The exclusive upper bound of the range.
+     * @return The transactions in the range, ordered by date.
+     * @throws UncheckedIOException If a segment cannot be read.
+     */
+    @Override
+    public List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+        return between(null, from, to);
+    }
+
+    /**
+     * Retrieves the transactions of an account dated in the half-open range {@code [from, to)} from both tiers.
+     *
+     * @param account The account for which transactions are to be retrieved.
+     * @param from    The inclusive lower bound of the range.
+     * @param to      The exclusive upper bound of the range.
+     * @return The account's transactions in the range, ordered by date.
+     * @throws UncheckedIOException If a segment cannot be read.
+     */
+    @Override
+    public List<Transaction> getAccountTransactionsBetween(Account account, LocalDateTime from, LocalDateTime to) {
+        return between(account, from, to);
+    }
+
+    /**
+     * Retrieves the number of transactions held in memory.
+     *
+     * @return The size of the hot tier.
+     */
+    public synchronized int getHotTransactionCount() {
+        return hotTransactions;
+    }
+
+    /**
+     * Retrieves the number of segments on disk.
+     *
+     * @return The number of cold segments.
+     */
+    public int getColdSegmentCount() {
+        return tiers.cold().size();
+    }
+
+    /**
+     * Evicts the whole hot tier to disk and waits until it is written.
+     *
+     * @throws IOException If a segment cannot be written.
+     */
+    public void flush() throws IOException {
+        try {
+            evictor.submit(() -> {
+                evict(true);
+                return null;
+            }).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Eviction failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while flushing", e);
+        }
+    }
+
+    /**
+     * Evicts the hot tier to disk and stops the background thread.
+     *
+     * @throws IOException If a segment cannot be written, or an earlier background eviction failed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            evictor.shutdown();
+        }
+        IOException failure = evictionFailure;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void append(Transaction transaction) {
+        Generation current = tiers.hot().get(tiers.hot().size() - 1);
+        if (current.size >= segmentSize) {
+            current = startGeneration();
+        }
+        current.transactions.save(transaction);
+        current.size++;
+        if (current.newest == null || transaction.getDate().isAfter(current.newest)) {
+            current.newest = transaction.getDate();
+        }
+        nextSequence++;
+        hotTransactions++;
+        if (hotTransactions > maxHotTransactions && !evictionScheduled) {
+            evictionScheduled = true;
+            evictor.execute(this::evictInBackground);
+        }
+    }
+
+    private Generation startGeneration() {
+        Generation generation = new Generation(nextSequence);
+        List<Generation> hot = new ArrayList<>(tiers.hot());
+        hot.add(generation);
+        tiers = new Tiers(tiers.cold(), List.copyOf(hot));
+        return generation;
+    }
+
+    private void evictInBackground() {
+        try {
+            evict(false);
+        } catch (IOException e) {
+            evictionFailure = e;
+        } catch (RuntimeException e) {
+            evictionFailure = new IOException("Eviction failed", e);
+        }
+    }
+
+    /**
+     * Moves the oldest generations to disk one by one. Runs on the eviction thread only.
+     */
+    private void evict(boolean all) throws IOException {
+        while (true) {
+            Generation victim;
+            synchronized (this) {
+                evictionScheduled = false;
+                Generation current = tiers.hot().get(tiers.hot().size() - 1);
+                if (current.size > 0 && (all || System.nanoTime() - current.createdNanos > maxAge.toNanos())) {
+                    startGeneration();
+                }
+                victim = tiers.hot().size() > 1 ? tiers.hot().get(0) : null;
+                if (victim == null || !(all || hotTransactions > maxHotTransactions
+                        || victim.newest.isBefore(LocalDateTime.now().minus(maxAge)))) {
+                    return;
+                }
+            }
+            Path file = directory.resolve(String.format("%s%020d%s", PREFIX, victim.firstSequence, SUFFIX));
+            ColdSegment segment = ColdSegment.write(file, victim.firstSequence, victim.transactions.getAllTransactions());
+            synchronized (this) {
+                List<ColdSegment> cold = new ArrayList<>(tiers.cold());
+                cold.add(segment);
+                tiers = new Tiers(List.copyOf(cold), List.copyOf(tiers.hot().subList(1, tiers.hot().size())));
+                hotTransactions -= victim.size;
+            }
+        }
+    }
+
+    private List<Transaction> between(Account account, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+        Tiers view = tiers;
+        List<Transaction> result = new ArrayList<>();
+        try {
+            for (ColdSegment segment : view.cold()) {
+                resolve(segment.readBetween(account == null ? null : account.getAccountId(), from, to), result);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (Generation generation : view.hot()) {
+            result.addAll(account == null
+                    ? generation.transactions.getTransactionsBetween(from, to)
+                    : generation.transactions.getAccountTransactionsBetween(account, from, to));
+        }
+        result.sort(Comparator.comparing(Transaction::getDate));
+        return result;
+    }
+
+    private void resolve(List<TransactionRecord> records, List<Transaction> result) {
+        for (TransactionRecord record : records) {
+            Transaction transaction = record.toTransaction(accountRepository);
+            if (transaction != null) {
+                result.add(transaction);
+            }
+        }
+    }
+
+    /**
+     * An immutable view of both tiers: the segments and the generations, each oldest first.
+     */
+    private record Tiers(List<ColdSegment> cold, List<Generation> hot) {
+    }
+
+    /**
+     * A batch of consecutive transactions kept in memory and evicted together.
+     */
+    private static final class Generation {
+
+        private final long firstSequence;
+        private final long createdNanos = System.nanoTime();
+        private final InMemoryTransactionRepository transactions = new InMemoryTransactionRepository();
+        private int size;
+        private LocalDateTime newest;
+
+        private Generation(long firstSequence) {
+            this.firstSequence = firstSequence;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package infrastructure.persistence;
+
+import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Encodes transactions into the binary records of the transaction logs and decodes them back.
+ * <p>
+ * A record is {@code [int payloadLength][int crc32c][payload]}, the payload being
+ * {@code sequence, id, accountId, recipient flag and id, type ordinal, epoch second and nanos (UTC), amount scale,
+ * amount unscaled length and bytes}. A recipient flag other than 0 or 1 marks an {@link EntityRecord} in a
+ * {@link WriteAheadLog}.
+ */
+public final class TransactionCodec {
+
+    /**
+     * The size of the record header preceding the payload.
+     */
+    public static final int HEADER_SIZE = Integer.BYTES * 2;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private TransactionCodec() {
+    }
+
+    /**
+     * Encodes a transaction into a complete record, header included.
+     *
+     * @param sequence    The position assigned to the record.
+     * @param transaction The transaction to encode.
+     * @return A buffer ready to be written, positioned at its start.
+     */
+    public static ByteBuffer encode(long sequence, Transaction transaction) {
+        byte[] unscaled = transaction.getAmount().unscaledValue().toByteArray();
+        boolean hasRecipient = transaction.getRecipient() != null;
+        int payloadLength = Long.BYTES + 16 + 16 + 1 + (hasRecipient ? 16 : 0) + 1
+                + Long.BYTES + Integer.BYTES + Integer.BYTES + Short.BYTES + unscaled.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payloadLength);
+        buffer.putInt(payloadLength).putInt(0);
+        buffer.putLong(sequence);
+        putUuid(buffer, transaction.getId());
+        putUuid(buffer, transaction.getAccount().getAccountId());
+        buffer.put((byte) (hasRecipient ? 1 : 0));
+        if (hasRecipient) {
+            putUuid(buffer, transaction.getRecipient().getAccountId());
+        }
+        buffer.put((byte) transaction.getType().ordinal());
+        LocalDateTime timestamp = transaction.getDate();
+        buffer.putLong(timestamp.toEpochSecond(ZoneOffset.UTC)).putInt(timestamp.getNano());
+        buffer.putInt(transaction.getAmount().scale()).putShort((short) unscaled.length).put(unscaled);
+        buffer.putInt(Integer.BYTES, checksum(buffer.array(), HEADER_SIZE, payloadLength));
+        return buffer.flip();
+    }
+
+    /**
+     * Decodes a record payload whose checksum has already been verified.
+     *
+     * @param payload The payload, positioned at its start.
+     * @return The decoded record.
+     */
+    public static TransactionRecord decode(ByteBuffer payload) {
+        long sequence = payload.getLong();
+        UUID id = getUuid(payload);
+        UUID accountId = getUuid(payload);
+        UUID recipientId = payload.get() == 1 ? getUuid(payload) : null;
+        TransactionType type = TYPES[payload.get()];
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(payload.getLong(), payload.getInt(), ZoneOffset.UTC);
+        int scale = payload.getInt();
+        byte[] unscaled = new byte[payload.getShort()];
+        payload.get(unscaled);
+        return new TransactionRecord(sequence, id, accountId, recipientId, type, new BigDecimal(new BigInteger(unscaled), scale), timestamp);
+    }
+
+    /**
+     * Computes the checksum stored in record headers.
+     *
+     * @param bytes  The array holding the payload.
+     * @param offset The offset of the payload.
+     * @param length The length of the payload.
+     * @return The checksum.
+     */
+    public static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
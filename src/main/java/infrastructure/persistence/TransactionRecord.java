@@ -0,0 +1,89 @@
+package infrastructure.persistence;
+
+import application.models.Account;
+import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+import application.repositories.AccountRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A transaction as it is stored on disk: accounts are referenced by their IDs only.
+ */
+public class TransactionRecord {
+
+    private final long sequence;
+    private final UUID id;
+    private final UUID accountId;
+    private final UUID recipientId;
+    private final TransactionType type;
+    private final BigDecimal amount;
+    private final LocalDateTime timestamp;
+
+    /**
+     * Constructs a new transaction record.
+     *
+     * @param sequence    The position of the record in its log.
+     * @param id          The unique identifier of the transaction.
+     * @param accountId   The unique identifier of the account of the transaction.
+     * @param recipientId The unique identifier of the recipient account, or null if there is none.
+     * @param type        The type of the transaction.
+     * @param amount      The amount of the transaction.
+     * @param timestamp   The date of the transaction.
+     */
+    public TransactionRecord(long sequence, UUID id, UUID accountId, UUID recipientId, TransactionType type, BigDecimal amount, LocalDateTime timestamp) {
+        this.sequence = sequence;
+        this.id = id;
+        this.accountId = accountId;
+        this.recipientId = recipientId;
+        this.type = type;
+        this.amount = amount;
+        this.timestamp = timestamp;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public UUID getRecipientId() {
+        return recipientId;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Turns this record back into a transaction by looking its accounts up in the given repository.
+     * A recipient that no longer exists is left out of the transaction.
+     *
+     * @param accountRepository The repository to resolve account IDs with.
+     * @return The transaction, or null if the account of the record no longer exists.
+     */
+    public Transaction toTransaction(AccountRepository accountRepository) {
+        Account account = accountRepository.findById(accountId);
+        if (account == null) {
+            return null;
+        }
+        Account recipient = recipientId == null ? null : accountRepository.findById(recipientId);
+        return new Transaction(id, account, amount, type, recipient, timestamp);
+    }
+}
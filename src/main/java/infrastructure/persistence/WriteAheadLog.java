@@ -0,0 +1,553 @@
+package infrastructure.persistence;
+
+import application.models.Account;
+import application.models.User;
+import application.models.transactions.Transaction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * An append-only binary log of transactions in a single file, written through a {@link FileChannel}. Besides
+ * transactions, the log holds {@link EntityRecord}s of created and deleted users and accounts, so that it can
+ * rebuild them on its own.
+ * <p>
+ * Every record gets a sequence number that grows by one per record, so the log position is simply the
+ * sequence of its last record. How records reach the disk depends on the {@link DurabilityMode}: in group
+ * commit and async modes a background flusher writes queued records with one gathering write and covers
+ * up to {@code batchSize} of them with a single {@link FileChannel#force(boolean)}. Records appended while
+ * a force is in progress form the next batch, so batches grow with the number of concurrent writers even
+ * without any waiting; a positive flush interval additionally lingers to fill a batch.
+ * <p>
+ * On opening, the log is scanned and a torn or corrupt tail left by a crash is cut off. A log opened from a
+ * {@link Position} known to be durable, such as the one a snapshot was taken at, only scans the records after it.
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    private static final int SCAN_BUFFER_SIZE = 1 << 20;
+    private static final ByteBuffer[] CLOSING = new ByteBuffer[0];
+
+    private final FileChannel channel;
+    private final DurabilityMode mode;
+    private final long flushIntervalNanos;
+    private final int batchSize;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private final Position start;
+    private volatile long lastSequence;
+    private long endOffset;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile IOException failure;
+
+    private WriteAheadLog(Path file, DurabilityMode mode, Duration flushInterval, int batchSize, Position start) throws IOException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.mode = mode;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.batchSize = batchSize;
+        try {
+            this.start = isRecordBoundary(start) ? start : Position.START;
+            this.lastSequence = this.start.sequence();
+            long validEnd = scan(this.start.offset(), sequence -> lastSequence = sequence, null, null);
+            channel.truncate(validEnd);
+            channel.position(validEnd);
+            this.endOffset = validEnd;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (mode == DurabilityMode.FSYNC_PER_OPERATION) {
+            this.flusher = null;
+        } else {
+            this.flusher = new Thread(this::flushLoop, "wal-flusher-" + file.getFileName());
+            flusher.setDaemon(true);
+        }
+    }
+
+    /**
+     * Opens or creates a log.
+     *
+     * @param file          The log file.
+     * @param mode          When appended records are forced to disk.
+     * @param flushInterval How long the flusher lingers to fill a batch before forcing it, zero for no lingering.
+     * @param batchSize     The maximal number of records covered by one force.
+     * @return The opened log.
+     * @throws IOException If the file cannot be opened or read.
+     */
+    public static WriteAheadLog open(Path file, DurabilityMode mode, Duration flushInterval, int batchSize) throws IOException {
+        return open(file, mode, flushInterval, batchSize, Position.START);
+    }
+
+    /**
+     * Opens or creates a log, scanning it only from a position known to be durable. If the record at that position
+     * is not the one expected, e.g. because the file was replaced, the whole log is scanned.
+     *
+     * @param file          The log file.
+     * @param mode          When appended records are forced to disk.
+     * @param flushInterval How long the flusher lingers to fill a batch before forcing it, zero for no lingering.
+     * @param batchSize     The maximal number of records covered by one force.
+     * @param start         The position from which to scan the log.
+     * @return The opened log.
+     * @throws IOException If the file cannot be opened or read.
+     */
+    public static WriteAheadLog open(Path file, DurabilityMode mode, Duration flushInterval, int batchSize, Position start) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(file, mode, flushInterval, batchSize, start);
+        if (log.flusher != null) {
+            log.flusher.start();
+        }
+        return log;
+    }
+
+    /**
+     * Appends a transaction to the log and waits as long as the durability mode requires.
+     *
+     * @param transaction The transaction to append.
+     * @return The sequence number assigned to the record.
+     * @throws UncheckedIOException If the log cannot be written.
+     */
+    public long append(Transaction transaction) {
+        return appendAll(List.of(transaction));
+    }
+
+    /**
+     * Appends several transactions as consecutive records covered by a single durability wait.
+     *
+     * @param transactions The transactions to append.
+     * @return The sequence number assigned to the last record.
+     * @throws UncheckedIOException If the log cannot be written.
+     */
+    public long appendAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return lastSequence;
+        }
+        return write(transactions.size(), (sequence, index) -> TransactionCodec.encode(sequence, transactions.get(index)));
+    }
+
+    /**
+     * Appends the record of a created user.
+     *
+     * @param user The user.
+     * @return The sequence number assigned to the record.
+     * @throws UncheckedIOException If the log cannot be written.
+     */
+    public long appendUser(User user) {
+        return write(1, (sequence, index) -> EntityRecord.encodeUser(sequence, user));
+    }
+
+    /**
+     * Appends the record of a created account, together with the account counter of its user.
+     *
+     * @param account The account.
+     * @return The sequence number assigned to the record.
+     * @throws UncheckedIOException If the log cannot be written.
+     */
+    public long appendAccount(Account account) {
+        return write(1, (sequence, index) -> EntityRecord.encodeAccount(sequence, account));
+    }
+
+    /**
+     * Appends the record of a deleted user, whose accounts are deleted with it.
+     *
+     * @param user The user.
+     * @return The sequence number assigned to the record.
+     * @throws UncheckedIOException If the log cannot be written.
+     */
+    public long appendUserDeletion(User user) {
+        return write(1, (sequence, index) -> EntityRecord.encodeDeletion(sequence, EntityRecord.Kind.USER_DELETED, user.getUserId(), user.getUserId()));
+    }
+
+    /**
+     * Appends the record of a deleted account.
+     *
+     * @param account The account.
+     * @return The sequence number assigned to the record.
+     * @throws UncheckedIOException If the log cannot be written.
+     */
+    public long appendAccountDeletion(Account account) {
+        return write(1, (sequence, index) -> EntityRecord.encodeDeletion(sequence, EntityRecord.Kind.ACCOUNT_DELETED,
+                account.getAccountId(), account.getUser().getUserId()));
+    }
+
+    private long write(int count, Encoder encoder) {
+        PendingWrite pending;
+        appendLock.lock();
+        try {
+            ensureWritable();
+            long sequence = lastSequence;
+            long offset = endOffset;
+            ByteBuffer[] buffers = new ByteBuffer[count];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = encoder.encode(++sequence, i);
+                offset += buffers[i].remaining();
+            }
+            if (mode == DurabilityMode.FSYNC_PER_OPERATION) {
+                writeAndForce(buffers);
+                lastSequence = sequence;
+                endOffset = offset;
+                return sequence;
+            }
+            pending = new PendingWrite(buffers, sequence);
+            lastSequence = sequence;
+            endOffset = offset;
+            queue.add(pending);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+        if (mode == DurabilityMode.GROUP_COMMIT) {
+            await(pending.done);
+        }
+        return pending.sequence;
+    }
+
+    /**
+     * Retrieves the sequence number of the last appended record, or 0 if the log is empty.
+     *
+     * @return The current log position.
+     */
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Retrieves the current log position together with the file offset after its last record, e.g. for a snapshot
+     * to reopen the log from.
+     *
+     * @return The current position.
+     */
+    public Position position() {
+        appendLock.lock();
+        try {
+            return new Position(lastSequence, endOffset);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Reads every transaction record with a sequence number greater than the given one, in log order, skipping
+     * entity records. Records still waiting in the flush queue are written out first.
+     *
+     * @param afterSequence The sequence number after which to start.
+     * @param consumer      The receiver of the records.
+     * @throws IOException If the log cannot be read.
+     */
+    public void replay(long afterSequence, Consumer<TransactionRecord> consumer) throws IOException {
+        replay(afterSequence, record -> {
+        }, consumer);
+    }
+
+    /**
+     * Reads every record with a sequence number greater than the given one, in log order.
+     * Records still waiting in the flush queue are written out first.
+     *
+     * @param afterSequence The sequence number after which to start.
+     * @param entities      The receiver of the entity records.
+     * @param transactions  The receiver of the transaction records.
+     * @throws IOException If the log cannot be read.
+     */
+    public void replay(long afterSequence, Consumer<EntityRecord> entities, Consumer<TransactionRecord> transactions) throws IOException {
+        flush();
+        scan(afterSequence >= start.sequence() ? start.offset() : 0, sequence -> {
+        }, record -> {
+            if (record.getSequence() > afterSequence) {
+                entities.accept(record);
+            }
+        }, record -> {
+            if (record.getSequence() > afterSequence) {
+                transactions.accept(record);
+            }
+        });
+    }
+
+    /**
+     * Writes and forces every record appended so far.
+     *
+     * @throws IOException If the log cannot be written or is closed.
+     */
+    public void flush() throws IOException {
+        if (flusher == null) {
+            return;
+        }
+        PendingWrite marker = new PendingWrite(new ByteBuffer[0], 0);
+        appendLock.lock();
+        try {
+            ensureWritable();
+            queue.add(marker);
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            await(marker.done);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Flushes outstanding records, stops the flusher and closes the file.
+     *
+     * @throws IOException If the outstanding records cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            if (flusher != null) {
+                PendingWrite last = new PendingWrite(CLOSING, 0);
+                queue.add(last);
+                await(last.done);
+                flusher.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes queued records until the write queued by {@link #close()} has been written. Checking the closed flag
+     * instead could stop the flusher between the flag being set and that write being queued. Appends and flushes
+     * are queued under the append lock while the log is open, so nothing is queued after that write.
+     */
+    private void flushLoop() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                collect(batch);
+                writeBatch(batch);
+                for (PendingWrite pending : batch) {
+                    if (pending.buffers == CLOSING) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void collect(List<PendingWrite> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        int records = batch.get(0).buffers.length;
+        while (records < batchSize) {
+            PendingWrite next = queue.poll();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+            }
+            batch.add(next);
+            records += next.buffers.length;
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        try {
+            if (failure != null) {
+                throw new IOException("Write-ahead log failed earlier", failure);
+            }
+            List<ByteBuffer> buffers = new ArrayList<>();
+            for (PendingWrite pending : batch) {
+                buffers.addAll(List.of(pending.buffers));
+            }
+            writeAndForce(buffers.toArray(new ByteBuffer[0]));
+            for (PendingWrite pending : batch) {
+                pending.done.complete(null);
+            }
+        } catch (IOException e) {
+            for (PendingWrite pending : batch) {
+                pending.done.completeExceptionally(new UncheckedIOException(e));
+            }
+        }
+    }
+
+    private void writeAndForce(ByteBuffer[] buffers) throws IOException {
+        try {
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    private void ensureWritable() throws IOException {
+        if (failure != null) {
+            throw new IOException("Write-ahead log failed earlier", failure);
+        }
+        if (closed.get()) {
+            throw new IOException("Write-ahead log is closed");
+        }
+    }
+
+    /**
+     * Checks whether a position lies at a record boundary of the file, i.e. it is the start or the next record
+     * is the one following the position.
+     */
+    private boolean isRecordBoundary(Position position) throws IOException {
+        if (position.offset() == 0) {
+            return position.sequence() == 0;
+        }
+        long size = channel.size();
+        if (position.offset() == size) {
+            return true;
+        }
+        if (position.offset() > size || position.offset() + TransactionCodec.HEADER_SIZE + Long.BYTES > size) {
+            return false;
+        }
+        ByteBuffer sequence = ByteBuffer.allocate(Long.BYTES);
+        readFully(sequence, position.offset() + TransactionCodec.HEADER_SIZE);
+        return sequence.getLong(0) == position.sequence() + 1;
+    }
+
+    /**
+     * Scans the records from an offset, passing the sequence of each valid record and, unless null, its decoded
+     * form to the consumers.
+     *
+     * @return The offset after the last valid record.
+     */
+    private long scan(long from, LongConsumer sequences, Consumer<EntityRecord> entities, Consumer<TransactionRecord> transactions) throws IOException {
+        long position = from;
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE).limit(0);
+        while (position + TransactionCodec.HEADER_SIZE <= size) {
+            if (buffer.remaining() < TransactionCodec.HEADER_SIZE) {
+                fill(buffer, position, size);
+            }
+            int length = buffer.getInt(buffer.position());
+            int checksum = buffer.getInt(buffer.position() + Integer.BYTES);
+            if (length <= 0 || position + TransactionCodec.HEADER_SIZE + length > size) {
+                break;
+            }
+            int recordSize = TransactionCodec.HEADER_SIZE + length;
+            if (buffer.remaining() < recordSize) {
+                if (recordSize > buffer.capacity()) {
+                    buffer = ByteBuffer.allocate(recordSize);
+                }
+                fill(buffer, position, size);
+            }
+            int start = buffer.position() + TransactionCodec.HEADER_SIZE;
+            if (TransactionCodec.checksum(buffer.array(), start, length) != checksum) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(start, length);
+            sequences.accept(payload.getLong(0));
+            if (EntityRecord.isEntityRecord(payload)) {
+                if (entities != null) {
+                    entities.accept(EntityRecord.decode(payload));
+                }
+            } else if (transactions != null) {
+                transactions.accept(TransactionCodec.decode(payload));
+            }
+            buffer.position(start + length);
+            position += recordSize;
+        }
+        return position;
+    }
+
+    private void fill(ByteBuffer buffer, long position, long size) throws IOException {
+        buffer.clear().limit((int) Math.min(buffer.capacity(), size - position));
+        readFully(buffer, position);
+        buffer.flip();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of log");
+            }
+        }
+    }
+
+    private static void await(CompletableFuture<Void> done) {
+        try {
+            done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException unchecked) {
+                throw unchecked;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A position in the log: the sequence of the last record before it and the file offset after that record.
+     *
+     * @param sequence The sequence of the last record, 0 at the start of the log.
+     * @param offset   The file offset after the last record.
+     */
+    public record Position(long sequence, long offset) {
+
+        /**
+         * The start of the log.
+         */
+        public static final Position START = new Position(0, 0);
+    }
+
+    /**
+     * Encodes the record at an index of a write with the sequence assigned to it.
+     */
+    @FunctionalInterface
+    private interface Encoder {
+
+        ByteBuffer encode(long sequence, int index);
+    }
+
+    private static final class PendingWrite {
+
+        private final ByteBuffer[] buffers;
+        private final long sequence;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private PendingWrite(ByteBuffer[] buffers, long sequence) {
+            this.buffers = buffers;
+            this.sequence = sequence;
+        }
+    }
+}
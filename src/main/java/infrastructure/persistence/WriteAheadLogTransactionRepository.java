@@ -0,0 +1,229 @@
+package infrastructure.persistence;
+
+import application.models.Account;
+import application.models.Page;
+import application.models.transactions.Transaction;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import infrastructure.InMemoryTransactionRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A durable {@link TransactionRepository} that appends every saved transaction to a {@link WriteAheadLog}
+ * before indexing it in memory. Queries are answered by an {@link InMemoryTransactionRepository},
+ * which is rebuilt from the log by the first query rather than when the repository is opened, so that opening
+ * does not read the whole history and the logged accounts can be recovered first.
+ */
+public class WriteAheadLogTransactionRepository implements TransactionRepository, AutoCloseable {
+
+    /**
+     * The default time the flusher lingers to fill a batch. Batches still form from writers arriving during a force.
+     */
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ZERO;
+
+    /**
+     * The default maximal number of records covered by one force.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 512;
+
+    private final WriteAheadLog log;
+    private final AccountRepository accountRepository;
+    private final InMemoryTransactionRepository index = new InMemoryTransactionRepository();
+    private final Object loadLock = new Object();
+    private long unresolvedRecords;
+
+    /**
+     * The sequence of the last record loaded into the index from the log, or -1 while it has not been loaded.
+     * Records after it are indexed when they are saved.
+     */
+    private volatile long loadedThrough = -1;
+
+    /**
+     * Opens a repository over the given log file with group commit and default batching.
+     *
+     * @param file              The log file.
+     * @param accountRepository The repository used to resolve the accounts of logged transactions.
+     * @throws IOException If the log cannot be opened or read.
+     */
+    public WriteAheadLogTransactionRepository(Path file, AccountRepository accountRepository) throws IOException {
+        this(file, accountRepository, DurabilityMode.GROUP_COMMIT, DEFAULT_FLUSH_INTERVAL, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Opens a repository over the given log file.
+     *
+     * @param file              The log file.
+     * @param accountRepository The repository used to resolve the accounts of logged transactions.
+     * @param mode              When saved transactions are forced to disk.
+     * @param flushInterval     How long the flusher lingers to fill a batch before forcing it, zero for no lingering.
+     * @param batchSize         The maximal number of records covered by one force.
+     * @throws IOException If the log cannot be opened or read.
+     */
+    public WriteAheadLogTransactionRepository(Path file, AccountRepository accountRepository, DurabilityMode mode, Duration flushInterval, int batchSize) throws IOException {
+        this(file, accountRepository, mode, flushInterval, batchSize, WriteAheadLog.Position.START);
+    }
+
+    /**
+     * Opens a repository over the given log file, scanning the log only from a position known to be durable,
+     * e.g. the one of the restored snapshot (see {@link SnapshotManager#getRestoredLogPosition()}).
+     *
+     * @param file              The log file.
+     * @param accountRepository The repository used to resolve the accounts of logged transactions.
+     * @param mode              When saved transactions are forced to disk.
+     * @param flushInterval     How long the flusher lingers to fill a batch before forcing it, zero for no lingering.
+     * @param batchSize         The maximal number of records covered by one force.
+     * @param start             The position from which to scan the log on opening.
+     * @throws IOException If the log cannot be opened or read.
+     */
+    public WriteAheadLogTransactionRepository(Path file, AccountRepository accountRepository, DurabilityMode mode, Duration flushInterval,
+                                              int batchSize, WriteAheadLog.Position start) throws IOException {
+        this.log = WriteAheadLog.open(file, mode, flushInterval, batchSize, start);
+        this.accountRepository = accountRepository;
+    }
+
+    /**
+     * Appends a transaction to the log and indexes it once the durability mode is satisfied.
+     *
+     * @param transaction The transaction to be saved.
+     * @throws java.io.UncheckedIOException If the log cannot be written.
+     */
+    @Override
+    public void save(Transaction transaction) {
+        index(log.append(transaction), transaction);
+    }
+
+    /**
+     * Appends several transactions as consecutive log records covered by a single durability wait,
+     * then indexes them.
+     *
+     * @param transactions The transactions to be saved.
+     * @throws java.io.UncheckedIOException If the log cannot be written.
+     */
+    @Override
+    public void saveAll(List<Transaction> transactions) {
+        long sequence = log.appendAll(transactions) - transactions.size();
+        for (Transaction transaction : transactions) {
+            index(++sequence, transaction);
+        }
+    }
+
+    @Override
+    public List<Transaction> getAccountTransactions(Account account) {
+        return loadedIndex().getAccountTransactions(account);
+    }
+
+    @Override
+    public Transaction getTransactionByID(UUID id) {
+        return loadedIndex().getTransactionByID(id);
+    }
+
+    @Override
+    public List<Transaction> getAllTransactions() {
+        return loadedIndex().getAllTransactions();
+    }
+
+    @Override
+    public Page<Transaction> getTransactions(String cursor, int pageSize) {
+        return loadedIndex().getTransactions(cursor, pageSize);
+    }
+
+    @Override
+    public Page<Transaction> getAccountTransactions(Account account, String cursor, int pageSize) {
+        return loadedIndex().getAccountTransactions(account, cursor, pageSize);
+    }
+
+    @Override
+    public List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+        return loadedIndex().getTransactionsBetween(from, to);
+    }
+
+    @Override
+    public List<Transaction> getAccountTransactionsBetween(Account account, LocalDateTime from, LocalDateTime to) {
+        return loadedIndex().getAccountTransactionsBetween(account, from, to);
+    }
+
+    /**
+     * Retrieves the underlying log, e.g. to replay it during recovery.
+     *
+     * @return The write-ahead log.
+     */
+    public WriteAheadLog getLog() {
+        return log;
+    }
+
+    /**
+     * Retrieves the number of logged records left out of the index because their account no longer exists,
+     * loading the index if needed.
+     *
+     * @return The number of unresolved records.
+     */
+    public long getUnresolvedRecords() {
+        loadedIndex();
+        return unresolvedRecords;
+    }
+
+    /**
+     * Indexes a saved transaction, unless the index has not been loaded yet, or was loaded with the transaction's
+     * record already in the log.
+     */
+    private void index(long sequence, Transaction transaction) {
+        if (loadedThrough < 0) {
+            synchronized (loadLock) {
+                if (loadedThrough < 0) {
+                    return;
+                }
+            }
+        }
+        if (sequence > loadedThrough) {
+            index.save(transaction);
+        }
+    }
+
+    private InMemoryTransactionRepository loadedIndex() {
+        if (loadedThrough < 0) {
+            synchronized (loadLock) {
+                if (loadedThrough < 0) {
+                    load();
+                }
+            }
+        }
+        return index;
+    }
+
+    private void load() {
+        long through = log.lastSequence();
+        try {
+            log.replay(0, record -> {
+                if (record.getSequence() > through) {
+                    return;
+                }
+                Transaction transaction = record.toTransaction(accountRepository);
+                if (transaction == null) {
+                    unresolvedRecords++;
+                } else {
+                    index.save(transaction);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        loadedThrough = through;
+    }
+
+    /**
+     * Flushes outstanding records and closes the log.
+     *
+     * @throws IOException If the outstanding records cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+}
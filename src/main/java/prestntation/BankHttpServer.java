@@ -0,0 +1,285 @@
+package prestntation;
+
+import application.exceptions.MaxAccountsReachedException;
+import application.exceptions.NotEnoughFundsException;
+import application.models.Account;
+import application.models.Page;
+import application.models.User;
+import application.models.transactions.Transaction;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serial;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves a {@link BankSystem} over HTTP with JSON bodies, handling every request on its own virtual thread.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *     <li>{@code POST /users} with {@code name}, {@code password} and {@code maxAccounts} creates a user;</li>
+ *     <li>{@code POST /accounts} with {@code userId} creates an account;</li>
+ *     <li>{@code POST /accounts/{id}/deposit} and {@code /withdrawal} with {@code amount},
+ *     and {@code POST /accounts/{id}/transfer} with {@code recipientId} and {@code amount} move money;
+ *     an {@code Idempotency-Key} header makes retries of these safe;</li>
+ *     <li>{@code GET /accounts/{id}/balance} returns the balance;</li>
+ *     <li>{@code GET /accounts/{id}/history?cursor=&pageSize=} returns one page of the account's transactions.</li>
+ * </ul>
+ * Invalid input is answered with 400, unknown users and accounts with 404, missing funds and exhausted
+ * account limits with 409.
+ * <p>
+ * The JDK server writes response headers and body separately; unless the JVM is started with
+ * {@code -Dsun.net.httpserver.nodelay=true}, the body of a small response waits for the client's delayed ACK.
+ */
+public class BankHttpServer implements AutoCloseable {
+
+    /**
+     * The page size of the history endpoint when the client does not specify one.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private final BankSystem bank;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Binds a server for the given banking system; it accepts requests once started.
+     *
+     * @param bank The banking system to serve.
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public BankHttpServer(BankSystem bank, int port) throws IOException {
+        this.bank = bank;
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/users", this::handleUsers);
+        server.createContext("/accounts", this::handleAccounts);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Retrieves the port the server listens on.
+     *
+     * @return The bound port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits for the requests in progress.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handleUsers(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            requireMethod(exchange, "POST");
+            if (!exchange.getRequestURI().getPath().equals("/users")) {
+                throw new NotFoundException("Unknown resource");
+            }
+            Map<String, String> body = readBody(exchange);
+            User user = bank.createUser(required(body, "name"), required(body, "password"),
+                    Integer.parseInt(required(body, "maxAccounts")));
+            return new Response(201, "{\"id\":" + Json.quote(user.getUserId().toString()) + "}");
+        });
+    }
+
+    private void handleAccounts(HttpExchange exchange) throws IOException {
+        handle(exchange, () -> {
+            String[] path = exchange.getRequestURI().getPath().substring(1).split("/");
+            if (path.length == 1) {
+                requireMethod(exchange, "POST");
+                User user = bank.getUserById(parseId(required(readBody(exchange), "userId")));
+                if (user == null) {
+                    throw new NotFoundException("User not found");
+                }
+                Account account = bank.createAccount(user);
+                return new Response(201, "{\"id\":" + Json.quote(account.getAccountId().toString()) + "}");
+            }
+            if (path.length != 3) {
+                throw new NotFoundException("Unknown resource");
+            }
+            Account account = findAccount(path[1]);
+            String idempotencyKey = exchange.getRequestHeaders().getFirst(IDEMPOTENCY_KEY);
+            switch (path[2]) {
+                case "deposit" -> {
+                    requireMethod(exchange, "POST");
+                    bank.deposit(idempotencyKey, account, amount(readBody(exchange)));
+                }
+                case "withdrawal" -> {
+                    requireMethod(exchange, "POST");
+                    bank.withdrawal(idempotencyKey, account, amount(readBody(exchange)));
+                }
+                case "transfer" -> {
+                    requireMethod(exchange, "POST");
+                    Map<String, String> body = readBody(exchange);
+                    bank.transfer(idempotencyKey, account, findAccount(required(body, "recipientId")), amount(body));
+                }
+                case "balance" -> requireMethod(exchange, "GET");
+                case "history" -> {
+                    requireMethod(exchange, "GET");
+                    return new Response(200, history(account, queryParameters(exchange)));
+                }
+                default -> throw new NotFoundException("Unknown resource");
+            }
+            return new Response(200, "{\"balance\":" + bank.getBalance(account).toPlainString() + "}");
+        });
+    }
+
+    private String history(Account account, Map<String, String> query) {
+        int pageSize = query.containsKey("pageSize") ? Integer.parseInt(query.get("pageSize")) : DEFAULT_PAGE_SIZE;
+        Page<Transaction> page = bank.getAccountHistory(account, query.get("cursor"), pageSize);
+        StringBuilder builder = new StringBuilder("{\"transactions\":[");
+        for (int i = 0; i < page.getItems().size(); i++) {
+            Transaction transaction = page.getItems().get(i);
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":").append(Json.quote(transaction.getId().toString()))
+                    .append(",\"type\":").append(Json.quote(transaction.getType().name()))
+                    .append(",\"amount\":").append(transaction.getAmount() == null ? "null" : transaction.getAmount().toPlainString())
+                    .append(",\"accountId\":").append(Json.quote(transaction.getAccount().getAccountId().toString()))
+                    .append(",\"recipientId\":").append(Json.quote(transaction.getRecipient() == null ? null : transaction.getRecipient().getAccountId().toString()))
+                    .append(",\"date\":").append(Json.quote(transaction.getDate().toString()))
+                    .append('}');
+        }
+        return builder.append("],\"nextCursor\":").append(Json.quote(page.getNextCursor())).append('}').toString();
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        Response response;
+        try {
+            response = handler.handle();
+        } catch (NotFoundException e) {
+            response = error(404, e.getMessage());
+        } catch (MethodNotAllowedException e) {
+            response = error(405, e.getMessage());
+        } catch (NotEnoughFundsException | MaxAccountsReachedException e) {
+            response = error(409, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            response = error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            response = error(500, e.toString());
+        }
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private Account findAccount(String id) {
+        Account account = bank.getAccountByIdHashCode(parseId(id));
+        if (account == null) {
+            throw new NotFoundException("Account not found");
+        }
+        return account;
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, "{\"error\":" + Json.quote(message) + "}");
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new MethodNotAllowedException(method + " required");
+        }
+    }
+
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream input = exchange.getRequestBody()) {
+            return Json.parseObject(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static String required(Map<String, String> body, String name) {
+        String value = body.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field: " + name);
+        }
+        return value;
+    }
+
+    private static BigDecimal amount(Map<String, String> body) {
+        BigDecimal amount = new BigDecimal(required(body, "amount"));
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+        return amount;
+    }
+
+    private static UUID parseId(String id) {
+        return UUID.fromString(id);
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+
+        Response handle() throws IOException, NotEnoughFundsException, MaxAccountsReachedException;
+    }
+
+    private record Response(int status, String body) {
+    }
+
+    private static final class NotFoundException extends RuntimeException {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private NotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class MethodNotAllowedException extends RuntimeException {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private MethodNotAllowedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,21 +1,38 @@
 package prestntation;
 
+import application.audit.AuditEventType;
+import application.audit.AuditTrail;
 import application.contracts.AccountOperations;
 import application.contracts.TransactionsOperations;
 import application.contracts.UserOperation;
 import application.exceptions.MaxAccountsReachedException;
 import application.exceptions.NotEnoughFundsException;
+import application.metrics.Instrumented;
+import application.metrics.ServiceMetrics;
 import application.models.Account;
+import application.models.Money;
+import application.models.MoneyMode;
+import application.models.Page;
 import application.models.User;
+import application.models.transactions.BatchMode;
+import application.models.transactions.Operation;
+import application.models.transactions.OperationResult;
 import application.models.transactions.Transaction;
 import application.repositories.AccountRepository;
 import application.repositories.TransactionRepository;
 import application.repositories.UserRepository;
 import application.service.AccountService;
+import application.service.ConcurrentTransactionService;
+import application.service.ExecutionMode;
+import application.service.IdempotencyCache;
+import application.service.IdempotentTransactionService;
+import application.service.LedgerTransactionService;
 import application.service.TransactionService;
 import application.service.UserService;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -25,12 +42,16 @@ import java.util.UUID;
  *
  * @author ekaterina
  */
-public class BankSystem {
+public class BankSystem implements AutoCloseable {
 
     private final AccountOperations accountService;
-    private final TransactionsOperations transactionService;
+    private final IdempotentTransactionService transactionService;
     private final UserOperation userService;
+    private final TransactionsOperations engine;
     private final String admin;
+    private final MoneyMode moneyMode;
+    private final AuditTrail auditTrail;
+    private final LedgerTransactionService ledger;
 
     /**
      * Constructs a new BankSystem instance.
@@ -41,10 +62,72 @@ public class BankSystem {
      * @param userRepository The repository for managing users.
      */
     public BankSystem(String admin, AccountRepository accountRepository, TransactionRepository transactionRepository, UserRepository userRepository) {
-        this.accountService = new AccountService(accountRepository);
-        this.transactionService = new TransactionService(transactionRepository, accountRepository);
+        this(admin, accountRepository, transactionRepository, userRepository, ExecutionMode.SEQUENTIAL);
+    }
+
+    /**
+     * Constructs a new BankSystem instance with the given execution mode of transaction operations.
+     *
+     * @param admin The name of the system administrator.
+     * @param accountRepository The repository for managing accounts.
+     * @param transactionRepository The repository for managing transactions.
+     * @param userRepository The repository for managing users.
+     * @param mode The way transaction operations are executed.
+     */
+    public BankSystem(String admin, AccountRepository accountRepository, TransactionRepository transactionRepository, UserRepository userRepository, ExecutionMode mode) {
+        this(admin, accountRepository, transactionRepository, userRepository, new BankSystemConfiguration().executionMode(mode));
+    }
+
+    /**
+     * Constructs a new BankSystem instance from the given configuration.
+     *
+     * @param admin The name of the system administrator.
+     * @param accountRepository The repository for managing accounts.
+     * @param transactionRepository The repository for managing transactions.
+     * @param userRepository The repository for managing users.
+     * @param configuration The settings of the banking system.
+     * @throws IllegalArgumentException If {@link ExecutionMode#LOCK_FREE} is combined with a money mode other than {@link MoneyMode#FIXED_POINT}.
+     */
+    public BankSystem(String admin, AccountRepository accountRepository, TransactionRepository transactionRepository, UserRepository userRepository, BankSystemConfiguration configuration) {
+        if (configuration.getExecutionMode() == ExecutionMode.LOCK_FREE && configuration.getMoneyMode() != MoneyMode.FIXED_POINT) {
+            throw new IllegalArgumentException("Lock-free execution requires fixed-point money mode");
+        }
+        this.moneyMode = configuration.getMoneyMode();
+        this.accountService = new AccountService(accountRepository, moneyMode);
+        TransactionsOperations engine = switch (configuration.getExecutionMode()) {
+            case SEQUENTIAL, LOCK_FREE -> new TransactionService(transactionRepository, accountRepository);
+            case CONCURRENT -> configuration.getAccountLocks() == null
+                    ? new ConcurrentTransactionService(transactionRepository, accountRepository)
+                    : new ConcurrentTransactionService(transactionRepository, accountRepository, configuration.getAccountLocks());
+            case LEDGER -> LedgerTransactionService.start(transactionRepository, accountRepository);
+        };
+        this.engine = engine;
+        this.transactionService = new IdempotentTransactionService(engine,
+                new IdempotencyCache<>(configuration.getIdempotencyKeyCapacity(), configuration.getIdempotencyKeyTimeToLive()));
+        this.userService = new UserService(userRepository);
+        this.admin = admin;
+        this.auditTrail = configuration.getAuditTrail();
+        this.ledger = engine instanceof LedgerTransactionService started ? started : null;
+    }
+
+    /**
+     * Constructs a new BankSystem instance around an already built transaction engine,
+     * e.g. a {@link application.service.ShardedTransactionService}.
+     *
+     * @param admin The name of the system administrator.
+     * @param accountRepository The repository for managing accounts.
+     * @param transactionService The engine executing transaction operations.
+     * @param userRepository The repository for managing users.
+     */
+    public BankSystem(String admin, AccountRepository accountRepository, TransactionsOperations transactionService, UserRepository userRepository) {
+        this.moneyMode = new BankSystemConfiguration().getMoneyMode();
+        this.accountService = new AccountService(accountRepository, moneyMode);
+        this.engine = transactionService;
+        this.transactionService = new IdempotentTransactionService(transactionService);
         this.userService = new UserService(userRepository);
         this.admin = admin;
+        this.auditTrail = null;
+        this.ledger = null;
     }
 
     /**
@@ -59,6 +142,16 @@ public class BankSystem {
         return userService.createUser(name, password, maxAccounts);
     }
 
+    /**
+     * Retrieves the user with the given unique identifier.
+     *
+     * @param id The unique identifier of the user.
+     * @return The user with the given unique identifier, or null if there is none.
+     */
+    public User getUserById(UUID id) {
+        return userService.getUserByUID(id);
+    }
+
     /**
      * Deletes the given user from the system.
      *
@@ -85,6 +178,7 @@ public class BankSystem {
      * @param amount The amount to be deposited.
      */
     public void deposit(Account account, BigDecimal amount) {
+        validateAmount(amount);
         transactionService.deposit(account, amount);
     }
 
@@ -95,6 +189,7 @@ public class BankSystem {
      * @param amount The amount to be withdrawn.
      */
     public void withdrawal(Account account, BigDecimal amount) throws NotEnoughFundsException {
+        validateAmount(amount);
         transactionService.withdrawal(account, amount);
     }
 
@@ -106,28 +201,138 @@ public class BankSystem {
      * @param amount The amount to be transferred.
      */
     public void transfer(Account account, Account recipient, BigDecimal amount) throws NotEnoughFundsException {
+        validateAmount(amount);
         transactionService.transfer(account, recipient, amount);
     }
 
+    /**
+     * Deposits the given amount into the specified account unless a request with the same idempotency key
+     * was executed recently, in which case the balance is left untouched.
+     *
+     * @param idempotencyKey The key the client attached to the request, or null.
+     * @param account The account into which the deposit is being made.
+     * @param amount The amount to be deposited.
+     * @throws IllegalArgumentException If the key was used for a different operation.
+     */
+    public void deposit(String idempotencyKey, Account account, BigDecimal amount) {
+        validateAmount(amount);
+        transactionService.deposit(idempotencyKey, account, amount);
+    }
+
+    /**
+     * Withdraws the given amount from the specified account unless a request with the same idempotency key
+     * was executed recently, in which case its outcome is repeated and the balance is left untouched.
+     *
+     * @param idempotencyKey The key the client attached to the request, or null.
+     * @param account The account from which the withdrawal is being made.
+     * @param amount The amount to be withdrawn.
+     * @throws IllegalArgumentException If the key was used for a different operation.
+     */
+    public void withdrawal(String idempotencyKey, Account account, BigDecimal amount) throws NotEnoughFundsException {
+        validateAmount(amount);
+        transactionService.withdrawal(idempotencyKey, account, amount);
+    }
+
+    /**
+     * Transfers the given amount from the specified account to the recipient account unless a request with
+     * the same idempotency key was executed recently, in which case its outcome is repeated and the balances
+     * are left untouched.
+     *
+     * @param idempotencyKey The key the client attached to the request, or null.
+     * @param account The account from which the transfer is being made.
+     * @param recipient The account to which the transfer is being made.
+     * @param amount The amount to be transferred.
+     * @throws IllegalArgumentException If the key was used for a different operation.
+     */
+    public void transfer(String idempotencyKey, Account account, Account recipient, BigDecimal amount) throws NotEnoughFundsException {
+        validateAmount(amount);
+        transactionService.transfer(idempotencyKey, account, recipient, amount);
+    }
+
+    /**
+     * Executes a batch of deposits, withdrawals and transfers on a best-effort basis:
+     * every operation that can be executed is, the others are reported as failed.
+     *
+     * @param operations The operations to execute, in order.
+     * @return The result of every operation, in the order of the operations.
+     */
+    public List<OperationResult> executeBatch(List<Operation> operations) {
+        return executeBatch(operations, BatchMode.BEST_EFFORT);
+    }
+
+    /**
+     * Executes a batch of deposits, withdrawals and transfers, saving the transactions of all executed
+     * operations with a single repository call.
+     *
+     * @param operations The operations to execute, in order.
+     * @param mode Whether a failed operation aborts the whole batch.
+     * @return The result of every operation, in the order of the operations.
+     */
+    public List<OperationResult> executeBatch(List<Operation> operations, BatchMode mode) {
+        for (Operation operation : operations) {
+            validateAmount(operation.getAmount());
+        }
+        return transactionService.executeBatch(operations, mode);
+    }
+
     /**
      * Retrieves the current balance of the specified account.
+     * The read is recorded to the audit trail, if one is configured, and never to the transaction history.
      *
      * @param account The account whose balance is being retrieved.
      * @return The current balance of the account.
      */
     public BigDecimal getBalance(Account account) {
+        if (auditTrail != null) {
+            auditTrail.record(account.getAccountId(), AuditEventType.BALANCE_READ);
+        }
         return transactionService.getBalance(account);
     }
 
     /**
      * Retrieves the history of all transactions.
      *
-     * @return A list of all transactions.
+     * @return An unmodifiable list of all transactions.
      */
     public List<Transaction> getHistoryOfTransaction() {
         return transactionService.getAllTransactions();
     }
 
+    /**
+     * Retrieves one page of the history of all transactions.
+     *
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param pageSize The maximal number of transactions on the page.
+     * @return The requested page and the cursor of the next one.
+     */
+    public Page<Transaction> getHistoryOfTransaction(String cursor, int pageSize) {
+        return transactionService.getAllTransactions(cursor, pageSize);
+    }
+
+    /**
+     * Retrieves one page of the transaction history of the specified account.
+     *
+     * @param account The account whose history is being retrieved.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param pageSize The maximal number of transactions on the page.
+     * @return The requested page and the cursor of the next one.
+     */
+    public Page<Transaction> getAccountHistory(Account account, String cursor, int pageSize) {
+        return transactionService.getAccountsTransactions(account, cursor, pageSize);
+    }
+
+    /**
+     * Retrieves the statement of the specified account for the period {@code [from, to)}.
+     *
+     * @param account The account whose statement is being retrieved.
+     * @param from The inclusive start of the period.
+     * @param to The exclusive end of the period.
+     * @return A list of the account's transactions in the period, ordered by date.
+     */
+    public List<Transaction> getAccountStatement(Account account, LocalDateTime from, LocalDateTime to) {
+        return transactionService.getAccountsTransactions(account, from, to);
+    }
+
     /**
      * Retrieves the name of the system administrator.
      *
@@ -156,4 +361,55 @@ public class BankSystem {
     public Account getAccountByIdHashCode(UUID id){
         return accountService.getAccountByUid(id);
     }
+
+    /**
+     * Stops the transaction engine if this banking system started it, e.g. the thread of a
+     * {@link ExecutionMode#LEDGER} engine. An engine passed in, the repositories and the audit trail are left to
+     * their owner.
+     */
+    @Override
+    public void close() {
+        if (ledger != null) {
+            ledger.close();
+        }
+    }
+
+    /**
+     * Retrieves the live metrics of the user, account and transaction services.
+     * Services that are not instrumented are left out.
+     *
+     * @return The metrics of every instrumented service.
+     */
+    public List<ServiceMetrics> getMetrics() {
+        List<ServiceMetrics> metrics = new ArrayList<>();
+        for (Object service : List.of(userService, accountService, engine)) {
+            if (service instanceof Instrumented instrumented) {
+                metrics.add(instrumented.getMetrics());
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Exposes the metrics of every instrumented service over JMX.
+     *
+     * @param instance The name distinguishing this banking system from others in the same JVM.
+     */
+    public void registerMetrics(String instance) {
+        for (ServiceMetrics metrics : getMetrics()) {
+            metrics.register(instance);
+        }
+    }
+
+    /**
+     * Rejects amounts that cannot be represented in minor units before they reach the fixed-point accounts.
+     *
+     * @param amount The amount to validate.
+     * @throws IllegalArgumentException If the amount has too many fractional digits or overflows.
+     */
+    private void validateAmount(BigDecimal amount) {
+        if (moneyMode == MoneyMode.FIXED_POINT) {
+            Money.toMinorUnits(amount);
+        }
+    }
 }
\ No newline at end of file
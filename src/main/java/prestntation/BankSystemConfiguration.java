@@ -0,0 +1,145 @@
+package prestntation;
+
+import application.audit.AuditTrail;
+import application.models.MoneyMode;
+import application.service.AccountLocks;
+import application.service.ExecutionMode;
+import application.service.IdempotencyCache;
+
+import java.time.Duration;
+
+/**
+ * This class holds the settings used to assemble a {@link BankSystem}.
+ * Every setter returns the configuration itself so that settings can be chained.
+ */
+public class BankSystemConfiguration {
+
+    private ExecutionMode executionMode = ExecutionMode.SEQUENTIAL;
+    private MoneyMode moneyMode = MoneyMode.DECIMAL;
+    private AccountLocks accountLocks;
+    private int idempotencyKeyCapacity = IdempotencyCache.DEFAULT_CAPACITY;
+    private Duration idempotencyKeyTimeToLive = IdempotencyCache.DEFAULT_TIME_TO_LIVE;
+    private AuditTrail auditTrail;
+
+    /**
+     * Retrieves the execution mode of transaction operations.
+     *
+     * @return The execution mode.
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Sets the execution mode of transaction operations.
+     *
+     * @param executionMode The execution mode.
+     * @return This configuration.
+     */
+    public BankSystemConfiguration executionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        return this;
+    }
+
+    /**
+     * Retrieves the balance representation of newly created accounts.
+     *
+     * @return The money mode.
+     */
+    public MoneyMode getMoneyMode() {
+        return moneyMode;
+    }
+
+    /**
+     * Sets the balance representation of newly created accounts.
+     *
+     * @param moneyMode The money mode.
+     * @return This configuration.
+     */
+    public BankSystemConfiguration moneyMode(MoneyMode moneyMode) {
+        this.moneyMode = moneyMode;
+        return this;
+    }
+
+    /**
+     * Retrieves the account locks used in {@link ExecutionMode#CONCURRENT} mode.
+     *
+     * @return The account locks, or null if the banking system creates its own.
+     */
+    public AccountLocks getAccountLocks() {
+        return accountLocks;
+    }
+
+    /**
+     * Sets the account locks used in {@link ExecutionMode#CONCURRENT} mode, so that other components,
+     * such as snapshotting, can coordinate with running operations.
+     *
+     * @param accountLocks The account locks.
+     * @return This configuration.
+     */
+    public BankSystemConfiguration accountLocks(AccountLocks accountLocks) {
+        this.accountLocks = accountLocks;
+        return this;
+    }
+
+    /**
+     * Retrieves the maximal number of idempotency keys remembered at once.
+     *
+     * @return The capacity of the idempotency key cache.
+     */
+    public int getIdempotencyKeyCapacity() {
+        return idempotencyKeyCapacity;
+    }
+
+    /**
+     * Sets the maximal number of idempotency keys remembered at once; the oldest keys are forgotten first.
+     *
+     * @param idempotencyKeyCapacity The capacity of the idempotency key cache.
+     * @return This configuration.
+     */
+    public BankSystemConfiguration idempotencyKeyCapacity(int idempotencyKeyCapacity) {
+        this.idempotencyKeyCapacity = idempotencyKeyCapacity;
+        return this;
+    }
+
+    /**
+     * Retrieves the time after which an idempotency key is forgotten.
+     *
+     * @return The time to live of idempotency keys.
+     */
+    public Duration getIdempotencyKeyTimeToLive() {
+        return idempotencyKeyTimeToLive;
+    }
+
+    /**
+     * Sets the time after which an idempotency key is forgotten and a request with it is executed again.
+     *
+     * @param idempotencyKeyTimeToLive The time to live of idempotency keys.
+     * @return This configuration.
+     */
+    public BankSystemConfiguration idempotencyKeyTimeToLive(Duration idempotencyKeyTimeToLive) {
+        this.idempotencyKeyTimeToLive = idempotencyKeyTimeToLive;
+        return this;
+    }
+
+    /**
+     * Retrieves the audit trail that balance reads are recorded to.
+     *
+     * @return The audit trail, or null if reads are not audited.
+     */
+    public AuditTrail getAuditTrail() {
+        return auditTrail;
+    }
+
+    /**
+     * Sets the audit trail that balance reads are recorded to. The trail is owned by the caller,
+     * who closes it after the banking system is no longer used.
+     *
+     * @param auditTrail The audit trail.
+     * @return This configuration.
+     */
+    public BankSystemConfiguration auditTrail(AuditTrail auditTrail) {
+        this.auditTrail = auditTrail;
+        return this;
+    }
+}
@@ -0,0 +1,168 @@
+package prestntation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A minimal reader and writer for the flat JSON objects exchanged by {@link BankHttpServer}:
+ * objects whose values are strings, numbers, booleans or null.
+ */
+public final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Parses a flat JSON object. Numbers and booleans are returned in their textual form, null as a missing value.
+     *
+     * @param text The JSON text.
+     * @return The members of the object, in document order.
+     * @throws IllegalArgumentException If the text is not a flat JSON object.
+     */
+    public static Map<String, String> parseObject(String text) {
+        Reader reader = new Reader(text);
+        Map<String, String> members = new LinkedHashMap<>();
+        reader.expect('{');
+        if (!reader.consume('}')) {
+            do {
+                String name = reader.string();
+                reader.expect(':');
+                String value = reader.value();
+                if (value != null) {
+                    members.put(name, value);
+                }
+            } while (reader.consume(','));
+            reader.expect('}');
+        }
+        reader.end();
+        return members;
+    }
+
+    /**
+     * Writes a string as a JSON string literal.
+     *
+     * @param value The string, or null.
+     * @return The quoted and escaped string, or {@code null}.
+     */
+    public static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static final class Reader {
+
+        private final String text;
+        private int position;
+
+        private Reader(String text) {
+            this.text = text;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw error("'" + c + "' expected");
+            }
+        }
+
+        private boolean consume(char c) {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void end() {
+            skipWhitespace();
+            if (position != text.length()) {
+                throw error("end of input expected");
+            }
+        }
+
+        private String value() {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == '"') {
+                return string();
+            }
+            int start = position;
+            while (position < text.length() && "-+.eE0123456789truefalsn".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][-+]?\\d+)?")) {
+                return literal;
+            }
+            throw error("string, number, boolean or null expected");
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder builder = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return builder.toString();
+                }
+                if (c != '\\') {
+                    builder.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case '"', '\\', '/' -> builder.append(escaped);
+                    case 'b' -> builder.append('\b');
+                    case 'f' -> builder.append('\f');
+                    case 'n' -> builder.append('\n');
+                    case 'r' -> builder.append('\r');
+                    case 't' -> builder.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw error("invalid unicode escape");
+                        }
+                        builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> throw error("invalid escape");
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSON at " + position + ": " + message);
+        }
+    }
+}
@@ -1,23 +1,97 @@
 package prestntation;
 
+import application.audit.AuditTrail;
 import application.exceptions.MaxAccountsReachedException;
 import application.exceptions.NotEnoughFundsException;
 import application.models.Account;
 import application.models.User;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import application.service.ExecutionMode;
+import application.service.StripedAccountLocks;
 import infrastructure.InMemoryAccountRepository;
 import infrastructure.InMemoryTransactionRepository;
 import infrastructure.InMemoryUserRepository;
+import infrastructure.persistence.DurabilityMode;
+import infrastructure.persistence.FileAuditSink;
+import infrastructure.persistence.LoggingAccountRepository;
+import infrastructure.persistence.LoggingUserRepository;
+import infrastructure.persistence.RecoveryReport;
+import infrastructure.persistence.SnapshotManager;
+import infrastructure.persistence.WriteAheadLogTransactionRepository;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Scanner;
 import java.util.UUID;
 
 public class UsingBankSystem {
 
     private final Scanner scanner = new Scanner(System.in);
-    private final InMemoryAccountRepository accountRepository = new InMemoryAccountRepository();
-    private final InMemoryUserRepository userRepository = new InMemoryUserRepository(accountRepository);
-    private final InMemoryTransactionRepository transactionRepository = new InMemoryTransactionRepository();
+    private final AccountRepository accountRepository;
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final BankSystemConfiguration configuration;
+
+    /**
+     * Prepares the application with all data kept in memory only.
+     */
+    public UsingBankSystem() {
+        this.accountRepository = new InMemoryAccountRepository();
+        this.userRepository = new InMemoryUserRepository(accountRepository);
+        this.transactionRepository = new InMemoryTransactionRepository();
+        this.configuration = new BankSystemConfiguration();
+    }
+
+    /**
+     * Prepares the application with data persisted in the given directory: transactions and the creation and
+     * deletion of users and accounts go to a write-ahead log, and users and balances are snapshotted every minute.
+     * On startup the newest snapshot is restored and only the log tail after it is read and replayed; the time
+     * this takes is printed. Balance reads are audited to a separate file.
+     *
+     * @param dataDirectory The directory holding the log and the snapshots.
+     * @throws IOException If the persisted data cannot be read.
+     */
+    public UsingBankSystem(Path dataDirectory) throws IOException {
+        long start = System.nanoTime();
+        InMemoryAccountRepository accounts = new InMemoryAccountRepository();
+        InMemoryUserRepository users = new InMemoryUserRepository(accounts);
+        StripedAccountLocks locks = new StripedAccountLocks(Runtime.getRuntime().availableProcessors() * 16);
+        SnapshotManager snapshots = new SnapshotManager(dataDirectory.resolve("snapshots"), accounts, users, locks);
+        snapshots.restore();
+        WriteAheadLogTransactionRepository log = new WriteAheadLogTransactionRepository(dataDirectory.resolve("transactions.wal"), accounts,
+                DurabilityMode.GROUP_COMMIT, WriteAheadLogTransactionRepository.DEFAULT_FLUSH_INTERVAL,
+                WriteAheadLogTransactionRepository.DEFAULT_BATCH_SIZE, snapshots.getRestoredLogPosition());
+        RecoveryReport report = snapshots.replay(log.getLog());
+        Duration startup = Duration.ofNanos(System.nanoTime() - start);
+        snapshots.start(log.getLog(), Duration.ofMinutes(1));
+        this.accountRepository = new LoggingAccountRepository(accounts, log.getLog());
+        this.userRepository = new LoggingUserRepository(users, log.getLog());
+        this.transactionRepository = log;
+        AuditTrail auditTrail = AuditTrail.start(new FileAuditSink(dataDirectory.resolve("audit.log")));
+        Runtime.getRuntime().addShutdownHook(new Thread(auditTrail::close, "audit-shutdown"));
+        this.configuration = new BankSystemConfiguration().executionMode(ExecutionMode.CONCURRENT).accountLocks(locks)
+                .auditTrail(auditTrail);
+        System.out.println("Данные восстановлены за " + startup.toMillis() + " мс: " + report);
+    }
+
+    /**
+     * Serves the banking system over HTTP instead of the console; the server runs until the process is stopped.
+     * The service metrics are exposed over JMX.
+     *
+     * @param port The port to listen on.
+     * @throws IOException If the port cannot be bound.
+     */
+    public void serve(int port) throws IOException {
+        BankSystem bank = new BankSystem("kate", accountRepository, transactionRepository, userRepository, configuration);
+        bank.registerMetrics("main");
+        BankHttpServer server = new BankHttpServer(bank, port);
+        server.start();
+        System.out.println("Сервер запущен на порту " + server.getPort());
+    }
 
 
     /**
@@ -34,7 +108,7 @@ public class UsingBankSystem {
         System.out.println("Приветствуем вас в системе банка!");
         System.out.println("Пожалуйста введите имя:");
         String userName = scanner.nextLine();
-        BankSystem kateBank = new BankSystem(userName, accountRepository, transactionRepository, userRepository);
+        BankSystem kateBank = new BankSystem(userName, accountRepository, transactionRepository, userRepository, configuration);
         User admin = new User("kate", "nekkkkate", 1000);
 
         System.out.println("Добро пожаловать в прилоежние банка! пожалуйста выберите дальнейшие действия!");
@@ -3,11 +3,24 @@ package prestntation.main;
 import application.exceptions.NotEnoughFundsException;
 import prestntation.UsingBankSystem;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class Main {
 
-    public static void main(String[] args) throws NotEnoughFundsException {
+    public static void main(String[] args) throws NotEnoughFundsException, IOException {
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            // The JDK server writes response headers and body separately; without TCP_NODELAY the body waits for the client's delayed ACK.
+            if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+                System.setProperty("sun.net.httpserver.nodelay", "true");
+            }
+            UsingBankSystem system = args.length > 2 ? new UsingBankSystem(Path.of(args[2])) : new UsingBankSystem();
+            system.serve(port);
+            return;
+        }
         System.out.println("Добро пожаловать в приложение банка!");
-        UsingBankSystem system = new UsingBankSystem();
+        UsingBankSystem system = args.length > 0 ? new UsingBankSystem(Path.of(args[0])) : new UsingBankSystem();
         system.start();
     }
 }
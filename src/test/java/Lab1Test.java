@@ -1,19 +1,95 @@
+import application.audit.AuditEvent;
+import application.audit.AuditEventType;
+import application.audit.AuditTrail;
+import application.audit.DropPolicy;
 import application.exceptions.MaxAccountsReachedException;
 import application.exceptions.NotEnoughFundsException;
+import application.metrics.OperationMetrics;
+import application.metrics.OperationSnapshot;
+import application.metrics.ServiceMetrics;
 import application.models.Account;
+import application.models.FixedPointAccount;
+import application.models.MoneyMode;
+import application.models.Page;
 import application.models.User;
+import application.models.transactions.BatchMode;
+import application.models.transactions.Operation;
+import application.models.transactions.OperationResult;
 import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+import application.posting.PostingEngine;
+import application.posting.PostingPolicy;
+import application.posting.PostingReport;
+import application.posting.RateTier;
+import application.reconciliation.ReconciliationEngine;
+import application.reconciliation.ReconciliationReport;
 import application.repositories.AccountRepository;
 import application.repositories.TransactionRepository;
 import application.repositories.UserRepository;
+import infrastructure.CacheStats;
+import infrastructure.CachingAccountRepository;
+import infrastructure.ColumnarTransactionRepository;
 import infrastructure.InMemoryAccountRepository;
+import infrastructure.InMemoryAuditSink;
+import infrastructure.InMemoryPostingCheckpoint;
 import infrastructure.InMemoryTransactionRepository;
+import application.service.AccountPartitioner;
+import application.service.AccountService;
+import application.service.ExecutionMode;
+import application.service.IdempotencyCache;
+import application.service.LedgerTransactionService;
+import application.service.ShardedTransactionService;
+import application.service.StripedAccountLocks;
 import infrastructure.InMemoryUserRepository;
+import infrastructure.ShardedAccountRepository;
+import infrastructure.persistence.DiskAccountRepository;
+import infrastructure.persistence.DiskHashFile;
+import infrastructure.persistence.DiskStore;
+import infrastructure.persistence.DurabilityMode;
+import infrastructure.persistence.FilePostingCheckpoint;
+import infrastructure.persistence.LoggingAccountRepository;
+import infrastructure.persistence.LoggingUserRepository;
+import infrastructure.persistence.MappedJournalTransactionRepository;
+import infrastructure.persistence.RecoveryReport;
+import infrastructure.persistence.SnapshotManager;
+import infrastructure.persistence.TieredTransactionRepository;
+import infrastructure.persistence.WriteAheadLog;
+import infrastructure.persistence.WriteAheadLogTransactionRepository;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import prestntation.BankHttpServer;
 import prestntation.BankSystem;
+import prestntation.BankSystemConfiguration;
+import prestntation.Json;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -158,4 +234,1062 @@ public class Lab1Test {
 
         assertEquals("kate", accountSystem.getAdmin(), "Admin name should be 'kate'");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Concurrent deposits and opposite transfers do not lose updates")
+    void testConcurrentTransactions() throws Exception {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+
+        BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, userRepository, ExecutionMode.CONCURRENT);
+        User user = accountSystem.createUser("kate", "password", 2);
+        Account account1 = accountSystem.createAccount(user);
+        Account account2 = accountSystem.createAccount(user);
+        accountSystem.deposit(account1, new BigDecimal("1000"));
+        accountSystem.deposit(account2, new BigDecimal("5000"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            boolean forward = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    accountSystem.deposit(account1, BigDecimal.ONE);
+                    if (forward) {
+                        accountSystem.transfer(account1, account2, BigDecimal.ONE);
+                    } else {
+                        accountSystem.transfer(account2, account1, BigDecimal.ONE);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(new BigDecimal("9000"), account1.getBalance(), "Balance of account1 should be 9000");
+        assertEquals(new BigDecimal("5000"), account2.getBalance(), "Balance of account2 should be 5000");
+    }
+
+    @Test
+    @DisplayName("Transfer to the same account keeps the balance in concurrent mode")
+    void testSelfTransferConcurrent() throws NotEnoughFundsException, MaxAccountsReachedException {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+
+        BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, userRepository, ExecutionMode.CONCURRENT);
+        User user = accountSystem.createUser("kate", "password", 1);
+        Account account = accountSystem.createAccount(user);
+
+        accountSystem.deposit(account, new BigDecimal("100"));
+        accountSystem.transfer(account, account, new BigDecimal("60"));
+
+        assertEquals(new BigDecimal("100"), account.getBalance(), "Balance should stay 100");
+        assertThrows(NotEnoughFundsException.class, () -> {
+            accountSystem.transfer(account, account, new BigDecimal("101"));
+        }, "InsufficientFundsException");
+    }
+
+    @Test
+    @DisplayName("Lock-free fixed-point accounts keep exact balances and reject sub-cent amounts")
+    void testFixedPointLockFree() throws Exception {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+
+        BankSystemConfiguration configuration = new BankSystemConfiguration()
+                .executionMode(ExecutionMode.LOCK_FREE)
+                .moneyMode(MoneyMode.FIXED_POINT);
+        BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, userRepository, configuration);
+        User user = accountSystem.createUser("kate", "password", 1);
+        Account account = accountSystem.createAccount(user);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    accountSystem.deposit(account, new BigDecimal("0.10"));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(new BigDecimal("400.00"), accountSystem.getBalance(account), "Balance should be 400.00");
+        assertThrows(IllegalArgumentException.class, () -> {
+            accountSystem.deposit(account, new BigDecimal("0.001"));
+        }, "IllegalArgumentException");
+        assertThrows(NotEnoughFundsException.class, () -> {
+            accountSystem.withdrawal(account, new BigDecimal("400.01"));
+        }, "InsufficientFundsException");
+
+        int history = transactionRepository.getAllTransactions().size();
+        Account full = new FixedPointAccount(UUID.randomUUID(), user, Long.MAX_VALUE - 100);
+        assertThrows(ArithmeticException.class, () -> {
+            accountSystem.transfer(account, full, new BigDecimal("1.01"));
+        }, "ArithmeticException");
+        assertEquals(new BigDecimal("400.00"), accountSystem.getBalance(account), "A transfer the recipient cannot take should keep the sender's funds");
+        assertThrows(ArithmeticException.class, () -> {
+            accountSystem.deposit(full, new BigDecimal("1.01"));
+        }, "ArithmeticException");
+
+        Account filledMeanwhile = new FixedPointAccount(UUID.randomUUID(), user, Long.MAX_VALUE - 100) {
+            @Override
+            public boolean canDeposit(BigDecimal amount) {
+                return true;
+            }
+        };
+        assertThrows(ArithmeticException.class, () -> {
+            accountSystem.transfer(account, filledMeanwhile, new BigDecimal("1.01"));
+        }, "ArithmeticException");
+        assertEquals(new BigDecimal("400.00"), accountSystem.getBalance(account), "A failed credit should return the sender's funds");
+        assertEquals(history, transactionRepository.getAllTransactions().size(), "Overflowing operations should leave no record");
+    }
+
+    @Test
+    @DisplayName("Account history contains incoming transfers")
+    void testAccountHistoryWithIncomingTransfers() throws NotEnoughFundsException, MaxAccountsReachedException {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+
+        BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, userRepository);
+        User user = accountSystem.createUser("kate", "password", 2);
+        Account account1 = accountSystem.createAccount(user);
+        Account account2 = accountSystem.createAccount(user);
+
+        accountSystem.deposit(account1, new BigDecimal("200"));
+        accountSystem.transfer(account1, account2, new BigDecimal("100"));
+        accountSystem.deposit(account2, new BigDecimal("5"));
+
+        assertEquals(2, transactionRepository.getAccountTransactions(account1).size(), "Sender should see 2 transactions");
+        List<Transaction> recipientHistory = transactionRepository.getAccountTransactions(account2);
+        assertEquals(2, recipientHistory.size(), "Recipient should see the incoming transfer and the deposit");
+        assertEquals(account1, recipientHistory.get(0).getAccount(), "Incoming transfer should come first");
+    }
+
+    @Test
+    @DisplayName("Accounts are listed and deleted per user")
+    void testAccountsByUser() throws MaxAccountsReachedException {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+
+        BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, userRepository);
+        User kate = accountSystem.createUser("kate", "password", 2);
+        User anna = accountSystem.createUser("anna", "password", 1);
+        Account kateAccount = accountSystem.createAccount(kate);
+        accountSystem.createAccount(kate);
+        Account annaAccount = accountSystem.createAccount(anna);
+
+        assertEquals(2, userRepository.getAccounts(kate).size(), "Kate should have 2 accounts");
+        accountRepository.delete(kateAccount);
+        assertEquals(1, userRepository.getAccounts(kate).size(), "Kate should have 1 account left");
+
+        accountSystem.deleteUser(kate);
+        assertTrue(userRepository.getAccounts(kate).isEmpty(), "Kate's accounts should be deleted");
+        assertEquals(List.of(annaAccount), userRepository.getAccounts(anna), "Anna's account should stay");
+    }
+
+    @Test
+    @DisplayName("Transaction history is paged with cursors")
+    void testPagedHistory() throws MaxAccountsReachedException {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+
+        BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, userRepository);
+        User user = accountSystem.createUser("kate", "password", 1);
+        Account account = accountSystem.createAccount(user);
+        for (int i = 1; i <= 5; i++) {
+            accountSystem.deposit(account, new BigDecimal(i));
+        }
+
+        Page<Transaction> first = accountSystem.getHistoryOfTransaction(null, 2);
+        Page<Transaction> second = accountSystem.getHistoryOfTransaction(first.getNextCursor(), 2);
+        accountSystem.deposit(account, new BigDecimal("6"));
+        Page<Transaction> third = accountSystem.getAccountHistory(account, second.getNextCursor(), 2);
+
+        assertEquals(new BigDecimal("1"), first.getItems().get(0).getAmount(), "First page should start with the first deposit");
+        assertEquals(new BigDecimal("3"), second.getItems().get(0).getAmount(), "Second page should continue after the first");
+        assertEquals(2, third.getItems().size(), "Third page should contain the remaining deposits");
+        assertFalse(third.hasNext(), "Third page should be the last one");
+        assertThrows(IllegalArgumentException.class, () -> {
+            accountSystem.getHistoryOfTransaction("not-a-cursor", 2);
+        }, "IllegalArgumentException");
+        assertThrows(UnsupportedOperationException.class, () -> {
+            accountSystem.getHistoryOfTransaction().clear();
+        }, "UnsupportedOperationException");
+    }
+
+    @Test
+    @DisplayName("Account statement covers only the requested period")
+    void testAccountStatement() throws MaxAccountsReachedException, InterruptedException {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+
+        BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, userRepository);
+        User user = accountSystem.createUser("kate", "password", 1);
+        Account account = accountSystem.createAccount(user);
+
+        for (int i = 1; i <= 4; i++) {
+            accountSystem.deposit(account, new BigDecimal(i));
+            Thread.sleep(2);
+        }
+        List<Transaction> transactions = transactionRepository.getAllTransactions();
+        LocalDateTime from = transactions.get(1).getDate();
+        LocalDateTime to = transactions.get(3).getDate();
+
+        List<Transaction> statement = accountSystem.getAccountStatement(account, from, to);
+        assertEquals(2, statement.size(), "Statement should contain the transactions of the period only");
+        assertSame(transactions.get(1), statement.get(0), "The lower bound should be inclusive");
+        assertEquals(new BigDecimal("3"), statement.get(1).getAmount(), "Statement should contain the transactions in between");
+        assertFalse(statement.contains(transactions.get(3)), "The upper bound should be exclusive");
+        assertEquals(transactionRepository.getTransactionsBetween(from, to), statement, "Single account statement should match the global range");
+        assertTrue(accountSystem.getAccountStatement(account, to.plusSeconds(1), to.plusDays(1)).isEmpty(), "No transactions in the future");
+    }
+
+    @Test
+    @DisplayName("Transactions survive reopening the write-ahead log")
+    void testWriteAheadLogReopen(@TempDir Path directory) throws Exception {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+        Path file = directory.resolve("transactions.wal");
+        Account account1;
+        Account account2;
+        WriteAheadLog log;
+
+        try (WriteAheadLogTransactionRepository transactionRepository = new WriteAheadLogTransactionRepository(
+                file, accountRepository, DurabilityMode.GROUP_COMMIT, Duration.ofMillis(1), 16)) {
+            log = transactionRepository.getLog();
+            BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, userRepository);
+            User user = accountSystem.createUser("kate", "password", 2);
+            account1 = accountSystem.createAccount(user);
+            account2 = accountSystem.createAccount(user);
+            accountSystem.deposit(account1, new BigDecimal("12.50"));
+            accountSystem.transfer(account1, account2, new BigDecimal("2.5"));
+            assertEquals(2, transactionRepository.getLog().lastSequence(), "Log should hold 2 records");
+        }
+        log.close();
+        assertThrows(IOException.class, log::flush, "Flushing a closed log should fail instead of waiting");
+
+        try (WriteAheadLogTransactionRepository reopened = new WriteAheadLogTransactionRepository(file, accountRepository)) {
+            List<Transaction> transactions = reopened.getAllTransactions();
+            assertEquals(2, transactions.size(), "Both transactions should be restored");
+            assertEquals(new BigDecimal("12.50"), transactions.get(0).getAmount(), "Deposit amount should be restored exactly");
+            assertEquals(account2, transactions.get(1).getRecipient(), "Transfer recipient should be resolved");
+            assertEquals(1, reopened.getAccountTransactions(account2).size(), "Recipient history should be rebuilt");
+        }
+    }
+
+    @Test
+    @DisplayName("Memory-mapped journal rolls over segments and reads records back after reopening")
+    void testMappedJournal(@TempDir Path directory) throws Exception {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+        Account account1;
+        Account account2;
+        Transaction transfer;
+
+        try (MappedJournalTransactionRepository journal = new MappedJournalTransactionRepository(directory, accountRepository, 2)) {
+            BankSystem accountSystem = new BankSystem("kate", accountRepository, journal, userRepository);
+            User user = accountSystem.createUser("kate", "password", 2);
+            account1 = accountSystem.createAccount(user);
+            account2 = accountSystem.createAccount(user);
+            accountSystem.deposit(account1, new BigDecimal("10.25"));
+            accountSystem.deposit(account2, new BigDecimal("1"));
+            accountSystem.transfer(account1, account2, new BigDecimal("0.25"));
+            transfer = journal.getAllTransactions().get(2);
+        }
+
+        try (MappedJournalTransactionRepository reopened = new MappedJournalTransactionRepository(directory, accountRepository, 2)) {
+            assertEquals(3, reopened.size(), "Journal should hold 3 records across 2 segments");
+            Transaction restored = reopened.getTransactionByID(transfer.getId());
+            assertEquals(new BigDecimal("0.25"), restored.getAmount(), "Amount should be restored from minor units");
+            assertEquals(transfer.getDate(), restored.getDate(), "Timestamp should be restored exactly");
+            assertEquals(account2, restored.getRecipient(), "Recipient should be resolved");
+            assertEquals(2, reopened.getAccountTransactions(account2).size(), "Recipient history should include the transfer");
+            Page<Transaction> page = reopened.getTransactions(null, 2);
+            assertEquals(2, page.getItems().size(), "First page should hold 2 records");
+            assertTrue(page.hasNext(), "A second page should follow");
+        }
+
+        try (FileChannel channel = FileChannel.open(directory.resolve("journal-000001.seg"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(16), 0);
+        }
+        try (MappedJournalTransactionRepository reopened = new MappedJournalTransactionRepository(directory, accountRepository, 2)) {
+            assertEquals(2, reopened.size(), "A record whose body did not reach the disk should be dropped");
+            assertNull(reopened.getTransactionByID(transfer.getId()), "The torn record should not be indexed");
+        }
+    }
+
+    @Test
+    @DisplayName("Recovery restores the latest snapshot and replays only the log tail")
+    void testSnapshotRecovery(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("transactions.wal");
+        Path snapshots = directory.resolve("snapshots");
+        StripedAccountLocks locks = new StripedAccountLocks(16);
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+        Account account1;
+        Account account2;
+
+        try (WriteAheadLogTransactionRepository transactionRepository = new WriteAheadLogTransactionRepository(file, accountRepository);
+             SnapshotManager snapshotManager = new SnapshotManager(snapshots, accountRepository, userRepository, locks)) {
+            BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, userRepository,
+                    new BankSystemConfiguration().executionMode(ExecutionMode.CONCURRENT).accountLocks(locks));
+            User user = accountSystem.createUser("kate", "password", 3);
+            account1 = accountSystem.createAccount(user);
+            account2 = accountSystem.createAccount(user);
+            accountSystem.deposit(account1, new BigDecimal("100"));
+            assertEquals(1, snapshotManager.takeSnapshot(transactionRepository.getLog()), "Snapshot should cover the deposit");
+            accountSystem.transfer(account1, account2, new BigDecimal("30"));
+            accountSystem.withdrawal(account2, new BigDecimal("5"));
+        }
+
+        AccountRepository restoredAccounts = new InMemoryAccountRepository();
+        UserRepository restoredUsers = new InMemoryUserRepository(restoredAccounts);
+        SnapshotManager snapshotManager = new SnapshotManager(snapshots, restoredAccounts, restoredUsers, locks);
+        snapshotManager.restore();
+        try (WriteAheadLogTransactionRepository transactionRepository = new WriteAheadLogTransactionRepository(file, restoredAccounts)) {
+            RecoveryReport report = snapshotManager.replay(transactionRepository.getLog());
+            assertEquals(1, report.getSnapshotPosition(), "Replay should start after the snapshot");
+            assertEquals(2, report.getReplayedRecords(), "Only the transfer and the withdrawal should be replayed");
+            assertEquals(new BigDecimal("70"), restoredAccounts.findById(account1.getAccountId()).getBalance(), "Sender balance should be recovered");
+            assertEquals(new BigDecimal("25"), restoredAccounts.findById(account2.getAccountId()).getBalance(), "Recipient balance should be recovered");
+            User user = restoredUsers.getUserByUID(account1.getUser().getUserId());
+            assertEquals(2, user.getNumberOfAccounts(), "Account counter should be restored");
+            assertEquals(3, user.getMaxNumberOfAccounts(), "Account limit should be restored");
+            assertEquals(3, transactionRepository.getAllTransactions().size(), "History should be resolved against restored accounts");
+        }
+    }
+
+    @Test
+    @DisplayName("Users and accounts created after the snapshot are recovered from the log tail")
+    void testSnapshotRecoveryOfNewAccounts(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("transactions.wal");
+        Path snapshots = directory.resolve("snapshots");
+        StripedAccountLocks locks = new StripedAccountLocks(16);
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+        Account account1;
+        Account account2;
+        Account account3;
+        Account account4;
+
+        try (WriteAheadLogTransactionRepository transactionRepository = new WriteAheadLogTransactionRepository(file, accountRepository);
+             SnapshotManager snapshotManager = new SnapshotManager(snapshots, accountRepository, userRepository, locks)) {
+            WriteAheadLog log = transactionRepository.getLog();
+            BankSystem accountSystem = new BankSystem("kate", new LoggingAccountRepository(accountRepository, log), transactionRepository,
+                    new LoggingUserRepository(userRepository, log), new BankSystemConfiguration().executionMode(ExecutionMode.CONCURRENT).accountLocks(locks));
+            User user = accountSystem.createUser("kate", "password", 3);
+            account1 = accountSystem.createAccount(user);
+            accountSystem.deposit(account1, new BigDecimal("100"));
+            snapshotManager.takeSnapshot(log);
+            account2 = accountSystem.createAccount(user);
+            accountSystem.transfer(account1, account2, new BigDecimal("30"));
+            account3 = accountSystem.createAccount(accountSystem.createUser("anna", "secret", 1));
+            accountSystem.deposit(account3, new BigDecimal("7"));
+            account4 = accountSystem.createAccount(accountSystem.createUser("olga", "secret", 1));
+            accountSystem.deleteUser(account4.getUser());
+        }
+
+        AccountRepository restoredAccounts = new InMemoryAccountRepository();
+        UserRepository restoredUsers = new InMemoryUserRepository(restoredAccounts);
+        SnapshotManager snapshotManager = new SnapshotManager(snapshots, restoredAccounts, restoredUsers, locks);
+        snapshotManager.restore();
+        assertTrue(snapshotManager.getRestoredLogPosition().offset() > 0, "The snapshot should know where its position lies in the log");
+        try (WriteAheadLogTransactionRepository transactionRepository = new WriteAheadLogTransactionRepository(file, restoredAccounts,
+                DurabilityMode.GROUP_COMMIT, Duration.ZERO, 16, snapshotManager.getRestoredLogPosition())) {
+            RecoveryReport report = snapshotManager.replay(transactionRepository.getLog());
+            assertEquals(0, report.getSkippedRecords(), "Every record of the tail should be applied");
+            assertEquals(new BigDecimal("70"), restoredAccounts.findById(account1.getAccountId()).getBalance(), "Sender balance should be recovered");
+            assertEquals(new BigDecimal("30"), restoredAccounts.findById(account2.getAccountId()).getBalance(), "An account created after the snapshot should be recovered");
+            assertEquals(new BigDecimal("7"), restoredAccounts.findById(account3.getAccountId()).getBalance(), "A new user's account should be recovered");
+            assertEquals(2, restoredUsers.getUserByUID(account1.getUser().getUserId()).getNumberOfAccounts(), "Account counter should include new accounts");
+            assertNull(restoredUsers.getUserByUID(account4.getUser().getUserId()), "A deleted user should stay deleted");
+            assertNull(restoredAccounts.findById(account4.getAccountId()), "The accounts of a deleted user should stay deleted");
+            assertEquals(8, report.getReplayedRecords(), "Only the tail after the snapshot should be replayed");
+            assertEquals(3, transactionRepository.getAllTransactions().size(), "History should be loaded from the whole log on first use");
+        }
+    }
+
+    @Test
+    @DisplayName("Columnar repository returns the same views as the object-based repository")
+    void testColumnarTransactionRepository() throws MaxAccountsReachedException, NotEnoughFundsException {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        ColumnarTransactionRepository transactionRepository = new ColumnarTransactionRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+
+        BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, userRepository);
+        User user = accountSystem.createUser("kate", "password", 2);
+        Account account1 = accountSystem.createAccount(user);
+        Account account2 = accountSystem.createAccount(user);
+        accountSystem.deposit(account1, new BigDecimal("100.10"));
+        accountSystem.transfer(account1, account2, new BigDecimal("40"));
+        accountSystem.withdrawal(account2, new BigDecimal("0.10"));
+
+        List<Transaction> history = transactionRepository.getAccountTransactions(account2);
+        assertEquals(2, history.size(), "Recipient history should hold the transfer and the withdrawal");
+        assertEquals(account1, history.get(0).getAccount(), "Transfer should reference the sender");
+        assertEquals(account2, history.get(0).getRecipient(), "Transfer should reference the recipient");
+        assertEquals(new BigDecimal("40.00"), history.get(0).getAmount(), "Amount should be read from minor units");
+        assertEquals(2, transactionRepository.getAccountTransactions(account1).size(), "Sender history should hold the deposit and the transfer");
+
+        Transaction deposit = transactionRepository.getAllTransactions().get(0);
+        Transaction restored = transactionRepository.getTransactionByID(deposit.getId());
+        assertEquals(deposit.getDate(), restored.getDate(), "Timestamp should be kept exactly");
+        assertEquals(TransactionType.DEPOSIT, restored.getType(), "Type should be kept");
+        assertEquals(3, transactionRepository.getTransactionsBetween(deposit.getDate(), LocalDateTime.now().plusSeconds(1)).size(),
+                "Time range should cover all transactions");
+    }
+
+    @Test
+    @DisplayName("Batches report per-operation results and honour all-or-nothing mode")
+    void testExecuteBatch() throws MaxAccountsReachedException {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+
+        BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, userRepository, ExecutionMode.CONCURRENT);
+        User user = accountSystem.createUser("kate", "password", 2);
+        Account account1 = accountSystem.createAccount(user);
+        Account account2 = accountSystem.createAccount(user);
+        List<Operation> operations = List.of(
+                new Operation(account1, new BigDecimal("100"), TransactionType.DEPOSIT),
+                new Operation(account1, new BigDecimal("60"), TransactionType.TRANSFER, account2),
+                new Operation(account1, new BigDecimal("50"), TransactionType.WITHDRAWAL),
+                new Operation(account2, new BigDecimal("60"), TransactionType.WITHDRAWAL));
+
+        List<OperationResult> aborted = accountSystem.executeBatch(operations, BatchMode.ALL_OR_NOTHING);
+        assertEquals(OperationResult.Status.ABORTED, aborted.get(0).getStatus(), "Executable operation should be aborted");
+        assertEquals(OperationResult.Status.NOT_ENOUGH_FUNDS, aborted.get(2).getStatus(), "Overdraft should be reported");
+        assertNotNull(aborted.get(2).getError(), "Overdraft should carry its exception");
+        assertEquals(BigDecimal.ZERO, account1.getBalance(), "Nothing should be applied");
+        assertEquals(0, transactionRepository.getAllTransactions().size(), "Nothing should be logged");
+
+        List<OperationResult> results = accountSystem.executeBatch(operations);
+        assertTrue(results.get(0).isSuccessful(), "Deposit should succeed");
+        assertTrue(results.get(1).isSuccessful(), "Transfer should succeed");
+        assertFalse(results.get(2).isSuccessful(), "Withdrawal should fail on the running balance");
+        assertTrue(results.get(3).isSuccessful(), "Recipient should see the transferred funds");
+        assertEquals(new BigDecimal("40"), account1.getBalance(), "Sender balance should reflect the batch");
+        assertEquals(BigDecimal.ZERO, account2.getBalance(), "Recipient balance should reflect the batch");
+        assertEquals(3, transactionRepository.getAllTransactions().size(), "Only executed operations should be logged");
+    }
+
+    @Test
+    @DisplayName("Lock-free all-or-nothing batches stay atomic under concurrent withdrawals")
+    void testLockFreeBatchAtomicity() throws Exception {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+
+        BankSystemConfiguration configuration = new BankSystemConfiguration()
+                .executionMode(ExecutionMode.LOCK_FREE)
+                .moneyMode(MoneyMode.FIXED_POINT);
+        BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, userRepository, configuration);
+        User user = accountSystem.createUser("kate", "password", 2);
+        Account account1 = accountSystem.createAccount(user);
+        Account account2 = accountSystem.createAccount(user);
+        accountSystem.deposit(account1, new BigDecimal("300"));
+        List<Operation> operations = List.of(
+                new Operation(account1, BigDecimal.ONE, TransactionType.WITHDRAWAL),
+                new Operation(account1, BigDecimal.ONE, TransactionType.TRANSFER, account2));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            boolean batches = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 100; j++) {
+                    if (batches) {
+                        accountSystem.executeBatch(operations, BatchMode.ALL_OR_NOTHING);
+                    } else {
+                        try {
+                            accountSystem.withdrawal(account1, BigDecimal.ONE);
+                        } catch (NotEnoughFundsException ignored) {
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        long withdrawals = transactionRepository.getAllTransactions().stream()
+                .filter(transaction -> transaction.getType() == TransactionType.WITHDRAWAL).count();
+        long transfers = transactionRepository.getAllTransactions().stream()
+                .filter(transaction -> transaction.getType() == TransactionType.TRANSFER).count();
+        assertTrue(account1.getBalance().signum() >= 0, "Balance should never go negative");
+        assertEquals(new BigDecimal(300 - withdrawals - transfers).setScale(2), account1.getBalance(),
+                "Every logged operation should be applied exactly once");
+        assertEquals(new BigDecimal(transfers).setScale(2), account2.getBalance(), "Recipient should receive every logged transfer");
+
+        TransactionRepository failingRepository = new InMemoryTransactionRepository() {
+            @Override
+            public void saveAll(List<Transaction> transactions) {
+                throw new IllegalStateException("Log unavailable");
+            }
+        };
+        BankSystem failingSystem = new BankSystem("kate", accountRepository, failingRepository, userRepository, configuration);
+        accountSystem.deposit(account1, BigDecimal.TEN);
+        BigDecimal balance = account1.getBalance();
+        assertThrows(IllegalStateException.class, () -> failingSystem.executeBatch(operations, BatchMode.ALL_OR_NOTHING),
+                "Failure to log the batch should be reported");
+        assertEquals(balance, account1.getBalance(), "Debits should be returned when the batch cannot be logged");
+    }
+
+    @Test
+    @DisplayName("Ledger engine applies commands from many threads in sequence")
+    void testLedgerEngine() throws Exception {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        AccountService accountService = new AccountService(accountRepository);
+        Account account1 = accountService.createAccount(new User("kate", "password", 2));
+        Account account2 = accountService.createAccount(account1.getUser());
+
+        try (LedgerTransactionService ledger = LedgerTransactionService.start(transactionRepository, accountRepository, 8)) {
+            ledger.deposit(account1, new BigDecimal("1000"));
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                boolean forward = i % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 500; j++) {
+                        ledger.deposit(forward ? account1 : account2, BigDecimal.ONE);
+                        ledger.transfer(forward ? account1 : account2, forward ? account2 : account1, BigDecimal.ONE);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            assertEquals(new BigDecimal("5000"), account1.getBalance().add(account2.getBalance()), "Total balance should be 5000");
+            assertEquals(8001, transactionRepository.getAllTransactions().size(), "Every command should be logged once");
+            assertThrows(NotEnoughFundsException.class, () -> {
+                ledger.withdrawal(account1, new BigDecimal("1000000"));
+            }, "NotEnoughFundsException");
+        }
+
+        BankSystem bank = new BankSystem("kate", accountRepository, transactionRepository, new InMemoryUserRepository(accountRepository),
+                new BankSystemConfiguration().executionMode(ExecutionMode.LEDGER));
+        bank.deposit(account1, BigDecimal.ONE);
+        bank.close();
+        assertThrows(IllegalStateException.class, () -> {
+            bank.deposit(account1, BigDecimal.ONE);
+        }, "Closing the bank should stop the ledger engine it started");
+    }
+
+    @Test
+    @DisplayName("Sharded bank routes accounts to shards and compensates failed cross-shard transfers")
+    void testShardedBankSystem() throws MaxAccountsReachedException, NotEnoughFundsException {
+        List<AccountRepository> accountShards = new ArrayList<>();
+        List<TransactionRepository> transactionShards = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            accountShards.add(new InMemoryAccountRepository());
+            transactionShards.add(new InMemoryTransactionRepository());
+        }
+        AccountRepository accountRepository = new ShardedAccountRepository(accountShards);
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+
+        try (ShardedTransactionService engine = new ShardedTransactionService(accountShards, transactionShards)) {
+            BankSystem bank = new BankSystem("kate", accountRepository, engine, userRepository);
+            User user = bank.createUser("kate", "password", 8);
+            List<Account> accounts = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                Account account = bank.createAccount(user);
+                bank.deposit(account, new BigDecimal("100"));
+                accounts.add(account);
+            }
+            for (int i = 0; i < 8; i++) {
+                bank.transfer(accounts.get(i), accounts.get((i + 1) % 8), new BigDecimal(10 * (i + 1)));
+            }
+
+            AccountPartitioner partitioner = new AccountPartitioner(4);
+            BigDecimal total = BigDecimal.ZERO;
+            for (Account account : accounts) {
+                assertTrue(accountShards.get(partitioner.shardOf(account.getAccountId())).exists(account.getAccountId()), "Account should live in its shard");
+                assertEquals(3, engine.getAccountsTransactions(account).size(), "Every account should see a deposit and two transfers");
+                total = total.add(account.getBalance());
+            }
+            assertEquals(new BigDecimal("800"), total, "Total balance should be 800");
+            assertEquals(16, bank.getHistoryOfTransaction().size(), "Cross-shard transfers should be listed once");
+
+            Account sender = accounts.get(0);
+            int senderShard = partitioner.shardOf(sender.getAccountId());
+            Account missing;
+            do {
+                missing = new Account(UUID.randomUUID(), user, BigDecimal.ZERO);
+            } while (partitioner.shardOf(missing.getAccountId()) == senderShard);
+            BigDecimal before = sender.getBalance();
+            Account recipient = missing;
+            assertThrows(IllegalStateException.class, () -> {
+                bank.transfer(sender, recipient, BigDecimal.ONE);
+            }, "IllegalStateException");
+            assertEquals(before, sender.getBalance(), "Failed transfer should be compensated");
+            assertThrows(NotEnoughFundsException.class, () -> {
+                bank.withdrawal(sender, new BigDecimal("1000000"));
+            }, "NotEnoughFundsException");
+
+            List<OperationResult> results = bank.executeBatch(List.of(
+                    new Operation(sender, new BigDecimal("5"), TransactionType.DEPOSIT),
+                    new Operation(sender, BigDecimal.ONE, TransactionType.TRANSFER, recipient),
+                    new Operation(sender, new BigDecimal("2"), TransactionType.WITHDRAWAL)), BatchMode.BEST_EFFORT);
+            assertTrue(results.get(0).isSuccessful(), "Operations before the failed transfer should be reported");
+            assertEquals(OperationResult.Status.FAILED, results.get(1).getStatus(), "The compensated transfer should be reported as failed");
+            assertInstanceOf(IllegalStateException.class, results.get(1).getError(), "The failure should carry its exception");
+            assertTrue(results.get(2).isSuccessful(), "The batch should go on after the failed transfer");
+            assertEquals(before.add(new BigDecimal("3")), sender.getBalance(), "Only the executed operations should change the balance");
+        }
+    }
+
+    @Test
+    @DisplayName("Retried requests with the same idempotency key are executed once")
+    void testIdempotencyKeys() throws MaxAccountsReachedException, NotEnoughFundsException {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+        BankSystem bank = new BankSystem("kate", accountRepository, transactionRepository, userRepository);
+        User user = bank.createUser("kate", "password", 2);
+        Account account1 = bank.createAccount(user);
+        Account account2 = bank.createAccount(user);
+
+        bank.deposit("deposit-1", account1, new BigDecimal("100"));
+        bank.deposit("deposit-1", account1, new BigDecimal("100"));
+        bank.transfer("transfer-1", account1, account2, new BigDecimal("30"));
+        bank.transfer("transfer-1", account1, account2, new BigDecimal("30"));
+        assertThrows(NotEnoughFundsException.class, () -> {
+            bank.withdrawal("withdrawal-1", account2, new BigDecimal("50"));
+        }, "NotEnoughFundsException");
+        bank.deposit(account2, new BigDecimal("100"));
+        assertThrows(NotEnoughFundsException.class, () -> {
+            bank.withdrawal("withdrawal-1", account2, new BigDecimal("50"));
+        }, "NotEnoughFundsException");
+        assertThrows(IllegalArgumentException.class, () -> {
+            bank.deposit("deposit-1", account2, new BigDecimal("100"));
+        }, "IllegalArgumentException");
+
+        assertEquals(new BigDecimal("70"), account1.getBalance(), "Deposit should be applied once");
+        assertEquals(new BigDecimal("130"), account2.getBalance(), "Transfer should be applied once");
+
+        AtomicLong now = new AtomicLong();
+        IdempotencyCache<String> cache = new IdempotencyCache<>(128, Duration.ofSeconds(1), now::get);
+        for (int i = 0; i < 10_000; i++) {
+            cache.putIfAbsent("key-" + i, "value");
+        }
+        assertTrue(cache.size() <= 128, "Cache should stay within its capacity");
+        assertEquals("value", cache.putIfAbsent("key-9999", "other"), "Recent key should be remembered");
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(cache.putIfAbsent("key-9999", "other"), "Expired key should be forgotten");
+    }
+
+    @Test
+    @DisplayName("HTTP server exposes the banking system as JSON endpoints")
+    void testHttpServer() throws Exception {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        BankSystem bank = new BankSystem("kate", accountRepository, new InMemoryTransactionRepository(),
+                new InMemoryUserRepository(accountRepository), ExecutionMode.CONCURRENT);
+        try (BankHttpServer server = new BankHttpServer(bank, 0)) {
+            server.start();
+            String url = "http://localhost:" + server.getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            HttpResponse<String> user = post(client, url + "/users", "{\"name\":\"kate\",\"password\":\"password\",\"maxAccounts\":2}", null);
+            assertEquals(201, user.statusCode(), "User should be created");
+            String userBody = "{\"userId\":" + Json.quote(Json.parseObject(user.body()).get("id")) + "}";
+            String account1 = Json.parseObject(post(client, url + "/accounts", userBody, null).body()).get("id");
+            String account2 = Json.parseObject(post(client, url + "/accounts", userBody, null).body()).get("id");
+
+            post(client, url + "/accounts/" + account1 + "/deposit", "{\"amount\":100}", "deposit-1");
+            post(client, url + "/accounts/" + account1 + "/deposit", "{\"amount\":100}", "deposit-1");
+            HttpResponse<String> transfer = post(client, url + "/accounts/" + account1 + "/transfer",
+                    "{\"recipientId\":" + Json.quote(account2) + ",\"amount\":40}", null);
+            assertEquals("60", Json.parseObject(transfer.body()).get("balance"), "Sender balance should be 60");
+            assertEquals(409, post(client, url + "/accounts/" + account2 + "/withdrawal", "{\"amount\":1000}", null).statusCode(), "Missing funds should be a conflict");
+            assertEquals(400, post(client, url + "/accounts/" + account2 + "/deposit", "{\"amount\":-1}", null).statusCode(), "Negative amount should be rejected");
+            assertEquals(404, post(client, url + "/accounts/" + UUID.randomUUID() + "/deposit", "{\"amount\":1}", null).statusCode(), "Unknown account should not be found");
+
+            HttpResponse<String> balance = client.send(HttpRequest.newBuilder(URI.create(url + "/accounts/" + account2 + "/balance")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals("{\"balance\":40}", balance.body(), "Recipient balance should be 40");
+            HttpResponse<String> history = client.send(HttpRequest.newBuilder(URI.create(url + "/accounts/" + account1 + "/history?pageSize=1")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, history.statusCode(), "History should be served");
+            assertTrue(history.body().contains("\"DEPOSIT\"") && !history.body().contains("\"nextCursor\":null"), "History should be paginated");
+        }
+    }
+
+    private static HttpResponse<String> post(HttpClient client, String url, String body, String idempotencyKey) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).POST(HttpRequest.BodyPublishers.ofString(body));
+        if (idempotencyKey != null) {
+            request.header("Idempotency-Key", idempotencyKey);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @DisplayName("Services count successes and failures and record latency histograms")
+    void testServiceMetrics() throws Exception {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        BankSystem bank = new BankSystem("kate", accountRepository, new InMemoryTransactionRepository(), new InMemoryUserRepository(accountRepository));
+        User user = bank.createUser("kate", "password", 1);
+        Account account = bank.createAccount(user);
+        assertThrows(MaxAccountsReachedException.class, () -> {
+            bank.createAccount(user);
+        }, "MaxAccountsReachedException");
+        for (int i = 0; i < 100; i++) {
+            bank.deposit(account, BigDecimal.ONE);
+        }
+        assertThrows(NotEnoughFundsException.class, () -> {
+            bank.withdrawal(account, new BigDecimal("1000"));
+        }, "NotEnoughFundsException");
+
+        List<ServiceMetrics> metrics = bank.getMetrics();
+        assertEquals(3, metrics.size(), "User, account and transaction services should be instrumented");
+        OperationSnapshot deposits = metrics.get(2).getOperations().get("deposit");
+        OperationSnapshot withdrawals = metrics.get(2).getOperations().get("withdrawal");
+        OperationSnapshot creations = metrics.get(1).getOperations().get("createAccount");
+        assertEquals(100, deposits.getSuccesses(), "Every deposit should be counted");
+        assertEquals(1, withdrawals.getFailures(), "Missing funds should count as a failure");
+        assertEquals(1, creations.getSuccesses(), "One account should be created");
+        assertEquals(1, creations.getFailures(), "Exceeding the limit should count as a failure");
+
+        OperationMetrics timed = new OperationMetrics("timed", 1);
+        timed.record(timed.start(), true);
+        OperationSnapshot snapshot = timed.snapshot();
+        assertTrue(snapshot.getP50Nanos() > 0 && snapshot.getP50Nanos() == snapshot.getMaxNanos(), "A timed call should be in the histogram");
+        assertEquals(2, snapshot.merge(snapshot).getCalls(), "Snapshots should merge");
+
+        bank.registerMetrics("test");
+        TabularData operations = (TabularData) ManagementFactory.getPlatformMBeanServer().getAttribute(
+                new ObjectName("bank:type=ServiceMetrics,instance=\"test\",service=\"transactions\""), "Operations");
+        CompositeData row = operations.get(new Object[]{"deposit"});
+        assertEquals(100L, ((CompositeData) row.get("value")).get("successes"), "Metrics should be readable over JMX");
+    }
+
+    @Test
+    @DisplayName("Balance reads go to the audit stream, not to the transaction history")
+    void testBalanceReadAudit() throws Exception {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        InMemoryAuditSink sink = new InMemoryAuditSink();
+        AuditTrail auditTrail = AuditTrail.start(sink);
+        BankSystem bank = new BankSystem("kate", accountRepository, new InMemoryTransactionRepository(), new InMemoryUserRepository(accountRepository),
+                new BankSystemConfiguration().auditTrail(auditTrail));
+        User user = bank.createUser("kate", "password", 1);
+        Account account = bank.createAccount(user);
+        bank.deposit(account, new BigDecimal("100"));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(new BigDecimal("100"), bank.getBalance(account), "Balance should be 100");
+        }
+        auditTrail.close();
+        assertEquals(1, bank.getHistoryOfTransaction().size(), "Only the deposit should be in the history");
+        assertEquals(10, sink.getEvents().size(), "Every read should be audited");
+        assertEquals(account.getAccountId(), sink.getEvents().get(0).getAccountId(), "The read account should be audited");
+
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<AuditEvent> written = new ArrayList<>();
+        AuditTrail blocked = AuditTrail.start(events -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.addAll(events);
+        }, 2, 1.0, DropPolicy.DROP_OLDEST);
+        UUID first = UUID.randomUUID();
+        blocked.record(first, AuditEventType.BALANCE_READ);
+        writing.await();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(UUID.randomUUID());
+            blocked.record(ids.get(i), AuditEventType.BALANCE_READ);
+        }
+        release.countDown();
+        blocked.close();
+        assertEquals(3, blocked.getDropped(), "Events beyond the capacity should be dropped");
+        assertEquals(List.of(first, ids.get(3), ids.get(4)), written.stream().map(AuditEvent::getAccountId).toList(),
+                "The oldest queued events should be dropped");
+    }
+
+    @Test
+    @DisplayName("Reconciliation finds phantom records and balances that the history does not explain")
+    void testReconciliation() throws MaxAccountsReachedException, NotEnoughFundsException {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, new InMemoryUserRepository(accountRepository));
+        User user = accountSystem.createUser("kate", "password", 3);
+        Account account1 = accountSystem.createAccount(user);
+        Account account2 = accountSystem.createAccount(user);
+        Account account3 = accountSystem.createAccount(user);
+        accountSystem.deposit(account1, new BigDecimal("100"));
+        accountSystem.transfer(account1, account2, new BigDecimal("30"));
+        accountSystem.withdrawal(account2, new BigDecimal("10"));
+        assertThrows(NotEnoughFundsException.class, () -> {
+            accountSystem.withdrawal(account3, new BigDecimal("1"));
+        }, "NotEnoughFundsException");
+        assertThrows(NotEnoughFundsException.class, () -> {
+            accountSystem.transfer(account2, account1, new BigDecimal("1000"));
+        }, "NotEnoughFundsException");
+        assertEquals(3, transactionRepository.getAllTransactions().size(), "Failed operations should not be logged");
+
+        ReconciliationEngine engine = new ReconciliationEngine(transactionRepository, accountRepository);
+        ReconciliationReport clean = engine.reconcile();
+        assertTrue(clean.isBalanced(), "Every account should reconcile");
+        assertEquals(3, clean.getReplayedRecords(), "Every money movement should be replayed");
+        assertEquals(3, clean.getCheckedAccounts(), "Every account should be checked");
+
+        Transaction phantomWithdrawal = new Transaction(account3, new BigDecimal("5"), TransactionType.WITHDRAWAL);
+        Transaction phantomTransfer = new Transaction(account2, new BigDecimal("500"), TransactionType.TRANSFER, account3);
+        transactionRepository.save(phantomWithdrawal);
+        transactionRepository.save(phantomTransfer);
+        account1.deposit(new BigDecimal("7"));
+        ReconciliationReport report = engine.reconcile();
+        assertEquals(List.of(phantomWithdrawal.getId(), phantomTransfer.getId()).stream().sorted().toList(),
+                report.getPhantomRecords().stream().map(Transaction::getId).sorted().toList(), "Both phantom records should be found");
+        assertEquals(1, report.getDiscrepancies().size(), "Only the unexplained balance should be a discrepancy");
+        assertEquals(account1, report.getDiscrepancies().get(0).getAccount(), "Account1 holds money its history does not explain");
+        assertEquals(new BigDecimal("7"), report.getDiscrepancies().get(0).getDifference(), "The difference should be the unlogged deposit");
+    }
+
+    @Test
+    @DisplayName("Bulk posting credits tiered interest, charges fees and resumes from its checkpoint")
+    void testInterestAndFeePosting(@TempDir Path directory) throws Exception {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+        BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, new InMemoryUserRepository(accountRepository));
+        User user = accountSystem.createUser("kate", "password", 3);
+        Account empty = accountSystem.createAccount(user);
+        Account small = accountSystem.createAccount(user);
+        Account large = accountSystem.createAccount(user);
+        accountSystem.deposit(small, new BigDecimal("50"));
+        accountSystem.deposit(large, new BigDecimal("2000"));
+        PostingPolicy policy = new PostingPolicy(List.of(new RateTier(new BigDecimal("1000"), new BigDecimal("0.02")),
+                new RateTier(BigDecimal.ZERO, new BigDecimal("0.01"))), new BigDecimal("5"), new BigDecimal("100"), 2, RoundingMode.HALF_EVEN);
+        PostingEngine engine = new PostingEngine(accountRepository, transactionRepository, policy);
+
+        Path file = directory.resolve("posting-2026-10.checkpoint");
+        PostingReport stopped = engine.run(new FilePostingCheckpoint(file, "2026-10"), Duration.ZERO);
+        assertFalse(stopped.isComplete(), "Nothing should be posted without a time budget");
+        assertEquals(0, stopped.getPostedAccounts(), "No account should be posted");
+
+        PostingReport report = engine.run(new FilePostingCheckpoint(file, "2026-10"), Duration.ofMinutes(1));
+        assertTrue(report.isComplete(), "The resumed run should complete");
+        assertEquals(2, report.getPostedAccounts(), "The empty account has nothing to post");
+        assertEquals(new BigDecimal("30.00"), report.getTotalInterest(), "Interest should be 1% up to 1000 and 2% above");
+        assertEquals(new BigDecimal("4.50"), report.getTotalFees(), "The fee net of interest should be charged");
+        assertEquals(new BigDecimal("2030.00"), large.getBalance(), "Large balance should earn interest");
+        assertEquals(new BigDecimal("45.50"), small.getBalance(), "Small balance should pay the fee");
+        assertEquals(BigDecimal.ZERO, empty.getBalance(), "A fee should never overdraw an account");
+        assertEquals(1, transactionRepository.getAccountTransactions(large).stream()
+                .filter(transaction -> transaction.getType() == TransactionType.INTEREST).count(), "One ledger record per account");
+
+        assertEquals(0, engine.run(new FilePostingCheckpoint(file, "2026-10"), Duration.ofMinutes(1)).getPostedAccounts(),
+                "A completed run should not post again");
+        PostingReport repeated = engine.run(new InMemoryPostingCheckpoint("2026-10"), Duration.ofMinutes(1));
+        assertEquals(0, repeated.getPostedAccounts(), "Accounts already posted in the run should be skipped");
+        assertThrows(IllegalStateException.class, () -> {
+            new FilePostingCheckpoint(file, "2026-11");
+        }, "IllegalStateException");
+        assertTrue(new ReconciliationEngine(transactionRepository, accountRepository).reconcile().isBalanced(),
+                "Postings should reconcile with the ledger");
+
+        TransactionRepository failingRepository = new InMemoryTransactionRepository() {
+            @Override
+            public void saveAll(List<Transaction> transactions) {
+                throw new IllegalStateException("Ledger unavailable");
+            }
+        };
+        PostingEngine failing = new PostingEngine(accountRepository, failingRepository, policy);
+        assertThrows(IllegalStateException.class, () -> failing.run(new InMemoryPostingCheckpoint("2026-11"), Duration.ofMinutes(1)),
+                "A posting that cannot be saved should fail the run");
+        assertEquals(new BigDecimal("2030.00"), large.getBalance(), "Unsaved interest should be taken back");
+        assertEquals(new BigDecimal("45.50"), small.getBalance(), "Unsaved fees should be returned");
+
+        PostingPolicy precise = new PostingPolicy(List.of(new RateTier(BigDecimal.ZERO, new BigDecimal("0.01"))),
+                BigDecimal.ZERO, BigDecimal.ZERO, 4, RoundingMode.HALF_EVEN);
+        assertThrows(IllegalArgumentException.class, () -> new PostingEngine(accountRepository, transactionRepository, precise,
+                MoneyMode.FIXED_POINT, null, ForkJoinPool.commonPool()), "Fixed-point accounts cannot hold sub-cent postings");
+    }
+
+    @Test
+    @DisplayName("Tiered repository evicts old transactions to disk and queries both tiers")
+    void testTieredTransactionRepository(@TempDir Path directory) throws Exception {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+        Path segments = directory.resolve("segments");
+        TieredTransactionRepository transactionRepository = new TieredTransactionRepository(segments, accountRepository, 4, 2, Duration.ofDays(1));
+        BankSystem accountSystem = new BankSystem("kate", accountRepository, transactionRepository, userRepository);
+        User user = accountSystem.createUser("kate", "password", 2);
+        Account account1 = accountSystem.createAccount(user);
+        Account account2 = accountSystem.createAccount(user);
+        for (int i = 0; i < 9; i++) {
+            accountSystem.deposit(account1, new BigDecimal("10"));
+        }
+        accountSystem.transfer(account1, account2, new BigDecimal("5"));
+        transactionRepository.flush();
+        assertEquals(0, transactionRepository.getHotTransactionCount(), "Flush should evict the hot tier");
+        assertTrue(transactionRepository.getColdSegmentCount() >= 5, "Every generation should become a segment");
+        accountSystem.withdrawal(account2, new BigDecimal("1"));
+
+        List<Transaction> history = transactionRepository.getAccountTransactions(account2);
+        assertEquals(2, history.size(), "History should span the cold transfer and the hot withdrawal");
+        assertEquals(TransactionType.TRANSFER, history.get(0).getType(), "Cold transactions should come first");
+        assertSame(account1, history.get(0).getAccount(), "Cold transactions should resolve their accounts");
+        assertEquals(history.get(0).getId(), transactionRepository.getTransactionByID(history.get(0).getId()).getId(), "Cold transactions should be found by ID");
+        assertEquals(11, transactionRepository.getTransactionsBetween(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(1)).size(),
+                "Time queries should span both tiers");
+        List<Transaction> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<Transaction> page = transactionRepository.getTransactions(cursor, 3);
+            paged.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(transactionRepository.getAllTransactions().stream().map(Transaction::getId).toList(),
+                paged.stream().map(Transaction::getId).toList(), "Pages should walk both tiers in save order");
+        assertTrue(new ReconciliationEngine(transactionRepository, accountRepository).reconcile().isBalanced(), "Both tiers should reconcile");
+        transactionRepository.close();
+
+        try (TieredTransactionRepository reopened = new TieredTransactionRepository(segments, accountRepository, 4, 2, Duration.ofDays(1))) {
+            assertEquals(11, reopened.getAllTransactions().size(), "Every transaction should be restored from the segments");
+            assertEquals(2, reopened.getAccountTransactions(account2).size(), "Account history should be restored");
+        }
+    }
+
+    @Test
+    @DisplayName("Disk repositories update balances in place, cut off a torn page and rebuild the user index on reopen")
+    void testDiskRepositories(@TempDir Path directory) throws Exception {
+        UUID accountId;
+        try (DiskStore store = DiskStore.open(directory, false)) {
+            BankSystem accountSystem = new BankSystem("kate", store.getAccountRepository(), new InMemoryTransactionRepository(), store.getUserRepository());
+            User user = accountSystem.createUser("kate", "password", 2000);
+            Account account1 = accountSystem.createAccount(user);
+            Account account2 = accountSystem.createAccount(user);
+            accountSystem.deposit(account1, new BigDecimal("100.50"));
+            accountSystem.transfer(account1, account2, new BigDecimal("40.25"));
+            for (int i = 0; i < 1500; i++) {
+                accountSystem.createAccount(user);
+            }
+            assertSame(account1, store.getAccountRepository().findById(account1.getAccountId()), "Accounts in use should keep their identity");
+            assertEquals(1502, store.getAccountRepository().getAccountsByUser(user).size(), "Every account should survive the splits");
+            accountId = account1.getAccountId();
+        }
+        Path accountFile = directory.resolve("accounts.db");
+        long committedSize = Files.size(accountFile);
+        Files.write(accountFile, new byte[DiskHashFile.PAGE_SIZE], StandardOpenOption.APPEND);
+
+        try (DiskStore store = DiskStore.open(directory, false)) {
+            assertEquals(committedSize, Files.size(accountFile), "A trailing page without a header should be cut off");
+            DiskAccountRepository accountRepository = store.getAccountRepository();
+            Account account1 = accountRepository.findById(accountId);
+            assertEquals(0, new BigDecimal("60.25").compareTo(account1.getBalance()), "Balances should be updated in place");
+            assertEquals(1502, accountRepository.getAllAccounts().size(), "Every account should be reopened");
+            assertEquals(1502, accountRepository.getAccountsByUser(account1.getUser()).size(), "The user index should be rebuilt");
+            assertEquals(1502, account1.getUser().getNumberOfAccounts(), "The account counter should be stored with the user");
+            assertSame(account1.getUser(), store.getUserRepository().getUserByUID(account1.getUser().getUserId()), "Users in use should keep their identity");
+            store.getUserRepository().delete(account1.getUser());
+            assertFalse(accountRepository.exists(accountId), "Deleting a user should delete the accounts");
+            assertTrue(store.getUserRepository().getAllUsers().isEmpty(), "The user should be deleted");
+        }
+    }
+
+    @Test
+    @DisplayName("Account cache loads on a miss, keeps referenced accounts on eviction and invalidates on delete")
+    void testCachingAccountRepository() throws MaxAccountsReachedException {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        CachingAccountRepository cache = new CachingAccountRepository(accountRepository, 2);
+        User user = new User("kate", "password", 3);
+        Account account1 = new Account(user);
+        Account account2 = new Account(user);
+        Account account3 = new Account(user);
+        cache.saveAll(List.of(account1, account2, account3));
+        assertEquals(0, cache.getStats().getSize(), "Saves should not fill the cache");
+
+        assertSame(account1, cache.findById(account1.getAccountId()), "A miss should load the account");
+        assertSame(account1, cache.findById(account1.getAccountId()), "A second lookup should hit");
+        cache.findById(account2.getAccountId());
+        cache.findById(account3.getAccountId());
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHits(), "One lookup should hit");
+        assertEquals(3, stats.getMisses(), "Three lookups should miss");
+        assertEquals(1, stats.getEvictions(), "The third account should evict one");
+        assertEquals(2, stats.getSize(), "The cache should stay within its capacity");
+        cache.findById(account1.getAccountId());
+        assertEquals(2, cache.getStats().getHits(), "The referenced account should survive the eviction");
+
+        cache.delete(account1);
+        assertFalse(cache.exists(account1.getAccountId()), "Delete should invalidate the cache");
+        cache.deleteAllUsersAccount(user);
+        assertEquals(0, cache.getStats().getSize(), "Deleting the user's accounts should invalidate them");
+        assertNull(cache.findById(account3.getAccountId()), "Deleted accounts should not be found");
+    }
+
+    @Test
+    @DisplayName("Account filter skips page reads for unknown accounts and is rebuilt when stale")
+    void testDiskAccountFilter(@TempDir Path directory) throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        try (DiskStore store = DiskStore.open(directory, false)) {
+            User user = new User("kate", "password", 1000);
+            store.getUserRepository().save(user);
+            for (int i = 0; i < 500; i++) {
+                Account account = new Account(user);
+                store.getAccountRepository().save(account);
+                ids.add(account.getAccountId());
+            }
+            DiskAccountRepository accountRepository = store.getAccountRepository();
+            long pageReads = accountRepository.getPageReads();
+            int positives = 0;
+            for (int i = 0; i < 10000; i++) {
+                if (accountRepository.getFilter().mightContain(UUID.randomUUID())) {
+                    positives++;
+                }
+                assertFalse(accountRepository.exists(UUID.randomUUID()), "Unknown accounts should not exist");
+            }
+            assertTrue(positives < 200, "The filter should keep its false positive rate");
+            assertTrue(accountRepository.getPageReads() - pageReads < 200, "Most unknown accounts should not be read");
+            accountRepository.delete(accountRepository.findById(ids.remove(0)));
+        }
+        assertTrue(Files.exists(directory.resolve("accounts.filter")), "The filter should be written on close");
+
+        try (DiskStore store = DiskStore.open(directory, false)) {
+            assertFalse(Files.exists(directory.resolve("accounts.filter")), "The filter should be removed once read");
+            assertEquals(500, store.getAccountRepository().getFilter().getCount(), "The written filter should be read back");
+            for (UUID id : ids) {
+                assertTrue(store.getAccountRepository().exists(id), "Stored accounts should always be found");
+            }
+        }
+
+        Files.copy(directory.resolve("accounts.filter"), directory.resolve("stale.filter"));
+        try (DiskStore store = DiskStore.open(directory, false)) {
+            User user = store.getAccountRepository().findById(ids.get(0)).getUser();
+            Account account = new Account(user);
+            store.getAccountRepository().save(account);
+            ids.add(account.getAccountId());
+        }
+        Files.move(directory.resolve("stale.filter"), directory.resolve("accounts.filter"), StandardCopyOption.REPLACE_EXISTING);
+        try (DiskStore store = DiskStore.open(directory, false)) {
+            assertEquals(500, store.getAccountRepository().getFilter().getCount(), "A filter of other contents should be rebuilt");
+            for (UUID id : ids) {
+                assertTrue(store.getAccountRepository().exists(id), "Accounts saved after the filter was written should be found");
+            }
+        }
+    }
+}
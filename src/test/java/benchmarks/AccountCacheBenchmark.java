@@ -0,0 +1,93 @@
+package benchmarks;
+
+import application.models.Account;
+import application.models.User;
+import application.repositories.AccountRepository;
+import infrastructure.CachingAccountRepository;
+import infrastructure.persistence.DiskStore;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Measures lookups of a Zipf-distributed account ID against a {@link DiskStore}, directly and through
+ * {@link CachingAccountRepository} of several capacities, and reports the hit rates.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.AccountCacheBenchmark [accounts] [lookups]}.
+ */
+public class AccountCacheBenchmark {
+
+    private static final double ZIPF_EXPONENT = 1.0;
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        Path directory = Files.createTempDirectory("cache");
+        try (DiskStore store = DiskStore.open(directory, false)) {
+            UUID[] ids = new UUID[accountCount];
+            User user = new User("bench", "bench", accountCount);
+            store.getUserRepository().save(user);
+            for (int i = 0; i < accountCount; i++) {
+                Account account = new Account(UUID.randomUUID(), user, BigDecimal.valueOf(i));
+                store.getAccountRepository().save(account);
+                ids[i] = account.getAccountId();
+            }
+            double[] cumulative = zipf(accountCount);
+            System.out.printf("%-10s %12s %12s %12s%n", "capacity", "ns/lookup", "hit rate", "evictions");
+            measure("none", store.getAccountRepository(), ids, cumulative, lookups);
+            for (int capacity : new int[]{1_000, 10_000, 50_000}) {
+                CachingAccountRepository cache = new CachingAccountRepository(store.getAccountRepository(), capacity);
+                measure(String.valueOf(capacity), cache, ids, cumulative, lookups);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static void measure(String name, AccountRepository repository, UUID[] ids, double[] cumulative, int lookups) {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < lookups / 10; i++) {
+            repository.findById(ids[rank(cumulative, random.nextDouble())]);
+        }
+        System.gc();
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            repository.findById(ids[rank(cumulative, random.nextDouble())]);
+        }
+        long nanos = System.nanoTime() - start;
+        if (repository instanceof CachingAccountRepository cache) {
+            System.out.printf("%-10s %12d %11.1f%% %12d%n", name, nanos / lookups, cache.getStats().getHitRate() * 100,
+                    cache.getStats().getEvictions());
+        } else {
+            System.out.printf("%-10s %12d %12s %12s%n", name, nanos / lookups, "-", "-");
+        }
+    }
+
+    private static double[] zipf(int count) {
+        double[] cumulative = new double[count];
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < count; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int rank(double[] cumulative, double value) {
+        int index = Arrays.binarySearch(cumulative, value);
+        return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+    }
+}
@@ -0,0 +1,76 @@
+package benchmarks;
+
+import application.models.Account;
+import application.models.User;
+import infrastructure.persistence.DiskAccountRepository;
+import infrastructure.persistence.DiskStore;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Measures {@link DiskAccountRepository#exists(UUID)} for unknown and stored account IDs, with the page reads each
+ * lookup costs, and the time to reopen the store from the written filter and by rebuilding it.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.AccountFilterBenchmark [accounts] [lookups]}.
+ */
+public class AccountFilterBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        Path directory = Files.createTempDirectory("filter");
+        try {
+            UUID[] ids = new UUID[accountCount];
+            try (DiskStore store = DiskStore.open(directory, false)) {
+                User user = new User("bench", "bench", accountCount);
+                store.getUserRepository().save(user);
+                for (int i = 0; i < accountCount; i++) {
+                    Account account = new Account(UUID.randomUUID(), user, BigDecimal.valueOf(i));
+                    store.getAccountRepository().save(account);
+                    ids[i] = account.getAccountId();
+                }
+                DiskAccountRepository repository = store.getAccountRepository();
+                System.out.printf("filter: %d layers, %d KiB%n", repository.getFilter().getLayerCount(),
+                        repository.getFilter().getSizeInBytes() / 1024);
+                measure("unknown", repository, null, lookups);
+                measure("stored", repository, ids, lookups);
+            }
+            long start = System.nanoTime();
+            DiskStore.open(directory, false).close();
+            System.out.printf("reopen with filter: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+            Files.delete(directory.resolve("accounts.filter"));
+            start = System.nanoTime();
+            DiskStore.open(directory, false).close();
+            System.out.printf("reopen with rebuild: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static void measure(String name, DiskAccountRepository repository, UUID[] ids, int lookups) {
+        UUID[] keys = new UUID[lookups];
+        for (int i = 0; i < lookups; i++) {
+            keys[i] = ids == null ? UUID.randomUUID() : ids[i % ids.length];
+        }
+        long pageReads = repository.getPageReads();
+        int found = 0;
+        long start = System.nanoTime();
+        for (UUID key : keys) {
+            if (repository.exists(key)) {
+                found++;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-8s %8d ns/lookup %8.4f page reads/lookup %8d found%n", name, nanos / lookups,
+                (double) (repository.getPageReads() - pageReads) / lookups, found);
+    }
+}
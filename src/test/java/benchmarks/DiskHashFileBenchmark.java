@@ -0,0 +1,93 @@
+package benchmarks;
+
+import infrastructure.persistence.DiskHashFile;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures {@link DiskHashFile} inserts while a reader thread looks up keys already inserted, so that every split
+ * happens under concurrent lookups, then lookups and in-place updates of random keys. Reports the page reads per
+ * lookup and fails if the reader misses a key.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.DiskHashFileBenchmark [keys]}.
+ */
+public class DiskHashFileBenchmark {
+
+    private static final int PAYLOAD_SIZE = 46;
+
+    public static void main(String[] args) throws Exception {
+        int keys = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        UUID[] ids = new UUID[keys];
+        for (int i = 0; i < keys; i++) {
+            ids[i] = UUID.randomUUID();
+        }
+        Path file = Files.createTempFile("hash", ".db");
+        Files.delete(file);
+        try (DiskHashFile hashFile = DiskHashFile.open(file, PAYLOAD_SIZE, false)) {
+            AtomicLong inserted = new AtomicLong();
+            AtomicLong lookups = new AtomicLong();
+            AtomicLong misses = new AtomicLong();
+            Thread reader = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(7);
+                try {
+                    while (inserted.get() < keys) {
+                        long available = inserted.get();
+                        if (available == 0) {
+                            continue;
+                        }
+                        int index = (int) random.nextLong(available);
+                        ByteBuffer record = hashFile.get(ids[index]);
+                        if (record == null || record.getInt(0) != index) {
+                            misses.incrementAndGet();
+                        }
+                        lookups.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            reader.start();
+            long start = System.nanoTime();
+            ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_SIZE);
+            for (int i = 0; i < keys; i++) {
+                hashFile.put(ids[i], payload.clear().putInt(0, i));
+                inserted.set(i + 1);
+            }
+            double insertSeconds = (System.nanoTime() - start) / 1e9;
+            reader.join();
+            System.out.printf("inserted %,d keys in %.1f s (%,.0f/s) into %,d pages; concurrent lookups %,d, misses %,d%n",
+                    keys, insertSeconds, keys / insertSeconds, hashFile.getPageCount(), lookups.get(), misses.get());
+            if (misses.get() > 0) {
+                throw new IllegalStateException("Reader missed keys during splits");
+            }
+
+            SplittableRandom random = new SplittableRandom(42);
+            int samples = Math.min(keys, 500_000);
+            long readsBefore = hashFile.getPageReads();
+            start = System.nanoTime();
+            for (int i = 0; i < samples; i++) {
+                if (hashFile.get(ids[random.nextInt(keys)]) == null) {
+                    throw new IllegalStateException("Lookup missed a key");
+                }
+            }
+            long lookupNanos = System.nanoTime() - start;
+            System.out.printf("lookups: %.2f page reads each, %.2f us each%n",
+                    (double) (hashFile.getPageReads() - readsBefore) / samples, lookupNanos / 1e3 / samples);
+
+            start = System.nanoTime();
+            for (int i = 0; i < samples; i++) {
+                int index = random.nextInt(keys);
+                hashFile.put(ids[index], payload.clear().putInt(0, index));
+            }
+            System.out.printf("in-place updates: %.2f us each, file %,d MB%n",
+                    (System.nanoTime() - start) / 1e3 / samples, Files.size(file) >> 20);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package benchmarks;
+
+import application.service.ExecutionMode;
+import infrastructure.InMemoryAccountRepository;
+import infrastructure.InMemoryTransactionRepository;
+import infrastructure.InMemoryUserRepository;
+import prestntation.BankHttpServer;
+import prestntation.BankSystem;
+import prestntation.Json;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A closed-loop load generator for {@link BankHttpServer}: every client sends a request, waits for the response and
+ * immediately sends the next one. The mix is 40% balance reads, 30% deposits, 20% transfers and 10% history pages.
+ * Latencies of the warm-up period are discarded; throughput and latency percentiles of the rest are reported.
+ * <p>
+ * Without a URL an in-process server on a free localhost port is started.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.HttpLoadGenerator [clients] [seconds] [url]}.
+ */
+public class HttpLoadGenerator {
+
+    private static final int ACCOUNTS = 1000;
+    private static final long WARM_UP_NANOS = 2_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        BankHttpServer server = null;
+        String url;
+        if (args.length > 2) {
+            url = args[2];
+        } else {
+            if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+                System.setProperty("sun.net.httpserver.nodelay", "true");
+            }
+            InMemoryAccountRepository accountRepository = new InMemoryAccountRepository();
+            BankSystem bank = new BankSystem("bench", accountRepository, new InMemoryTransactionRepository(),
+                    new InMemoryUserRepository(accountRepository), ExecutionMode.CONCURRENT);
+            server = new BankHttpServer(bank, 0);
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String userId = id(send(client, post(url + "/users", "{\"name\":\"bench\",\"password\":\"bench\",\"maxAccounts\":" + ACCOUNTS + "}")));
+        List<String> accounts = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            String accountId = id(send(client, post(url + "/accounts", "{\"userId\":" + Json.quote(userId) + "}")));
+            send(client, post(url + "/accounts/" + accountId + "/deposit", "{\"amount\":1000000}"));
+            accounts.add(accountId);
+        }
+
+        long start = System.nanoTime();
+        long measureFrom = start + WARM_UP_NANOS;
+        long end = measureFrom + seconds * 1_000_000_000L;
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            long seed = c;
+            futures.add(executor.submit(() -> runClient(client, url, accounts, new SplittableRandom(seed), measureFrom, end)));
+        }
+        List<long[]> samples = new ArrayList<>();
+        int count = 0;
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            samples.add(latencies);
+            count += latencies.length;
+        }
+        executor.close();
+        if (server != null) {
+            server.close();
+        }
+
+        long[] latencies = new long[count];
+        int position = 0;
+        for (long[] sample : samples) {
+            System.arraycopy(sample, 0, latencies, position, sample.length);
+            position += sample.length;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%d clients, %d s: %,.0f requests/s, p50 %.2f ms, p99 %.2f ms, p999 %.2f ms%n",
+                clients, seconds, count / (double) seconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999));
+    }
+
+    private static long[] runClient(HttpClient client, String url, List<String> accounts, SplittableRandom random,
+                                    long measureFrom, long end) throws Exception {
+        long[] latencies = new long[1024];
+        int count = 0;
+        while (true) {
+            String account = url + "/accounts/" + accounts.get(random.nextInt(accounts.size()));
+            int kind = random.nextInt(10);
+            HttpRequest request;
+            if (kind < 4) {
+                request = HttpRequest.newBuilder(URI.create(account + "/balance")).GET().build();
+            } else if (kind < 7) {
+                request = post(account + "/deposit", "{\"amount\":1}");
+            } else if (kind < 9) {
+                request = post(account + "/transfer", "{\"recipientId\":" + Json.quote(accounts.get(random.nextInt(accounts.size()))) + ",\"amount\":1}");
+            } else {
+                request = HttpRequest.newBuilder(URI.create(account + "/history?pageSize=20")).GET().build();
+            }
+            long sent = System.nanoTime();
+            send(client, request);
+            long received = System.nanoTime();
+            if (received >= end) {
+                return Arrays.copyOf(latencies, count);
+            }
+            if (sent >= measureFrom) {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = received - sent;
+            }
+        }
+    }
+
+    private static HttpRequest post(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static String send(HttpClient client, HttpRequest request) throws Exception {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(request.uri() + " failed with " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static String id(String body) {
+        return Json.parseObject(body).get("id");
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+}
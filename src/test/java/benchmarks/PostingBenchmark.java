@@ -0,0 +1,55 @@
+package benchmarks;
+
+import application.models.Account;
+import application.models.User;
+import application.posting.PostingEngine;
+import application.posting.PostingPolicy;
+import application.posting.PostingReport;
+import application.posting.RateTier;
+import infrastructure.ColumnarTransactionRepository;
+import infrastructure.InMemoryAccountRepository;
+import infrastructure.InMemoryPostingCheckpoint;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Measures a monthly interest and fee run over many accounts with random balances, saving the posting records to a
+ * {@link ColumnarTransactionRepository}. The run is given a time budget; if it is not done when the budget is spent,
+ * it is resumed from its checkpoint until it is.
+ * <p>
+ * Run with {@code java -Xmx4g -cp target/classes:target/test-classes benchmarks.PostingBenchmark [accounts] [budget in seconds]}.
+ */
+public class PostingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int budgetSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        InMemoryAccountRepository accountRepository = new InMemoryAccountRepository();
+        User user = new User("bench", "bench", accountCount);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < accountCount; i++) {
+            accountRepository.save(new Account(UUID.randomUUID(), user, BigDecimal.valueOf(random.nextLong(0, 1_000_000_00), 2)));
+        }
+        PostingPolicy policy = new PostingPolicy(List.of(
+                new RateTier(BigDecimal.ZERO, new BigDecimal("0.0005")),
+                new RateTier(new BigDecimal("10000"), new BigDecimal("0.001")),
+                new RateTier(new BigDecimal("100000"), new BigDecimal("0.0015"))),
+                new BigDecimal("4.99"), new BigDecimal("1000"), 2, RoundingMode.HALF_EVEN);
+        System.out.printf("%d cores, %,d accounts, budget %d s%n", Runtime.getRuntime().availableProcessors(), accountCount, budgetSeconds);
+        for (int month = 1; month <= 3; month++) {
+            PostingEngine engine = new PostingEngine(accountRepository, new ColumnarTransactionRepository(), policy);
+            InMemoryPostingCheckpoint checkpoint = new InMemoryPostingCheckpoint("2026-" + month);
+            PostingReport report;
+            do {
+                report = engine.run(checkpoint, Duration.ofSeconds(budgetSeconds));
+                System.out.printf("%s (%,.0f accounts/s)%n", report,
+                        (report.getPostedAccounts() + report.getSkippedAccounts()) / (report.getElapsedTime().toNanos() / 1e9));
+            } while (!report.isComplete());
+        }
+    }
+}
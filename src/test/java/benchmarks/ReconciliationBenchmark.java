@@ -0,0 +1,67 @@
+package benchmarks;
+
+import application.exceptions.NotEnoughFundsException;
+import application.models.Account;
+import application.models.User;
+import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+import application.reconciliation.ReconciliationEngine;
+import application.reconciliation.ReconciliationReport;
+import infrastructure.ColumnarTransactionRepository;
+import infrastructure.InMemoryAccountRepository;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Measures how fast the reconciliation engine replays a large history: random deposits, withdrawals and transfers
+ * kept in a {@link ColumnarTransactionRepository}, so the history fits in memory, with a few injected phantom
+ * records. The history is generated consistently with the balances; the report is expected to list the phantoms
+ * and no discrepancies.
+ * <p>
+ * Run with {@code java -Xmx4g -cp target/classes:target/test-classes benchmarks.ReconciliationBenchmark [records] [accounts]}.
+ */
+public class ReconciliationBenchmark {
+
+    private static final int PHANTOMS = 10;
+
+    public static void main(String[] args) throws NotEnoughFundsException {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        InMemoryAccountRepository accountRepository = new InMemoryAccountRepository();
+        ColumnarTransactionRepository transactionRepository = new ColumnarTransactionRepository();
+        User user = new User("bench", "bench", accountCount);
+        Account[] accounts = new Account[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accounts[i] = new Account(UUID.randomUUID(), user, BigDecimal.ZERO);
+            accountRepository.save(accounts[i]);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < records; i++) {
+            Account account = accounts[random.nextInt(accountCount)];
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 10_000), 2);
+            if (i % PHANTOMS == 0 && i / PHANTOMS < PHANTOMS) {
+                transactionRepository.save(new Transaction(account, account.getBalance().add(amount), TransactionType.WITHDRAWAL));
+            } else if (account.getBalance().compareTo(amount) < 0 || random.nextInt(3) == 0) {
+                account.deposit(amount);
+                transactionRepository.save(new Transaction(account, amount, TransactionType.DEPOSIT));
+            } else if (random.nextBoolean()) {
+                account.withdrawal(amount);
+                transactionRepository.save(new Transaction(account, amount, TransactionType.WITHDRAWAL));
+            } else {
+                Account recipient = accounts[random.nextInt(accountCount)];
+                account.withdrawal(amount);
+                recipient.deposit(amount);
+                transactionRepository.save(new Transaction(account, amount, TransactionType.TRANSFER, recipient));
+            }
+        }
+        System.out.printf("%d cores, %,d records, %,d accounts%n", Runtime.getRuntime().availableProcessors(), records, accountCount);
+        ReconciliationEngine engine = new ReconciliationEngine(transactionRepository, accountRepository);
+        for (int run = 0; run < 3; run++) {
+            ReconciliationReport report = engine.reconcile();
+            System.out.printf("%s (%,.0f records/s)%n", report,
+                    report.getReplayedRecords() / (report.getElapsedTime().toNanos() / 1e9));
+        }
+    }
+}
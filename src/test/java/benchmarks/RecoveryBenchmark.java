@@ -0,0 +1,88 @@
+package benchmarks;
+
+import application.models.Account;
+import application.models.User;
+import application.repositories.AccountRepository;
+import application.repositories.UserRepository;
+import application.service.ExecutionMode;
+import application.service.StripedAccountLocks;
+import infrastructure.InMemoryAccountRepository;
+import infrastructure.InMemoryUserRepository;
+import infrastructure.persistence.DurabilityMode;
+import infrastructure.persistence.RecoveryReport;
+import infrastructure.persistence.SnapshotManager;
+import infrastructure.persistence.WriteAheadLog;
+import infrastructure.persistence.WriteAheadLogTransactionRepository;
+import prestntation.BankSystem;
+import prestntation.BankSystemConfiguration;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Compares the balance recovery time when the whole log has to be replayed (a snapshot taken before the first
+ * operation) with recovery from a snapshot taken after 90% of the log. The startup time covers restoring the
+ * snapshot, opening the log from the snapshot's position and replaying the tail. The in-memory history index of a
+ * log-backed transaction repository is loaded by its first query, so it is not included.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.RecoveryBenchmark [accounts] [operations]}.
+ */
+public class RecoveryBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        Path directory = Files.createTempDirectory("recovery-benchmark");
+        Path file = directory.resolve("transactions.wal");
+        Path early = directory.resolve("early");
+        Path late = directory.resolve("late");
+        StripedAccountLocks locks = new StripedAccountLocks(64);
+
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+        try (WriteAheadLogTransactionRepository transactionRepository = new WriteAheadLogTransactionRepository(
+                file, accountRepository, DurabilityMode.ASYNC, WriteAheadLogTransactionRepository.DEFAULT_FLUSH_INTERVAL, 4096)) {
+            BankSystem bank = new BankSystem("bench", accountRepository, transactionRepository, userRepository,
+                    new BankSystemConfiguration().executionMode(ExecutionMode.CONCURRENT).accountLocks(locks));
+            List<Account> accounts = new ArrayList<>(accountCount);
+            User user = bank.createUser("bench", "bench", accountCount);
+            for (int i = 0; i < accountCount; i++) {
+                accounts.add(bank.createAccount(user));
+            }
+            new SnapshotManager(early, accountRepository, userRepository, locks).takeSnapshot(transactionRepository.getLog());
+            SplittableRandom random = new SplittableRandom(42);
+            for (int i = 0; i < operations; i++) {
+                if (i == operations / 10 * 9) {
+                    new SnapshotManager(late, accountRepository, userRepository, locks).takeSnapshot(transactionRepository.getLog());
+                }
+                Account account = accounts.get(random.nextInt(accountCount));
+                if (random.nextInt(3) == 0 && account.getBalance().signum() > 0) {
+                    bank.transfer(account, accounts.get(random.nextInt(accountCount)), BigDecimal.ONE);
+                } else {
+                    bank.deposit(account, BigDecimal.TEN);
+                }
+            }
+        }
+
+        System.out.printf("%,d accounts, %,d logged operations%n", accountCount, operations);
+        recover("full replay", early, file, locks);
+        recover("snapshot at 90%", late, file, locks);
+    }
+
+    private static void recover(String name, Path snapshots, Path file, StripedAccountLocks locks) throws Exception {
+        AccountRepository accountRepository = new InMemoryAccountRepository();
+        UserRepository userRepository = new InMemoryUserRepository(accountRepository);
+        long start = System.nanoTime();
+        SnapshotManager snapshotManager = new SnapshotManager(snapshots, accountRepository, userRepository, locks);
+        snapshotManager.restore();
+        try (WriteAheadLog log = WriteAheadLog.open(file, DurabilityMode.ASYNC, Duration.ZERO, 512, snapshotManager.getRestoredLogPosition())) {
+            RecoveryReport report = snapshotManager.replay(log);
+            System.out.printf("%-16s startup %d ms: %s%n", name, (System.nanoTime() - start) / 1_000_000, report);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package benchmarks;
+
+import application.models.Account;
+import application.models.User;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.service.ShardedTransactionService;
+import infrastructure.InMemoryAccountRepository;
+import infrastructure.InMemoryTransactionRepository;
+import infrastructure.InMemoryUserRepository;
+import infrastructure.ShardedAccountRepository;
+import prestntation.BankSystem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures the throughput of a sharded bank with 1, 2, 4, ... shards under the same client load: deposits and
+ * transfers between random accounts, so with more shards a growing share of the transfers crosses shards.
+ * Shards only scale up to the number of available cores.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.ShardScalingBenchmark [max shards] [clients] [operations per client]}.
+ */
+public class ShardScalingBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int maxShards = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        System.out.printf("%d cores, %d clients, %,d operations per client%n", Runtime.getRuntime().availableProcessors(), clients, operations);
+        System.out.printf("%-8s %14s %10s%n", "shards", "ops/s", "speedup");
+        double baseline = 0;
+        for (int shards = 1; shards <= Math.max(1, maxShards); shards <<= 1) {
+            run(shards, clients, operations);
+            double throughput = run(shards, clients, operations);
+            if (baseline == 0) {
+                baseline = throughput;
+            }
+            System.out.printf("%-8d %,14.0f %9.2fx%n", shards, throughput, throughput / baseline);
+        }
+    }
+
+    private static double run(int shardCount, int clients, int operations) throws Exception {
+        List<AccountRepository> accountShards = new ArrayList<>();
+        List<TransactionRepository> transactionShards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            accountShards.add(new InMemoryAccountRepository());
+            transactionShards.add(new InMemoryTransactionRepository());
+        }
+        AccountRepository accountRepository = new ShardedAccountRepository(accountShards);
+        try (ShardedTransactionService engine = new ShardedTransactionService(accountShards, transactionShards)) {
+            BankSystem bank = new BankSystem("bench", accountRepository, engine, new InMemoryUserRepository(accountRepository));
+            User user = bank.createUser("bench", "bench", ACCOUNTS);
+            List<Account> accounts = new ArrayList<>(ACCOUNTS);
+            for (int i = 0; i < ACCOUNTS; i++) {
+                Account account = bank.createAccount(user);
+                bank.deposit(account, new BigDecimal("1000000"));
+                accounts.add(account);
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(clients);
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int c = 0; c < clients; c++) {
+                long seed = c;
+                futures.add(executor.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    for (int i = 0; i < operations; i++) {
+                        Account account = accounts.get(random.nextInt(ACCOUNTS));
+                        if (random.nextBoolean()) {
+                            bank.deposit(account, BigDecimal.ONE);
+                        } else {
+                            bank.transfer(account, accounts.get(random.nextInt(ACCOUNTS)), BigDecimal.ONE);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            executor.shutdown();
+            return (double) clients * operations / elapsed * 1e9;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package benchmarks;
+
+import application.models.Account;
+import application.models.User;
+import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+import application.repositories.TransactionRepository;
+import infrastructure.ColumnarTransactionRepository;
+import infrastructure.InMemoryAccountRepository;
+import infrastructure.InMemoryTransactionRepository;
+import infrastructure.persistence.TieredTransactionRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Measures the retained heap per saved transaction of {@link InMemoryTransactionRepository},
+ * {@link ColumnarTransactionRepository} and {@link TieredTransactionRepository} with a hot tier of
+ * {@value #HOT_TRANSACTIONS} transactions, as the difference of used heap after full collections.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.TransactionFootprintBenchmark [transactions] [accounts]}.
+ */
+public class TransactionFootprintBenchmark {
+
+    private static final int HOT_TRANSACTIONS = 1 << 18;
+
+    public static void main(String[] args) throws Exception {
+        int transactions = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        User user = new User("bench", "bench", accountCount);
+        List<Account> accounts = new ArrayList<>(accountCount);
+        InMemoryAccountRepository accountRepository = new InMemoryAccountRepository();
+        for (int i = 0; i < accountCount; i++) {
+            accounts.add(new Account(user));
+            accountRepository.save(accounts.get(i));
+        }
+        System.out.printf("%-32s %14s %14s%n", "repository", "heap MB", "bytes/tx");
+        measure("InMemoryTransactionRepository", InMemoryTransactionRepository::new, accounts, transactions);
+        measure("ColumnarTransactionRepository", ColumnarTransactionRepository::new, accounts, transactions);
+        Path directory = Files.createTempDirectory("tiered");
+        try {
+            measure("TieredTransactionRepository", () -> {
+                try {
+                    return new TieredTransactionRepository(directory, accountRepository, HOT_TRANSACTIONS,
+                            TieredTransactionRepository.DEFAULT_SEGMENT_SIZE, TieredTransactionRepository.DEFAULT_MAX_AGE);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, accounts, transactions);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static void measure(String name, Supplier<TransactionRepository> factory, List<Account> accounts, int transactions) throws Exception {
+        long before = usedHeap();
+        TransactionRepository repository = factory.get();
+        SplittableRandom random = new SplittableRandom(42);
+        TransactionType[] types = {TransactionType.DEPOSIT, TransactionType.WITHDRAWAL, TransactionType.TRANSFER};
+        for (int i = 0; i < transactions; i++) {
+            Account account = accounts.get(random.nextInt(accounts.size()));
+            TransactionType type = types[random.nextInt(types.length)];
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong(1, 1_000_000), 2);
+            repository.save(type == TransactionType.TRANSFER
+                    ? new Transaction(account, amount, type, accounts.get(random.nextInt(accounts.size())))
+                    : new Transaction(account, amount, type));
+        }
+        if (repository instanceof TieredTransactionRepository tiered) {
+            while (tiered.getHotTransactionCount() > HOT_TRANSACTIONS) {
+                Thread.sleep(10);
+            }
+        }
+        long after = usedHeap();
+        System.out.printf("%-32s %14.1f %14.1f%n", name, (after - before) / 1048576.0, (double) (after - before) / transactions);
+        if (repository.getTransactionByID(repository.getAllTransactions().get(0).getId()) == null) {
+            throw new IllegalStateException("Repository lost its first transaction");
+        }
+        if (repository instanceof TieredTransactionRepository tiered) {
+            tiered.close();
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,128 @@
+package benchmarks;
+
+import application.contracts.TransactionsOperations;
+import application.exceptions.NotEnoughFundsException;
+import application.models.Account;
+import application.models.User;
+import application.models.transactions.Transaction;
+import application.repositories.TransactionRepository;
+import application.service.AccountLocks;
+import application.service.ConcurrentTransactionService;
+import application.service.GlobalAccountLock;
+import application.service.LedgerTransactionService;
+import application.service.StripedAccountLocks;
+import infrastructure.InMemoryAccountRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Compares transfer throughput of {@link StripedAccountLocks} against a single {@link GlobalAccountLock}
+ * and against the single-writer {@link LedgerTransactionService} at 1 to 64 threads, for uniformly spread
+ * transfers and for transfers concentrated on one hot account.
+ * Transactions are discarded so that only the cost of coordination is measured.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.TransferContentionBenchmark [millisPerRun]}.
+ */
+public class TransferContentionBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws Exception {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        System.out.printf("%-8s %-8s %8s %16s%n", "workload", "engine", "threads", "transfers/s");
+        for (boolean hot : new boolean[]{false, true}) {
+            for (int threads : THREADS) {
+                report(hot, "global", threads, run(accounts -> locked(accounts, new GlobalAccountLock()), threads, hot, millis));
+                report(hot, "striped", threads, run(accounts -> locked(accounts, new StripedAccountLocks(1024)), threads, hot, millis));
+                report(hot, "ledger", threads, run(accounts -> LedgerTransactionService.start(new DiscardingTransactionRepository(), accounts), threads, hot, millis));
+            }
+        }
+    }
+
+    private static void report(boolean hot, String locks, int threads, double throughput) {
+        System.out.printf("%-8s %-8s %8d %16.0f%n", hot ? "hot" : "uniform", locks, threads, throughput);
+    }
+
+    private static TransactionsOperations locked(InMemoryAccountRepository accountRepository, AccountLocks locks) {
+        return new ConcurrentTransactionService(new DiscardingTransactionRepository(), accountRepository, locks);
+    }
+
+    private static double run(Function<InMemoryAccountRepository, TransactionsOperations> engine, int threads, boolean hot, long millis) throws Exception {
+        InMemoryAccountRepository accountRepository = new InMemoryAccountRepository();
+        TransactionsOperations service = engine.apply(accountRepository);
+        User user = new User("bench", "bench", ACCOUNTS);
+        Account[] accounts = new Account[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = new Account(user);
+            accounts[i].deposit(new BigDecimal("1000000000"));
+            accountRepository.save(accounts[i]);
+        }
+
+        LongAdder operations = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + millis * 1_000_000 + 100_000_000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    long done = 0;
+                    while (System.nanoTime() < deadline) {
+                        Account from = accounts[random.nextInt(ACCOUNTS)];
+                        Account to = hot && random.nextBoolean() ? accounts[0] : accounts[random.nextInt(ACCOUNTS)];
+                        if (random.nextBoolean()) {
+                            service.transfer(from, to, BigDecimal.ONE);
+                        } else {
+                            service.transfer(to, from, BigDecimal.ONE);
+                        }
+                        done++;
+                    }
+                    operations.add(done);
+                } catch (InterruptedException | NotEnoughFundsException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double throughput = operations.sum() / ((System.nanoTime() - begin) / 1e9);
+        if (service instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        return throughput;
+    }
+
+    private static final class DiscardingTransactionRepository implements TransactionRepository {
+
+        @Override
+        public void save(Transaction transaction) {
+        }
+
+        @Override
+        public List<Transaction> getAccountTransactions(Account account) {
+            return List.of();
+        }
+
+        @Override
+        public Transaction getTransactionByID(UUID id) {
+            return null;
+        }
+
+        @Override
+        public List<Transaction> getAllTransactions() {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package benchmarks;
+
+import application.models.Account;
+import application.models.User;
+import application.models.transactions.Transaction;
+import application.models.transactions.TransactionType;
+import infrastructure.InMemoryAccountRepository;
+import infrastructure.persistence.DurabilityMode;
+import infrastructure.persistence.WriteAheadLogTransactionRepository;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the save throughput of {@link WriteAheadLogTransactionRepository} with a force per operation,
+ * with group commit and in async mode, for a growing number of concurrent writers.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes benchmarks.WriteAheadLogBenchmark [millisPerRun] [flushIntervalMillis]}.
+ */
+public class WriteAheadLogBenchmark {
+
+    private static final int[] THREADS = {1, 4, 16, 64};
+
+    public static void main(String[] args) throws Exception {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        Duration flushInterval = Duration.ofMillis(args.length > 1 ? Long.parseLong(args[1]) : 0);
+        System.out.printf("%-20s %8s %14s%n", "mode", "threads", "saves/s");
+        for (DurabilityMode mode : DurabilityMode.values()) {
+            for (int threads : THREADS) {
+                System.out.printf("%-20s %8d %14.0f%n", mode, threads, run(mode, threads, millis, flushInterval));
+            }
+        }
+    }
+
+    private static double run(DurabilityMode mode, int threads, long millis, Duration flushInterval) throws Exception {
+        Path directory = Files.createTempDirectory("wal-benchmark");
+        Path file = directory.resolve("transactions.wal");
+        InMemoryAccountRepository accountRepository = new InMemoryAccountRepository();
+        Account account = new Account(new User("bench", "bench", 1));
+        accountRepository.save(account);
+        LongAdder saves = new LongAdder();
+        long elapsed;
+        try (WriteAheadLogTransactionRepository repository = new WriteAheadLogTransactionRepository(
+                file, accountRepository, mode, flushInterval, 512)) {
+            CountDownLatch start = new CountDownLatch(1);
+            long deadline = System.nanoTime() + millis * 1_000_000 + 100_000_000;
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    while (System.nanoTime() < deadline) {
+                        repository.save(new Transaction(account, BigDecimal.TEN, TransactionType.DEPOSIT));
+                        saves.increment();
+                    }
+                });
+                workers[t].start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            elapsed = System.nanoTime() - begin;
+        }
+        Files.delete(file);
+        Files.delete(directory);
+        return saves.sum() / (elapsed / 1e9);
+    }
+}